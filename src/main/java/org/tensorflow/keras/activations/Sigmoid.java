@@ -15,6 +15,7 @@ limitations under the License.
 package org.tensorflow.keras.activations;
 
 import org.tensorflow.Operand;
+import org.tensorflow.keras.backend.K;
 import org.tensorflow.keras.utils.TypeUtils;
 import org.tensorflow.op.Ops;
 import org.tensorflow.types.family.TType;
@@ -40,9 +41,9 @@ public class Sigmoid<T extends TType> extends Activation<T> {
      */
     @Override
     public Operand<T> call(Operand<T> input) {
-        assert TypeUtils.isFloating(input.asTensor().dataType()) :
-                "Must be a Floating Point DataType: " + input.asTensor().dataType();
-        return tf.math.sigmoid(input);
+        assert TypeUtils.isFloating(input.asOutput().dataType()) :
+                "Must be a Floating Point DataType: " + input.asOutput().dataType();
+        return K.sigmoid(tf, input);
     }
 
 }
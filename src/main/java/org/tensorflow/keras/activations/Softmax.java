@@ -15,7 +15,7 @@ limitations under the License.
 package org.tensorflow.keras.activations;
 
 import org.tensorflow.Operand;
-import org.tensorflow.keras.utils.ShapeUtils;
+import org.tensorflow.keras.backend.K;
 import org.tensorflow.keras.utils.TypeUtils;
 import org.tensorflow.ndarray.Shape;
 import org.tensorflow.op.Ops;
@@ -59,12 +59,14 @@ public class Softmax<T extends TType> extends Activation<T> {
      */
     @Override
     public Operand<T> call(Operand<T> input) {
-        assert TypeUtils.isFloating(input.asTensor().dataType()) :
-                "Must be a Floating Point DataType: " + input.asTensor().dataType();
-        Shape shape = ShapeUtils.getShape(input.asTensor());
+        assert TypeUtils.isFloating(input.asOutput().dataType()) :
+                "Must be a Floating Point DataType: " + input.asOutput().dataType();
+        Shape shape = input.asOutput().shape();
+        int rank = shape.numDimensions();
 
-        if (shape.numDimensions() == 2) {
-            return tf.nn.softmax((Operand) input);
+        if (rank == 2 || (rank > 2 && (axis == -1 || axis == rank - 1))) {
+            // over the last dimension, so that crossentropy finds the logits
+            return K.softmax(tf, input);
         } else {
             Operand e = tf.math.exp(input);
             ReduceSum.Options option = ReduceSum.keepDims(Boolean.TRUE);
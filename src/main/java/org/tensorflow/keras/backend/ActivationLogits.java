@@ -0,0 +1,144 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.backend;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import org.tensorflow.ExecutionEnvironment;
+import org.tensorflow.Graph;
+import org.tensorflow.GraphOperation;
+import org.tensorflow.Operand;
+import org.tensorflow.Output;
+
+/**
+ * Records the inputs of the <code>Sigmoid</code> and <code>Softmax</code>
+ * operations built by the backend, and of the <code>Identity</code>,
+ * <code>Cast</code> and <code>Reshape</code> operations the backend builds
+ * after them, so that a crossentropy computed from the probabilities can walk
+ * back to the logits.
+ *
+ * <p>
+ * The Java API does not expose the inputs of an operation, so the inputs are
+ * recorded when the operation is built rather than read back from the graph.
+ * A pass-through operation is only recorded if its input is recorded, so the
+ * registry only holds the chains that start at an activation. Graphs are
+ * weakly referenced and the registry only keeps the names of the operations,
+ * so a graph can be collected once it is no longer reachable. Eager
+ * environments are not recorded.
+ *
+ * @author Jim Clarke
+ */
+final class ActivationLogits {
+
+    private static final Map<ExecutionEnvironment, Map<String, Source>> inputs = new WeakHashMap<>();
+
+    private ActivationLogits() {
+    }
+
+    /**
+     * Records the logits of an activation.
+     *
+     * @param env the environment of the activation
+     * @param activation the output of the activation
+     * @param logits the logits the activation was computed from
+     */
+    static void recordActivation(ExecutionEnvironment env, Operand activation, Operand logits) {
+        if (!env.isGraph()) {
+            return;
+        }
+        synchronized (inputs) {
+            inputs.computeIfAbsent(env, e -> new HashMap<>())
+                    .put(activation.asOutput().op().name(), new Source(logits.asOutput(), null));
+        }
+    }
+
+    /**
+     * Records the input of an <code>Identity</code>, <code>Cast</code> or
+     * <code>Reshape</code>, if the input is itself recorded.
+     *
+     * @param env the environment of the operation
+     * @param output the output of the operation
+     * @param input the input of the operation
+     * @param shape the shape of a <code>Reshape</code>, or null.
+     */
+    static void recordPassThrough(ExecutionEnvironment env, Operand output, Operand input, Operand shape) {
+        if (!env.isGraph()) {
+            return;
+        }
+        synchronized (inputs) {
+            Map<String, Source> graphInputs = inputs.get(env);
+            if (graphInputs != null && graphInputs.containsKey(input.asOutput().op().name())) {
+                graphInputs.put(output.asOutput().op().name(),
+                        new Source(input.asOutput(), shape == null ? null : shape.asOutput()));
+            }
+        }
+    }
+
+    /**
+     * Gets the recorded input of an operation, the logits of an activation.
+     *
+     * @param env the environment of the operation
+     * @param output the output of the operation
+     * @return the input, or null if none was recorded for the operation.
+     */
+    static Output input(ExecutionEnvironment env, Output output) {
+        Source source = get(env, output);
+        return source == null ? null : output(env, source.name, source.index);
+    }
+
+    /**
+     * Gets the recorded shape of a <code>Reshape</code>.
+     *
+     * @param env the environment of the operation
+     * @param output the output of the operation
+     * @return the shape, or null if none was recorded for the operation.
+     */
+    static Output shape(ExecutionEnvironment env, Output output) {
+        Source source = get(env, output);
+        return source == null || source.shapeName == null
+                ? null : output(env, source.shapeName, source.shapeIndex);
+    }
+
+    private static Source get(ExecutionEnvironment env, Output output) {
+        if (!env.isGraph()) {
+            return null;
+        }
+        synchronized (inputs) {
+            Map<String, Source> graphInputs = inputs.get(env);
+            return graphInputs == null ? null : graphInputs.get(output.op().name());
+        }
+    }
+
+    private static Output output(ExecutionEnvironment env, String name, int index) {
+        GraphOperation op = ((Graph) env).operation(name);
+        return op == null ? null : op.output(index);
+    }
+
+    private static final class Source {
+
+        private final String name;
+        private final int index;
+        private final String shapeName;
+        private final int shapeIndex;
+
+        private Source(Output input, Output shape) {
+            this.name = input.op().name();
+            this.index = input.index();
+            this.shapeName = shape == null ? null : shape.op().name();
+            this.shapeIndex = shape == null ? 0 : shape.index();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.backend;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import org.tensorflow.DataType;
+import org.tensorflow.ExecutionEnvironment;
+import org.tensorflow.Graph;
+import org.tensorflow.GraphOperation;
+import org.tensorflow.Operand;
+import org.tensorflow.op.Ops;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.TFloat64;
+import org.tensorflow.types.TInt32;
+import org.tensorflow.types.TInt64;
+
+/**
+ * Interns the scalar constants created by the backend helpers, so that a
+ * graph holds one constant for each value and data type, however many times
+ * it is requested.
+ *
+ * <p>
+ * The constants are created in the root scope of the graph, without any
+ * control dependencies, and with a name derived from the value and data type.
+ * Graphs are weakly referenced and the cache only keeps the names of the
+ * constants, not the operations, so a graph can be collected once it is no
+ * longer reachable. Eager environments are not cached.
+ *
+ * @author Jim Clarke
+ */
+final class ConstantCache {
+
+    private static final Map<ExecutionEnvironment, Map<String, String>> constants = new WeakHashMap<>();
+
+    private ConstantCache() {
+    }
+
+    /**
+     * Gets the scalar constant for a value and data type.
+     *
+     * @param tf the TensorFlow Ops
+     * @param number the value
+     * @param dtype the data type
+     * @return the shared constant in a graph, or a new constant in eager mode
+     */
+    static Operand get(Ops tf, double number, DataType dtype) {
+        ExecutionEnvironment env = tf.scope().env();
+        if (!env.isGraph()) {
+            return create(tf, number, dtype);
+        }
+        Graph graph = (Graph) env;
+        String key = dtype.name() + "_" + number;
+        synchronized (constants) {
+            Map<String, String> graphConstants = constants.computeIfAbsent(env, e -> new HashMap<>());
+            String opName = graphConstants.get(key);
+            if (opName == null) {
+                opName = "K_constant_" + key;
+                GraphOperation existing = graph.operation(opName);
+                Operand constant = existing == null
+                        ? create(Ops.create(graph), number, dtype, opName)
+                        : existing.output(0);
+                graphConstants.put(key, opName);
+                return constant;
+            }
+            return graph.operation(opName).output(0);
+        }
+    }
+
+    private static Operand create(Ops tf, double number, DataType dtype) {
+        return create(tf, number, dtype, null);
+    }
+
+    /**
+     * Creates the constant, giving the name only to the operation that
+     * produces the requested data type. Data types without a direct constant
+     * are cast from an unnamed float64 constant.
+     */
+    private static Operand create(Ops tf, double number, DataType dtype, String name) {
+        Ops named = name == null ? tf : tf.withName(name);
+        if (dtype == TFloat32.DTYPE) {
+            return named.constant((float) number);
+        } else if (dtype == TFloat64.DTYPE) {
+            return named.constant(number);
+        } else if (dtype == TInt32.DTYPE) {
+            return named.constant((int) number);
+        } else if (dtype == TInt64.DTYPE) {
+            return named.constant((long) number);
+        }
+        return named.dtypes.cast(tf.constant(number), dtype);
+    }
+}
@@ -14,11 +14,14 @@ limitations under the License.
 =======================================================================*/
 package org.tensorflow.keras.backend;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.function.Function;
 import org.tensorflow.DataType;
+import org.tensorflow.ExecutionEnvironment;
 import org.tensorflow.Operand;
+import org.tensorflow.Output;
 import org.tensorflow.keras.backend.tf.NN;
 import org.tensorflow.keras.losses.impl.LossesImpl;
 import org.tensorflow.ndarray.Shape;
@@ -31,6 +34,7 @@ import org.tensorflow.types.TBfloat16;
 import org.tensorflow.types.TBool;
 import org.tensorflow.types.TFloat16;
 import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.TFloat64;
 import org.tensorflow.types.TInt32;
 import org.tensorflow.types.TInt64;
 import org.tensorflow.types.family.TNumber;
@@ -49,40 +53,89 @@ public class K {
         return Epsilon;
     }
 
+    /*
+     * The scalar constants below are interned, so that a graph holds a single
+     * constant for each value and data type.
+     */
     public static final Operand epsilonConstant(Ops tf) {
-        return tf.constant(Epsilon);
+        return ConstantCache.get(tf, Epsilon, TFloat64.DTYPE);
     }
 
     public static final Operand epsilonConstant(Ops tf, DataType dtype) {
-        return tf.dtypes.cast(tf.constant(Epsilon), dtype);
+        return ConstantCache.get(tf, Epsilon, dtype);
     }
 
     public static final Operand one(Ops tf) {
-        return tf.constant(1);
+        return ConstantCache.get(tf, 1, TInt32.DTYPE);
     }
 
     public static final Operand one(Ops tf, DataType dtype) {
-        return tf.dtypes.cast(tf.constant(1), dtype);
+        return ConstantCache.get(tf, 1, dtype);
     }
 
     public static final Operand minusOne(Ops tf) {
-        return tf.constant(-1);
+        return ConstantCache.get(tf, -1, TInt32.DTYPE);
     }
 
     public static final Operand minusOne(Ops tf, DataType dtype) {
-        return tf.dtypes.cast(tf.constant(-1), dtype);
+        return ConstantCache.get(tf, -1, dtype);
     }
 
     public static final Operand zero(Ops tf) {
-        return tf.constant(0);
+        return ConstantCache.get(tf, 0, TInt32.DTYPE);
     }
 
     public static final Operand zero(Ops tf, DataType dtype) {
-        return tf.dtypes.cast(tf.constant(0), dtype);
+        return ConstantCache.get(tf, 0, dtype);
     }
 
     public static final Operand constant(Ops tf, double number, DataType dtype) {
-        return tf.dtypes.cast(tf.constant(number), dtype);
+        return ConstantCache.get(tf, number, dtype);
+    }
+
+    /**
+     * Casts an operand to a data type, without adding an operation if it
+     * already has that type.
+     *
+     * @param tf the TensorFlow Ops
+     * @param x the operand
+     * @param dtype the data type
+     * @return the operand, cast to the data type
+     */
+    public static Operand cast(Ops tf, Operand x, DataType dtype) {
+        if (x.asOutput().dataType() == dtype) {
+            return x;
+        }
+        Operand result = tf.dtypes.cast(x, dtype);
+        ActivationLogits.recordPassThrough(tf.scope().env(), result, x, null);
+        return result;
+    }
+
+    /**
+     * Adds an identity of an operand.
+     *
+     * @param tf the TensorFlow Ops
+     * @param x the operand
+     * @return the identity of the operand
+     */
+    public static Operand identity(Ops tf, Operand x) {
+        Operand result = tf.identity(x);
+        ActivationLogits.recordPassThrough(tf.scope().env(), result, x, null);
+        return result;
+    }
+
+    /**
+     * Reshapes an operand.
+     *
+     * @param tf the TensorFlow Ops
+     * @param x the operand
+     * @param shape the new shape
+     * @return the reshaped operand
+     */
+    public static Operand reshape(Ops tf, Operand x, Operand shape) {
+        Operand result = tf.reshape(x, shape);
+        ActivationLogits.recordPassThrough(tf.scope().env(), result, x, shape);
+        return result;
     }
 
     public static Operand clip(Ops tf, Operand x, double minValue, double maxValue) {
@@ -175,11 +228,113 @@ public class K {
 
     }
 
-    //TODO need to walk back identity until it hits something else
-    private static Operand backtrackIdentity(Operand output) {
-        // while(!output.op().type().equals("Identity"))
-        //    output = output.op().output(0);
-        return output;
+    /**
+     * Computes the sigmoid of the logits, recording the logits so that a
+     * binary crossentropy of the result is computed from them.
+     *
+     * @param tf the TensorFlow Ops
+     * @param logits the logits
+     * @return the probabilities
+     */
+    public static Operand sigmoid(Ops tf, Operand logits) {
+        Operand result = tf.math.sigmoid(logits);
+        ActivationLogits.recordActivation(tf.scope().env(), result, logits);
+        return result;
+    }
+
+    /**
+     * Computes the softmax of the logits over the last dimension, recording the
+     * logits so that a categorical crossentropy of the result is computed from
+     * them.
+     *
+     * @param tf the TensorFlow Ops
+     * @param logits the logits
+     * @return the probabilities
+     */
+    public static Operand softmax(Ops tf, Operand logits) {
+        Operand result = tf.nn.softmax(logits);
+        ActivationLogits.recordActivation(tf.scope().env(), result, logits);
+        return result;
+    }
+
+    /**
+     * Finds the logits of a probability activation built by {@link #sigmoid}
+     * or {@link #softmax}, looking through the <code>Identity</code>,
+     * <code>Cast</code> and <code>Reshape</code> operations built by
+     * {@link #identity}, {@link #cast} and {@link #reshape} between the
+     * activation and the output.
+     *
+     * <p>
+     * The casts and reshapes are applied again to the logits, so that the
+     * logits have the same shape and data type as the output. A
+     * <code>Reshape</code> after a <code>Softmax</code> is only looked through
+     * if it keeps the last dimension, the one the softmax normalizes. The Java
+     * API does not expose the inputs of an operation, so the walk follows the
+     * inputs recorded when these operations were built; operations built
+     * directly with <code>Ops</code> fall back to the probabilities.
+     *
+     * @param tf the TensorFlow Ops
+     * @param output the output, probabilities
+     * @param activation the type of the activation, <code>Sigmoid</code> or
+     * <code>Softmax</code>
+     * @return the logits, or null if the output is not produced by the
+     * activation.
+     */
+    public static Operand backtrackLogits(Ops tf, Operand output, String activation) {
+        ExecutionEnvironment env = tf.scope().env();
+        if (output instanceof Variable || !env.isGraph()) {
+            return null;
+        }
+
+        // the casts and reshapes from the activation to the output, last first.
+        List<Output> chain = new ArrayList<>();
+        Output link = output.asOutput();
+        while (!link.op().type().equals(activation)) {
+            String type = link.op().type();
+            if (!LOGITS_PASS_THROUGH.contains(type)) {
+                return null;
+            }
+            Output input = ActivationLogits.input(env, link);
+            if (input == null) {
+                return null;
+            }
+            if (type.equals("Reshape") && activation.equals("Softmax")
+                    && !keepsLastDimension(input.shape(), link.shape())) {
+                return null;
+            }
+            chain.add(link);
+            link = input;
+        }
+        Operand logits = ActivationLogits.input(env, link);
+        if (logits == null) {
+            return null;
+        }
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            Output step = chain.get(i);
+            switch (step.op().type()) {
+                case "Cast":
+                    logits = tf.dtypes.cast(logits, step.dataType());
+                    break;
+                case "Reshape":
+                    logits = tf.reshape(logits, ActivationLogits.shape(env, step));
+                    break;
+                default: // Identity
+                    break;
+            }
+        }
+        return logits;
+    }
+
+    private static final List<String> LOGITS_PASS_THROUGH = Arrays.asList("Identity", "Cast", "Reshape");
+
+    private static boolean keepsLastDimension(Shape inputShape, Shape outputShape) {
+        if (inputShape.isUnknown() || outputShape.isUnknown()
+                || inputShape.numDimensions() == 0 || outputShape.numDimensions() == 0) {
+            return false;
+        }
+        long inputLast = inputShape.size(inputShape.numDimensions() - 1);
+        long outputLast = outputShape.size(outputShape.numDimensions() - 1);
+        return inputLast >= 0 && inputLast == outputLast;
     }
 
     public static Operand binary_crossentropy(Ops tf, Operand target, Operand output, boolean fromLogits) {
@@ -187,13 +342,9 @@ public class K {
             return sigmoidCrossEntropyWithLogits(tf, target, output);
         }
 
-        if (!(output instanceof Variable) && (!tf.scope().env().isEager())) {
-            //output = backtrackIdentity(output); // TODO - this does not work, goes infinite loop
-            if (output.op().type().equals("Sigmoid")) {
-                assert output.op().numOutputs() == 1;
-                output = output.op().output(0);
-                return sigmoidCrossEntropyWithLogits(tf, target, output);
-            }
+        Operand logits = backtrackLogits(tf, output, "Sigmoid");
+        if (logits != null) {
+            return sigmoidCrossEntropyWithLogits(tf, target, logits);
         }
         DataType dtype = output.asOutput().dataType();
         Operand one = one(tf, dtype);
@@ -221,13 +372,12 @@ public class K {
         if (fromLogits) {
             return softmax_cross_entropy_with_logits(tf, target, output);
         }
-        if (!(output instanceof Variable) && (!tf.scope().env().isEager())) {
-            //TODO output = backtrackIdentity(output); doesn't seem to work with Java version.
-            if (output.op().type().equals("Softmax")) {
-                assert output.op().numOutputs() == 1;
-                output = output.op().output(0);
-                Operand op = softmax_cross_entropy_with_logits(tf, target, output);
-                return op;
+        int rank = output.asOutput().shape().numDimensions();
+        if (axis == -1 || (rank > 0 && axis == rank - 1)) {
+            // Softmax normalizes the last dimension.
+            Operand logits = backtrackLogits(tf, output, "Softmax");
+            if (logits != null) {
+                return softmax_cross_entropy_with_logits(tf, target, logits);
             }
         }
         DataType dtype = output.asOutput().dataType();
@@ -251,16 +401,17 @@ public class K {
 
     public static Operand sparse_categorical_crossentropy(Ops tf, Operand target, Operand output, boolean fromLogits, int axis) {
         DataType dType = output.asOutput().dataType();
-        if (!(output instanceof Variable) && (!tf.scope().env().isEager())) {
-            //TODO output = backtrackIdentity(output); doesn't seem to work with Java version.
-            if (output.op().type().equals("Softmax")) {
-                //assert output.op().numOutputs() == 1;
+        if (!fromLogits) {
+            int rank = output.asOutput().shape().numDimensions();
+            if (axis == -1 || (rank > 0 && axis == rank - 1)) {
                 // When softmax activation function is used for output operation, we
                 // use logits from the softmax function directly to compute loss in order
                 // to prevent collapsing zero when training.
-                //TODO assert len(output.op.inputs) == 1
-                //TODO output = output.op.inputs[0]
-                fromLogits = true;
+                Operand logits = backtrackLogits(tf, output, "Softmax");
+                if (logits != null) {
+                    output = logits;
+                    fromLogits = true;
+                }
             }
         }
         if (!fromLogits) {
@@ -66,24 +66,25 @@ public class ConfusionMatrix {
     public static Tuple removeSqueezableDimensions(Ops tf, Operand labels,
             Operand predictions, int expectedRankDiff) {
 
-        tf = tf.withSubScope("removeSqueezableDimensions");
         Shape predictionsShape = predictions.asOutput().shape();
         int predictionsRank = predictionsShape.numDimensions();
         Shape labelsShape = labels.asOutput().shape();
         int labelsRank = labelsShape.numDimensions();
 
         if (predictionsRank != Shape.UNKNOWN_SIZE && labelsRank != Shape.UNKNOWN_SIZE) {
-            // Use static rank.
+            // Use static rank, no operations are added unless a dimension is squeezed.
             int rankDiff = predictionsRank - labelsRank;
             if (rankDiff == expectedRankDiff + 1 && ShapeUtils.isCompatible(predictionsShape.size(-1), 1)) {
-                predictions = tf.squeeze(predictions);
+                predictions = tf.withSubScope("removeSqueezableDimensions")
+                        .squeeze(predictions, Squeeze.axis(Arrays.asList(-1L)));
             } else if (rankDiff == expectedRankDiff - 1 && ShapeUtils.isCompatible(labelsShape.size(-1), 1)) {
-                labels = tf.squeeze(labels);
+                labels = tf.withSubScope("removeSqueezableDimensions")
+                        .squeeze(labels, Squeeze.axis(Arrays.asList(-1L)));
             }
             return new Tuple(labels, predictions);
         }
         // Use dynamic rank.
-        Operand rankDiff = tf.math.sub(tf.rank(predictions), tf.rank(labels));
+        tf = tf.withSubScope("removeSqueezableDimensions");
         if (predictionsRank == Shape.UNKNOWN_SIZE && ShapeUtils.isCompatible(predictionsShape.size(-1), 1)) {
             /**
              * TODO, if we ever get a select that does lazy evaluation, but for
@@ -15,6 +15,8 @@ limitations under the License.
 package org.tensorflow.keras.backend.tf;
 
 import org.tensorflow.Operand;
+import org.tensorflow.op.Ops;
+import org.tensorflow.op.sparse.SparseToDense;
 import org.tensorflow.types.TInt64;
 import org.tensorflow.types.family.TType;
 
@@ -68,6 +70,17 @@ public class   SparseTensor <T extends TType> {
     public Operand<TInt64> getDenseShape() {
         return denseShape;
     }
-    
-    
+
+    /**
+     * Converts this SparseTensor to a dense tensor, with zeros for the
+     * missing elements.
+     *
+     * @param tf the TensorFlow Ops
+     * @return the dense tensor
+     */
+    public Operand<T> toDense(Ops tf) {
+        return tf.sparse.sparseToDense(indices, denseShape, values,
+                tf.dtypes.cast(tf.constant(0), values.asOutput().dataType()),
+                SparseToDense.validateIndices(false));
+    }
 }
@@ -3,6 +3,7 @@ package org.tensorflow.keras.backend.tf;
 import java.util.Arrays;
 import java.util.List;
 import org.tensorflow.Operand;
+import org.tensorflow.keras.backend.K;
 import org.tensorflow.keras.utils.ShapeUtils;
 import org.tensorflow.ndarray.Shape;
 import org.tensorflow.op.Op;
@@ -126,7 +127,7 @@ public class WeightsBroadcastOps {
      */
     public static <T extends TNumber> Operand<T> broadcastWeights(Ops tf, Operand<T> weights, Operand<T> values) {
         tf = tf.withSubScope("broadcast_weights");
-        values = tf.dtypes.cast(values, weights.asOutput().dataType());
+        values = K.cast(tf, values, weights.asOutput().dataType());
 
         Shape weightsShape = weights.asOutput().shape();
         Shape valuesShape = values.asOutput().shape();
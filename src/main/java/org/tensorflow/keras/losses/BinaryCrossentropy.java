@@ -15,6 +15,7 @@ limitations under the License.
 package org.tensorflow.keras.losses;
 
 import org.tensorflow.Operand;
+import org.tensorflow.keras.backend.tf.SparseTensor;
 import org.tensorflow.op.Ops;
 import org.tensorflow.types.family.TNumber;
 
@@ -168,4 +169,19 @@ public class BinaryCrossentropy extends Loss {
         return super.computeWeightedLoss(losses, getReduction(), sampleWeights);
     }
 
+    /**
+     * Computes the loss of sparse labels, such as multi-hot labels over a
+     * large number of classes, without densifying the labels.
+     *
+     * @param labels the labels, with indices <code>[N, 2]</code> into the
+     * predictions
+     * @param predictions the predictions, with shape <code>[batchSize, numClasses]</code>
+     * @param sampleWeights Optional sample weights, may be null
+     * @return the loss
+     */
+    public Operand call(SparseTensor labels, Operand predictions, Operand sampleWeights) {
+        Operand losses = Losses.binary_crossentropy(tf, labels, predictions, fromLogits, labelSmoothing);
+        return super.computeWeightedLoss(losses, getReduction(), sampleWeights);
+    }
+
 }
@@ -0,0 +1,182 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.losses;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.tensorflow.Operand;
+import org.tensorflow.op.Ops;
+import org.tensorflow.op.nn.FixedUnigramCandidateSampler;
+import org.tensorflow.op.random.LogUniformCandidateSampler;
+import org.tensorflow.op.random.UniformCandidateSampler;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.TInt64;
+
+/**
+ * Draws the candidate classes for the sampled losses,
+ * {@link SampledSoftmaxLoss} and {@link NCELoss}.
+ *
+ * <p>
+ * Candidates are drawn without replacement, and the sampler reports the
+ * expected count of each true and sampled class, that the losses use to
+ * correct the logits for the sampling.
+ *
+ * @author Jim Clarke
+ */
+public class CandidateSampler {
+
+    private enum Distribution {
+        LOG_UNIFORM, UNIFORM, UNIGRAM
+    }
+
+    private final Distribution distribution;
+    private final List<Float> unigrams;
+    private final float distortion;
+
+    private CandidateSampler(Distribution distribution, List<Float> unigrams, float distortion) {
+        this.distribution = distribution;
+        this.unigrams = unigrams;
+        this.distortion = distortion;
+    }
+
+    /**
+     * Creates a sampler with an approximately log-uniform, or Zipfian,
+     * distribution, where class <code>k</code> is drawn with probability
+     * <code>(log(k + 2) - log(k + 1)) / log(rangeMax + 1)</code>. The classes
+     * should be sorted by decreasing frequency.
+     *
+     * @return the sampler
+     */
+    public static CandidateSampler logUniform() {
+        return new CandidateSampler(Distribution.LOG_UNIFORM, null, 1f);
+    }
+
+    /**
+     * Creates a sampler with a uniform distribution.
+     *
+     * @return the sampler
+     */
+    public static CandidateSampler uniform() {
+        return new CandidateSampler(Distribution.UNIFORM, null, 1f);
+    }
+
+    /**
+     * Creates a sampler with the distribution of the class counts, one per
+     * class.
+     *
+     * @param unigrams the count or probability of each class
+     * @param distortion each count is raised to this power before the counts
+     * are normalized, 1 keeps the unigram distribution and 0 gives a uniform
+     * distribution.
+     * @return the sampler
+     */
+    public static CandidateSampler unigram(float[] unigrams, float distortion) {
+        if (unigrams == null || unigrams.length == 0) {
+            throw new IllegalArgumentException("unigrams must have a count for each class");
+        }
+        List<Float> counts = new ArrayList<>(unigrams.length);
+        for (float count : unigrams) {
+            counts.add(count);
+        }
+        return new CandidateSampler(Distribution.UNIGRAM, counts, distortion);
+    }
+
+    /**
+     * Draws the candidates.
+     *
+     * @param tf the TensorFlow Ops
+     * @param trueClasses the true classes, with shape
+     * <code>[batchSize, numTrue]</code>.
+     * @param numTrue the number of true classes per example
+     * @param numSampled the number of classes to draw
+     * @param rangeMax the number of classes
+     * @param seed the random seed, may be null.
+     * @return the sampled candidates and the expected counts
+     */
+    public Sample sample(Ops tf, Operand<TInt64> trueClasses, long numTrue, long numSampled,
+            long rangeMax, Long seed) {
+        switch (distribution) {
+            case LOG_UNIFORM:
+                LogUniformCandidateSampler logUniform = seed == null
+                        ? tf.random.logUniformCandidateSampler(trueClasses, numTrue, numSampled, true, rangeMax)
+                        : tf.random.logUniformCandidateSampler(trueClasses, numTrue, numSampled, true, rangeMax,
+                                LogUniformCandidateSampler.seed(seed));
+                return new Sample(logUniform.sampledCandidates(), logUniform.trueExpectedCount(),
+                        logUniform.sampledExpectedCount());
+            case UNIFORM:
+                UniformCandidateSampler uniform = seed == null
+                        ? tf.random.uniformCandidateSampler(trueClasses, numTrue, numSampled, true, rangeMax)
+                        : tf.random.uniformCandidateSampler(trueClasses, numTrue, numSampled, true, rangeMax,
+                                UniformCandidateSampler.seed(seed));
+                return new Sample(uniform.sampledCandidates(), uniform.trueExpectedCount(),
+                        uniform.sampledExpectedCount());
+            default:
+                if (unigrams.size() != rangeMax) {
+                    throw new IllegalArgumentException(String.format(
+                            "Expected %d unigrams, one per class, received %d", rangeMax, unigrams.size()));
+                }
+                FixedUnigramCandidateSampler unigram = seed == null
+                        ? tf.nn.fixedUnigramCandidateSampler(trueClasses, numTrue, numSampled, true, rangeMax,
+                                FixedUnigramCandidateSampler.unigrams(unigrams),
+                                FixedUnigramCandidateSampler.distortion(distortion))
+                        : tf.nn.fixedUnigramCandidateSampler(trueClasses, numTrue, numSampled, true, rangeMax,
+                                FixedUnigramCandidateSampler.unigrams(unigrams),
+                                FixedUnigramCandidateSampler.distortion(distortion),
+                                FixedUnigramCandidateSampler.seed(seed));
+                return new Sample(unigram.sampledCandidates(), unigram.trueExpectedCount(),
+                        unigram.sampledExpectedCount());
+        }
+    }
+
+    /**
+     * The candidates drawn by a sampler.
+     */
+    public static class Sample {
+
+        private final Operand<TInt64> sampledCandidates;
+        private final Operand<TFloat32> trueExpectedCount;
+        private final Operand<TFloat32> sampledExpectedCount;
+
+        Sample(Operand<TInt64> sampledCandidates, Operand<TFloat32> trueExpectedCount,
+                Operand<TFloat32> sampledExpectedCount) {
+            this.sampledCandidates = sampledCandidates;
+            this.trueExpectedCount = trueExpectedCount;
+            this.sampledExpectedCount = sampledExpectedCount;
+        }
+
+        /**
+         * @return the sampled classes, with shape <code>[numSampled]</code>
+         */
+        public Operand<TInt64> getSampledCandidates() {
+            return sampledCandidates;
+        }
+
+        /**
+         * @return the expected count of each true class, with shape
+         * <code>[batchSize, numTrue]</code>
+         */
+        public Operand<TFloat32> getTrueExpectedCount() {
+            return trueExpectedCount;
+        }
+
+        /**
+         * @return the expected count of each sampled class, with shape
+         * <code>[numSampled]</code>
+         */
+        public Operand<TFloat32> getSampledExpectedCount() {
+            return sampledExpectedCount;
+        }
+    }
+}
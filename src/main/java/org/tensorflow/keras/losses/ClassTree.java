@@ -0,0 +1,185 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.losses;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Encodes each class as the path from the root of a binary tree to the leaf of
+ * the class, for {@link HierarchicalSoftmax}.
+ *
+ * <p>
+ * The internal nodes of a tree over <code>numClasses</code> classes are
+ * numbered <code>0</code> to <code>numClasses - 2</code>. The path of a class
+ * is the list of internal nodes from the root to its leaf, and its code is
+ * the branch taken at each node, 0 for the left child and 1 for the right
+ * child. Paths shorter than the depth of the tree are padded with node 0 and
+ * masked out.
+ *
+ * @author Jim Clarke
+ */
+public class ClassTree {
+
+    private final int numClasses;
+    private final int depth;
+    private final int[][] nodes;
+    private final float[][] codes;
+    private final float[][] mask;
+
+    /**
+     * Creates a ClassTree from the path of each class.
+     *
+     * @param paths the internal nodes from the root to the leaf of each
+     * class, each in the range <code>[0, numClasses - 2]</code>.
+     * @param branches the branch taken at each node of each path, 0 for left
+     * and 1 for right.
+     */
+    public ClassTree(int[][] paths, int[][] branches) {
+        if (paths.length < 2 || paths.length != branches.length) {
+            throw new IllegalArgumentException(
+                    "Expected a path and branches for each of at least 2 classes");
+        }
+        this.numClasses = paths.length;
+        int maxDepth = 0;
+        for (int c = 0; c < numClasses; c++) {
+            if (paths[c].length == 0 || paths[c].length != branches[c].length) {
+                throw new IllegalArgumentException(String.format(
+                        "Class %d must have a non empty path with a branch for each node", c));
+            }
+            maxDepth = Math.max(maxDepth, paths[c].length);
+        }
+        this.depth = maxDepth;
+        this.nodes = new int[numClasses][depth];
+        this.codes = new float[numClasses][depth];
+        this.mask = new float[numClasses][depth];
+        for (int c = 0; c < numClasses; c++) {
+            for (int d = 0; d < paths[c].length; d++) {
+                if (paths[c][d] < 0 || paths[c][d] > numClasses - 2) {
+                    throw new IllegalArgumentException(String.format(
+                            "Node %d of class %d is not in [0, %d]", paths[c][d], c, numClasses - 2));
+                }
+                nodes[c][d] = paths[c][d];
+                codes[c][d] = branches[c][d];
+                mask[c][d] = 1f;
+            }
+        }
+    }
+
+    /**
+     * Creates the Huffman tree of the class frequencies, frequent classes
+     * have shorter paths, so the expected path length is minimal.
+     *
+     * @param counts the count or frequency of each class
+     * @return the Huffman tree
+     */
+    public static ClassTree huffman(float[] counts) {
+        int numClasses = counts.length;
+        if (numClasses < 2) {
+            throw new IllegalArgumentException("At least 2 classes are required");
+        }
+        // leaves are ids 0 to numClasses - 1, internal node n is id numClasses + n.
+        int[] parent = new int[2 * numClasses - 1];
+        int[] branch = new int[2 * numClasses - 1];
+        PriorityQueue<double[]> queue = new PriorityQueue<>((a, b)
+                -> a[0] != b[0] ? Double.compare(a[0], b[0]) : Double.compare(a[1], b[1]));
+        for (int c = 0; c < numClasses; c++) {
+            queue.add(new double[]{counts[c], c});
+        }
+        int next = numClasses;
+        while (queue.size() > 1) {
+            double[] left = queue.poll();
+            double[] right = queue.poll();
+            parent[(int) left[1]] = next;
+            branch[(int) left[1]] = 0;
+            parent[(int) right[1]] = next;
+            branch[(int) right[1]] = 1;
+            queue.add(new double[]{left[0] + right[0], next++});
+        }
+        int root = next - 1;
+
+        int[][] paths = new int[numClasses][];
+        int[][] branches = new int[numClasses][];
+        for (int c = 0; c < numClasses; c++) {
+            List<int[]> steps = new ArrayList<>();
+            for (int id = c; id != root; id = parent[id]) {
+                steps.add(new int[]{root - parent[id], branch[id]});
+            }
+            paths[c] = new int[steps.size()];
+            branches[c] = new int[steps.size()];
+            for (int d = 0; d < steps.size(); d++) {
+                int[] step = steps.get(steps.size() - 1 - d);
+                paths[c][d] = step[0];
+                branches[c][d] = step[1];
+            }
+        }
+        return new ClassTree(paths, branches);
+    }
+
+    /**
+     * @return the number of classes
+     */
+    public int getNumClasses() {
+        return numClasses;
+    }
+
+    /**
+     * @return the number of internal nodes, <code>numClasses - 1</code>
+     */
+    public int getNumNodes() {
+        return numClasses - 1;
+    }
+
+    /**
+     * @return the length of the longest path
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return the padded path of each class, with shape
+     * <code>[numClasses, depth]</code>
+     */
+    public int[][] getNodes() {
+        return copy(nodes);
+    }
+
+    /**
+     * @return the padded branches of each class, with shape
+     * <code>[numClasses, depth]</code>
+     */
+    public float[][] getCodes() {
+        return copy(codes);
+    }
+
+    /**
+     * @return 1 for the nodes of each path and 0 for the padding, with shape
+     * <code>[numClasses, depth]</code>
+     */
+    public float[][] getMask() {
+        return copy(mask);
+    }
+
+    private static int[][] copy(int[][] values) {
+        return Arrays.stream(values).map(int[]::clone).toArray(int[][]::new);
+    }
+
+    private static float[][] copy(float[][] values) {
+        return Arrays.stream(values).map(float[]::clone).toArray(float[][]::new);
+    }
+}
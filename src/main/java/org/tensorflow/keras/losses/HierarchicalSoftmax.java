@@ -0,0 +1,171 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.losses;
+
+import org.tensorflow.DataType;
+import org.tensorflow.Operand;
+import org.tensorflow.keras.backend.K;
+import org.tensorflow.op.Ops;
+import org.tensorflow.op.linalg.MatMul;
+import org.tensorflow.types.TInt32;
+import org.tensorflow.types.family.TNumber;
+
+/**
+ * Computes the hierarchical softmax loss, where the probability of a class is
+ * the product of the binary decisions along its path in a {@link ClassTree}.
+ *
+ * <p>
+ * Each internal node of the tree has a weight vector and a bias, the
+ * probability of taking the right branch at a node is the sigmoid of its
+ * logit. The loss of an example only gathers the nodes on the path of its
+ * label, so its cost, and the rows its gradient touches, are proportional to
+ * the maximum depth of the tree, <code>O(maxDepth)</code>, rather than to the
+ * number of classes. The paths are padded to the maximum depth, so this is
+ * only <code>O(log numClasses)</code> when the tree is balanced; a skewed
+ * Huffman tree pays for its longest path on every example.
+ *
+ * <p>
+ * The paths of the classes are built into the graph once, when the loss is
+ * created, and shared by every call.
+ *
+ * <p>
+ * The predictions are the inputs of the output layer, with shape
+ * <code>[batchSize, dim]</code>, and the labels are the class ids, with shape
+ * <code>[batchSize]</code> or <code>[batchSize, 1]</code>. Use
+ * {@link #predict(Operand)} for the probabilities of every class.
+ *
+ * @author Jim Clarke
+ */
+public class HierarchicalSoftmax extends Loss {
+
+    public static final String DEFAULT_NAME = "hierarchical_softmax";
+
+    private final ClassTree tree;
+    private final Operand weights;
+    private final Operand biases;
+    // [numClasses, depth]
+    private final Operand<TInt32> nodes;
+    private final Operand codes;
+    private final Operand mask;
+
+    /**
+     * Creates a HierarchicalSoftmax with Reduction.AUTO
+     *
+     * @param tf the TensorFlow Ops
+     * @param tree the paths of the classes
+     * @param weights the weights of the internal nodes, with shape
+     * <code>[numClasses - 1, dim]</code>.
+     * @param biases the biases of the internal nodes, with shape
+     * <code>[numClasses - 1]</code>, may be null.
+     */
+    public HierarchicalSoftmax(Ops tf, ClassTree tree, Operand weights, Operand biases) {
+        this(tf, DEFAULT_NAME, tree, weights, biases, Reduction.AUTO);
+    }
+
+    /**
+     * Creates a HierarchicalSoftmax
+     *
+     * @param tf the TensorFlow Ops
+     * @param name the name of this loss function
+     * @param tree the paths of the classes
+     * @param weights the weights of the internal nodes, with shape
+     * <code>[numClasses - 1, dim]</code>.
+     * @param biases the biases of the internal nodes, with shape
+     * <code>[numClasses - 1]</code>, may be null.
+     * @param reduction Type of Reduction to apply to loss.
+     */
+    public HierarchicalSoftmax(Ops tf, String name, ClassTree tree, Operand weights, Operand biases,
+            Reduction reduction) {
+        super(tf, name, reduction);
+        this.tree = tree;
+        this.weights = weights;
+        this.biases = biases;
+        DataType dType = weights.asOutput().dataType();
+        this.nodes = tf.constant(tree.getNodes());
+        this.codes = K.cast(tf, tf.constant(tree.getCodes()), dType);
+        this.mask = K.cast(tf, tf.constant(tree.getMask()), dType);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T extends TNumber> Operand<T> call(Operand<T> labels, Operand<T> predictions, Operand<T> sampleWeights) {
+        Operand<TInt32> classes = tf.reshape(tf.dtypes.cast(labels, TInt32.DTYPE), tf.constant(new int[]{-1}));
+
+        // [batchSize, depth]
+        Operand<TInt32> pathNodes = tf.gather(nodes, classes, tf.constant(0));
+        Operand pathCodes = tf.gather(codes, classes, tf.constant(0));
+        Operand pathMask = tf.gather(mask, classes, tf.constant(0));
+
+        // [batchSize, depth, dim], only the nodes on the paths.
+        Operand nodeWeights = tf.gather(weights, pathNodes, tf.constant(0));
+        Operand logits = tf.reduceSum(tf.math.mul(tf.expandDims(predictions, tf.constant(1)), nodeWeights),
+                tf.constant(-1));
+        if (biases != null) {
+            logits = tf.math.add(logits, tf.gather(biases, pathNodes, tf.constant(0)));
+        }
+        Operand losses = tf.reduceSum(tf.math.mul(pathMask, K.sigmoidCrossEntropyWithLogits(tf, pathCodes, logits)),
+                tf.constant(1));
+        return super.computeWeightedLoss(losses, getReduction(), sampleWeights);
+    }
+
+    /**
+     * Computes the probability of every class.
+     *
+     * <p>
+     * This evaluates every internal node, so its cost is proportional to the
+     * number of classes, it is meant for inference rather than training.
+     *
+     * @param inputs the inputs of the output layer, with shape
+     * <code>[batchSize, dim]</code>.
+     * @return the probabilities, with shape <code>[batchSize, numClasses]</code>
+     */
+    public Operand predict(Operand inputs) {
+        DataType dType = inputs.asOutput().dataType();
+        // [batchSize, numNodes]
+        Operand nodeLogits = tf.linalg.matMul(inputs, weights, MatMul.transposeB(true));
+        if (biases != null) {
+            nodeLogits = tf.math.add(nodeLogits, biases);
+        }
+        // [batchSize, numClasses, depth]
+        Operand logits = tf.gather(nodeLogits, nodes, tf.constant(1));
+        // log sigmoid(logit) for right branches, log sigmoid(-logit) for left.
+        Operand signs = tf.math.sub(tf.math.add(codes, codes), K.one(tf, dType));
+        Operand logProbabilities = tf.math.neg(tf.math.softplus(tf.math.neg(tf.math.mul(signs, logits))));
+        return tf.math.exp(tf.reduceSum(tf.math.mul(mask, logProbabilities), tf.constant(-1)));
+    }
+
+    /**
+     * @return the paths of the classes
+     */
+    public ClassTree getTree() {
+        return tree;
+    }
+
+    /**
+     * @return the weights of the internal nodes
+     */
+    public Operand getWeights() {
+        return weights;
+    }
+
+    /**
+     * @return the biases of the internal nodes
+     */
+    public Operand getBiases() {
+        return biases;
+    }
+}
@@ -24,6 +24,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.tensorflow.Operand;
 import org.tensorflow.Session;
+import org.tensorflow.keras.backend.tf.SparseTensor;
 import org.tensorflow.keras.losses.impl.LossesImpl;
 import org.tensorflow.op.Ops;
 
@@ -372,6 +373,25 @@ public class Losses {
         return LossesImpl.binary_crossentropy(tf, yTrue, yPred, fromLogits, labelSmoothing);
     }
 
+    /**
+     * Computes the binary crossentropy loss of sparse labels, without
+     * densifying the labels.
+     *
+     * @param tf the TensorFlow Ops
+     * @param yTrue true targets, with indices <code>[N, 2]</code> into yPred
+     * @param yPred the predictions, with shape <code>[batchSize, numClasses]</code>
+     * @param fromLogits Whether to interpret yPred as a tensor of logit values
+     * @param labelSmoothing Float in [0, 1]. When 0, no smoothing occurs. When
+     * > 0, we compute the loss between the predicted labels and a smoothed
+     * version of the true labels, where the smoothing squeezes the labels
+     * towards 0.5. Larger values of label_smoothing correspond to heavier
+     * smoothing.
+     * @return the loss
+     */
+    public static Operand binary_crossentropy(Ops tf, SparseTensor yTrue, Operand yPred, boolean fromLogits, float labelSmoothing) {
+        return LossesImpl.binary_crossentropy(tf, yTrue, yPred, fromLogits, labelSmoothing);
+    }
+
     /**
      * Computes the categorical crossentropy loss.
      *
@@ -432,6 +452,25 @@ public class Losses {
         return LossesImpl.categorical_crossentropy(tf, yTrue, yPred, fromLogits, labelSmoothing, axis);
     }
 
+    /**
+     * Computes the categorical crossentropy loss of sparse labels, without
+     * densifying the labels.
+     *
+     * @param tf the TensorFlow Ops
+     * @param yTrue true targets, with indices <code>[N, 2]</code> into yPred
+     * @param yPred predictions, with shape <code>[batchSize, numClasses]</code>
+     * @param fromLogits Whether to interpret yPred as a tensor of logit values
+     * @param labelSmoothing Float in [0, 1]. When 0, no smoothing occurs. When
+     * > 0, we compute the loss between the predicted labels and a smoothed
+     * version of the true labels, where the smoothing squeezes the labels
+     * towards 0.5. Larger values of label_smoothing correspond to heavier
+     * smoothing.
+     * @return the loss
+     */
+    public static Operand categorical_crossentropy(Ops tf, SparseTensor yTrue, Operand yPred, boolean fromLogits, float labelSmoothing) {
+        return LossesImpl.categorical_crossentropy(tf, yTrue, yPred, fromLogits, labelSmoothing);
+    }
+
     /**
      * Computes the categorical hinge loss between y_true and y_pred.
      *
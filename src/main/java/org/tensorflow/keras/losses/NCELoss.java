@@ -0,0 +1,111 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.losses;
+
+import org.tensorflow.Operand;
+import org.tensorflow.keras.backend.K;
+import org.tensorflow.keras.backend.tf.Tuple;
+import org.tensorflow.keras.losses.impl.CandidateSamplingLoss;
+import org.tensorflow.op.Ops;
+import org.tensorflow.types.family.TNumber;
+
+/**
+ * Computes the noise-contrastive estimation loss, a logistic loss that
+ * separates each true class from a sample of noise classes.
+ *
+ * <p>
+ * The loss of an example is the sum of the sigmoid cross-entropy of its true
+ * and sampled classes. Unlike the sampled softmax, sampled classes that are
+ * also true classes are kept by default.
+ *
+ * <p>
+ * The predictions are the inputs of the output layer, with shape
+ * <code>[batchSize, dim]</code>, and the labels are the class ids, with shape
+ * <code>[batchSize]</code> or <code>[batchSize, numTrue]</code>. This loss is
+ * only meant for training, evaluate the model with the full output layer.
+ *
+ * @author Jim Clarke
+ */
+public class NCELoss extends CandidateSamplingLoss {
+
+    public static final String DEFAULT_NAME = "nce_loss";
+
+    /**
+     * Creates a NCELoss with a log-uniform sampler, removeAccidentalHits=false
+     * and Reduction.AUTO
+     *
+     * @param tf the TensorFlow Ops
+     * @param weights the weights of the output layer, with shape
+     * <code>[numClasses, dim]</code>.
+     * @param biases the biases of the output layer, with shape
+     * <code>[numClasses]</code>.
+     * @param numSampled the number of classes to sample per batch
+     * @param numClasses the number of classes
+     */
+    public NCELoss(Ops tf, Operand weights, Operand biases, int numSampled, int numClasses) {
+        this(tf, DEFAULT_NAME, weights, biases, numSampled, numClasses, null, false, null, Reduction.AUTO);
+    }
+
+    /**
+     * Creates a NCELoss with removeAccidentalHits=false and Reduction.AUTO
+     *
+     * @param tf the TensorFlow Ops
+     * @param weights the weights of the output layer, with shape
+     * <code>[numClasses, dim]</code>.
+     * @param biases the biases of the output layer, with shape
+     * <code>[numClasses]</code>.
+     * @param numSampled the number of classes to sample per batch
+     * @param numClasses the number of classes
+     * @param sampler the sampler, if null a log-uniform sampler is used.
+     */
+    public NCELoss(Ops tf, Operand weights, Operand biases, int numSampled, int numClasses,
+            CandidateSampler sampler) {
+        this(tf, DEFAULT_NAME, weights, biases, numSampled, numClasses, sampler, false, null, Reduction.AUTO);
+    }
+
+    /**
+     * Creates a NCELoss
+     *
+     * @param tf the TensorFlow Ops
+     * @param name the name of this loss function
+     * @param weights the weights of the output layer, with shape
+     * <code>[numClasses, dim]</code>.
+     * @param biases the biases of the output layer, with shape
+     * <code>[numClasses]</code>.
+     * @param numSampled the number of classes to sample per batch
+     * @param numClasses the number of classes
+     * @param sampler the sampler, if null a log-uniform sampler is used.
+     * @param removeAccidentalHits whether to remove the sampled classes that
+     * are also true classes.
+     * @param seed the random seed of the sampler, may be null.
+     * @param reduction Type of Reduction to apply to loss.
+     */
+    public NCELoss(Ops tf, String name, Operand weights, Operand biases, int numSampled, int numClasses,
+            CandidateSampler sampler, boolean removeAccidentalHits, Long seed, Reduction reduction) {
+        super(tf, name, weights, biases, numSampled, numClasses, sampler, removeAccidentalHits, seed, reduction);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T extends TNumber> Operand<T> call(Operand<T> labels, Operand<T> predictions, Operand<T> sampleWeights) {
+        Tuple tuple = computeSampledLogits(labels, predictions, false);
+        Operand losses = tf.reduceSum(
+                K.sigmoidCrossEntropyWithLogits(tf, tuple.getLabels(), tuple.getPredictions()), tf.constant(1));
+        return super.computeWeightedLoss(losses, getReduction(), sampleWeights);
+    }
+
+}
@@ -0,0 +1,198 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.losses.impl;
+
+import java.util.Arrays;
+import org.tensorflow.DataType;
+import org.tensorflow.Operand;
+import org.tensorflow.keras.backend.tf.Tuple;
+import org.tensorflow.keras.losses.CandidateSampler;
+import org.tensorflow.keras.losses.Loss;
+import org.tensorflow.keras.losses.Reduction;
+import org.tensorflow.ndarray.Shape;
+import org.tensorflow.op.Ops;
+import org.tensorflow.op.core.Stack;
+import org.tensorflow.op.linalg.MatMul;
+import org.tensorflow.op.nn.ComputeAccidentalHits;
+import org.tensorflow.types.TInt32;
+import org.tensorflow.types.TInt64;
+
+/**
+ * Base class for losses that compute the logits of the true classes and of a
+ * sample of the other classes, rather than the logits of every class.
+ *
+ * <p>
+ * The predictions passed to <code>call</code> are the inputs of the output
+ * layer, with shape <code>[batchSize, dim]</code>, and the labels are the
+ * class ids, with shape <code>[batchSize]</code> or
+ * <code>[batchSize, numTrue]</code>. The cost of the loss depends on the
+ * number of sampled classes, not on the number of classes. These losses are
+ * only meant for training, the full softmax should be used for evaluation.
+ *
+ * @author Jim Clarke
+ */
+public abstract class CandidateSamplingLoss extends Loss {
+
+    private final Operand weights;
+    private final Operand biases;
+    private final int numSampled;
+    private final int numClasses;
+    private final CandidateSampler sampler;
+    private final boolean removeAccidentalHits;
+    private final Long seed;
+
+    /**
+     * Creates a CandidateSamplingLoss
+     *
+     * @param tf the TensorFlow Ops
+     * @param name the name of this loss function
+     * @param weights the weights of the output layer, with shape
+     * <code>[numClasses, dim]</code>.
+     * @param biases the biases of the output layer, with shape
+     * <code>[numClasses]</code>.
+     * @param numSampled the number of classes to sample per batch
+     * @param numClasses the number of classes
+     * @param sampler the sampler, if null a log-uniform sampler is used.
+     * @param removeAccidentalHits whether to remove the sampled classes that
+     * are also true classes.
+     * @param seed the random seed of the sampler, may be null.
+     * @param reduction Type of Reduction to apply to loss.
+     */
+    protected CandidateSamplingLoss(Ops tf, String name, Operand weights, Operand biases,
+            int numSampled, int numClasses, CandidateSampler sampler, boolean removeAccidentalHits,
+            Long seed, Reduction reduction) {
+        super(tf, name, reduction);
+        if (numSampled <= 0 || numSampled > numClasses) {
+            throw new IllegalArgumentException(String.format(
+                    "numSampled must be in [1, numClasses], received %d", numSampled));
+        }
+        this.weights = weights;
+        this.biases = biases;
+        this.numSampled = numSampled;
+        this.numClasses = numClasses;
+        this.sampler = sampler == null ? CandidateSampler.logUniform() : sampler;
+        this.removeAccidentalHits = removeAccidentalHits;
+        this.seed = seed;
+    }
+
+    /**
+     * Computes the logits of the true and sampled classes, corrected by the
+     * log of their expected counts.
+     *
+     * @param labels the true class ids, with shape <code>[batchSize]</code>
+     * or <code>[batchSize, numTrue]</code>.
+     * @param inputs the inputs of the output layer, with shape
+     * <code>[batchSize, dim]</code>.
+     * @param normalizeLabels whether the labels of the true classes are
+     * <code>1/numTrue</code> rather than 1.
+     * @return the labels and the logits, with shape
+     * <code>[batchSize, numTrue + numSampled]</code>, the true classes first.
+     */
+    protected Tuple computeSampledLogits(Operand labels, Operand inputs, boolean normalizeLabels) {
+        DataType dType = inputs.asOutput().dataType();
+        Operand<TInt64> trueClasses = tf.dtypes.cast(labels, TInt64.DTYPE);
+        if (trueClasses.asOutput().shape().numDimensions() == 1) {
+            trueClasses = tf.expandDims(trueClasses, tf.constant(-1));
+        }
+        long numTrue = trueClasses.asOutput().shape().size(-1);
+        if (numTrue == Shape.UNKNOWN_SIZE) {
+            throw new IllegalArgumentException("The number of true classes per example must be known");
+        }
+
+        CandidateSampler.Sample sample = sampler.sample(tf, trueClasses, numTrue, numSampled, numClasses, seed);
+        Operand<TInt64> sampled = sample.getSampledCandidates();
+
+        // only the rows of the true and sampled classes are gathered.
+        Operand flatClasses = tf.reshape(trueClasses, tf.constant(new long[]{-1}));
+        Operand trueWeights = tf.gather(weights, flatClasses, tf.constant(0));
+        Operand trueBiases = tf.gather(biases, flatClasses, tf.constant(0));
+        Operand sampledWeights = tf.gather(weights, sampled, tf.constant(0));
+        Operand sampledBiases = tf.gather(biases, sampled, tf.constant(0));
+
+        // [batchSize, numTrue]
+        Operand<TInt64> trueShape = tf.shape(trueClasses, TInt64.DTYPE);
+        trueWeights = tf.reshape(trueWeights, tf.concat(Arrays.asList(trueShape, tf.constant(new long[]{-1})),
+                tf.constant(0)));
+        Operand trueLogits = tf.reduceSum(tf.math.mul(tf.expandDims(inputs, tf.constant(1)), trueWeights),
+                tf.constant(-1));
+        trueLogits = tf.math.add(trueLogits, tf.reshape(trueBiases, trueShape));
+
+        // [batchSize, numSampled]
+        Operand sampledLogits = tf.math.add(
+                tf.linalg.matMul(inputs, sampledWeights, MatMul.transposeB(true)), sampledBiases);
+
+        if (removeAccidentalHits) {
+            ComputeAccidentalHits hits = tf.nn.computeAccidentalHits(trueClasses, sampled, numTrue);
+            Operand<TInt32> indices = tf.stack(
+                    Arrays.asList(hits.indices(), tf.dtypes.cast(hits.ids(), TInt32.DTYPE)), Stack.axis(1L));
+            sampledLogits = tf.math.add(sampledLogits, tf.scatterNd(indices,
+                    tf.dtypes.cast(hits.weights(), dType), tf.shape(sampledLogits)));
+        }
+
+        trueLogits = tf.math.sub(trueLogits, tf.math.log(tf.dtypes.cast(sample.getTrueExpectedCount(), dType)));
+        sampledLogits = tf.math.sub(sampledLogits,
+                tf.math.log(tf.dtypes.cast(sample.getSampledExpectedCount(), dType)));
+
+        Operand trueLabels = tf.onesLike(trueLogits);
+        if (normalizeLabels && numTrue > 1) {
+            trueLabels = tf.math.div(trueLabels, tf.dtypes.cast(tf.constant((float) numTrue), dType));
+        }
+        Operand outLabels = tf.concat(Arrays.asList(trueLabels, tf.zerosLike(sampledLogits)), tf.constant(1));
+        Operand outLogits = tf.concat(Arrays.asList(trueLogits, sampledLogits), tf.constant(1));
+        return new Tuple(outLabels, outLogits);
+    }
+
+    /**
+     * @return the weights of the output layer
+     */
+    public Operand getWeights() {
+        return weights;
+    }
+
+    /**
+     * @return the biases of the output layer
+     */
+    public Operand getBiases() {
+        return biases;
+    }
+
+    /**
+     * @return the number of classes sampled per batch
+     */
+    public int getNumSampled() {
+        return numSampled;
+    }
+
+    /**
+     * @return the number of classes
+     */
+    public int getNumClasses() {
+        return numClasses;
+    }
+
+    /**
+     * @return the sampler
+     */
+    public CandidateSampler getSampler() {
+        return sampler;
+    }
+
+    /**
+     * @return whether sampled classes that are also true classes are removed
+     */
+    public boolean isRemoveAccidentalHits() {
+        return removeAccidentalHits;
+    }
+}
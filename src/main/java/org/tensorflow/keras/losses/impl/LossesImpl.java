@@ -20,6 +20,7 @@ import org.tensorflow.Operand;
 import org.tensorflow.Session;
 import org.tensorflow.Tensor;
 import org.tensorflow.keras.backend.tf.ConfusionMatrix;
+import org.tensorflow.keras.backend.tf.SparseTensor;
 import org.tensorflow.keras.backend.K;
 import org.tensorflow.keras.backend.tf.Tuple;
 import org.tensorflow.keras.losses.Reduction;
@@ -137,6 +138,173 @@ public class LossesImpl {
         return result;
     }
 
+    /**
+     * Computes the binary crossentropy loss of sparse labels, the mean over
+     * the last axis of <code>yPred</code>.
+     *
+     * <p>
+     * The labels are zero except at their indices, so the sum over the
+     * negatives is the sum of the negative terms over every class, corrected
+     * at the indices of the labels. Only the predictions at the indices of
+     * the labels are gathered. As with dense labels, probabilities produced
+     * by a <code>Sigmoid</code> are replaced by its logits.
+     *
+     * @param tf the TensorFlow Ops
+     * @param yTrue the labels, with indices <code>[N, 2]</code> into
+     * <code>yPred</code>
+     * @param yPred the predictions, with shape <code>[batchSize, numClasses]</code>
+     * @param fromLogits Whether to interpret yPred as a tensor of logit values
+     * @param labelSmoothing the label smoothing, in [0, 1]
+     * @return the loss, with shape <code>[batchSize]</code>
+     */
+    public static Operand binary_crossentropy(Ops tf, SparseTensor yTrue, Operand yPred,
+            boolean fromLogits, float labelSmoothing) {
+        if (!fromLogits) {
+            Operand logits = K.backtrackLogits(tf, yPred, "Sigmoid");
+            if (logits != null) {
+                yPred = logits;
+                fromLogits = true;
+            }
+        }
+        DataType dType = yPred.asOutput().dataType();
+        Operand one = K.one(tf, dType);
+        Operand axis = tf.constant(-1);
+        Operand values = tf.dtypes.cast(yTrue.getValues(), dType);
+        Operand predictionsAtLabels = tf.gatherNd(yPred, yTrue.getIndices());
+
+        // loss = base + label * delta, where base is the loss of a 0 label.
+        Operand base;
+        Operand delta;
+        Operand deltaAtLabels;
+        if (fromLogits) {
+            base = tf.math.softplus(yPred);
+            delta = tf.math.neg(yPred);
+            deltaAtLabels = tf.math.neg(predictionsAtLabels);
+        } else {
+            Operand epsilonConst = K.epsilonConstant(tf, dType);
+            Operand oneMinusEpsilonConst = tf.math.sub(one, epsilonConst);
+            Operand output = tf.clipByValue(yPred, epsilonConst, oneMinusEpsilonConst);
+            Operand logNeg = tf.math.log(tf.math.add(tf.math.sub(one, output), epsilonConst));
+            base = tf.math.neg(logNeg);
+            delta = tf.math.sub(logNeg, tf.math.log(tf.math.add(output, epsilonConst)));
+            Operand outputAtLabels = tf.clipByValue(predictionsAtLabels, epsilonConst, oneMinusEpsilonConst);
+            deltaAtLabels = tf.math.sub(
+                    tf.math.log(tf.math.add(tf.math.sub(one, outputAtLabels), epsilonConst)),
+                    tf.math.log(tf.math.add(outputAtLabels, epsilonConst)));
+        }
+        Operand losses = tf.reduceSum(base, axis);
+        if (labelSmoothing != 0F) {
+            // every label, including the missing ones, is raised by labelSmoothing/2
+            losses = tf.math.add(losses, tf.math.mul(
+                    tf.dtypes.cast(tf.constant(0.5F * labelSmoothing), dType), tf.reduceSum(delta, axis)));
+            values = tf.math.mul(values, tf.dtypes.cast(tf.constant(1F - labelSmoothing), dType));
+        }
+        losses = tf.math.add(losses, sumByRow(tf, tf.math.mul(values, deltaAtLabels), yTrue, yPred));
+        return tf.math.div(losses, numClasses(tf, yPred, dType));
+    }
+
+    /**
+     * Computes the categorical crossentropy loss of sparse labels over the
+     * last axis of <code>yPred</code>.
+     *
+     * <p>
+     * Only the predictions at the indices of the labels are gathered, the
+     * predictions of the missing labels only contribute to the softmax
+     * normalization and to the label smoothing. As with dense labels,
+     * probabilities produced by a <code>Softmax</code> are replaced by its
+     * logits.
+     *
+     * @param tf the TensorFlow Ops
+     * @param yTrue the labels, with indices <code>[N, 2]</code> into
+     * <code>yPred</code>
+     * @param yPred the predictions, with shape <code>[batchSize, numClasses]</code>
+     * @param fromLogits Whether to interpret yPred as a tensor of logit values
+     * @param labelSmoothing the label smoothing, in [0, 1]
+     * @return the loss, with shape <code>[batchSize]</code>
+     */
+    public static Operand categorical_crossentropy(Ops tf, SparseTensor yTrue, Operand yPred,
+            boolean fromLogits, float labelSmoothing) {
+        if (!fromLogits) {
+            Operand logits = K.backtrackLogits(tf, yPred, "Softmax");
+            if (logits != null) {
+                yPred = logits;
+                fromLogits = true;
+            }
+        }
+        DataType dType = yPred.asOutput().dataType();
+        Operand one = K.one(tf, dType);
+        Operand axis = tf.constant(-1);
+        Operand values = tf.dtypes.cast(yTrue.getValues(), dType);
+        if (labelSmoothing != 0F) {
+            values = tf.math.mul(values, tf.dtypes.cast(tf.constant(1F - labelSmoothing), dType));
+        }
+
+        // -log(softmax(x)) = logSumExp(x) - x, or -log(p) for probabilities
+        Operand negLog;
+        Operand negLogAtLabels;
+        Operand rowTerm = null;
+        if (fromLogits) {
+            Operand max = tf.stopGradient(tf.reduceMax(yPred, axis, ReduceMax.keepDims(Boolean.TRUE)));
+            Operand logSumExp = tf.math.add(tf.reshape(max, tf.constant(new int[]{-1})),
+                    tf.math.log(tf.reduceSum(tf.math.exp(tf.math.sub(yPred, max)), axis)));
+            negLogAtLabels = tf.math.neg(tf.gatherNd(yPred, yTrue.getIndices()));
+            negLog = labelSmoothing != 0F ? tf.math.neg(yPred) : null;
+            // the labels sum to sum(values) + labelSmoothing
+            Operand labelSum = sumByRow(tf, values, yTrue, yPred);
+            if (labelSmoothing != 0F) {
+                labelSum = tf.math.add(labelSum, tf.dtypes.cast(tf.constant(labelSmoothing), dType));
+            }
+            rowTerm = tf.math.mul(labelSum, logSumExp);
+        } else {
+            Operand epsilonConst = K.epsilonConstant(tf, dType);
+            Operand oneMinusEpsilonConst = tf.math.sub(one, epsilonConst);
+            Operand sum = tf.reduceSum(yPred, axis, ReduceSum.keepDims(Boolean.TRUE));
+            Operand output = labelSmoothing != 0F
+                    ? tf.clipByValue(tf.math.div(yPred, sum), epsilonConst, oneMinusEpsilonConst) : null;
+            negLog = output == null ? null : tf.math.neg(tf.math.log(output));
+            Operand outputAtLabels = tf.clipByValue(
+                    tf.math.div(tf.gatherNd(yPred, yTrue.getIndices()),
+                            tf.gatherNd(tf.reshape(sum, tf.constant(new int[]{-1})),
+                                    tf.expandDims(tf.gather(yTrue.getIndices(), tf.constant(0), tf.constant(1)),
+                                            tf.constant(-1)))),
+                    epsilonConst, oneMinusEpsilonConst);
+            negLogAtLabels = tf.math.neg(tf.math.log(outputAtLabels));
+        }
+        Operand losses = sumByRow(tf, tf.math.mul(values, negLogAtLabels), yTrue, yPred);
+        if (rowTerm != null) {
+            losses = tf.math.add(losses, rowTerm);
+        }
+        if (labelSmoothing != 0F) {
+            // every class, including the missing ones, has labelSmoothing/numClasses
+            losses = tf.math.add(losses, tf.math.mul(
+                    tf.math.div(tf.dtypes.cast(tf.constant(labelSmoothing), dType), numClasses(tf, yPred, dType)),
+                    tf.reduceSum(negLog, axis)));
+        }
+        return losses;
+    }
+
+    /**
+     * Sums values at the indices of sparse labels by the row of the labels.
+     */
+    private static Operand sumByRow(Ops tf, Operand values, SparseTensor yTrue, Operand yPred) {
+        Operand rows = tf.gather(yTrue.getIndices(), tf.constant(0), tf.constant(1));
+        Operand numRows = tf.gather(tf.shape(yPred, TInt64.DTYPE), tf.constant(0), tf.constant(0));
+        return tf.math.unsortedSegmentSum(values, rows, numRows);
+    }
+
+    private static Operand numClasses(Ops tf, Operand yPred, DataType dType) {
+        Shape shape = yPred.asOutput().shape();
+        if (!shape.isUnknown()) {
+            long size = shape.size(shape.numDimensions() - 1);
+            if (size != Shape.UNKNOWN_SIZE) {
+                return tf.dtypes.cast(tf.constant((float) size), dType);
+            }
+        }
+        // Gather does not take negative indices, so the last index is computed from the rank.
+        Operand last = tf.math.sub(tf.rank(yPred), tf.constant(1));
+        return tf.dtypes.cast(tf.gather(tf.shape(yPred), last, tf.constant(0)), dType);
+    }
+
     private static Operand smoothLabelsCatX(Ops tf, Operand yTrue, float labelSmoothing) {
         Constant smoothing = tf.constant(labelSmoothing);
         Shape yTrueShape = yTrue.asOutput().shape();
@@ -374,7 +542,8 @@ public class LossesImpl {
     
     private static Tuple preamble(Ops tf, Operand yTrue, Operand yPred, Operand sampleWeight, DataType dType) {
         if(!yPred.asOutput().dataType().equals(dType)) {
-            yPred = tf.dtypes.cast(yPred, dType);
+            // through K, so that the logits of an activation are still found
+            yPred = K.cast(tf, yPred, dType);
         }
         if(!yTrue.asOutput().dataType().equals(dType)) {
             yTrue = tf.dtypes.cast(yTrue, dType);
@@ -441,12 +610,16 @@ public class LossesImpl {
         }
         Shape weightsShape = sampleWeight.asOutput().shape();
         long weightsRank = weightsShape.numDimensions();
+        yTrue = tuple.getLabels();
+        yPred = tuple.getPredictions();
         if (weightsRank == 0) { // scalar
             return new Tuple(yTrue, yPred, sampleWeight);
         }
+        // the weights follow the rank of the possibly squeezed predictions
+        ypredRank = yPred.asOutput().shape().numDimensions();
 
         if (ypredRank != Shape.UNKNOWN_SIZE && weightsRank != Shape.UNKNOWN_SIZE) {
-
+            // Use static rank, no operations are added when the ranks match.
             if (weightsRank - ypredRank == 1) {
                 sampleWeight = tf.squeeze(sampleWeight);
             } else if (ypredRank - weightsRank == 1) {
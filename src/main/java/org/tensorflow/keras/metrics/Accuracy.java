@@ -16,11 +16,9 @@ package org.tensorflow.keras.metrics;
 
 import org.tensorflow.DataType;
 import org.tensorflow.Operand;
-import org.tensorflow.keras.backend.tf.Tuple;
 import org.tensorflow.keras.losses.LossFunction;
 import org.tensorflow.keras.metrics.impl.MeanMetricWrapper;
-import org.tensorflow.keras.metrics.impl.MetricUtils;
-import org.tensorflow.keras.utils.ShapeUtils;
+import org.tensorflow.keras.metrics.impl.MetricsImpl;
 import org.tensorflow.op.Ops;
 import org.tensorflow.types.family.TNumber;
 
@@ -75,18 +73,7 @@ public class Accuracy extends MeanMetricWrapper  implements LossFunction {
 
     @Override
     public <T extends TNumber> Operand<T> call(Operand<T> labels, Operand<T> predictions, Operand<T> sampleWeights) {
-        Tuple tuple = MetricUtils.raggedAssertCompatibleAndGetFlatValues(tf, labels, predictions);
-        labels = tuple.getLabels();
-        predictions = tuple.getPredictions();
-        
-        assert ShapeUtils.isCompatibleWith(predictions.asOutput().shape(), labels.asOutput().shape()) :
-                String.format("Shapes %s and %s are incompatible", 
-                        predictions.asOutput().shape().toString(),
-                        labels.asOutput().shape().toString());
-        if (labels.asOutput().dataType() != predictions.asOutput().dataType()) {
-            predictions = tf.dtypes.cast(predictions, labels.asOutput().dataType());
-        }
-        return tf.dtypes.cast(tf.math.equal(labels, predictions), labels.asOutput().dataType());
+        return MetricsImpl.accuracyValues(tf, labels, predictions);
     }
     
 }
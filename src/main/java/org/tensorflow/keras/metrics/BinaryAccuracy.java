@@ -115,16 +115,7 @@ public class BinaryAccuracy extends MeanMetricWrapper implements LossFunction {
      */
     @Override
     public <T extends TNumber> Operand<T> call(Operand<T> labels, Operand<T> predictions, Operand<T> sampleWeights) {
-        MetricsImpl.debug("labels", labels);
-        MetricsImpl.debug("predictions", predictions);
-        DataType dType = predictions.asOutput().dataType();
-        Operand thresholdCast = tf.dtypes.cast(tf.constant(threshold), dType);
-        predictions = tf.dtypes.cast(tf.math.greater(predictions, thresholdCast), dType);
-        MetricsImpl.debug("predictions2", predictions);
-        labels = tf.dtypes.cast(labels, dType);
-        Operand result = tf.dtypes.cast(tf.math.equal(labels, predictions), predictions.asOutput().dataType());
-        MetricsImpl.debug("result", result);
-        return result;
+        return MetricsImpl.binaryAccuracyValues(tf, labels, predictions, threshold);
     }
 
     /**
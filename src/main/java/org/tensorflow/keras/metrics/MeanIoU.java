@@ -24,8 +24,10 @@ import org.tensorflow.keras.initializers.Zeros;
 import org.tensorflow.ndarray.Shape;
 import org.tensorflow.op.Op;
 import org.tensorflow.op.Ops;
+import org.tensorflow.op.core.Squeeze;
 import org.tensorflow.op.core.Variable;
 import org.tensorflow.types.TFloat64;
+import org.tensorflow.types.TInt64;
 
 /**
  * Computes the mean Intersection-Over-Union metric. 
@@ -35,12 +37,27 @@ import org.tensorflow.types.TFloat64;
  * computes the average over classes. IOU is defined as follows:
  * <p>  IOU = true_positive / (true_positive + false_positive + false_negative).
  * 
+ * <p>
+ * By default only the per class intersection, prediction count and label
+ * count are accumulated, with segment sums over the flattened inputs, which
+ * takes O(num_classes) memory. The full <code>[num_classes, num_classes]</code>
+ * confusion matrix can be accumulated instead, by setting
+ * <code>fullConfusionMatrix</code>.
+ * 
  * @author jbclarke
  */
 public class MeanIoU extends Metric {
     public static final String TOTAL_CONFUSION_MATRIX = "TOTAL_CONFUSION_MATRIX";
     private Variable<TFloat64> totalCM;
     private final String totalCMName;
+    public static final String CLASS_COUNTS = "CLASS_COUNTS";
+    /**
+     * The intersection, prediction count and label count of each class, with
+     * shape [3, num_classes].
+     */
+    private Variable<TFloat64> classCounts;
+    private final String classCountsName;
+    private final boolean fullConfusionMatrix;
     /**
      * The possible number of labels the prediction task can have. 
      * This value must be provided, since a confusion matrix of 
@@ -89,15 +106,40 @@ public class MeanIoU extends Metric {
      * @param dType the DataType
      */
     protected MeanIoU(Ops tf, String name, long numClasses, DataType dType) {
+        this(tf, name, numClasses, false, dType);
+    }
+
+    /**
+     * create a metric
+     *
+     * @param tf the TensorFlow ops
+     * @param name the name of this metric
+     * @param numClasses The possible number of labels the prediction task can have
+     * @param fullConfusionMatrix whether to accumulate the full confusion
+     * matrix, rather than the per class intersection, prediction count and label count.
+     * @param dType the DataType
+     */
+    protected MeanIoU(Ops tf, String name, long numClasses, boolean fullConfusionMatrix, DataType dType) {
         super(tf, name, dType);
         this.totalCMName = this.getVariableName(TOTAL_CONFUSION_MATRIX);
+        this.classCountsName = this.getVariableName(CLASS_COUNTS);
         this.numClasses = numClasses;
+        this.fullConfusionMatrix = fullConfusionMatrix;
         init();
     }
     
     private void init() {
         Zeros zeros = new Zeros(tf);
         
+        if (!fullConfusionMatrix) {
+            this.classCounts = getVariable(classCountsName);
+            if (this.classCounts == null) {
+                this.classCounts = tf.withName(classCountsName).variable(
+                        zeros.call(tf.constant(Shape.of(3, this.getNumClasses())), TFloat64.DTYPE));
+                this.addVariable(classCountsName, this.classCounts, zeros);
+            }
+            return;
+        }
         this.totalCM = getVariable(TOTAL_CONFUSION_MATRIX);
         if (this.getTotalCM() == null) {
             
@@ -115,6 +157,10 @@ public class MeanIoU extends Metric {
         Operand yPred = args[1];
         Operand sampleWeight = args.length > 2 ? args[2] : null;
         
+        if (!fullConfusionMatrix) {
+            return Arrays.asList(tf.assignAdd(this.classCounts, countClasses(yTrue, yPred, sampleWeight)));
+        }
+        
         yTrue = tf.shape.flatten(tf.dtypes.cast(yTrue, this.dType));
         yPred = tf.shape.flatten(tf.dtypes.cast(yPred, this.dType));
         
@@ -128,16 +174,50 @@ public class MeanIoU extends Metric {
         return Arrays.asList(tf.assignAdd(this.getTotalCM(), currentCM));
     }
 
+    /**
+     * Computes the intersection, prediction count and label count of each
+     * class in a batch.
+     *
+     * @param yTrue the labels
+     * @param yPred the predictions
+     * @param sampleWeight the sample weights, may be null
+     * @return the per class counts, with shape [3, num_classes]
+     */
+    private Operand<TFloat64> countClasses(Operand yTrue, Operand yPred, Operand sampleWeight) {
+        Operand<TInt64> labels = tf.shape.flatten(tf.dtypes.cast(yTrue, TInt64.DTYPE));
+        Operand<TInt64> predictions = tf.shape.flatten(tf.dtypes.cast(yPred, TInt64.DTYPE));
+        Operand<TFloat64> weights = sampleWeight == null
+                ? tf.onesLike(tf.dtypes.cast(labels, TFloat64.DTYPE))
+                : tf.shape.flatten(tf.dtypes.cast(sampleWeight, TFloat64.DTYPE));
+        Operand<TInt64> numSegments = tf.constant(this.getNumClasses());
+        
+        Operand<TFloat64> matches = tf.math.mul(weights,
+                tf.dtypes.cast(tf.math.equal(labels, predictions), TFloat64.DTYPE));
+        return tf.stack(Arrays.asList(
+                tf.math.unsortedSegmentSum(matches, labels, numSegments),
+                tf.math.unsortedSegmentSum(weights, predictions, numSegments),
+                tf.math.unsortedSegmentSum(weights, labels, numSegments)));
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Operand result(Ops rtf) {
-        Operand sumOverRow = rtf.dtypes.cast(rtf.reduceSum(this.getTotalCM(), rtf.constant(0)), this.dType);
-        Operand sumOverCol = rtf.dtypes.cast(rtf.reduceSum(this.getTotalCM(), rtf.constant(1)), this.dType);
-        Operand truePositives = rtf.dtypes.cast(rtf.linalg.matrixDiagPart(getTotalCM(), rtf.constant(0), 
-                        rtf.dtypes.cast(rtf.constant(0), this.getTotalCM().asOutput().dataType())),
-                this.dType);
+        Operand sumOverRow;
+        Operand sumOverCol;
+        Operand truePositives;
+        if (!fullConfusionMatrix) {
+            truePositives = rtf.dtypes.cast(classRow(rtf, 0), this.dType);
+            sumOverRow = rtf.dtypes.cast(classRow(rtf, 1), this.dType);
+            sumOverCol = rtf.dtypes.cast(classRow(rtf, 2), this.dType);
+        } else {
+            sumOverRow = rtf.dtypes.cast(rtf.reduceSum(this.getTotalCM(), rtf.constant(0)), this.dType);
+            sumOverCol = rtf.dtypes.cast(rtf.reduceSum(this.getTotalCM(), rtf.constant(1)), this.dType);
+            truePositives = rtf.dtypes.cast(rtf.linalg.matrixDiagPart(getTotalCM(), rtf.constant(0), 
+                            rtf.dtypes.cast(rtf.constant(0), this.getTotalCM().asOutput().dataType())),
+                    this.dType);
+        }
         Operand denomintor = rtf.math.add(sumOverRow, rtf.math.sub(sumOverCol, truePositives));
         Operand numValidEntries = rtf.reduceSum(
            rtf.dtypes.cast(    
@@ -149,8 +229,13 @@ public class MeanIoU extends Metric {
         return rtf.math.divNoNan(iouSum, numValidEntries);
     }
 
+    private Operand<TFloat64> classRow(Ops rtf, int row) {
+        return rtf.squeeze(rtf.slice(this.classCounts, rtf.constant(new long[]{row, 0}),
+                rtf.constant(new long[]{1, this.getNumClasses()})), Squeeze.axis(Arrays.asList(0L)));
+    }
+
     /**
-     * @return the totalCM
+     * @return the totalCM, or null if the full confusion matrix is not accumulated
      */
     public Variable<TFloat64> getTotalCM() {
         return totalCM;
@@ -162,6 +247,21 @@ public class MeanIoU extends Metric {
     public long getNumClasses() {
         return numClasses;
     }
+
+    /**
+     * @return the intersection, prediction count and label count of each
+     * class, or null if the full confusion matrix is accumulated
+     */
+    public Variable<TFloat64> getClassCounts() {
+        return classCounts;
+    }
+
+    /**
+     * @return whether the full confusion matrix is accumulated
+     */
+    public boolean isFullConfusionMatrix() {
+        return fullConfusionMatrix;
+    }
     
     
 }
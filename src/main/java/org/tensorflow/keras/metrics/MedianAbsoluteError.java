@@ -0,0 +1,59 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics;
+
+import org.tensorflow.DataType;
+import org.tensorflow.op.Ops;
+
+/**
+ * Estimates the median of the absolute difference between labels and
+ * predictions.
+ *
+ * @author Jim Clarke
+ */
+public class MedianAbsoluteError extends QuantileError {
+
+    public static final String DEFAULT_NAME = "median_absolute_error";
+
+    /**
+     * Creates a MedianAbsoluteError
+     *
+     * @param tf the TensorFlow Ops
+     */
+    public MedianAbsoluteError(Ops tf) {
+        this(tf, DEFAULT_NAME, null);
+    }
+
+    /**
+     * Creates a MedianAbsoluteError
+     *
+     * @param tf the TensorFlow Ops
+     * @param name the name of the metric
+     */
+    public MedianAbsoluteError(Ops tf, String name) {
+        this(tf, name, null);
+    }
+
+    /**
+     * Creates a MedianAbsoluteError
+     *
+     * @param tf the TensorFlow Ops
+     * @param name the name of the metric
+     * @param dType the data type of the result
+     */
+    public MedianAbsoluteError(Ops tf, String name, DataType dType) {
+        super(tf, name, new float[]{0.5f}, DEFAULT_RELATIVE_ACCURACY, dType);
+    }
+}
@@ -15,10 +15,9 @@ limitations under the License.
 package org.tensorflow.keras.metrics;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
 import org.tensorflow.DataType;
 import org.tensorflow.ExecutionEnvironment;
 import org.tensorflow.Operand;
@@ -45,11 +44,18 @@ public abstract class Metric implements MetricInterface {
     protected final DataType dType;
 
     /**
-     * variables are stored by Scope, and then by an identifier name
+     * variables are stored by execution environment, and then by an identifier
+     * name. Graphs may be built concurrently on several threads.
      */
-    protected static Map<ExecutionEnvironment, Map<String, MetricVariable>> variables = new WeakHashMap<>();
+    protected static final MetricVariableRegistry variables = new MetricVariableRegistry();
 
 
+    /**
+     * the names of the variables added by this metric, in the order they were
+     * added
+     */
+    private final List<String> variableNames = new ArrayList<>();
+
     protected boolean stateful = true;
     protected boolean built = true;
 
@@ -126,8 +132,24 @@ public abstract class Metric implements MetricInterface {
         return ControlDependencies.addControlDependencies(tf, (tf) -> result(tf), name + "_call", conrolOps);
     }
     
+    /**
+     * Removes the metric variables of an environment. The variables of closed
+     * graphs are removed automatically, the variables of an eager session must
+     * be removed once the session is closed.
+     *
+     * @param env the execution environment
+     */
+    public static void removeVariables(ExecutionEnvironment env) {
+        variables.remove(env);
+    }
+
     protected String getVariableName(String id) {
-        return String.format("%s_%s_%s", this.getClass().getSimpleName(),
+        Class<?> type = this.getClass();
+        // anonymous subclasses do not have a simple name
+        while (type.isAnonymousClass()) {
+            type = type.getSuperclass();
+        }
+        return String.format("%s_%s_%s", type.getSimpleName(),
                 this.name, id);
     }
 
@@ -138,12 +160,9 @@ public abstract class Metric implements MetricInterface {
      * @param variable the variable
      */
     protected void addVariable(String name, Variable variable) {
-        Map<String, MetricVariable> thisMap = this.variables.get(tf.scope().env());
-        if(thisMap == null) {
-            thisMap = new HashMap<>();
-            variables.put(tf.scope().env(), thisMap);
-        }
+        Map<String, MetricVariable> thisMap = variables.getOrCreate(tf.scope().env());
         thisMap.put(name, new MetricVariable(tf, name, variable));
+        addVariableName(name);
     }
 
     /**
@@ -154,16 +173,39 @@ public abstract class Metric implements MetricInterface {
      * @param initializer the variable initializer
      */
     protected void addVariable(String name, Variable variable, Initializer initializer) {
+        Map<String, MetricVariable> thisMap = variables.getOrCreate(tf.scope().env());
+        thisMap.put(name, new MetricVariable(tf, name, variable, initializer));
+        addVariableName(name);
+    }
+
+    private void addVariableName(String name) {
+        if (!variableNames.contains(name)) {
+            variableNames.add(name);
+        }
+    }
+
+    /**
+     * Gets the variables added by this metric, keyed by the name that
+     * identifies them, in the order they were added.
+     *
+     * @return the variables added by this metric
+     */
+    public Map<String, MetricVariable> getMetricVariables() {
         Map<String, MetricVariable> thisMap = variables.get(tf.scope().env());
-        if(thisMap == null) {
-            thisMap = new HashMap<>();
-            variables.put(tf.scope().env(), thisMap);
+        Map<String, MetricVariable> result = new LinkedHashMap<>();
+        if (thisMap != null) {
+            variableNames.forEach(n -> {
+                MetricVariable mv = thisMap.get(n);
+                if (mv != null) {
+                    result.put(n, mv);
+                }
+            });
         }
-        thisMap.put(name, new MetricVariable(tf, name, variable, initializer));
+        return result;
     }
 
     public List<Variable> getVariables() {
-        Map<String, MetricVariable> thisMap = this.variables.get(tf.scope().env());
+        Map<String, MetricVariable> thisMap = variables.get(tf.scope().env());
         List<Variable> result = new ArrayList<>();
         if(thisMap != null) {
             thisMap.values().forEach(mv -> result.add(mv.getVariable()));
@@ -177,7 +219,7 @@ public abstract class Metric implements MetricInterface {
     
     
     private List<Op> initializeVarsList(String subScopeName) {
-        Map<String, MetricVariable> thisMap = this.variables.get(tf.scope().env());
+        Map<String, MetricVariable> thisMap = variables.get(tf.scope().env());
         List<Op> updateOperations = new ArrayList<>();
         if(thisMap != null) {
             thisMap.values().forEach((v) -> 
@@ -188,7 +230,7 @@ public abstract class Metric implements MetricInterface {
     }
     
     public Op initializeVars(String subScopeName) {
-        Map<String, MetricVariable> thisMap = this.variables.get(tf.scope().env());
+        Map<String, MetricVariable> thisMap = variables.get(tf.scope().env());
         
         List<Op> updateOperations = initializeVarsList(subScopeName);
         return ControlDependencies.addControlDependencies(tf, subScopeName, updateOperations);
@@ -205,11 +247,7 @@ public abstract class Metric implements MetricInterface {
      */
     public <T extends TType> Operand<T> variableAssignAdd(String name, Variable variable,  Operand<T> val) {
          Map<String, MetricVariable> thisMap = Metric.variables.get(tf.scope().env());
-         if(thisMap == null) {
-             tf.assignAdd(variable, val);
-         }
-         
-         MetricVariable v = thisMap.get(name);
+         MetricVariable v = thisMap == null ? null : thisMap.get(name);
          if(v != null) {
              if(v.isInitialized()) {
                  return tf.assignAdd(variable, val);
@@ -238,7 +276,7 @@ public abstract class Metric implements MetricInterface {
     }
 
     public Variable getVariable(String name) {
-        Map<String, MetricVariable> thisMap = this.variables.get(tf.scope().env());
+        Map<String, MetricVariable> thisMap = variables.get(tf.scope().env());
         if(thisMap == null) return null;
         MetricVariable mv = thisMap.get(name);
         return mv != null ? mv.getVariable() : null;
@@ -0,0 +1,209 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.tensorflow.DataType;
+import org.tensorflow.Operand;
+import org.tensorflow.keras.backend.K;
+import org.tensorflow.keras.backend.tf.ControlDependencies;
+import org.tensorflow.keras.backend.tf.Tuple;
+import org.tensorflow.keras.losses.impl.LossesImpl;
+import org.tensorflow.op.Op;
+import org.tensorflow.op.Ops;
+
+/**
+ * Groups several metrics that are updated from the same labels, predictions
+ * and sample weights, so that all of them are updated by a single operation
+ * and read by a single fetch list.
+ *
+ * <p>
+ * The shared preprocessing, casting the labels, predictions and sample
+ * weights to each metric data type and squeezing or expanding their last
+ * dimension, is built once per data type rather than once per metric. The
+ * metrics cast their inputs with {@link K#cast}, that adds no operation for
+ * inputs that already have the right type, and their squeeze or expand adds
+ * no operation for inputs whose static rank already matches.
+ *
+ * <p>
+ * All the metrics in the group must take <code>(yTrue, yPred,
+ * [sampleWeight])</code> in <code>updateState</code>.
+ *
+ * @author Jim Clarke
+ */
+public class MetricGroup {
+
+    private final Ops tf;
+    private final String name;
+    private final List<Metric> metrics = new ArrayList<>();
+
+    /**
+     * Creates a MetricGroup
+     *
+     * @param tf the TensorFlow Ops
+     * @param metrics the metrics in the group
+     */
+    public MetricGroup(Ops tf, Metric... metrics) {
+        this(tf, null, Arrays.asList(metrics));
+    }
+
+    /**
+     * Creates a MetricGroup
+     *
+     * @param tf the TensorFlow Ops
+     * @param name the name of the group, if null the class name is used.
+     * @param metrics the metrics in the group
+     */
+    public MetricGroup(Ops tf, String name, List<Metric> metrics) {
+        this.name = name == null ? this.getClass().getSimpleName() : name;
+        this.tf = tf.withSubScope(this.name);
+        this.metrics.addAll(metrics);
+    }
+
+    /**
+     * Adds a metric to the group.
+     *
+     * @param metric the metric
+     * @return this MetricGroup
+     */
+    public MetricGroup add(Metric metric) {
+        metrics.add(metric);
+        return this;
+    }
+
+    /**
+     * Updates every metric in the group.
+     *
+     * @param yTrue the labels
+     * @param yPred the predictions
+     * @return a single operation that updates every metric
+     */
+    public Op updateState(Operand yTrue, Operand yPred) {
+        return updateState(yTrue, yPred, null);
+    }
+
+    /**
+     * Updates every metric in the group.
+     *
+     * @param yTrue the labels
+     * @param yPred the predictions
+     * @param sampleWeight the sample weights, may be null
+     * @return a single operation that updates every metric
+     */
+    public Op updateState(Operand yTrue, Operand yPred, Operand sampleWeight) {
+        return ControlDependencies.addControlDependencies(tf, name + "_updateState",
+                updateStateList(yTrue, yPred, sampleWeight));
+    }
+
+    /**
+     * Builds the update operations of every metric in the group, sharing the
+     * preprocessing of the inputs.
+     *
+     * @param yTrue the labels
+     * @param yPred the predictions
+     * @param sampleWeight the sample weights, may be null
+     * @return the update operations of every metric
+     */
+    public List<Op> updateStateList(Operand yTrue, Operand yPred, Operand sampleWeight) {
+        Map<DataType, Operand[]> prepared = new HashMap<>();
+        List<Op> updateOperations = new ArrayList<>();
+        for (Metric metric : metrics) {
+            Operand[] args = prepared.computeIfAbsent(metric.getDataType(),
+                    dType -> prepare(dType, yTrue, yPred, sampleWeight));
+            updateOperations.addAll(metric.updateStateList(args));
+        }
+        return updateOperations;
+    }
+
+    /**
+     * Casts the inputs to a data type and squeezes or expands their last
+     * dimension.
+     *
+     * @param dType the data type
+     * @param yTrue the labels
+     * @param yPred the predictions
+     * @param sampleWeight the sample weights, may be null
+     * @return the labels, predictions and, if present, sample weights
+     */
+    private Operand[] prepare(DataType dType, Operand yTrue, Operand yPred, Operand sampleWeight) {
+        Ops ptf = tf.withSubScope(dType.name());
+        Operand labels = K.cast(ptf, yTrue, dType);
+        Operand predictions = K.cast(ptf, yPred, dType);
+        Tuple tuple = LossesImpl.squeezeOrExpandDimensions(ptf, labels, predictions);
+        labels = tuple.getLabels();
+        predictions = tuple.getPredictions();
+        if (sampleWeight == null) {
+            return new Operand[]{labels, predictions};
+        }
+        Operand weights = K.cast(ptf, sampleWeight, dType);
+        weights = LossesImpl.squeezeOrExpandDimensions(ptf, null, predictions, weights).getSampleWeights();
+        return new Operand[]{labels, predictions, weights};
+    }
+
+    /**
+     * Gets the results of every metric in the group, in the order the metrics
+     * were added, to be fetched in a single run.
+     *
+     * @return the results of every metric
+     */
+    public List<Operand> result() {
+        List<Operand> results = new ArrayList<>();
+        metrics.forEach(metric -> results.add(metric.result()));
+        return results;
+    }
+
+    /**
+     * Gets the results of every metric in the group, keyed by metric name, in
+     * the order the metrics were added.
+     *
+     * @return the results of every metric, keyed by metric name
+     */
+    public Map<String, Operand> resultMap() {
+        Map<String, Operand> results = new LinkedHashMap<>();
+        metrics.forEach(metric -> results.put(metric.getName(), metric.result()));
+        return results;
+    }
+
+    /**
+     * Resets the state of every metric in the group.
+     *
+     * @return a single operation that resets every metric
+     */
+    public Op resetStates() {
+        List<Op> resetOperations = new ArrayList<>();
+        metrics.forEach(metric -> resetOperations.add(metric.resetStates()));
+        return ControlDependencies.addControlDependencies(tf, name + "_resetStates", resetOperations);
+    }
+
+    /**
+     * @return the metrics in the group
+     */
+    public List<Metric> getMetrics() {
+        return Collections.unmodifiableList(metrics);
+    }
+
+    /**
+     * @return the name of the group
+     */
+    public String getName() {
+        return name;
+    }
+}
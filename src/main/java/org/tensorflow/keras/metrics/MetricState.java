@@ -0,0 +1,347 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.tensorflow.DataType;
+import org.tensorflow.Session;
+import org.tensorflow.Tensor;
+import org.tensorflow.keras.backend.tf.ControlDependencies;
+import org.tensorflow.ndarray.Shape;
+import org.tensorflow.ndarray.buffer.DataBuffers;
+import org.tensorflow.op.Op;
+import org.tensorflow.op.Ops;
+import org.tensorflow.op.core.Variable;
+import org.tensorflow.proto.framework.VariableAggregation;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.TFloat64;
+import org.tensorflow.types.TInt32;
+import org.tensorflow.types.TInt64;
+
+/**
+ * A snapshot of the accumulator variables of a metric, that can be written to
+ * a compact binary form, merged with the snapshots of the same metric from
+ * other workers or shards, and restored into a metric.
+ *
+ * <p>
+ * Snapshots are merged variable by variable according to the variable
+ * aggregation of each {@link MetricVariable}: <code>SUM</code> adds the
+ * values, e.g. the confusion counts of <code>AUC</code>, the total and count
+ * of <code>Reduce</code> and the confusion matrix of <code>MeanIoU</code>,
+ * <code>MEAN</code> averages them and <code>ONLY_FIRST_REPLICA</code> keeps
+ * the first one. Variables with no aggregation cannot be merged.
+ *
+ * @author Jim Clarke
+ */
+public class MetricState {
+
+    private static final int MAGIC = 0x4D535401;
+
+    private final Map<String, VariableState> variables;
+
+    private MetricState(Map<String, VariableState> variables) {
+        this.variables = variables;
+    }
+
+    /**
+     * Reads the current value of every variable of a metric.
+     *
+     * @param session the session that holds the metric variables
+     * @param metric the metric
+     * @return the snapshot of the metric state
+     */
+    public static MetricState export(Session session, Metric metric) {
+        Map<String, VariableState> result = new LinkedHashMap<>();
+        metric.getMetricVariables().forEach((name, mv) -> {
+            try (Tensor<?> tensor = session.runner().fetch(mv.getVariable()).run().get(0)) {
+                result.put(name, new VariableState(name, mv.getAggregation(),
+                        tensor.shape().asArray(), toDoubles(tensor)));
+            }
+        });
+        return new MetricState(result);
+    }
+
+    private static double[] toDoubles(Tensor<?> tensor) {
+        DataType dType = tensor.dataType();
+        int size = (int) tensor.shape().size();
+        double[] values = new double[size];
+        if (dType == TFloat64.DTYPE) {
+            tensor.expect(TFloat64.DTYPE).data().read(DataBuffers.of(values, false, false));
+        } else if (dType == TFloat32.DTYPE) {
+            float[] floats = new float[size];
+            tensor.expect(TFloat32.DTYPE).data().read(DataBuffers.of(floats, false, false));
+            for (int i = 0; i < size; i++) {
+                values[i] = floats[i];
+            }
+        } else if (dType == TInt64.DTYPE) {
+            long[] longs = new long[size];
+            tensor.expect(TInt64.DTYPE).data().read(DataBuffers.of(longs, false, false));
+            for (int i = 0; i < size; i++) {
+                values[i] = longs[i];
+            }
+        } else if (dType == TInt32.DTYPE) {
+            int[] ints = new int[size];
+            tensor.expect(TInt32.DTYPE).data().read(DataBuffers.of(ints, false, false));
+            for (int i = 0; i < size; i++) {
+                values[i] = ints[i];
+            }
+        } else {
+            throw new IllegalArgumentException(
+                    String.format("Metric variables of type %s cannot be exported", dType));
+        }
+        return values;
+    }
+
+    /**
+     * Merges snapshots of the same metric, according to the aggregation of
+     * each variable.
+     *
+     * @param states the snapshots
+     * @return the merged snapshot
+     * @throws IllegalArgumentException if the snapshots do not hold the same
+     * variables and shapes, or a variable with no aggregation is merged.
+     */
+    public static MetricState merge(MetricState... states) {
+        return merge(Arrays.asList(states));
+    }
+
+    /**
+     * Merges snapshots of the same metric, according to the aggregation of
+     * each variable.
+     *
+     * @param states the snapshots
+     * @return the merged snapshot
+     * @throws IllegalArgumentException if the snapshots do not hold the same
+     * variables and shapes, or a variable with no aggregation is merged.
+     */
+    public static MetricState merge(List<MetricState> states) {
+        if (states.isEmpty()) {
+            throw new IllegalArgumentException("At least one MetricState is required");
+        }
+        MetricState first = states.get(0);
+        Map<String, VariableState> result = new LinkedHashMap<>();
+        first.variables.forEach((name, firstState) -> {
+            List<VariableState> all = new ArrayList<>();
+            for (MetricState state : states) {
+                VariableState vs = state.variables.get(name);
+                if (vs == null || !Arrays.equals(vs.shape, firstState.shape)) {
+                    throw new IllegalArgumentException(String.format(
+                            "MetricStates do not have the same variable %s with shape %s",
+                            name, Arrays.toString(firstState.shape)));
+                }
+                all.add(vs);
+            }
+            result.put(name, VariableState.merge(all));
+        });
+        for (MetricState state : states) {
+            if (!state.variables.keySet().equals(first.variables.keySet())) {
+                throw new IllegalArgumentException(String.format(
+                        "MetricStates do not have the same variables: %s and %s",
+                        first.variables.keySet(), state.variables.keySet()));
+            }
+        }
+        return new MetricState(result);
+    }
+
+    /**
+     * Creates an operation that assigns this snapshot to the variables of a
+     * metric.
+     *
+     * <p>
+     * Metrics that create their variables when the first update operation is
+     * built, such as <code>AUC</code>, must have built an update operation
+     * before they are restored.
+     *
+     * @param metric the metric, it must hold the same variables as the metric
+     * the snapshot was exported from.
+     * @return the operation that restores the metric state
+     * @throws IllegalArgumentException if the metric does not have a variable
+     * of this snapshot.
+     */
+    public Op restore(Metric metric) {
+        Ops tf = metric.getTF();
+        Map<String, MetricVariable> metricVariables = metric.getMetricVariables();
+        List<Op> assignOps = new ArrayList<>();
+        variables.forEach((name, vs) -> {
+            MetricVariable mv = metricVariables.get(name);
+            if (mv == null) {
+                throw new IllegalArgumentException(String.format(
+                        "Metric %s does not have a variable %s", metric.getName(), name));
+            }
+            Variable variable = mv.getVariable();
+            assignOps.add(tf.assign(variable,
+                    tf.dtypes.cast(tf.constant(Shape.of(vs.shape), DataBuffers.of(vs.values, true, false)),
+                            variable.asOutput().dataType())));
+            // the restored value replaces the initial value.
+            mv.setInitialized(true);
+        });
+        return ControlDependencies.addControlDependencies(tf, "restoreState", assignOps);
+    }
+
+    /**
+     * Writes this snapshot in a compact binary form.
+     *
+     * @return the binary form of this snapshot
+     */
+    public byte[] toByteArray() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(variables.size());
+            for (VariableState vs : variables.values()) {
+                out.writeUTF(vs.name);
+                out.writeInt(vs.aggregation.getNumber());
+                out.writeInt(vs.shape.length);
+                for (long dim : vs.shape) {
+                    out.writeLong(dim);
+                }
+                out.writeInt(vs.values.length);
+                for (double value : vs.values) {
+                    out.writeDouble(value);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads a snapshot from its binary form.
+     *
+     * @param bytes the binary form of a snapshot
+     * @return the snapshot
+     * @throws IllegalArgumentException if the bytes are not a snapshot
+     */
+    public static MetricState fromByteArray(byte[] bytes) {
+        Map<String, VariableState> result = new LinkedHashMap<>();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a MetricState");
+            }
+            int numVariables = in.readInt();
+            for (int v = 0; v < numVariables; v++) {
+                String name = in.readUTF();
+                int aggregationNumber = in.readInt();
+                VariableAggregation aggregation = VariableAggregation.forNumber(aggregationNumber);
+                if (aggregation == null) {
+                    throw new IOException(String.format(
+                            "Unknown aggregation %d for variable %s", aggregationNumber, name));
+                }
+                long[] shape = new long[in.readInt()];
+                for (int i = 0; i < shape.length; i++) {
+                    shape[i] = in.readLong();
+                }
+                double[] values = new double[in.readInt()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = in.readDouble();
+                }
+                result.put(name, new VariableState(name, aggregation, shape, values));
+            }
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Not a MetricState: " + ex.getMessage(), ex);
+        }
+        return new MetricState(result);
+    }
+
+    /**
+     * @return the names of the variables in this snapshot
+     */
+    public List<String> getVariableNames() {
+        return Collections.unmodifiableList(new ArrayList<>(variables.keySet()));
+    }
+
+    /**
+     * Gets the values of a variable, flattened in row major order.
+     *
+     * @param name the name of the variable
+     * @return a copy of the values, or null if there is no such variable.
+     */
+    public double[] getValues(String name) {
+        VariableState vs = variables.get(name);
+        return vs == null ? null : vs.values.clone();
+    }
+
+    /**
+     * Gets the shape of a variable.
+     *
+     * @param name the name of the variable
+     * @return the shape, or null if there is no such variable.
+     */
+    public Shape getShape(String name) {
+        VariableState vs = variables.get(name);
+        return vs == null ? null : Shape.of(vs.shape);
+    }
+
+    /**
+     * The snapshot of a single variable.
+     */
+    private static class VariableState {
+
+        private final String name;
+        private final VariableAggregation aggregation;
+        private final long[] shape;
+        private final double[] values;
+
+        VariableState(String name, VariableAggregation aggregation, long[] shape, double[] values) {
+            this.name = name;
+            this.aggregation = aggregation;
+            this.shape = shape;
+            this.values = values;
+        }
+
+        static VariableState merge(List<VariableState> states) {
+            VariableState first = states.get(0);
+            if (states.size() == 1) {
+                return first;
+            }
+            double[] values = first.values.clone();
+            switch (first.aggregation) {
+                case VARIABLE_AGGREGATION_SUM:
+                case VARIABLE_AGGREGATION_MEAN:
+                    for (int s = 1; s < states.size(); s++) {
+                        double[] other = states.get(s).values;
+                        for (int i = 0; i < values.length; i++) {
+                            values[i] += other[i];
+                        }
+                    }
+                    if (first.aggregation == VariableAggregation.VARIABLE_AGGREGATION_MEAN) {
+                        for (int i = 0; i < values.length; i++) {
+                            values[i] /= states.size();
+                        }
+                    }
+                    break;
+                case VARIABLE_AGGREGATION_ONLY_FIRST_REPLICA:
+                    break;
+                default:
+                    throw new IllegalArgumentException(String.format(
+                            "Variable %s with aggregation %s cannot be merged",
+                            first.name, first.aggregation));
+            }
+            return new VariableState(first.name, first.aggregation, first.shape, values);
+        }
+    }
+}
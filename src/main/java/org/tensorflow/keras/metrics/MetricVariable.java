@@ -39,7 +39,7 @@ public class MetricVariable {
     private final VariableAggregation aggregation;
     private final VariableSynchronization synchronization;
     private final Initializer initializer;
-    private boolean initialized;
+    private volatile boolean initialized;
     private final Ops tf;
 
     public MetricVariable(Ops tf, String name, Variable variable) {
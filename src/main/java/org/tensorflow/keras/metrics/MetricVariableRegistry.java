@@ -0,0 +1,165 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.tensorflow.ExecutionEnvironment;
+import org.tensorflow.Graph;
+
+/**
+ * Holds the metric variables of each execution environment, keyed by the
+ * name that identifies them.
+ *
+ * <p>
+ * The variables of an environment reference the environment through their
+ * operations, so the environment cannot be weakly referenced. Instead, the
+ * variables of closed graphs are removed whenever a new environment is added,
+ * or explicitly with {@link #purge()}. An eager session cannot be probed
+ * without allocating an operation, so its variables are only removed
+ * explicitly with {@link #remove(ExecutionEnvironment)}. The environments
+ * are spread over a fixed number of lock stripes, so that graphs built on
+ * different threads seldom contend, and the variables of each environment are
+ * held in a concurrent map, so they can be read and added without locking.
+ *
+ * @author Jim Clarke
+ */
+public class MetricVariableRegistry {
+
+    private static final int NUM_STRIPES = 16;
+
+    @SuppressWarnings("unchecked")
+    private final Map<ExecutionEnvironment, Map<String, MetricVariable>>[] stripes
+            = new Map[NUM_STRIPES];
+
+    /**
+     * Creates an empty MetricVariableRegistry
+     */
+    public MetricVariableRegistry() {
+        for (int i = 0; i < NUM_STRIPES; i++) {
+            stripes[i] = new IdentityHashMap<>();
+        }
+    }
+
+    private Map<ExecutionEnvironment, Map<String, MetricVariable>> stripe(ExecutionEnvironment env) {
+        int hash = System.identityHashCode(env);
+        return stripes[(hash ^ (hash >>> 16)) & (NUM_STRIPES - 1)];
+    }
+
+    /**
+     * Gets the variables of an environment.
+     *
+     * @param env the execution environment
+     * @return the variables keyed by name, or null if the environment does not
+     * have any.
+     */
+    public Map<String, MetricVariable> get(ExecutionEnvironment env) {
+        Map<ExecutionEnvironment, Map<String, MetricVariable>> stripe = stripe(env);
+        synchronized (stripe) {
+            return stripe.get(env);
+        }
+    }
+
+    /**
+     * Gets the variables of an environment, creating an empty map if the
+     * environment does not have any.
+     *
+     * @param env the execution environment
+     * @return the variables keyed by name
+     */
+    public Map<String, MetricVariable> getOrCreate(ExecutionEnvironment env) {
+        Map<String, MetricVariable> result = get(env);
+        if (result != null) {
+            return result;
+        }
+        purge();
+        Map<ExecutionEnvironment, Map<String, MetricVariable>> stripe = stripe(env);
+        synchronized (stripe) {
+            return stripe.computeIfAbsent(env, e -> new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Removes the variables of every graph that has been closed. Eager sessions
+     * are not checked.
+     *
+     * @return the number of environments removed
+     */
+    public int purge() {
+        int removed = 0;
+        for (Map<ExecutionEnvironment, Map<String, MetricVariable>> stripe : stripes) {
+            synchronized (stripe) {
+                List<ExecutionEnvironment> closed = new ArrayList<>();
+                for (ExecutionEnvironment env : stripe.keySet()) {
+                    if (isClosed(env)) {
+                        closed.add(env);
+                    }
+                }
+                closed.forEach(stripe::remove);
+                removed += closed.size();
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Checks if a graph has been closed, graphs do not expose their state, but
+     * reject any use once closed.
+     *
+     * @param env the execution environment
+     * @return true if the environment is a graph that has been closed
+     */
+    private static boolean isClosed(ExecutionEnvironment env) {
+        if (!(env instanceof Graph)) {
+            return false;
+        }
+        try {
+            ((Graph) env).operations();
+            return false;
+        } catch (IllegalStateException ex) {
+            return true;
+        }
+    }
+
+    /**
+     * Removes the variables of an environment.
+     *
+     * @param env the execution environment
+     * @return the variables that were removed, or null if the environment did
+     * not have any.
+     */
+    public Map<String, MetricVariable> remove(ExecutionEnvironment env) {
+        Map<ExecutionEnvironment, Map<String, MetricVariable>> stripe = stripe(env);
+        synchronized (stripe) {
+            return stripe.remove(env);
+        }
+    }
+
+    /**
+     * @return the number of environments that have variables
+     */
+    public int size() {
+        int size = 0;
+        for (Map<ExecutionEnvironment, Map<String, MetricVariable>> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+}
@@ -25,6 +25,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.tensorflow.Operand;
 import org.tensorflow.Session;
+import org.tensorflow.keras.backend.tf.SparseTensor;
 import org.tensorflow.keras.backend.tf.Tuple;
 import org.tensorflow.keras.metrics.impl.ConfusionMatrixEnum;
 import org.tensorflow.keras.metrics.impl.MetricsImpl;
@@ -625,6 +626,15 @@ public class Metrics {
                 thresholds, topK, classId, sampleWeights, multiLabel, labelWeights);
     }
 
+    public static List<Op> update_confusion_matrix_variables(Ops tf, Map<ConfusionMatrixEnum, Variable> confusionMatrix,
+            Map<ConfusionMatrixEnum, Assign> initializers,
+            SparseTensor yTrue, Operand yPred, float[] thresholds,
+            Integer topK, Integer classId, Operand sampleWeights) {
+        return MetricsImpl.update_confusion_matrix_variables(tf, confusionMatrix,
+                initializers, yTrue, yPred,
+                thresholds, topK, classId, sampleWeights);
+    }
+
     // for debugging
     public static void setDebug(Session session) {
         MetricsImpl.setDebug(session);
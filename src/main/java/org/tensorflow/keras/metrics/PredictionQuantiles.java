@@ -0,0 +1,108 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics;
+
+import org.tensorflow.DataType;
+import org.tensorflow.Operand;
+import org.tensorflow.keras.metrics.impl.QuantileSketch;
+import org.tensorflow.op.Ops;
+import org.tensorflow.types.TFloat32;
+
+/**
+ * Estimates quantiles of the predictions, e.g. to track the distribution of
+ * scores, without keeping the individual predictions. The labels are ignored.
+ *
+ * <p>
+ * Each estimated quantile is within <code>relativeAccuracy</code> of a
+ * prediction whose rank is the quantile, for predictions whose magnitude is
+ * between <code>minValue</code> and <code>maxValue</code>.
+ *
+ * @author Jim Clarke
+ */
+public class PredictionQuantiles extends QuantileSketch {
+
+    public static final String DEFAULT_NAME = "prediction_quantiles";
+    public static final float[] DEFAULT_QUANTILES = {0.5f, 0.95f, 0.99f};
+
+    /**
+     * Creates a PredictionQuantiles that estimates the 0.5, 0.95 and 0.99
+     * quantiles
+     *
+     * @param tf the TensorFlow Ops
+     */
+    public PredictionQuantiles(Ops tf) {
+        this(tf, DEFAULT_NAME, DEFAULT_QUANTILES, DEFAULT_RELATIVE_ACCURACY, null);
+    }
+
+    /**
+     * Creates a PredictionQuantiles
+     *
+     * @param tf the TensorFlow Ops
+     * @param quantiles the quantiles to estimate, each in the range [0, 1].
+     */
+    public PredictionQuantiles(Ops tf, float[] quantiles) {
+        this(tf, DEFAULT_NAME, quantiles, DEFAULT_RELATIVE_ACCURACY, null);
+    }
+
+    /**
+     * Creates a PredictionQuantiles
+     *
+     * @param tf the TensorFlow Ops
+     * @param name the name of the metric
+     * @param quantiles the quantiles to estimate, each in the range [0, 1].
+     */
+    public PredictionQuantiles(Ops tf, String name, float[] quantiles) {
+        this(tf, name, quantiles, DEFAULT_RELATIVE_ACCURACY, null);
+    }
+
+    /**
+     * Creates a PredictionQuantiles
+     *
+     * @param tf the TensorFlow Ops
+     * @param name the name of the metric
+     * @param quantiles the quantiles to estimate, each in the range [0, 1].
+     * @param relativeAccuracy the relative accuracy of the estimated
+     * quantiles, in the range (0, 1).
+     * @param dType the data type of the result
+     */
+    public PredictionQuantiles(Ops tf, String name, float[] quantiles, float relativeAccuracy, DataType dType) {
+        this(tf, name, quantiles, relativeAccuracy, DEFAULT_MIN_VALUE, DEFAULT_MAX_VALUE, dType);
+    }
+
+    /**
+     * Creates a PredictionQuantiles
+     *
+     * @param tf the TensorFlow Ops
+     * @param name the name of the metric
+     * @param quantiles the quantiles to estimate, each in the range [0, 1].
+     * @param relativeAccuracy the relative accuracy of the estimated
+     * quantiles, in the range (0, 1).
+     * @param minValue the smallest magnitude that is not counted as zero.
+     * @param maxValue the largest magnitude that is counted accurately.
+     * @param dType the data type of the result
+     */
+    public PredictionQuantiles(Ops tf, String name, float[] quantiles, float relativeAccuracy,
+            float minValue, float maxValue, DataType dType) {
+        super(tf, name, quantiles, relativeAccuracy, minValue, maxValue, dType);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Operand<TFloat32> getValues(Operand<TFloat32> labels, Operand<TFloat32> predictions) {
+        return predictions;
+    }
+}
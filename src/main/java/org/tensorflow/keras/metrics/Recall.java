@@ -21,6 +21,8 @@ import java.util.List;
 import java.util.Map;
 import org.tensorflow.DataType;
 import org.tensorflow.Operand;
+import org.tensorflow.keras.backend.tf.ControlDependencies;
+import org.tensorflow.keras.backend.tf.SparseTensor;
 import org.tensorflow.keras.initializers.Zeros;
 import org.tensorflow.keras.metrics.impl.ConfusionMatrixEnum;
 import org.tensorflow.ndarray.Shape;
@@ -295,6 +297,38 @@ public class Recall extends Metric {
         return updateOperations;
     }
 
+    /**
+     * Creates an operation that updates the state of this metric from sparse
+     * labels, such as multi-hot labels over a large number of classes,
+     * without densifying the labels.
+     *
+     * @param yTrue the labels, with indices <code>[N, 2]</code> into yPred
+     * @param yPred the predictions, with shape <code>[batchSize, numClasses]</code>
+     * @param sampleWeights the sample weights, may be null
+     * @return the update operation
+     */
+    public Op updateState(SparseTensor yTrue, Operand yPred, Operand sampleWeights) {
+        return ControlDependencies.addControlDependencies(tf, getName() + "_updateState",
+                updateStateList(yTrue, yPred, sampleWeights));
+    }
+
+    /**
+     * Builds the update operations of this metric from sparse labels.
+     *
+     * @param yTrue the labels, with indices <code>[N, 2]</code> into yPred
+     * @param yPred the predictions, with shape <code>[batchSize, numClasses]</code>
+     * @param sampleWeights the sample weights, may be null
+     * @return the update operations
+     */
+    public List<Op> updateStateList(SparseTensor yTrue, Operand yPred, Operand sampleWeights) {
+        Map<ConfusionMatrixEnum, Variable> confusionMatrix = new HashMap<>();
+        confusionMatrix.put(ConfusionMatrixEnum.TRUE_POSITIVES, this.truePositives);
+        confusionMatrix.put(ConfusionMatrixEnum.FALSE_NEGATIVES, this.falseNegatives);
+        return Metrics.update_confusion_matrix_variables(tf, confusionMatrix,
+                Collections.EMPTY_MAP, yTrue, yPred,
+                this.thresholds, this.topK, this.classID, sampleWeights);
+    }
+
     @Override
     public Operand result(Ops rtf) {
         Operand result = rtf.math.divNoNan(this.truePositives,
@@ -0,0 +1,190 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics.host;
+
+import java.util.Arrays;
+import org.tensorflow.keras.backend.K;
+import org.tensorflow.keras.metrics.AUCCurve;
+import org.tensorflow.keras.metrics.AUCSummationMethod;
+
+/**
+ * Computes the approximate AUC (Area under the curve) via a Riemann sum, on the
+ * host.
+ *
+ * <p>
+ * The thresholds and the summation follow
+ * {@link org.tensorflow.keras.metrics.AUC}, only single label AUC is
+ * supported.
+ *
+ * @author Jim Clarke
+ */
+public class AUC extends ThresholdMetric {
+
+    public static final String DEFAULT_NAME = "auc";
+    public static final int DEFAULT_NUM_THRESHOLDS = 200;
+
+    private final AUCCurve curve;
+    private final AUCSummationMethod summationMethod;
+
+    /**
+     * Creates an AUC host metric.
+     */
+    public AUC() {
+        this(DEFAULT_NAME, DEFAULT_NUM_THRESHOLDS, AUCCurve.ROC, AUCSummationMethod.INTERPOLATION);
+    }
+
+    /**
+     * Creates an AUC host metric.
+     *
+     * @param numThresholds the number of thresholds to use when discretizing
+     * the roc curve. Values must be &gt; 1.
+     */
+    public AUC(int numThresholds) {
+        this(DEFAULT_NAME, numThresholds, AUCCurve.ROC, AUCSummationMethod.INTERPOLATION);
+    }
+
+    /**
+     * Creates an AUC host metric.
+     *
+     * @param name the name of the metric instance
+     * @param numThresholds the number of thresholds to use when discretizing
+     * the roc curve. Values must be &gt; 1.
+     * @param curve specifies the type of the curve to be computed, ROC or PR
+     * @param summationMethod specifies the Riemann summation method used
+     */
+    public AUC(String name, int numThresholds, AUCCurve curve, AUCSummationMethod summationMethod) {
+        this(name, evenlyDistributed(numThresholds), curve, summationMethod);
+    }
+
+    /**
+     * Creates an AUC host metric.
+     *
+     * @param name the name of the metric instance
+     * @param thresholds the interior thresholds in the range [0, 1], the end
+     * point thresholds below zero and above one are added.
+     * @param curve specifies the type of the curve to be computed, ROC or PR
+     * @param summationMethod specifies the Riemann summation method used
+     */
+    public AUC(String name, float[] thresholds, AUCCurve curve, AUCSummationMethod summationMethod) {
+        super(name, withEndpoints(thresholds), null, null);
+        this.curve = curve;
+        this.summationMethod = summationMethod;
+    }
+
+    private static float[] evenlyDistributed(int numThresholds) {
+        if (numThresholds <= 1) {
+            throw new IllegalArgumentException("numThresholds must be > 1.");
+        }
+        float[] thresholds = new float[numThresholds - 2];
+        for (int i = 0; i < thresholds.length; i++) {
+            thresholds[i] = (i + 1) * 1.0f / (numThresholds - 1);
+        }
+        return thresholds;
+    }
+
+    private static float[] withEndpoints(float[] thresholds) {
+        float[] sorted = thresholds.clone();
+        Arrays.sort(sorted);
+        float[] result = new float[sorted.length + 2];
+        result[0] = -K.EpsilonF;
+        System.arraycopy(sorted, 0, result, 1, sorted.length);
+        result[result.length - 1] = 1 + K.EpsilonF;
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected float result(double[] state) {
+        double[][] counts = confusionMatrix(state);
+        double[] truePositives = counts[TRUE_POSITIVES];
+        double[] falsePositives = counts[FALSE_POSITIVES];
+        double[] trueNegatives = counts[TRUE_NEGATIVES];
+        double[] falseNegatives = counts[FALSE_NEGATIVES];
+        if (curve == AUCCurve.PR && summationMethod == AUCSummationMethod.INTERPOLATION) {
+            return (float) interpolatePRAuc(truePositives, falsePositives, falseNegatives);
+        }
+        int numThresholds = truePositives.length;
+        double[] x = new double[numThresholds];
+        double[] y = new double[numThresholds];
+        for (int i = 0; i < numThresholds; i++) {
+            double recall = divNoNan(truePositives[i], truePositives[i] + falseNegatives[i]);
+            if (curve == AUCCurve.ROC) {
+                x[i] = divNoNan(falsePositives[i], falsePositives[i] + trueNegatives[i]);
+                y[i] = recall;
+            } else {
+                x[i] = recall;
+                y[i] = divNoNan(truePositives[i], truePositives[i] + falsePositives[i]);
+            }
+        }
+        double sum = 0;
+        for (int i = 0; i < numThresholds - 1; i++) {
+            double height;
+            switch (summationMethod) {
+                case MINORING:
+                    height = Math.min(y[i], y[i + 1]);
+                    break;
+                case MAJORING:
+                    height = Math.max(y[i], y[i + 1]);
+                    break;
+                default:
+                    height = (y[i] + y[i + 1]) / 2;
+                    break;
+            }
+            sum += (x[i] - x[i + 1]) * height;
+        }
+        return (float) sum;
+    }
+
+    /**
+     * Interpolation formula inspired by section 4 of Davis &amp; Goadrich 2006.
+     *
+     * @return an approximation of the area under the P-R curve.
+     */
+    private static double interpolatePRAuc(double[] truePositives, double[] falsePositives,
+            double[] falseNegatives) {
+        double sum = 0;
+        for (int i = 0; i < truePositives.length - 1; i++) {
+            double dTP = truePositives[i] - truePositives[i + 1];
+            double p0 = truePositives[i] + falsePositives[i];
+            double p1 = truePositives[i + 1] + falsePositives[i + 1];
+            double precSlope = divNoNan(dTP, Math.max(p0 - p1, 0));
+            double intercept = truePositives[i + 1] - precSlope * p1;
+            double safePRatio = p0 > 0 && p1 > 0 ? divNoNan(p0, Math.max(p1, 0)) : 1;
+            double aucTotalPos = precSlope * (dTP + intercept * Math.log(safePRatio));
+            sum += divNoNan(aucTotalPos, Math.max(truePositives[i + 1] + falseNegatives[i + 1], 0));
+        }
+        return sum;
+    }
+
+    private static double divNoNan(double numerator, double denominator) {
+        return denominator == 0 ? 0 : numerator / denominator;
+    }
+
+    /**
+     * @return the curve
+     */
+    public AUCCurve getCurve() {
+        return curve;
+    }
+
+    /**
+     * @return the summationMethod
+     */
+    public AUCSummationMethod getSummationMethod() {
+        return summationMethod;
+    }
+}
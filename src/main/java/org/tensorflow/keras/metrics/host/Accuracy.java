@@ -0,0 +1,59 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics.host;
+
+import org.tensorflow.keras.metrics.Reduction;
+
+/**
+ * Calculates how often predictions equal labels, on the host.
+ *
+ * @author Jim Clarke
+ */
+public class Accuracy extends Reduce {
+
+    public static final String DEFAULT_NAME = "accuracy";
+
+    /**
+     * Creates an Accuracy host metric.
+     */
+    public Accuracy() {
+        this(DEFAULT_NAME);
+    }
+
+    /**
+     * Creates an Accuracy host metric.
+     *
+     * @param name name of the metric instance.
+     */
+    public Accuracy(String name) {
+        super(name, Reduction.WEIGHTED_MEAN);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void validate(HostBatch batch) {
+        validateSameShape(batch);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected double value(HostBatch batch, int row, int col) {
+        return batch.label(row, col) == batch.prediction(row, col) ? 1 : 0;
+    }
+}
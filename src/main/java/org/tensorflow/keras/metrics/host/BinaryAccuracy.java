@@ -0,0 +1,73 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics.host;
+
+/**
+ * Calculates how often predictions match binary labels, on the host.
+ *
+ * @author Jim Clarke
+ */
+public class BinaryAccuracy extends Accuracy {
+
+    public static final String DEFAULT_NAME = "binary_accuracy";
+    public static final float DEFAULT_THRESHOLD = 0.5f;
+
+    private final float threshold;
+
+    /**
+     * Creates a BinaryAccuracy host metric.
+     */
+    public BinaryAccuracy() {
+        this(DEFAULT_NAME, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Creates a BinaryAccuracy host metric.
+     *
+     * @param threshold the threshold for deciding whether prediction values
+     * are 1 or 0.
+     */
+    public BinaryAccuracy(float threshold) {
+        this(DEFAULT_NAME, threshold);
+    }
+
+    /**
+     * Creates a BinaryAccuracy host metric.
+     *
+     * @param name name of the metric instance.
+     * @param threshold the threshold for deciding whether prediction values
+     * are 1 or 0.
+     */
+    public BinaryAccuracy(String name, float threshold) {
+        super(name);
+        this.threshold = threshold;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected double value(HostBatch batch, int row, int col) {
+        float predicted = batch.prediction(row, col) > threshold ? 1f : 0f;
+        return batch.label(row, col) == predicted ? 1 : 0;
+    }
+
+    /**
+     * @return the threshold
+     */
+    public float getThreshold() {
+        return threshold;
+    }
+}
@@ -0,0 +1,58 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics.host;
+
+/**
+ * Calculates how often the index of the largest prediction matches the index of
+ * the largest one-hot label, on the host.
+ *
+ * @author Jim Clarke
+ */
+public class CategoricalAccuracy extends MeanMetricWrapper {
+
+    public static final String DEFAULT_NAME = "categorical_accuracy";
+
+    /**
+     * Creates a CategoricalAccuracy host metric.
+     */
+    public CategoricalAccuracy() {
+        this(DEFAULT_NAME);
+    }
+
+    /**
+     * Creates a CategoricalAccuracy host metric.
+     *
+     * @param name name of the metric instance.
+     */
+    public CategoricalAccuracy(String name) {
+        super(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void validate(HostBatch batch) {
+        validateSameShape(batch);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected double rowValue(HostBatch batch, int row) {
+        return batch.argMaxLabel(row) == batch.argMaxPrediction(row) ? 1 : 0;
+    }
+}
@@ -0,0 +1,240 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics.host;
+
+import org.tensorflow.ndarray.FloatNdArray;
+import org.tensorflow.ndarray.Shape;
+import org.tensorflow.ndarray.buffer.DataBuffers;
+
+/**
+ * A batch of labels, predictions and optional sample weights held in host
+ * memory as flat, row major <code>float</code> arrays.
+ *
+ * <p>
+ * The predictions are viewed as <code>numRows</code> rows of
+ * <code>rowLength</code> values, where <code>rowLength</code> is the size of
+ * the last dimension. The labels must have the same number of rows, but may
+ * have a different row length (e.g. sparse class ids with a row length of
+ * 1). Sample weights may be absent, a single scalar, one weight per row or one
+ * weight per prediction element.
+ *
+ * @author Jim Clarke
+ */
+public final class HostBatch {
+
+    private final float[] labels;
+    private final float[] predictions;
+    private final float[] sampleWeights;
+    private final int numRows;
+    private final int rowLength;
+    private final int labelRowLength;
+
+    /**
+     * Creates a HostBatch
+     *
+     * @param labels the labels, may be null for metrics that only use values.
+     * @param predictions the predictions
+     * @param sampleWeights the sample weights, may be null
+     * @param rowLength the size of the last dimension of the predictions
+     * @throws IllegalArgumentException if the array lengths are not
+     * consistent.
+     */
+    public HostBatch(float[] labels, float[] predictions, float[] sampleWeights, int rowLength) {
+        if (rowLength <= 0 || predictions.length % rowLength != 0) {
+            throw new IllegalArgumentException(String.format(
+                    "predictions length %d is not a multiple of the row length %d",
+                    predictions.length, rowLength));
+        }
+        this.labels = labels;
+        this.predictions = predictions;
+        this.sampleWeights = sampleWeights;
+        this.rowLength = rowLength;
+        this.numRows = predictions.length / rowLength;
+        if (labels != null) {
+            if (numRows == 0 ? labels.length != 0 : labels.length % numRows != 0) {
+                throw new IllegalArgumentException(String.format(
+                        "labels length %d is not compatible with %d prediction rows",
+                        labels.length, numRows));
+            }
+            this.labelRowLength = numRows == 0 ? rowLength : labels.length / numRows;
+        } else {
+            this.labelRowLength = 0;
+        }
+        if (sampleWeights != null
+                && sampleWeights.length != 1
+                && sampleWeights.length != numRows
+                && sampleWeights.length != predictions.length) {
+            throw new IllegalArgumentException(String.format(
+                    "sampleWeights length %d cannot be broadcast to %d rows of %d",
+                    sampleWeights.length, numRows, rowLength));
+        }
+    }
+
+    /**
+     * Creates a HostBatch from NdArrays. The row length is taken from the last
+     * dimension of the predictions; scalar and rank 1 predictions are treated
+     * as a column, one value per row.
+     *
+     * @param labels the labels, may be null for metrics that only use values.
+     * @param predictions the predictions
+     * @param sampleWeights the sample weights, may be null
+     * @return the HostBatch
+     */
+    public static HostBatch of(FloatNdArray labels, FloatNdArray predictions, FloatNdArray sampleWeights) {
+        Shape shape = predictions.shape();
+        int rowLength = shape.numDimensions() < 2 ? 1 : (int) shape.size(shape.numDimensions() - 1);
+        return new HostBatch(toArray(labels), toArray(predictions), toArray(sampleWeights), rowLength);
+    }
+
+    /**
+     * Copy an NdArray into a flat, row major float array.
+     *
+     * @param array the NdArray, may be null
+     * @return the flat array, or null if array is null
+     */
+    static float[] toArray(FloatNdArray array) {
+        if (array == null) {
+            return null;
+        }
+        float[] result = new float[(int) array.size()];
+        array.read(DataBuffers.of(result, false, false));
+        return result;
+    }
+
+    /**
+     * @return the number of rows
+     */
+    public int getNumRows() {
+        return numRows;
+    }
+
+    /**
+     * @return the size of the last dimension of the predictions
+     */
+    public int getRowLength() {
+        return rowLength;
+    }
+
+    /**
+     * @return the size of the last dimension of the labels
+     */
+    public int getLabelRowLength() {
+        return labelRowLength;
+    }
+
+    /**
+     * @return the total number of prediction elements
+     */
+    public int size() {
+        return predictions.length;
+    }
+
+    /**
+     * @return true if labels are present
+     */
+    public boolean hasLabels() {
+        return labels != null;
+    }
+
+    /**
+     * Gets a label value
+     *
+     * @param row the row
+     * @param col the column within the label row
+     * @return the label value
+     */
+    public float label(int row, int col) {
+        return labels[row * labelRowLength + col];
+    }
+
+    /**
+     * Gets a prediction value
+     *
+     * @param row the row
+     * @param col the column within the prediction row
+     * @return the prediction value
+     */
+    public float prediction(int row, int col) {
+        return predictions[row * rowLength + col];
+    }
+
+    /**
+     * Gets the weight for a prediction element, broadcasting scalar and per
+     * row weights.
+     *
+     * @param row the row
+     * @param col the column within the prediction row
+     * @return the weight, 1 if there are no sample weights.
+     */
+    public float weight(int row, int col) {
+        if (sampleWeights == null) {
+            return 1f;
+        } else if (sampleWeights.length == 1) {
+            return sampleWeights[0];
+        } else if (sampleWeights.length == predictions.length) {
+            return sampleWeights[row * rowLength + col];
+        } else {
+            return sampleWeights[row];
+        }
+    }
+
+    /**
+     * Gets the weight for a whole row.
+     *
+     * @param row the row
+     * @return the weight, 1 if there are no sample weights.
+     * @throws IllegalArgumentException if the sample weights are per element
+     * and the rows are wider than one element.
+     */
+    public float rowWeight(int row) {
+        if (sampleWeights != null && sampleWeights.length == predictions.length && rowLength != 1) {
+            throw new IllegalArgumentException(
+                    "per element sample weights cannot be applied to a per row metric value");
+        }
+        return weight(row, 0);
+    }
+
+    /**
+     * Gets the index of the largest prediction in a row, the first one wins on
+     * ties.
+     *
+     * @param row the row
+     * @return the column with the largest prediction
+     */
+    public int argMaxPrediction(int row) {
+        return argMax(predictions, row * rowLength, rowLength);
+    }
+
+    /**
+     * Gets the index of the largest label in a row, the first one wins on
+     * ties.
+     *
+     * @param row the row
+     * @return the column with the largest label
+     */
+    public int argMaxLabel(int row) {
+        return argMax(labels, row * labelRowLength, labelRowLength);
+    }
+
+    private static int argMax(float[] values, int offset, int length) {
+        int best = 0;
+        for (int i = 1; i < length; i++) {
+            if (values[offset + i] > values[offset + best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,292 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics.host;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import org.tensorflow.ndarray.FloatNdArray;
+
+/**
+ * Base class for streaming metrics that are computed on the host, in plain
+ * Java, rather than in a TensorFlow graph.
+ *
+ * <p>
+ * Host metrics are intended for offline evaluation over very large datasets
+ * where the predictions are already available as NdArrays or float arrays and
+ * building a graph, creating variables and running a session per batch is
+ * pure overhead. The accumulated state of every host metric is a flat array of
+ * <code>double</code> partial sums, so a batch can be split into row ranges
+ * that are accumulated independently on a {@link ForkJoinPool} and then
+ * summed.
+ *
+ * <p>
+ * Host metrics are thread safe, several threads may call
+ * <code>update</code> on the same instance.
+ *
+ * @author Jim Clarke
+ */
+public abstract class HostMetric {
+
+    /**
+     * The default minimum number of prediction elements handled by a single
+     * fork join task.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 15;
+
+    private final String name;
+    private final double[] state;
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * Creates a HostMetric
+     *
+     * @param name the name of the metric
+     * @param stateSize the number of partial sums held by this metric
+     */
+    protected HostMetric(String name, int stateSize) {
+        this.name = name;
+        this.state = new double[stateSize];
+    }
+
+    /**
+     * Accumulates a range of rows from the batch into the partial sums.
+     *
+     * @param batch the batch
+     * @param fromRow the first row, inclusive
+     * @param toRow the last row, exclusive
+     * @param partial the partial sums to add to, with the same length as the
+     * metric state
+     */
+    protected abstract void accumulate(HostBatch batch, int fromRow, int toRow, double[] partial);
+
+    /**
+     * Computes the metric result from the accumulated state.
+     *
+     * @param state a snapshot of the accumulated state
+     * @return the metric result
+     */
+    protected abstract float result(double[] state);
+
+    /**
+     * Validates a batch before it is accumulated.
+     *
+     * @param batch the batch
+     * @throws IllegalArgumentException if the batch is not usable by this
+     * metric
+     */
+    protected void validate(HostBatch batch) {
+        requireLabels(batch);
+    }
+
+    /**
+     * Validates that the batch has labels with the same row length as the
+     * predictions.
+     *
+     * @param batch the batch
+     * @throws IllegalArgumentException if the labels and predictions do not
+     * have the same shape
+     */
+    protected void validateSameShape(HostBatch batch) {
+        requireLabels(batch);
+        if (batch.getLabelRowLength() != batch.getRowLength()) {
+            throw new IllegalArgumentException(String.format(
+                    "labels row length %d is not compatible with predictions row length %d",
+                    batch.getLabelRowLength(), batch.getRowLength()));
+        }
+    }
+
+    /**
+     * Accumulates statistics for the metric.
+     *
+     * @param labels the labels
+     * @param predictions the predictions
+     */
+    public void update(FloatNdArray labels, FloatNdArray predictions) {
+        update(HostBatch.of(labels, predictions, null));
+    }
+
+    /**
+     * Accumulates statistics for the metric.
+     *
+     * @param labels the labels
+     * @param predictions the predictions
+     * @param sampleWeights the sample weights, may be null
+     */
+    public void update(FloatNdArray labels, FloatNdArray predictions, FloatNdArray sampleWeights) {
+        update(HostBatch.of(labels, predictions, sampleWeights));
+    }
+
+    /**
+     * Accumulates statistics for the metric.
+     *
+     * @param labels the labels, flattened row major
+     * @param predictions the predictions, flattened row major
+     * @param rowLength the size of the last dimension of the predictions
+     */
+    public void update(float[] labels, float[] predictions, int rowLength) {
+        update(new HostBatch(labels, predictions, null, rowLength));
+    }
+
+    /**
+     * Accumulates statistics for the metric.
+     *
+     * @param labels the labels, flattened row major
+     * @param predictions the predictions, flattened row major
+     * @param sampleWeights the sample weights, may be null
+     * @param rowLength the size of the last dimension of the predictions
+     */
+    public void update(float[] labels, float[] predictions, float[] sampleWeights, int rowLength) {
+        update(new HostBatch(labels, predictions, sampleWeights, rowLength));
+    }
+
+    /**
+     * Accumulates statistics for the metric.
+     *
+     * @param batch the batch
+     */
+    public void update(HostBatch batch) {
+        validate(batch);
+        int numRows = batch.getNumRows();
+        if (numRows == 0) {
+            return;
+        }
+        double[] partial;
+        int rowsPerTask = Math.max(1, parallelThreshold / Math.max(1, batch.getRowLength()));
+        if (numRows <= rowsPerTask) {
+            partial = new double[state.length];
+            accumulate(batch, 0, numRows, partial);
+        } else {
+            partial = pool.invoke(new AccumulateTask(batch, 0, numRows, rowsPerTask));
+        }
+        synchronized (state) {
+            add(state, partial);
+        }
+    }
+
+    /**
+     * Computes the metric result.
+     *
+     * @return the metric result
+     */
+    public float result() {
+        return result(getState());
+    }
+
+    /**
+     * Resets all the accumulated statistics.
+     */
+    public void reset() {
+        synchronized (state) {
+            Arrays.fill(state, 0);
+        }
+    }
+
+    /**
+     * Gets a copy of the accumulated state.
+     *
+     * @return a copy of the accumulated state
+     */
+    public double[] getState() {
+        synchronized (state) {
+            return state.clone();
+        }
+    }
+
+    /**
+     * @return the name of the metric
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the minimum number of prediction elements handled by a single
+     * fork join task.
+     */
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * @param parallelThreshold the minimum number of prediction elements
+     * handled by a single fork join task. Use Integer.MAX_VALUE to always
+     * accumulate on the calling thread.
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * @return the pool used for parallel accumulation
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * @param pool the pool used for parallel accumulation
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    private void requireLabels(HostBatch batch) {
+        if (!batch.hasLabels()) {
+            throw new IllegalArgumentException(String.format("%s requires labels", name));
+        }
+    }
+
+    private static void add(double[] target, double[] source) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] += source[i];
+        }
+    }
+
+    /**
+     * Splits a batch into row ranges, accumulating each range into its own
+     * partial sums and adding the partial sums on the way back up.
+     */
+    private class AccumulateTask extends RecursiveTask<double[]> {
+
+        private final HostBatch batch;
+        private final int fromRow;
+        private final int toRow;
+        private final int rowsPerTask;
+
+        AccumulateTask(HostBatch batch, int fromRow, int toRow, int rowsPerTask) {
+            this.batch = batch;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.rowsPerTask = rowsPerTask;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (toRow - fromRow <= rowsPerTask) {
+                double[] partial = new double[state.length];
+                accumulate(batch, fromRow, toRow, partial);
+                return partial;
+            }
+            int mid = (fromRow + toRow) >>> 1;
+            AccumulateTask left = new AccumulateTask(batch, fromRow, mid, rowsPerTask);
+            left.fork();
+            double[] partial = new AccumulateTask(batch, mid, toRow, rowsPerTask).compute();
+            add(partial, left.join());
+            return partial;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics.host;
+
+/**
+ * Computes the mean of absolute difference between labels and predictions, on
+ * the host.
+ *
+ * @author Jim Clarke
+ */
+public class MeanAbsoluteError extends MeanMetricWrapper {
+
+    public static final String DEFAULT_NAME = "mean_absolute_error";
+
+    /**
+     * Creates a MeanAbsoluteError host metric.
+     */
+    public MeanAbsoluteError() {
+        this(DEFAULT_NAME);
+    }
+
+    /**
+     * Creates a MeanAbsoluteError host metric.
+     *
+     * @param name name of the metric instance.
+     */
+    public MeanAbsoluteError(String name) {
+        super(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void validate(HostBatch batch) {
+        validateSameShape(batch);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected double rowValue(HostBatch batch, int row) {
+        int rowLength = batch.getRowLength();
+        double sum = 0;
+        for (int col = 0; col < rowLength; col++) {
+            sum += Math.abs(batch.prediction(row, col) - batch.label(row, col));
+        }
+        return sum / rowLength;
+    }
+}
@@ -0,0 +1,116 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics.host;
+
+/**
+ * Computes the mean Intersection-Over-Union metric, on the host.
+ *
+ * <p>
+ * The labels and predictions hold class ids. Only the per class intersection,
+ * prediction and label totals are kept, which is all the metric needs from the
+ * confusion matrix, so the state grows linearly with the number of classes.
+ *
+ * @author Jim Clarke
+ */
+public class MeanIoU extends HostMetric {
+
+    public static final String DEFAULT_NAME = "mean_io_u";
+
+    private final int numClasses;
+
+    /**
+     * Creates a MeanIoU host metric.
+     *
+     * @param numClasses The possible number of labels the prediction task can
+     * have
+     */
+    public MeanIoU(int numClasses) {
+        this(DEFAULT_NAME, numClasses);
+    }
+
+    /**
+     * Creates a MeanIoU host metric.
+     *
+     * @param name the name of the metric instance
+     * @param numClasses The possible number of labels the prediction task can
+     * have
+     */
+    public MeanIoU(String name, int numClasses) {
+        super(name, 3 * numClasses);
+        this.numClasses = numClasses;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void validate(HostBatch batch) {
+        validateSameShape(batch);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void accumulate(HostBatch batch, int fromRow, int toRow, double[] partial) {
+        int rowLength = batch.getRowLength();
+        for (int row = fromRow; row < toRow; row++) {
+            for (int col = 0; col < rowLength; col++) {
+                int label = classId(batch.label(row, col));
+                int prediction = classId(batch.prediction(row, col));
+                double weight = batch.weight(row, col);
+                if (label == prediction) {
+                    partial[label] += weight;
+                }
+                partial[numClasses + prediction] += weight;
+                partial[2 * numClasses + label] += weight;
+            }
+        }
+    }
+
+    private int classId(float value) {
+        int id = (int) value;
+        if (id < 0 || id >= numClasses) {
+            throw new IllegalArgumentException(String.format(
+                    "class id %d is out of range [0, %d)", id, numClasses));
+        }
+        return id;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected float result(double[] state) {
+        double iouSum = 0;
+        int numValidEntries = 0;
+        for (int i = 0; i < numClasses; i++) {
+            double truePositives = state[i];
+            double denominator = state[numClasses + i] + state[2 * numClasses + i] - truePositives;
+            if (denominator != 0) {
+                iouSum += truePositives / denominator;
+                numValidEntries++;
+            }
+        }
+        return numValidEntries == 0 ? 0f : (float) (iouSum / numValidEntries);
+    }
+
+    /**
+     * @return the numClasses
+     */
+    public int getNumClasses() {
+        return numClasses;
+    }
+}
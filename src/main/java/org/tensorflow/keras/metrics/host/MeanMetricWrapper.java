@@ -0,0 +1,66 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics.host;
+
+/**
+ * Host metric that computes one value per row, e.g. a loss reduced over the
+ * last dimension, and keeps the weighted mean of those values.
+ *
+ * @author Jim Clarke
+ */
+public abstract class MeanMetricWrapper extends HostMetric {
+
+    /**
+     * Creates a MeanMetricWrapper host metric
+     *
+     * @param name the name of the metric
+     */
+    protected MeanMetricWrapper(String name) {
+        super(name, 2);
+    }
+
+    /**
+     * Computes the value for a single row.
+     *
+     * @param batch the batch
+     * @param row the row
+     * @return the value
+     */
+    protected abstract double rowValue(HostBatch batch, int row);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void accumulate(HostBatch batch, int fromRow, int toRow, double[] partial) {
+        double total = 0;
+        double count = 0;
+        for (int row = fromRow; row < toRow; row++) {
+            double weight = batch.rowWeight(row);
+            total += rowValue(batch, row) * weight;
+            count += weight;
+        }
+        partial[0] += total;
+        partial[1] += count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected float result(double[] state) {
+        return state[1] == 0 ? 0f : (float) (state[0] / state[1]);
+    }
+}
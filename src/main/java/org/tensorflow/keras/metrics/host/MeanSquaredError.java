@@ -0,0 +1,64 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics.host;
+
+/**
+ * Computes the mean of squares of errors between labels and predictions, on the
+ * host.
+ *
+ * @author Jim Clarke
+ */
+public class MeanSquaredError extends MeanMetricWrapper {
+
+    public static final String DEFAULT_NAME = "mean_squared_error";
+
+    /**
+     * Creates a MeanSquaredError host metric.
+     */
+    public MeanSquaredError() {
+        this(DEFAULT_NAME);
+    }
+
+    /**
+     * Creates a MeanSquaredError host metric.
+     *
+     * @param name name of the metric instance.
+     */
+    public MeanSquaredError(String name) {
+        super(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void validate(HostBatch batch) {
+        validateSameShape(batch);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected double rowValue(HostBatch batch, int row) {
+        int rowLength = batch.getRowLength();
+        double sum = 0;
+        for (int col = 0; col < rowLength; col++) {
+            double diff = batch.prediction(row, col) - batch.label(row, col);
+            sum += diff * diff;
+        }
+        return sum / rowLength;
+    }
+}
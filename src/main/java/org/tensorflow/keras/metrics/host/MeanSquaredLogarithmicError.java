@@ -0,0 +1,67 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics.host;
+
+import org.tensorflow.keras.backend.K;
+
+/**
+ * Computes the mean squared logarithmic error between labels and predictions,
+ * on the host.
+ *
+ * @author Jim Clarke
+ */
+public class MeanSquaredLogarithmicError extends MeanMetricWrapper {
+
+    public static final String DEFAULT_NAME = "mean_squared_logarithmic_error";
+
+    /**
+     * Creates a MeanSquaredLogarithmicError host metric.
+     */
+    public MeanSquaredLogarithmicError() {
+        this(DEFAULT_NAME);
+    }
+
+    /**
+     * Creates a MeanSquaredLogarithmicError host metric.
+     *
+     * @param name name of the metric instance.
+     */
+    public MeanSquaredLogarithmicError(String name) {
+        super(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void validate(HostBatch batch) {
+        validateSameShape(batch);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected double rowValue(HostBatch batch, int row) {
+        int rowLength = batch.getRowLength();
+        double sum = 0;
+        for (int col = 0; col < rowLength; col++) {
+            double first = Math.log(Math.max(batch.prediction(row, col), K.EpsilonF) + 1);
+            double second = Math.log(Math.max(batch.label(row, col), K.EpsilonF) + 1);
+            sum += (first - second) * (first - second);
+        }
+        return sum / rowLength;
+    }
+}
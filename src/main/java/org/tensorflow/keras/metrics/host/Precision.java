@@ -0,0 +1,104 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics.host;
+
+/**
+ * Computes the precision of the predictions with respect to the labels, on the
+ * host.
+ *
+ * @author Jim Clarke
+ */
+public class Precision extends ThresholdMetric {
+
+    public static final String DEFAULT_NAME = "precision";
+    public static final float DEFAULT_THRESHOLD = 0.5f;
+
+    /**
+     * Creates a Precision host metric.
+     */
+    public Precision() {
+        this(DEFAULT_NAME, new float[]{DEFAULT_THRESHOLD}, null, null);
+    }
+
+    /**
+     * Creates a Precision host metric.
+     *
+     * @param threshold A float threshold value in the range [0, 1]. A
+     * threshold is compared with prediction values to determine the truth
+     * value of predictions.
+     */
+    public Precision(float threshold) {
+        this(DEFAULT_NAME, new float[]{threshold}, null, null);
+    }
+
+    /**
+     * Creates a Precision host metric.
+     *
+     * @param thresholds float threshold values in the range [0, 1]. A
+     * threshold is compared with prediction values to determine the truth
+     * value of predictions.
+     */
+    public Precision(float[] thresholds) {
+        this(DEFAULT_NAME, thresholds, null, null);
+    }
+
+    /**
+     * Creates a Precision host metric.
+     *
+     * @param name name of the metric instance
+     * @param thresholds float threshold values in the range [0, 1]. A
+     * threshold is compared with prediction values to determine the truth
+     * value of predictions.
+     * @param topK An optional value specifying the top-k predictions to
+     * consider when calculating precision.
+     * @param classId Optional Integer class ID for which we want binary
+     * metrics.
+     */
+    public Precision(String name, float[] thresholds, Integer topK, Integer classId) {
+        super(name, thresholds, topK, classId);
+    }
+
+    /**
+     * Computes the precision at every threshold.
+     *
+     * @return the precision at every threshold, in threshold order.
+     */
+    public float[] results() {
+        return results(getState());
+    }
+
+    private float[] results(double[] state) {
+        double[][] counts = confusionMatrix(state);
+        double[] truePositives = counts[TRUE_POSITIVES];
+        double[] falsePositives = counts[FALSE_POSITIVES];
+        float[] result = new float[truePositives.length];
+        for (int i = 0; i < result.length; i++) {
+            double denominator = truePositives[i] + falsePositives[i];
+            result[i] = denominator == 0 ? 0f : (float) (truePositives[i] / denominator);
+        }
+        return result;
+    }
+
+    /**
+     * Computes the precision at the first threshold.
+     *
+     * @param state the accumulated state
+     * @return the precision at the first threshold
+     */
+    @Override
+    protected float result(double[] state) {
+        return results(state)[0];
+    }
+}
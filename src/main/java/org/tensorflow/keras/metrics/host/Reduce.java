@@ -0,0 +1,132 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics.host;
+
+import org.tensorflow.keras.metrics.Reduction;
+import org.tensorflow.ndarray.FloatNdArray;
+
+/**
+ * Host metric that reduces a value computed for every prediction element,
+ * either as a weighted sum or as a weighted mean.
+ *
+ * @author Jim Clarke
+ */
+public abstract class Reduce extends HostMetric {
+
+    private final Reduction reduction;
+
+    /**
+     * Creates a Reduce host metric
+     *
+     * @param name the name of the metric
+     * @param reduction the reduction, SUM or WEIGHTED_MEAN
+     */
+    protected Reduce(String name, Reduction reduction) {
+        super(name, 2);
+        if (reduction == Reduction.SUM_OVER_BATCH_SIZE) {
+            throw new IllegalArgumentException("SUM_OVER_BATCH_SIZE is not supported by host metrics");
+        }
+        this.reduction = reduction;
+    }
+
+    /**
+     * Computes the value for a single prediction element.
+     *
+     * @param batch the batch
+     * @param row the row
+     * @param col the column within the prediction row
+     * @return the value
+     */
+    protected abstract double value(HostBatch batch, int row, int col);
+
+    /**
+     * Accumulates values without labels, the values are held as the
+     * predictions of the batch.
+     *
+     * @param values the values
+     */
+    public void update(FloatNdArray values) {
+        update(HostBatch.of(null, values, null));
+    }
+
+    /**
+     * Accumulates values without labels, the values are held as the
+     * predictions of the batch.
+     *
+     * @param values the values
+     * @param sampleWeights the sample weights, may be null
+     */
+    public void update(FloatNdArray values, FloatNdArray sampleWeights) {
+        update(HostBatch.of(null, values, sampleWeights));
+    }
+
+    /**
+     * Accumulates values without labels, the values are held as the
+     * predictions of the batch.
+     *
+     * @param values the values
+     */
+    public void update(float[] values) {
+        update(new HostBatch(null, values, null, 1));
+    }
+
+    /**
+     * Accumulates values without labels, the values are held as the
+     * predictions of the batch.
+     *
+     * @param values the values
+     * @param sampleWeights the sample weights, may be null
+     */
+    public void update(float[] values, float[] sampleWeights) {
+        update(new HostBatch(null, values, sampleWeights, 1));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void accumulate(HostBatch batch, int fromRow, int toRow, double[] partial) {
+        int rowLength = batch.getRowLength();
+        double total = 0;
+        double count = 0;
+        for (int row = fromRow; row < toRow; row++) {
+            for (int col = 0; col < rowLength; col++) {
+                double weight = batch.weight(row, col);
+                total += value(batch, row, col) * weight;
+                count += weight;
+            }
+        }
+        partial[0] += total;
+        partial[1] += count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected float result(double[] state) {
+        if (reduction == Reduction.SUM) {
+            return (float) state[0];
+        }
+        return state[1] == 0 ? 0f : (float) (state[0] / state[1]);
+    }
+
+    /**
+     * @return the reduction
+     */
+    public Reduction getReduction() {
+        return reduction;
+    }
+}
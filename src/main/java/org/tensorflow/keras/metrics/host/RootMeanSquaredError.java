@@ -0,0 +1,69 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics.host;
+
+import org.tensorflow.keras.metrics.Reduction;
+
+/**
+ * Computes the root mean squared error between labels and predictions, on the
+ * host.
+ *
+ * @author Jim Clarke
+ */
+public class RootMeanSquaredError extends Reduce {
+
+    public static final String DEFAULT_NAME = "root_mean_squared_error";
+
+    /**
+     * Creates a RootMeanSquaredError host metric.
+     */
+    public RootMeanSquaredError() {
+        this(DEFAULT_NAME);
+    }
+
+    /**
+     * Creates a RootMeanSquaredError host metric.
+     *
+     * @param name name of the metric instance.
+     */
+    public RootMeanSquaredError(String name) {
+        super(name, Reduction.WEIGHTED_MEAN);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void validate(HostBatch batch) {
+        validateSameShape(batch);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected double value(HostBatch batch, int row, int col) {
+        double diff = batch.prediction(row, col) - batch.label(row, col);
+        return diff * diff;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected float result(double[] state) {
+        return (float) Math.sqrt(super.result(state));
+    }
+}
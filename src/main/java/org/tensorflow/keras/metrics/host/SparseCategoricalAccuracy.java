@@ -0,0 +1,62 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics.host;
+
+/**
+ * Calculates how often the index of the largest prediction matches an integer
+ * label, on the host. The labels hold one class id per row.
+ *
+ * @author Jim Clarke
+ */
+public class SparseCategoricalAccuracy extends MeanMetricWrapper {
+
+    public static final String DEFAULT_NAME = "sparse_categorical_accuracy";
+
+    /**
+     * Creates a SparseCategoricalAccuracy host metric.
+     */
+    public SparseCategoricalAccuracy() {
+        this(DEFAULT_NAME);
+    }
+
+    /**
+     * Creates a SparseCategoricalAccuracy host metric.
+     *
+     * @param name name of the metric instance.
+     */
+    public SparseCategoricalAccuracy(String name) {
+        super(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void validate(HostBatch batch) {
+        super.validate(batch);
+        if (batch.getLabelRowLength() != 1) {
+            throw new IllegalArgumentException(String.format(
+                    "sparse labels must have one class id per row, found %d", batch.getLabelRowLength()));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected double rowValue(HostBatch batch, int row) {
+        return (int) batch.label(row, 0) == batch.argMaxPrediction(row) ? 1 : 0;
+    }
+}
@@ -0,0 +1,83 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics.host;
+
+/**
+ * Computes how often integer labels are in the top-K predictions, on the host.
+ * The labels hold one class id per row.
+ *
+ * @author Jim Clarke
+ */
+public class SparseTopKCategoricalAccuracy extends MeanMetricWrapper {
+
+    public static final String DEFAULT_NAME = "sparse_top_k_categorical_accuracy";
+    public static final int DEFAULT_K = 5;
+
+    private final int k;
+
+    /**
+     * Creates a SparseTopKCategoricalAccuracy host metric.
+     */
+    public SparseTopKCategoricalAccuracy() {
+        this(DEFAULT_NAME, DEFAULT_K);
+    }
+
+    /**
+     * Creates a SparseTopKCategoricalAccuracy host metric.
+     *
+     * @param k the number of top elements to look at for computing accuracy.
+     */
+    public SparseTopKCategoricalAccuracy(int k) {
+        this(DEFAULT_NAME, k);
+    }
+
+    /**
+     * Creates a SparseTopKCategoricalAccuracy host metric.
+     *
+     * @param name name of the metric instance.
+     * @param k the number of top elements to look at for computing accuracy.
+     */
+    public SparseTopKCategoricalAccuracy(String name, int k) {
+        super(name);
+        this.k = k;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void validate(HostBatch batch) {
+        super.validate(batch);
+        if (batch.getLabelRowLength() != 1) {
+            throw new IllegalArgumentException(String.format(
+                    "sparse labels must have one class id per row, found %d", batch.getLabelRowLength()));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected double rowValue(HostBatch batch, int row) {
+        return TopKCategoricalAccuracy.inTopK(batch, row, (int) batch.label(row, 0), k) ? 1 : 0;
+    }
+
+    /**
+     * @return the number of top elements to look at for computing accuracy.
+     */
+    public int getK() {
+        return k;
+    }
+}
@@ -0,0 +1,238 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics.host;
+
+import java.util.Arrays;
+import org.tensorflow.keras.metrics.impl.MetricsImpl;
+
+/**
+ * Base class for host metrics built on true/false positive and negative
+ * counts at a set of thresholds.
+ *
+ * <p>
+ * Rather than comparing every prediction against every threshold, each
+ * prediction is dropped into the bucket between the two thresholds that
+ * surround it and the weighted positive and negative labels are counted per
+ * bucket. The counts at each threshold are then running sums over the
+ * buckets, so the cost per prediction does not depend on the number of
+ * thresholds. The state holds the positive bucket counts followed by the
+ * negative bucket counts.
+ *
+ * @author Jim Clarke
+ */
+public abstract class ThresholdMetric extends HostMetric {
+
+    public static final int TRUE_POSITIVES = 0;
+    public static final int FALSE_POSITIVES = 1;
+    public static final int TRUE_NEGATIVES = 2;
+    public static final int FALSE_NEGATIVES = 3;
+
+    private final float[] thresholds;
+    private final float[] sortedThresholds;
+    private final int[] sortedToOriginal;
+    private final boolean evenlyDistributed;
+    private final Integer topK;
+    private final Integer classId;
+
+    /**
+     * Creates a ThresholdMetric
+     *
+     * @param name the name of the metric
+     * @param thresholds the thresholds, in any order
+     * @param topK if not null, only the top K predictions of each row are
+     * considered, the others are treated as below every threshold.
+     * @param classId if not null, only the predictions for this class are
+     * considered.
+     */
+    protected ThresholdMetric(String name, float[] thresholds, Integer topK, Integer classId) {
+        super(name, 2 * (thresholds.length + 1));
+        this.thresholds = thresholds.clone();
+        this.topK = topK;
+        this.classId = classId;
+        int numThresholds = thresholds.length;
+        Integer[] order = new Integer[numThresholds];
+        for (int i = 0; i < numThresholds; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Float.compare(thresholds[a], thresholds[b]));
+        this.sortedThresholds = new float[numThresholds];
+        this.sortedToOriginal = new int[numThresholds];
+        for (int i = 0; i < numThresholds; i++) {
+            sortedThresholds[i] = thresholds[order[i]];
+            sortedToOriginal[i] = order[i];
+        }
+        this.evenlyDistributed = MetricsImpl.isEvenlyDistributedThresholds(sortedThresholds);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void validate(HostBatch batch) {
+        validateSameShape(batch);
+        if (classId != null && (classId < 0 || classId >= batch.getRowLength())) {
+            throw new IllegalArgumentException(String.format(
+                    "classId %d is out of range for rows of %d", classId, batch.getRowLength()));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void accumulate(HostBatch batch, int fromRow, int toRow, double[] partial) {
+        int rowLength = batch.getRowLength();
+        int negativeOffset = sortedThresholds.length + 1;
+        float[] rowBuffer = topK != null ? new float[rowLength] : null;
+        int fromCol = classId != null ? classId : 0;
+        int toCol = classId != null ? classId + 1 : rowLength;
+        for (int row = fromRow; row < toRow; row++) {
+            float cutoff = Float.NEGATIVE_INFINITY;
+            int tiesAllowed = rowLength;
+            if (rowBuffer != null && topK < rowLength) {
+                for (int col = 0; col < rowLength; col++) {
+                    rowBuffer[col] = batch.prediction(row, col);
+                }
+                Arrays.sort(rowBuffer);
+                cutoff = rowBuffer[rowLength - topK];
+                tiesAllowed = topK;
+                for (int col = 0; col < rowLength; col++) {
+                    if (batch.prediction(row, col) > cutoff) {
+                        tiesAllowed--;
+                    }
+                }
+            }
+            for (int col = 0; col < toCol; col++) {
+                float prediction = batch.prediction(row, col);
+                boolean inTopK = prediction > cutoff;
+                if (!inTopK && prediction == cutoff && tiesAllowed > 0) {
+                    // like top_k, equal predictions are taken in column order
+                    tiesAllowed--;
+                    inTopK = true;
+                }
+                if (col < fromCol) {
+                    continue;
+                }
+                int bucket = inTopK ? bucket(prediction) : 0;
+                if (batch.label(row, col) != 0) {
+                    partial[bucket] += batch.weight(row, col);
+                } else {
+                    partial[negativeOffset + bucket] += batch.weight(row, col);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the bucket for a prediction, the number of thresholds that are
+     * strictly less than the prediction.
+     *
+     * @param prediction the prediction
+     * @return the bucket
+     */
+    int bucket(float prediction) {
+        int numThresholds = sortedThresholds.length;
+        int bucket;
+        if (evenlyDistributed) {
+            // guess from the spacing, then correct for the endpoints and rounding.
+            double guess = Math.ceil(prediction * (numThresholds - 1));
+            bucket = guess < 0 ? 0 : guess > numThresholds ? numThresholds : (int) guess;
+            while (bucket > 0 && !(sortedThresholds[bucket - 1] < prediction)) {
+                bucket--;
+            }
+            while (bucket < numThresholds && sortedThresholds[bucket] < prediction) {
+                bucket++;
+            }
+        } else {
+            int low = 0;
+            int high = numThresholds;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sortedThresholds[mid] < prediction) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            bucket = low;
+        }
+        return bucket;
+    }
+
+    /**
+     * Computes the confusion matrix counts at every threshold from the bucket
+     * counts.
+     *
+     * @param state the accumulated state
+     * @return the counts indexed by TRUE_POSITIVES, FALSE_POSITIVES,
+     * TRUE_NEGATIVES and FALSE_NEGATIVES, each in the original threshold
+     * order.
+     */
+    protected double[][] confusionMatrix(double[] state) {
+        int numThresholds = sortedThresholds.length;
+        int negativeOffset = numThresholds + 1;
+        double[][] counts = new double[4][numThresholds];
+        double positivesAbove = 0;
+        double negativesAbove = 0;
+        double positivesTotal = 0;
+        double negativesTotal = 0;
+        for (int bucket = 0; bucket <= numThresholds; bucket++) {
+            positivesTotal += state[bucket];
+            negativesTotal += state[negativeOffset + bucket];
+        }
+        for (int i = numThresholds - 1; i >= 0; i--) {
+            positivesAbove += state[i + 1];
+            negativesAbove += state[negativeOffset + i + 1];
+            int original = sortedToOriginal[i];
+            counts[TRUE_POSITIVES][original] = positivesAbove;
+            counts[FALSE_POSITIVES][original] = negativesAbove;
+            counts[TRUE_NEGATIVES][original] = negativesTotal - negativesAbove;
+            counts[FALSE_NEGATIVES][original] = positivesTotal - positivesAbove;
+        }
+        return counts;
+    }
+
+    /**
+     * Computes the confusion matrix counts at every threshold.
+     *
+     * @return the counts indexed by TRUE_POSITIVES, FALSE_POSITIVES,
+     * TRUE_NEGATIVES and FALSE_NEGATIVES, each in the original threshold
+     * order.
+     */
+    public double[][] confusionMatrix() {
+        return confusionMatrix(getState());
+    }
+
+    /**
+     * @return the thresholds
+     */
+    public float[] getThresholds() {
+        return thresholds.clone();
+    }
+
+    /**
+     * @return the topK
+     */
+    public Integer getTopK() {
+        return topK;
+    }
+
+    /**
+     * @return the classId
+     */
+    public Integer getClassId() {
+        return classId;
+    }
+}
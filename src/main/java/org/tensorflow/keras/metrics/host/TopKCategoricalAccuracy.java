@@ -0,0 +1,113 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics.host;
+
+/**
+ * Computes how often the one-hot label is in the top-K predictions, on the
+ * host.
+ *
+ * <p>
+ * As with the <code>InTopK</code> op, classes that have the same prediction
+ * value as the label class and straddle the top-K boundary are all considered
+ * to be in the top K.
+ *
+ * @author Jim Clarke
+ */
+public class TopKCategoricalAccuracy extends MeanMetricWrapper {
+
+    public static final String DEFAULT_NAME = "top_k_categorical_accuracy";
+    public static final int DEFAULT_K = 5;
+
+    private final int k;
+
+    /**
+     * Creates a TopKCategoricalAccuracy host metric.
+     */
+    public TopKCategoricalAccuracy() {
+        this(DEFAULT_NAME, DEFAULT_K);
+    }
+
+    /**
+     * Creates a TopKCategoricalAccuracy host metric.
+     *
+     * @param k the number of top elements to look at for computing accuracy.
+     */
+    public TopKCategoricalAccuracy(int k) {
+        this(DEFAULT_NAME, k);
+    }
+
+    /**
+     * Creates a TopKCategoricalAccuracy host metric.
+     *
+     * @param name name of the metric instance.
+     * @param k the number of top elements to look at for computing accuracy.
+     */
+    public TopKCategoricalAccuracy(String name, int k) {
+        super(name);
+        this.k = k;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void validate(HostBatch batch) {
+        validateSameShape(batch);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected double rowValue(HostBatch batch, int row) {
+        return inTopK(batch, row, batch.argMaxLabel(row), k) ? 1 : 0;
+    }
+
+    /**
+     * Determines if the prediction for a target class is in the top K
+     * predictions of a row.
+     *
+     * @param batch the batch
+     * @param row the row
+     * @param target the target class
+     * @param k the number of top elements
+     * @return true if fewer than k classes have a strictly larger prediction
+     * than the target class.
+     */
+    static boolean inTopK(HostBatch batch, int row, int target, int k) {
+        int rowLength = batch.getRowLength();
+        if (target < 0 || target >= rowLength) {
+            return false;
+        }
+        float targetPrediction = batch.prediction(row, target);
+        if (Float.isNaN(targetPrediction) || Float.isInfinite(targetPrediction)) {
+            return false;
+        }
+        int larger = 0;
+        for (int col = 0; col < rowLength && larger < k; col++) {
+            if (batch.prediction(row, col) > targetPrediction) {
+                larger++;
+            }
+        }
+        return larger < k;
+    }
+
+    /**
+     * @return the number of top elements to look at for computing accuracy.
+     */
+    public int getK() {
+        return k;
+    }
+}
@@ -31,7 +31,10 @@ import org.tensorflow.Session;
 import org.tensorflow.Tensor;
 import org.tensorflow.keras.backend.K;
 import org.tensorflow.keras.backend.tf.ControlDependencies;
+import org.tensorflow.keras.backend.tf.SparseTensor;
 import org.tensorflow.keras.backend.tf.Tuple;
+import org.tensorflow.keras.backend.tf.WeightsBroadcastOps;
+import org.tensorflow.keras.losses.Losses;
 import org.tensorflow.keras.losses.impl.LossesImpl;
 import static org.tensorflow.keras.losses.impl.LossesImpl.l2Normalize;
 import org.tensorflow.keras.utils.ShapeUtils;
@@ -41,9 +44,9 @@ import org.tensorflow.ndarray.Shape;
 import org.tensorflow.op.Op;
 import org.tensorflow.op.Ops;
 import org.tensorflow.op.core.Assign;
-import org.tensorflow.op.core.OneHot;
 import org.tensorflow.op.core.ReduceSum;
 import org.tensorflow.op.core.Variable;
+import org.tensorflow.op.math.Cumsum;
 import org.tensorflow.op.nn.TopK;
 import org.tensorflow.types.TBool;
 import org.tensorflow.types.TFloat32;
@@ -64,26 +67,98 @@ public class MetricsImpl {
     public static final int DEFAULT_K = 5;
     
     
-    private static final String DEFAULT_NAME = "MetricsImpl%d";
-    private static final AtomicInteger counter = new AtomicInteger();
-    
-    // used for generating unique metric names
-    private static final String genUniqueName() {
-        return String.format(DEFAULT_NAME, counter.getAndIncrement());
+    /**
+     * Computes the (weighted) mean of per sample metric values over a batch,
+     * without creating any variables. This is the value a new
+     * <code>MeanMetricWrapper</code> reports after a single update.
+     *
+     * @param tf the TensorFlow Ops
+     * @param values the per sample metric values
+     * @param sampleWeight the sample weights, may be null
+     * @return the (weighted) mean of the values
+     */
+    public static Operand<TFloat32> weightedMean(Ops tf, Operand values, Operand sampleWeight) {
+        values = K.cast(tf, values, TFloat32.DTYPE);
+        Operand<TFloat32> numValues;
+        if (sampleWeight != null) {
+            sampleWeight = K.cast(tf, sampleWeight, TFloat32.DTYPE);
+            Tuple tuple = LossesImpl.squeezeOrExpandDimensions(tf, null, values, sampleWeight);
+            values = tuple.getPredictions();
+            sampleWeight = WeightsBroadcastOps.broadcastWeights(tf, tuple.getSampleWeights(), values);
+            values = tf.math.mul(values, sampleWeight);
+            numValues = tf.reduceSum(sampleWeight, K.allAxis(tf, sampleWeight));
+        } else {
+            numValues = tf.dtypes.cast(tf.size(values), TFloat32.DTYPE);
+        }
+        return tf.math.divNoNan(tf.reduceSum(values, K.allAxis(tf, values)), numValues);
     }
 
-    public static Operand accuracy(Ops tf, Operand yTrue, Operand yPred) {
-        Accuracy instance = new Accuracy(tf, genUniqueName());
-        Operand result = instance.callOnce( yTrue, yPred);
-        return result;
+    /**
+     * Computes how often predictions equal labels, per element.
+     *
+     * @param tf the TensorFlow Ops
+     * @param labels the labels
+     * @param predictions the predictions
+     * @return 1 where the prediction equals the label, else 0, in the data
+     * type of the labels.
+     */
+    public static <T extends TNumber> Operand<T> accuracyValues(Ops tf, Operand<T> labels, Operand<T> predictions) {
+        Tuple tuple = MetricUtils.raggedAssertCompatibleAndGetFlatValues(tf, labels, predictions);
+        labels = tuple.getLabels();
+        predictions = tuple.getPredictions();
+        
+        assert ShapeUtils.isCompatibleWith(predictions.asOutput().shape(), labels.asOutput().shape()) :
+                String.format("Shapes %s and %s are incompatible", 
+                        predictions.asOutput().shape().toString(),
+                        labels.asOutput().shape().toString());
+        if (labels.asOutput().dataType() != predictions.asOutput().dataType()) {
+            predictions = tf.dtypes.cast(predictions, labels.asOutput().dataType());
+        }
+        return tf.dtypes.cast(tf.math.equal(labels, predictions), labels.asOutput().dataType());
+    }
 
+    /**
+     * Computes how often predictions match binary labels, per element.
+     *
+     * @param tf the TensorFlow Ops
+     * @param labels the labels
+     * @param predictions the predictions
+     * @param threshold the threshold for deciding whether prediction values
+     * are 1 or 0
+     * @return 1 where the prediction matches the label, else 0, in the data
+     * type of the predictions.
+     */
+    public static <T extends TNumber> Operand<T> binaryAccuracyValues(Ops tf, Operand<T> labels,
+            Operand<T> predictions, float threshold) {
+        DataType dType = predictions.asOutput().dataType();
+        Operand thresholdCast = tf.dtypes.cast(tf.constant(threshold), dType);
+        predictions = tf.dtypes.cast(tf.math.greater(predictions, thresholdCast), dType);
+        labels = tf.dtypes.cast(labels, dType);
+        return tf.dtypes.cast(tf.math.equal(labels, predictions), dType);
+    }
+
+    /**
+     * Computes how often the largest prediction is the label, per sample.
+     *
+     * @param tf the TensorFlow Ops
+     * @param labels the one-hot labels
+     * @param predictions the predictions
+     * @return 1 where the largest prediction matches the label, else 0, in the
+     * data type of the labels.
+     */
+    public static <T extends TNumber> Operand<T> categoricalAccuracyValues(Ops tf, Operand<T> labels,
+            Operand<T> predictions) {
+        Operand trueMax = tf.math.argMax(labels, K.minusOne(tf));
+        Operand predMax = tf.math.argMax(predictions, K.minusOne(tf));
+        return tf.dtypes.cast(tf.math.equal(trueMax, predMax), labels.asOutput().dataType());
+    }
+
+    public static Operand accuracy(Ops tf, Operand yTrue, Operand yPred) {
+        return weightedMean(tf, accuracyValues(tf, yTrue, yPred), null);
     }
     
     public static Operand accuracy(Ops tf, Operand yTrue, Operand yPred, Operand sampleWeight) {
-        Accuracy instance = new Accuracy(tf, genUniqueName());
-        Operand result = instance.callOnce( yTrue, yPred, sampleWeight);
-        return result;
-
+        return weightedMean(tf, accuracyValues(tf, yTrue, yPred), sampleWeight);
     }
 
     /**
@@ -92,18 +167,14 @@ public class MetricsImpl {
      * @param tf The TensorFlowOps
      * @param yTrue Ground truth values.
      * @param yPred The predicted values
-     * @param threshold he threshold for deciding whether prediction values are
-     * 1 or 0
      * @return Binary accuracy values
      */
     public static Operand binary_accuracy(Ops tf, Operand yTrue, Operand yPred) {
-        BinaryAccuracy instance = new BinaryAccuracy(tf, genUniqueName());
-        return instance.callOnce( yTrue, yPred);
+        return binary_accuracy(tf, yTrue, yPred, null, BinaryAccuracy.DEFAULT_THRESHOLD);
     }
     
     public static Operand binary_accuracy(Ops tf, Operand yTrue, Operand yPred, float threshold) {
-        BinaryAccuracy instance = new BinaryAccuracy(tf, genUniqueName(), threshold);
-        return instance.callOnce( yTrue, yPred);
+        return binary_accuracy(tf, yTrue, yPred, null, threshold);
     }
     
     /**
@@ -112,30 +183,23 @@ public class MetricsImpl {
      * @param tf The TensorFlowOps
      * @param yTrue Ground truth values.
      * @param yPred The predicted values
-     * @param threshold he threshold for deciding whether prediction values are
-     * 1 or 0
+     * @param sampleWeight the sample weights
      * @return Binary accuracy values
      */
     public static Operand binary_accuracy(Ops tf, Operand yTrue, Operand yPred, Operand sampleWeight) {
-        BinaryAccuracy instance = new BinaryAccuracy(tf, genUniqueName());
-        System.out.println("binary_accuracy: " + instance.getThreshold());
-        return instance.callOnce( yTrue, yPred, sampleWeight);
+        return binary_accuracy(tf, yTrue, yPred, sampleWeight, BinaryAccuracy.DEFAULT_THRESHOLD);
     }
     
     public static Operand binary_accuracy(Ops tf, Operand yTrue, Operand yPred, Operand sampleWeight, float threshold) {
-        BinaryAccuracy instance = new BinaryAccuracy(tf, genUniqueName(), threshold);
-        System.out.println("binary_accuracy: " + instance.getThreshold());
-        return instance.callOnce( yTrue, yPred, sampleWeight);
+        return weightedMean(tf, binaryAccuracyValues(tf, yTrue, yPred, threshold), sampleWeight);
     }
 
     public static Operand categorical_accuracy(Ops tf, Operand yTrue, Operand yPred) {
-       CategoricalAccuracy instance = new CategoricalAccuracy(tf, genUniqueName());
-        return instance.callOnce( yTrue, yPred);
+        return weightedMean(tf, categoricalAccuracyValues(tf, yTrue, yPred), null);
     }
     
     public static Operand categorical_accuracy(Ops tf, Operand yTrue, Operand yPred, Operand sampleWeight) {
-       CategoricalAccuracy instance = new CategoricalAccuracy(tf, genUniqueName());
-        return instance.callOnce( yTrue, yPred, sampleWeight);
+        return weightedMean(tf, categoricalAccuracyValues(tf, yTrue, yPred), sampleWeight);
     }
 
     /**
@@ -165,8 +229,8 @@ public class MetricsImpl {
             Variable<TFloat32> accumulator, Operand yTrue, Operand yPred,
             float[] thresholds, Operand sampleWeights) {
 
-        yTrue = tf.dtypes.cast(yTrue, TFloat32.DTYPE);
-        yPred = tf.dtypes.cast(yPred, TFloat32.DTYPE);
+        yTrue = K.cast(tf, yTrue, TFloat32.DTYPE);
+        yPred = K.cast(tf, yPred, TFloat32.DTYPE);
         Operand one_thresh = tf.constant(true);
 
         List<Op> updateOperations = new ArrayList<>();
@@ -257,8 +321,8 @@ public class MetricsImpl {
         debug("beforeCast/yTrue", yTrue);
         //TODO remove 
         debug("beforeCast/yPred", yPred);
-        yTrue = tf.dtypes.cast(yTrue, TFloat32.DTYPE);
-        yPred = tf.dtypes.cast(yPred, TFloat32.DTYPE);
+        yTrue = K.cast(tf, yTrue, TFloat32.DTYPE);
+        yPred = K.cast(tf, yPred, TFloat32.DTYPE);
         //TODO remove 
         debug("afterCast/yTrue", yTrue);
         //TODO remove 
@@ -314,6 +378,12 @@ public class MetricsImpl {
             //TODO remove 
             debug("classId/yPred", yPred);
         }
+
+        if (isEvenlyDistributedThresholds(thresholds)) {
+            return updateBucketedConfusionMatrixVariables(tf, variablesToUpdate, varInitalizers,
+                    yTrue, yPred, thresholds, sampleWeight, multiLabel, labelWeights);
+        }
+
         org.tensorflow.op.core.Shape<TInt32> predShape = tf.shape(yPred);
         Operand<TInt32> numPredictions = tf.reshape(tf.shape.size(yPred, tf.constant(0)), tf.constant(Shape.scalar()));
         //TODO remove 
@@ -380,123 +450,399 @@ public class MetricsImpl {
 
         //Compare predictions and threshold.
         Operand predIsPos = tf.math.greater(predsTiled, threshTiled);
-        // Tile labels by number of thresholds
-        Operand labelIsPos = tf.tile(labelsExtraDim, tf.stack(dataTiles));
         //TODO remove 
         debug("predIsPos", predIsPos);
-        //TODO remove 
-        debug("labelIsPos", labelIsPos);
-        Operand weightsTiled;
+        Operand weightsExtraDim = null;
         if (sampleWeight != null) {
-            sampleWeight = tf.broadcastTo(tf.dtypes.cast(sampleWeight, TFloat32.DTYPE), tf.shape(yPred));
+            sampleWeight = tf.broadcastTo(K.cast(tf, sampleWeight, TFloat32.DTYPE), tf.shape(yPred));
             //TODO remove debug("sampleWeight_broadcast", sampleWeight);
-            weightsTiled = tf.tile(
-                    tf.reshape(sampleWeight, tf.stack(threshTiles)),
-                    tf.stack(dataTiles));
-            //TODO remove debug("weightsTiled1", weightsTiled);
-        } else {
-            weightsTiled = null;
+            weightsExtraDim = tf.reshape(sampleWeight, tf.stack(threshTiles));
         }
 
         if (labelWeights != null && !multiLabel) {
             labelWeights = tf.expandDims(tf.identity(labelWeights), tf.constant(0));
             labelWeights = tf.broadcastTo(
                     tf.dtypes.cast(labelWeights, TFloat32.DTYPE), yPred);
-            Operand labelWeightsTiled = tf.tile(
-                    tf.reshape(labelWeights, tf.stack(threshTiles)),
-                    tf.stack(dataTiles));
-            if (weightsTiled == null) {
-                weightsTiled = labelWeightsTiled;
-                //TODO remove  debug("weightsTiled_labelWeightsTiled", weightsTiled);
+            Operand labelWeightsExtraDim = tf.reshape(labelWeights, tf.stack(threshTiles));
+            if (weightsExtraDim == null) {
+                weightsExtraDim = labelWeightsExtraDim;
             } else {
-                weightsTiled = tf.math.mul(weightsTiled, labelWeightsTiled);
-                //TODO remove  debug("weightsTiled_mul", weightsTiled);
+                weightsExtraDim = tf.math.mul(weightsExtraDim, labelWeightsExtraDim);
             }
         }
 
-        List<Op> updateOps = new ArrayList<>();
-        Map<ConfusionMatrixEnum, Operand[]> loopVars = new HashMap<>();
-        loopVars.put(ConfusionMatrixEnum.TRUE_POSITIVES, new Operand[]{labelIsPos, predIsPos});
-        Variable update_tn = variablesToUpdate.get(ConfusionMatrixEnum.TRUE_NEGATIVES);
-        Variable update_fp = variablesToUpdate.get(ConfusionMatrixEnum.FALSE_POSITIVES);
-        Variable update_fn = variablesToUpdate.get(ConfusionMatrixEnum.FALSE_NEGATIVES);
-
-        Operand predIsNeg = null;
-        Operand labelIsNeg;
-        if (update_fn != null || update_tn != null) {
-            predIsNeg = tf.math.logicalNot(predIsPos);
-            //TODO remove 
-            debug("predIsNeg", predIsNeg);
-            loopVars.put(ConfusionMatrixEnum.FALSE_NEGATIVES, new Operand[]{labelIsPos, predIsNeg});
+        return fusedAssignAdd(tf, variablesToUpdate, varInitalizers,
+                labelsExtraDim, predIsPos, weightsExtraDim);
+
+    }
+
+    /**
+     * Updates the confusion matrix variables from sparse labels, such as
+     * multi-hot labels over a large number of classes, without densifying the
+     * labels.
+     *
+     * <p>
+     * The true positives and false negatives only need the predictions at the
+     * indices of the labels. The predicted positives are reduced over all of
+     * the predictions, and the false positives and true negatives are derived
+     * from them, so no dense label tensor is ever built. If topK or classId is
+     * set, the labels are densified and the dense update is used.
+     *
+     * @param tf the TensorFlow Ops
+     * @param variablesToUpdate the confusion matrix variables to update
+     * @param varInitalizers the variable initializers, if any
+     * @param yTrue the labels, with indices <code>[N, 2]</code> into yPred
+     * @param yPred the predictions, with shape <code>[batchSize, numClasses]</code>
+     * and values in [0, 1]
+     * @param thresholds the thresholds
+     * @param topK if not null, only the topK predictions are considered
+     * @param classId if not null, only this class is considered
+     * @param sampleWeight the sample weights, may be null
+     * @return the update operations
+     */
+    public static List<Op> update_confusion_matrix_variables(Ops tf,
+            Map<ConfusionMatrixEnum, Variable> variablesToUpdate,
+            Map<ConfusionMatrixEnum, Assign> varInitalizers,
+            SparseTensor yTrue, Operand yPred,
+            float[] thresholds, Integer topK, Integer classId, Operand sampleWeight) {
+        if (variablesToUpdate == null || variablesToUpdate.isEmpty()) {
+            return Collections.EMPTY_LIST;
+        }
+        if (topK != null || classId != null) {
+            return update_confusion_matrix_variables(tf, variablesToUpdate, varInitalizers,
+                    yTrue.toDense(tf), yPred, thresholds, topK, classId, sampleWeight, false, null);
+        }
+        Variable varTP = variablesToUpdate.get(ConfusionMatrixEnum.TRUE_POSITIVES);
+        Variable varFN = variablesToUpdate.get(ConfusionMatrixEnum.FALSE_NEGATIVES);
+        Variable varFP = variablesToUpdate.get(ConfusionMatrixEnum.FALSE_POSITIVES);
+        Variable varTN = variablesToUpdate.get(ConfusionMatrixEnum.TRUE_NEGATIVES);
+
+        yPred = K.cast(tf, yPred, TFloat32.DTYPE);
+        Operand indices = yTrue.getIndices();
+        Operand axis = tf.constant(1);
+        Operand flat = tf.constant(new int[]{1, -1});
+        Operand thresholdsReshaped = tf.reshape(tf.constant(thresholds), tf.constant(new int[]{-1, 1}));
+
+        Operand predIsPosF = tf.dtypes.cast(
+                tf.math.greater(tf.reshape(yPred, flat), thresholdsReshaped), TFloat32.DTYPE);
+        Operand labelIsPosF = tf.dtypes.cast(
+                tf.math.notEqual(tf.dtypes.cast(yTrue.getValues(), TFloat32.DTYPE), tf.constant(0f)),
+                TFloat32.DTYPE);
+        Operand totalWeight;
+        if (sampleWeight != null) {
+            sampleWeight = K.cast(tf, sampleWeight, TFloat32.DTYPE);
+            sampleWeight = LossesImpl.squeezeOrExpandDimensions(tf, null, yPred, sampleWeight).getSampleWeights();
+            sampleWeight = tf.broadcastTo(sampleWeight, tf.shape(yPred));
+            predIsPosF = tf.math.mul(predIsPosF, tf.reshape(sampleWeight, flat));
+            labelIsPosF = tf.math.mul(labelIsPosF, tf.gatherNd(sampleWeight, indices));
+            totalWeight = tf.reduceSum(tf.reshape(sampleWeight, tf.constant(new int[]{-1})), tf.constant(0));
+        } else {
+            totalWeight = tf.dtypes.cast(tf.size(yPred), TFloat32.DTYPE);
         }
 
-        if (update_fp != null || update_tn != null) {
-            labelIsNeg = tf.math.logicalNot(labelIsPos);
-            //TODO remove 
-            debug("labelIsNeg", labelIsNeg);
-            loopVars.put(ConfusionMatrixEnum.FALSE_POSITIVES, new Operand[]{labelIsNeg, predIsPos});
-            if (update_tn != null) {
-                loopVars.put(ConfusionMatrixEnum.TRUE_NEGATIVES, new Operand[]{labelIsNeg, predIsNeg});
+        Operand predAtLabelsIsPos = tf.dtypes.cast(tf.math.greater(
+                tf.reshape(tf.gatherNd(yPred, indices), flat), thresholdsReshaped), TFloat32.DTYPE);
+        Operand truePos = tf.reduceSum(tf.math.mul(predAtLabelsIsPos, labelIsPosF), axis);
+        Operand labelPos = tf.reduceSum(labelIsPosF, tf.constant(0));
+        List<Op> assignOps = new ArrayList<>();
+        if (varTP != null) {
+            assignOps.add(confusionMatrixAssignAdd(tf, varTP, truePos,
+                    varInitalizers.get(ConfusionMatrixEnum.TRUE_POSITIVES)));
+        }
+        if (varFN != null) {
+            assignOps.add(confusionMatrixAssignAdd(tf, varFN, tf.math.sub(labelPos, truePos),
+                    varInitalizers.get(ConfusionMatrixEnum.FALSE_NEGATIVES)));
+        }
+        if (varFP != null || varTN != null) {
+            Operand falsePos = tf.math.sub(tf.reduceSum(predIsPosF, axis), truePos);
+            if (varFP != null) {
+                assignOps.add(confusionMatrixAssignAdd(tf, varFP, falsePos,
+                        varInitalizers.get(ConfusionMatrixEnum.FALSE_POSITIVES)));
+            }
+            if (varTN != null) {
+                Operand trueNeg = tf.math.sub(tf.math.sub(totalWeight, labelPos), falsePos);
+                assignOps.add(confusionMatrixAssignAdd(tf, varTN, trueNeg,
+                        varInitalizers.get(ConfusionMatrixEnum.TRUE_NEGATIVES)));
             }
         }
+        return Collections.singletonList(
+                ControlDependencies.addControlDependencies(tf, "confusionMatrixUpdate", assignOps));
+    }
 
-        final Operand weightsTiledF = weightsTiled;
-        loopVars.keySet().forEach((c) -> {
-            if (variablesToUpdate.containsKey(c)) {
-                Operand[] op = loopVars.get(c);
-                // op[0] = label, op[1] == prediction
-                updateOps.add(
-                        weightedAssignAdd(tf, c, op[0], op[1], weightsTiledF, variablesToUpdate.get(c), varInitalizers.get(c)));
-            }
-        });
+    /**
+     * Updates all of the requested confusion matrix variables from two
+     * reductions over the tiled predictions, the true positives and the
+     * predicted positives. The false negatives, false positives and true
+     * negatives are derived by subtracting from the label totals, which are
+     * reduced over the untiled labels.
+     *
+     * @param tf the TensorFlow Ops
+     * @param variablesToUpdate the confusion matrix variables to update
+     * @param varInitalizers the variable initializers, if any
+     * @param labelIsPos the boolean labels with a leading dimension of 1
+     * @param predIsPos whether each prediction is greater than each threshold,
+     * with a leading dimension of numThresholds
+     * @param weights the weights with a leading dimension of 1, may be null
+     * @return a single grouped update operation
+     */
+    private static List<Op> fusedAssignAdd(Ops tf,
+            Map<ConfusionMatrixEnum, Variable> variablesToUpdate,
+            Map<ConfusionMatrixEnum, Assign> varInitalizers,
+            Operand labelIsPos, Operand predIsPos, Operand weights) {
+        Variable varTP = variablesToUpdate.get(ConfusionMatrixEnum.TRUE_POSITIVES);
+        Variable varFN = variablesToUpdate.get(ConfusionMatrixEnum.FALSE_NEGATIVES);
+        Variable varFP = variablesToUpdate.get(ConfusionMatrixEnum.FALSE_POSITIVES);
+        Variable varTN = variablesToUpdate.get(ConfusionMatrixEnum.TRUE_NEGATIVES);
+
+        Operand axis = tf.constant(1);
+        Operand labelIsPosF = tf.dtypes.cast(labelIsPos, TFloat32.DTYPE);
+        Operand labelIsNegF = tf.math.sub(tf.constant(1f), labelIsPosF);
+        Operand predIsPosF = tf.dtypes.cast(predIsPos, TFloat32.DTYPE);
+        if (weights != null) {
+            labelIsPosF = tf.math.mul(labelIsPosF, weights);
+            labelIsNegF = tf.math.mul(labelIsNegF, weights);
+            predIsPosF = tf.math.mul(predIsPosF, weights);
+        }
 
-        return updateOps;
+        // the labels broadcast over the thresholds, so they are never tiled
+        Operand truePos = tf.reduceSum(
+                tf.math.mul(predIsPosF, tf.dtypes.cast(labelIsPos, TFloat32.DTYPE)), axis);
+        List<Op> assignOps = new ArrayList<>();
+        if (varTP != null) {
+            assignOps.add(confusionMatrixAssignAdd(tf, varTP, truePos,
+                    varInitalizers.get(ConfusionMatrixEnum.TRUE_POSITIVES)));
+        }
+        if (varFN != null) {
+            Operand falseNeg = tf.math.sub(tf.reduceSum(labelIsPosF, axis), truePos);
+            assignOps.add(confusionMatrixAssignAdd(tf, varFN, falseNeg,
+                    varInitalizers.get(ConfusionMatrixEnum.FALSE_NEGATIVES)));
+        }
+        if (varFP != null || varTN != null) {
+            Operand falsePos = tf.math.sub(tf.reduceSum(predIsPosF, axis), truePos);
+            if (varFP != null) {
+                assignOps.add(confusionMatrixAssignAdd(tf, varFP, falsePos,
+                        varInitalizers.get(ConfusionMatrixEnum.FALSE_POSITIVES)));
+            }
+            if (varTN != null) {
+                Operand trueNeg = tf.math.sub(tf.reduceSum(labelIsNegF, axis), falsePos);
+                assignOps.add(confusionMatrixAssignAdd(tf, varTN, trueNeg,
+                        varInitalizers.get(ConfusionMatrixEnum.TRUE_NEGATIVES)));
+            }
+        }
+        return Collections.singletonList(
+                ControlDependencies.addControlDependencies(tf, "confusionMatrixUpdate", assignOps));
+    }
 
+    /**
+     * Checks whether the thresholds are evenly spaced over [0, 1], as is the
+     * case for the thresholds generated from <code>numThresholds</code>. The
+     * end points may lie just outside of [0, 1], as AUC adds an epsilon to
+     * account for floating point imprecision.
+     *
+     * @param thresholds the thresholds
+     * @return true if the thresholds are evenly distributed over [0, 1]
+     */
+    public static boolean isEvenlyDistributedThresholds(float[] thresholds) {
+        int numThresholds = thresholds.length;
+        // with less than three thresholds there is nothing to gain over tiling.
+        if (numThresholds < 3) {
+            return false;
+        }
+        for (int i = 0; i < numThresholds; i++) {
+            float expected = (float) i / (float) (numThresholds - 1);
+            if (Math.abs(thresholds[i] - expected) > K.EpsilonF + 1e-5F * expected) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    private static Operand weightedAssignAdd(Ops tf, ConfusionMatrixEnum c, Operand label,
-            Operand pred, Operand weights, Variable variable, Assign initializer) {
+    /**
+     * Updates the confusion matrix variables when the thresholds are evenly
+     * distributed, without tiling the predictions against every threshold.
+     *
+     * <p>
+     * Each prediction is assigned to the bucket of the largest threshold it
+     * exceeds, the weighted labels are summed per bucket, and the counts for
+     * every threshold are then recovered with a cumulative sum over the
+     * buckets. This takes O(N + T) memory and compute per update instead of
+     * O(N * T).
+     *
+     * @param tf the TensorFlow Ops
+     * @param variablesToUpdate the confusion matrix variables to update
+     * @param varInitalizers the variable initializers, if any
+     * @param yTrue the labels, already squeezed to match yPred
+     * @param yPred the predictions, already squeezed to match yTrue
+     * @param thresholds the evenly distributed thresholds
+     * @param sampleWeight the sample weights, may be null
+     * @param multiLabel whether the last dimension holds separate labels
+     * @param labelWeights the label weights, may be null
+     * @return the update operations
+     */
+    private static List<Op> updateBucketedConfusionMatrixVariables(Ops tf,
+            Map<ConfusionMatrixEnum, Variable> variablesToUpdate,
+            Map<ConfusionMatrixEnum, Assign> varInitalizers,
+            Operand yTrue, Operand yPred,
+            float[] thresholds, Operand sampleWeight, boolean multiLabel, Operand labelWeights) {
+        int numThresholds = thresholds.length;
 
-        //TODO remove 
-        MetricsImpl.debug("weightedAssignAdd/" + c + "/label", label);
-        //TODO remove 
-        MetricsImpl.debug("weightedAssignAdd/" + c + "/pred", pred);
-        Operand label_and_pred = tf.dtypes.cast(tf.math.logicalAnd(label, pred), TFloat32.DTYPE);
+        Operand weights = null;
+        if (sampleWeight != null) {
+            weights = tf.broadcastTo(K.cast(tf, sampleWeight, TFloat32.DTYPE), tf.shape(yPred));
+        }
+        if (labelWeights != null && !multiLabel) {
+            labelWeights = tf.broadcastTo(
+                    tf.dtypes.cast(tf.expandDims(labelWeights, tf.constant(0)), TFloat32.DTYPE),
+                    tf.shape(yPred));
+            weights = weights == null ? labelWeights : tf.math.mul(weights, labelWeights);
+        }
+
+        // lay the data out as [numPredictions, numLabels], a single label column
+        // unless each label is tracked separately.
+        Operand<TInt32> numLabels;
+        if (multiLabel) {
+            numLabels = tf.shape.size(yPred, tf.constant(1));
+        } else {
+            numLabels = tf.constant(1);
+            Operand flatShape = tf.constant(new int[]{-1, 1});
+            yPred = tf.reshape(yPred, flatShape);
+            yTrue = tf.reshape(yTrue, flatShape);
+            if (weights != null) {
+                weights = tf.reshape(weights, flatShape);
+            }
+        }
 
+        // bucket = index of the largest threshold that the prediction exceeds,
+        // or -1 if it exceeds none. The arithmetic estimate may be off by one
+        // for predictions that land on a threshold, so it is corrected against
+        // the actual threshold values. The estimate is computed from the
+        // predictions clipped to [0, 1], as the predictions filtered by topK
+        // are NEG_INF and would overflow the cast to int.
+        Operand thresholdsConst = tf.constant(thresholds);
+        Operand clippedPred = tf.clipByValue(yPred, K.zero(tf, yPred.asOutput().dataType()),
+                K.one(tf, yPred.asOutput().dataType()));
+        Operand bucket = tf.dtypes.cast(
+                tf.math.sub(
+                        tf.math.ceil(tf.math.mul(clippedPred, tf.constant((float) (numThresholds - 1)))),
+                        tf.constant(1f)),
+                TInt32.DTYPE);
+        bucket = tf.clipByValue(bucket, tf.constant(-1), tf.constant(numThresholds - 1));
+        Operand bucketUp = tf.math.minimum(tf.math.add(bucket, tf.constant(1)),
+                tf.constant(numThresholds - 1));
+        bucket = tf.select(
+                tf.math.greater(yPred, tf.gather(thresholdsConst, bucketUp, tf.constant(0))),
+                bucketUp, bucket);
+        Operand bucketDown = tf.math.sub(bucket, tf.constant(1));
+        bucket = tf.select(
+                tf.math.logicalAnd(
+                        tf.math.greaterEqual(bucket, tf.constant(0)),
+                        tf.math.lessEqual(yPred, tf.gather(thresholdsConst,
+                                tf.math.maximum(bucket, tf.constant(0)), tf.constant(0)))),
+                bucketDown, bucket);
+
+        // segment (bucket + 1) * numLabels + label, so the sums reshape to
+        // [numThresholds + 1, numLabels] with row 0 holding the predictions that
+        // exceed no threshold.
+        Operand segmentIds = tf.math.add(
+                tf.math.mul(tf.math.add(bucket, tf.constant(1)), numLabels),
+                tf.broadcastTo(tf.range(tf.constant(0), numLabels, tf.constant(1)), tf.shape(bucket)));
+        Operand numSegments = tf.math.mul(tf.constant(numThresholds + 1), numLabels);
+        Operand bucketShape = tf.stack(Arrays.asList(tf.constant(numThresholds + 1), numLabels));
+
+        Operand labelIsPos = tf.dtypes.cast(tf.dtypes.cast(yTrue, TBool.DTYPE), TFloat32.DTYPE);
+        Operand labelIsNeg = tf.math.sub(tf.constant(1f), labelIsPos);
         if (weights != null) {
-            label_and_pred = tf.math.mul(label_and_pred, weights);
+            labelIsPos = tf.math.mul(labelIsPos, weights);
+            labelIsNeg = tf.math.mul(labelIsNeg, weights);
         }
-        //TODO remove  
-        MetricsImpl.debug("weightedAssignAdd/" + c + "/label_and_pred", label_and_pred);
-        Operand valueSum = tf.reduceSum(label_and_pred, tf.constant(1));
-        //TODO remove 
-        MetricsImpl.debug("weightedAssignAdd/" + c + "/valueSum", valueSum);
-        Operand assignAdd;
+
+        Variable varTP = variablesToUpdate.get(ConfusionMatrixEnum.TRUE_POSITIVES);
+        Variable varFN = variablesToUpdate.get(ConfusionMatrixEnum.FALSE_NEGATIVES);
+        Variable varFP = variablesToUpdate.get(ConfusionMatrixEnum.FALSE_POSITIVES);
+        Variable varTN = variablesToUpdate.get(ConfusionMatrixEnum.TRUE_NEGATIVES);
+
+        List<Op> updateOps = new ArrayList<>();
+        if (varTP != null || varFN != null) {
+            Operand posBuckets = tf.reshape(
+                    tf.math.unsortedSegmentSum(labelIsPos, segmentIds, numSegments), bucketShape);
+            if (varTP != null) {
+                // predictions in bucket >= i are greater than threshold i
+                Operand tp = tf.math.cumsum(
+                        tf.slice(posBuckets, tf.constant(new int[]{1, 0}), tf.constant(new int[]{-1, -1})),
+                        tf.constant(0), Cumsum.reverse(true));
+                updateOps.add(confusionMatrixAssignAdd(tf, varTP, tp,
+                        varInitalizers.get(ConfusionMatrixEnum.TRUE_POSITIVES)));
+            }
+            if (varFN != null) {
+                // predictions in bucket < i are less than or equal to threshold i
+                Operand fn = tf.math.cumsum(
+                        tf.slice(posBuckets, tf.constant(new int[]{0, 0}), tf.constant(new int[]{numThresholds, -1})),
+                        tf.constant(0));
+                updateOps.add(confusionMatrixAssignAdd(tf, varFN, fn,
+                        varInitalizers.get(ConfusionMatrixEnum.FALSE_NEGATIVES)));
+            }
+        }
+        if (varFP != null || varTN != null) {
+            Operand negBuckets = tf.reshape(
+                    tf.math.unsortedSegmentSum(labelIsNeg, segmentIds, numSegments), bucketShape);
+            if (varFP != null) {
+                Operand fp = tf.math.cumsum(
+                        tf.slice(negBuckets, tf.constant(new int[]{1, 0}), tf.constant(new int[]{-1, -1})),
+                        tf.constant(0), Cumsum.reverse(true));
+                updateOps.add(confusionMatrixAssignAdd(tf, varFP, fp,
+                        varInitalizers.get(ConfusionMatrixEnum.FALSE_POSITIVES)));
+            }
+            if (varTN != null) {
+                Operand tn = tf.math.cumsum(
+                        tf.slice(negBuckets, tf.constant(new int[]{0, 0}), tf.constant(new int[]{numThresholds, -1})),
+                        tf.constant(0));
+                updateOps.add(confusionMatrixAssignAdd(tf, varTN, tn,
+                        varInitalizers.get(ConfusionMatrixEnum.TRUE_NEGATIVES)));
+            }
+        }
+        return Collections.singletonList(
+                ControlDependencies.addControlDependencies(tf, "confusionMatrixUpdate", updateOps));
+    }
+
+    private static Operand confusionMatrixAssignAdd(Ops tf, Variable variable, Operand value, Assign initializer) {
+        // reshape to the variable shape, [numThresholds] unless multiLabel
+        Operand valueSum = tf.reshape(value, tf.shape(variable));
         if (initializer != null) {
-            assignAdd = ControlDependencies.addControlDependencies(tf,
-                    tfc -> tfc.assignAdd(variable, valueSum), "weightedAssignAdd", initializer);
+            return ControlDependencies.addControlDependencies(tf,
+                    tfc -> tfc.assignAdd(variable, valueSum), "bucketAssignAdd", initializer);
         } else {
-            assignAdd = tf.assignAdd(variable, valueSum);
+            return tf.assignAdd(variable, valueSum);
         }
-        return assignAdd;
     }
 
+    /**
+     * Keeps the <code>topK</code> largest values of the last dimension and
+     * sets the others to negative infinity.
+     *
+     * <p>
+     * The mask is built by scattering the positions of the top values, so the
+     * temporaries are linear in the size of <code>x</code> rather than
+     * <code>[..., topK, numClasses]</code>.
+     */
     private static Operand filterTopK(Ops tf, Operand x, int topK) {
         DataType dtype = x.asOutput().dataType();
-        Shape xShape = x.asOutput().shape();
+        Operand<TInt32> numClasses = numClasses(tf, x);
         TopK top = tf.nn.topK(x, tf.constant(topK), TopK.sorted(false));
-        OneHot oneHot = tf.oneHot(
-                top.indices(),
-                tf.dtypes.cast(tf.constant(xShape.size(xShape.numDimensions() - 1)), TInt32.DTYPE),
-                tf.constant(1),
-                tf.constant(0),
-                OneHot.axis(-1L));
-        Operand topKMask = tf.reduceSum(
-                oneHot,
-                tf.constant(-2));
+
+        // the position of each top value in the flattened x
+        Operand<TInt32> size = tf.size(x, TInt32.DTYPE);
+        Operand<TInt32> indices = tf.reshape(top.indices(), tf.constant(new int[]{-1, topK}));
+        Operand<TInt32> rowOffsets = tf.math.mul(
+                tf.range(tf.constant(0), tf.math.div(size, numClasses), tf.constant(1)),
+                numClasses);
+        Operand<TInt32> positions = tf.reshape(
+                tf.math.add(indices, tf.expandDims(rowOffsets, tf.constant(1))),
+                tf.constant(new int[]{-1}));
+        Operand topKMask = tf.reshape(
+                tf.math.unsortedSegmentSum(tf.onesLike(tf.dtypes.cast(positions, dtype)), positions, size),
+                tf.shape(x));
 
         //x * top_k_mask + NEG_INF * (1 - top_k_mask)
-        topKMask = tf.dtypes.cast(topKMask, dtype);
         Operand add1 = tf.math.mul(x, topKMask);
         Operand add2 = tf.math.mul(
                 tf.constant(NEG_INF),
@@ -505,6 +851,23 @@ public class MetricsImpl {
         return result;
     }
 
+    /**
+     * Gets the size of the last dimension of <code>x</code>, from the static
+     * shape if it is known, otherwise at run time.
+     */
+    private static Operand<TInt32> numClasses(Ops tf, Operand x) {
+        Shape shape = x.asOutput().shape();
+        if (!shape.isUnknown()) {
+            long size = shape.size(shape.numDimensions() - 1);
+            if (size != Shape.UNKNOWN_SIZE) {
+                return tf.constant((int) size);
+            }
+        }
+        // Gather does not take negative indices, so the last index is computed from the rank.
+        Operand<TInt32> last = tf.math.sub(tf.rank(x), tf.constant(1));
+        return tf.gather(tf.shape(x), last, tf.constant(0));
+    }
+
     /**
      * y
      * Computes Kullback-Leibler divergence loss between y_true and y_pred.
@@ -540,8 +903,7 @@ public class MetricsImpl {
      * @return the loss
      */
     public static Operand kullback_leibler_divergence(Ops tf, Operand yTrue, Operand yPred) {
-        KLDivergence instance = new KLDivergence(tf, genUniqueName());
-        return instance.callOnce(yTrue, yPred);
+        return weightedMean(tf, Losses.kullback_leibler_divergence(tf, yTrue, yPred), null);
     }
     
      /**
@@ -553,8 +915,7 @@ public class MetricsImpl {
      * @return the loss
      */
     public static Operand logCoshError(Ops tf, Operand yTrue, Operand yPred) {
-        LogCoshError instance = new LogCoshError(tf, genUniqueName());
-        return instance.callOnce(yTrue, yPred);
+        return weightedMean(tf, Losses.logcosh(tf, yTrue, yPred), null);
     }
 
     /**
@@ -590,8 +951,7 @@ public class MetricsImpl {
      * @return the loss
      */
     public static Operand mean_absolute_error(Ops tf, Operand yTrue, Operand yPred) {
-        MeanAbsoluteError instance = new MeanAbsoluteError(tf, genUniqueName());
-        return instance.callOnce(yTrue, yPred);
+        return weightedMean(tf, Losses.mean_absolute_error(tf, yTrue, yPred), null);
     }
 
     /**
@@ -627,8 +987,7 @@ public class MetricsImpl {
      * @return the loss
      */
     public static Operand mean_absolute_percentage_error(Ops tf, Operand yTrue, Operand yPred) {
-        MeanAbsolutePercentageError instance = new MeanAbsolutePercentageError(tf, genUniqueName());
-        return instance.callOnce(yTrue, yPred);
+        return weightedMean(tf, Losses.mean_absolute_percentage_error(tf, yTrue, yPred), null);
     }
 
     /**
@@ -664,8 +1023,7 @@ public class MetricsImpl {
      * @return the loss
      */
     public static Operand mean_squared_error(Ops tf, Operand yTrue, Operand yPred) {
-        MeanSquaredError instance = new MeanSquaredError(tf, genUniqueName());
-        return instance.callOnce(yTrue, yPred);
+        return weightedMean(tf, Losses.mean_squared_error(tf, yTrue, yPred), null);
     }
 
     /**
@@ -701,8 +1059,7 @@ public class MetricsImpl {
      * @return the loss
      */
     public static Operand mean_squared_logarithmic_error(Ops tf, Operand yTrue, Operand yPred) {
-        MeanSquaredLogarithmicError instance = new MeanSquaredLogarithmicError(tf, genUniqueName());
-        return instance.callOnce(yTrue, yPred);
+        return weightedMean(tf, Losses.mean_squared_logarithmic_error(tf, yTrue, yPred), null);
     }
 
     /**
@@ -763,8 +1120,7 @@ public class MetricsImpl {
      * @return the loss
      */
     public static Operand binary_crossentropy(Ops tf, Operand yTrue, Operand yPred, boolean fromLogits, float labelSmoothing) {
-        BinaryCrossentropy instance = new BinaryCrossentropy(tf, genUniqueName(), fromLogits, labelSmoothing);
-        return instance.callOnce(yTrue, yPred);
+        return weightedMean(tf, Losses.binary_crossentropy(tf, yTrue, yPred, fromLogits, labelSmoothing), null);
     }
 
     /**
@@ -824,8 +1180,7 @@ public class MetricsImpl {
      * @return the loss
      */
     public static Operand categorical_crossentropy(Ops tf, Operand yTrue, Operand yPred, boolean fromLogits, float labelSmoothing) {
-        CategoricalCrossentropy instance = new CategoricalCrossentropy(tf, genUniqueName(), fromLogits, labelSmoothing);
-        return instance.callOnce(yTrue, yPred);
+        return weightedMean(tf, Losses.categorical_crossentropy(tf, yTrue, yPred, fromLogits, labelSmoothing, -1), null);
     }
 
     /**
@@ -837,8 +1192,7 @@ public class MetricsImpl {
      * @return the loss
      */
     public static Operand categorical_hinge(Ops tf, Operand yTrue, Operand yPred) {
-        CategoricalHinge instance = new CategoricalHinge(tf, genUniqueName());
-        return instance.callOnce(yTrue, yPred);
+        return weightedMean(tf, Losses.categorical_hinge(tf, yTrue, yPred), null);
     }
 
     /**
@@ -850,8 +1204,7 @@ public class MetricsImpl {
      * @return the loss
      */
     public static Operand cosine_similarity(Ops tf, Operand yTrue, Operand yPred) {
-        CosineSimilarity instance = new CosineSimilarity(tf, genUniqueName());
-        return instance.callOnce(yTrue, yPred);
+        return weightedMean(tf, cosine_proximity(tf, yTrue, yPred, -1), null);
     }
 
     /**
@@ -892,8 +1245,7 @@ public class MetricsImpl {
      * @return the loss
      */
     public static Operand hinge(Ops tf, Operand yTrue, Operand yPred) {
-        Hinge instance = new Hinge(tf, genUniqueName());
-        return instance.callOnce(yTrue, yPred);
+        return weightedMean(tf, Losses.hinge(tf, yTrue, yPred), null);
     }
 
     /**
@@ -905,8 +1257,7 @@ public class MetricsImpl {
      * @return the loss
      */
     public static Operand poisson(Ops tf, Operand yTrue, Operand yPred) {
-        Poisson instance = new Poisson(tf, genUniqueName());
-        return instance.callOnce(yTrue, yPred);
+        return weightedMean(tf, Losses.poisson(tf, yTrue, yPred), null);
     }
 
     /**
@@ -934,8 +1285,7 @@ public class MetricsImpl {
      * @return the loss
      */
     public static Operand sparse_categorical_crossentropy(Ops tf, Operand yTrue, Operand yPred, boolean fromLogits, int axis) {
-        SparseCategoricalCrossentropy instance = new SparseCategoricalCrossentropy(tf, genUniqueName(), fromLogits, axis);
-        return instance.callOnce(yTrue, yPred);
+        return weightedMean(tf, Losses.sparse_categorical_crossentropy(tf, yTrue, yPred, fromLogits, axis), null);
     }
 
     /**
@@ -969,8 +1319,7 @@ public class MetricsImpl {
      * @return the loss
      */
     public static Operand squared_hinge(Ops tf, Operand yTrue, Operand yPred) {
-        SquaredHinge instance = new SquaredHinge(tf, genUniqueName());
-        return instance.callOnce(yTrue, yPred);
+        return weightedMean(tf, Losses.squared_hinge(tf, yTrue, yPred), null);
     }
 
     public static <T extends TNumber> Operand<TFloat32> top_k_categorical_accuracy(
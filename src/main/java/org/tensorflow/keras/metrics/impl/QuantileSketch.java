@@ -0,0 +1,292 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.tensorflow.DataType;
+import org.tensorflow.Operand;
+import org.tensorflow.keras.backend.tf.Tuple;
+import org.tensorflow.keras.backend.tf.WeightsBroadcastOps;
+import org.tensorflow.keras.initializers.Zeros;
+import org.tensorflow.keras.losses.impl.LossesImpl;
+import org.tensorflow.keras.metrics.Metric;
+import org.tensorflow.ndarray.Shape;
+import org.tensorflow.op.Op;
+import org.tensorflow.op.Ops;
+import org.tensorflow.op.core.Variable;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.TFloat64;
+import org.tensorflow.types.TInt32;
+
+/**
+ * Encapsulates metrics that estimate quantiles of a stream of values with a
+ * fixed size, mergeable sketch.
+ *
+ * <p>
+ * The sketch is a histogram with logarithmically spaced buckets, so that every
+ * value in a bucket is within <code>relativeAccuracy</code> of the bucket
+ * representative value. Positive and negative values have their own buckets
+ * and values whose magnitude is below <code>minValue</code> are counted in a
+ * zero bucket. Magnitudes above <code>maxValue</code> are counted in the last
+ * bucket. The memory used only depends on the relative accuracy and the range
+ * of values, not on the number of values.
+ *
+ * <p>
+ * The bucket counts are held in a single <code>SUM</code> aggregated
+ * variable, so sketches are merged by adding them, either across batches by
+ * <code>updateState</code>, or across workers with
+ * {@link org.tensorflow.keras.metrics.MetricState}.
+ *
+ * @author Jim Clarke
+ */
+public abstract class QuantileSketch extends Metric {
+
+    public static final String COUNTS = "counts";
+    public static final float DEFAULT_RELATIVE_ACCURACY = 0.01f;
+    public static final float DEFAULT_MIN_VALUE = 1e-6f;
+    public static final float DEFAULT_MAX_VALUE = 1e6f;
+
+    private final float[] quantiles;
+    private final float relativeAccuracy;
+    private final float minValue;
+    private final float maxValue;
+
+    private final double logGamma;
+    private final int offset;
+    private final int numMagnitudeBuckets;
+    private final float[] representatives;
+
+    private final String countsName;
+    private Variable<TFloat64> counts;
+
+    /**
+     * Creates a QuantileSketch
+     *
+     * @param tf the TensorFlow Ops
+     * @param name the name of the metric, if null the class name is used.
+     * @param quantiles the quantiles to estimate, each in the range [0, 1].
+     * @param relativeAccuracy the relative accuracy of the estimated
+     * quantiles, in the range (0, 1).
+     * @param minValue the smallest magnitude that is not counted as zero.
+     * @param maxValue the largest magnitude that is counted accurately.
+     * @param dType the data type of the result
+     */
+    protected QuantileSketch(Ops tf, String name, float[] quantiles, float relativeAccuracy,
+            float minValue, float maxValue, DataType dType) {
+        super(tf, name, dType);
+        if (quantiles == null || quantiles.length == 0) {
+            throw new IllegalArgumentException("At least one quantile is required");
+        }
+        for (float q : quantiles) {
+            if (q < 0f || q > 1f) {
+                throw new IllegalArgumentException(
+                        String.format("Quantile values must be in [0, 1], received %f", q));
+            }
+        }
+        if (relativeAccuracy <= 0f || relativeAccuracy >= 1f) {
+            throw new IllegalArgumentException(
+                    String.format("relativeAccuracy must be in (0, 1), received %f", relativeAccuracy));
+        }
+        if (minValue <= 0f || maxValue <= minValue) {
+            throw new IllegalArgumentException(
+                    String.format("Expected 0 < minValue < maxValue, received %f and %f", minValue, maxValue));
+        }
+        this.quantiles = quantiles.clone();
+        this.relativeAccuracy = relativeAccuracy;
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+
+        double gamma = (1.0 + relativeAccuracy) / (1.0 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+        this.offset = (int) Math.ceil(Math.log(minValue) / logGamma);
+        this.numMagnitudeBuckets = (int) Math.ceil(Math.log(maxValue) / logGamma) - offset + 1;
+
+        // buckets are ordered from the largest negative magnitude, through
+        // zero, to the largest positive magnitude.
+        this.representatives = new float[getNumBuckets()];
+        for (int k = 0; k < numMagnitudeBuckets; k++) {
+            float value = (float) (2.0 * Math.pow(gamma, k + offset) / (gamma + 1.0));
+            representatives[numMagnitudeBuckets + 1 + k] = value;
+            representatives[numMagnitudeBuckets - 1 - k] = -value;
+        }
+
+        this.countsName = this.getVariableName(COUNTS);
+        init();
+    }
+
+    /**
+     * initialize the Variables
+     */
+    private void init() {
+        Zeros zeros = new Zeros(tf);
+        this.counts = getVariable(getCountsName());
+        if (this.counts == null) {
+            this.counts = tf.withName(getCountsName()).variable(
+                    zeros.call(tf.constant(Shape.of(getNumBuckets())), TFloat64.DTYPE));
+            this.addVariable(getCountsName(), this.counts, zeros);
+        }
+    }
+
+    /**
+     * Gets the values to add to the sketch.
+     *
+     * @param labels the labels, already squeezed or expanded to match the
+     * predictions.
+     * @param predictions the predictions
+     * @return the values, one per element of the predictions.
+     */
+    protected abstract Operand<TFloat32> getValues(Operand<TFloat32> labels, Operand<TFloat32> predictions);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Op> updateStateList(Operand... operands) {
+        Operand<TFloat32> labels = tf.dtypes.cast(operands[0], TFloat32.DTYPE);
+        Operand<TFloat32> predictions = tf.dtypes.cast(operands[1], TFloat32.DTYPE);
+        Operand sampleWeight = operands.length > 2 ? operands[2] : null;
+
+        Tuple tuple = LossesImpl.squeezeOrExpandDimensions(tf, labels, predictions);
+        Operand<TFloat32> values = getValues(tuple.getLabels(), tuple.getPredictions());
+
+        Operand<TFloat64> weights;
+        if (sampleWeight != null) {
+            Operand<TFloat32> sw = tf.dtypes.cast(sampleWeight, TFloat32.DTYPE);
+            sw = LossesImpl.squeezeOrExpandDimensions(tf, null, values, sw).getSampleWeights();
+            sw = WeightsBroadcastOps.broadcastWeights(tf, sw, values);
+            weights = tf.dtypes.cast(tf.reshape(sw, tf.constant(new int[]{-1})), TFloat64.DTYPE);
+        } else {
+            weights = tf.dtypes.cast(tf.onesLike(tf.reshape(values, tf.constant(new int[]{-1}))),
+                    TFloat64.DTYPE);
+        }
+
+        Operand<TInt32> buckets = bucketize(tf.reshape(values, tf.constant(new int[]{-1})));
+        Operand<TFloat64> histogram = tf.math.unsortedSegmentSum(weights, buckets,
+                tf.constant(getNumBuckets()));
+
+        List<Op> updateOperations = new ArrayList<>();
+        updateOperations.add(this.variableAssignAdd(getCountsName(), this.counts, histogram));
+        return updateOperations;
+    }
+
+    /**
+     * Computes the bucket of each value.
+     *
+     * @param values the values, flattened
+     * @return the bucket indices
+     */
+    private Operand<TInt32> bucketize(Operand<TFloat32> values) {
+        Operand<TFloat32> magnitude = tf.math.abs(values);
+        // the log of values below minValue is never used, but must be finite.
+        Operand<TFloat32> logMagnitude = tf.math.div(
+                tf.math.log(tf.math.maximum(magnitude, tf.constant(minValue))),
+                tf.constant((float) logGamma));
+        Operand<TInt32> index = tf.dtypes.cast(tf.math.ceil(logMagnitude), TInt32.DTYPE);
+        index = tf.math.sub(index, tf.constant(offset));
+        index = tf.clipByValue(index, tf.constant(0), tf.constant(numMagnitudeBuckets - 1));
+
+        // zero for magnitudes below minValue, else the sign of the value.
+        Operand<TInt32> sign = tf.math.mul(
+                tf.dtypes.cast(tf.math.greaterEqual(magnitude, tf.constant(minValue)), TInt32.DTYPE),
+                tf.dtypes.cast(tf.math.sign(values), TInt32.DTYPE));
+        return tf.math.add(tf.constant(numMagnitudeBuckets),
+                tf.math.mul(sign, tf.math.add(index, tf.constant(1))));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the estimated quantiles, with shape <code>[quantiles.length]</code>,
+     * or zeros if no values have been seen.
+     */
+    @Override
+    public Operand result(Ops rtf) {
+        Operand<TFloat64> cumulative = rtf.math.cumsum(this.counts, rtf.constant(0));
+        Operand<TFloat64> total = rtf.reduceSum(this.counts, rtf.constant(0));
+
+        double[] q = new double[quantiles.length];
+        for (int i = 0; i < q.length; i++) {
+            q[i] = quantiles[i];
+        }
+        Operand<TFloat64> ranks = rtf.math.mul(rtf.constant(q), total);
+
+        // the first bucket whose cumulative count reaches the rank, skipping
+        // leading empty buckets so that the 0 quantile is the smallest value.
+        Operand<TInt32> below = rtf.reduceSum(
+                rtf.dtypes.cast(rtf.math.less(rtf.expandDims(cumulative, rtf.constant(0)),
+                        rtf.expandDims(ranks, rtf.constant(1))), TInt32.DTYPE),
+                rtf.constant(1));
+        Operand<TInt32> empty = rtf.reduceSum(
+                rtf.dtypes.cast(rtf.math.lessEqual(cumulative, rtf.constant(0.0)), TInt32.DTYPE),
+                rtf.constant(0));
+        Operand<TInt32> index = rtf.math.minimum(rtf.math.maximum(below, empty),
+                rtf.constant(getNumBuckets() - 1));
+
+        Operand<TFloat32> result = rtf.gather(rtf.constant(representatives), index, rtf.constant(0));
+        result = rtf.math.mul(result,
+                rtf.dtypes.cast(rtf.math.greater(total, rtf.constant(0.0)), TFloat32.DTYPE));
+        return rtf.dtypes.cast(result, dType);
+    }
+
+    /**
+     * @return the quantiles estimated by this metric
+     */
+    public float[] getQuantiles() {
+        return quantiles.clone();
+    }
+
+    /**
+     * @return the relative accuracy of the estimated quantiles
+     */
+    public float getRelativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    /**
+     * @return the smallest magnitude that is not counted as zero
+     */
+    public float getMinValue() {
+        return minValue;
+    }
+
+    /**
+     * @return the largest magnitude that is counted accurately
+     */
+    public float getMaxValue() {
+        return maxValue;
+    }
+
+    /**
+     * @return the number of buckets in the sketch
+     */
+    public final int getNumBuckets() {
+        return 2 * numMagnitudeBuckets + 1;
+    }
+
+    /**
+     * @return the bucket counts
+     */
+    public Variable<TFloat64> getCounts() {
+        return counts;
+    }
+
+    /**
+     * @return the countsName
+     */
+    public String getCountsName() {
+        return countsName;
+    }
+}
@@ -162,12 +162,12 @@ public abstract class Reduce extends Metric {
         Operand values = operands[0];
         Operand sampleWeight = operands.length > 1 ? operands[1] : null;
         if (dType != null) {
-            values = tf.dtypes.cast(values, dType);
+            values = K.cast(tf, values, dType);
         }
         DataType dtype = values.asOutput().dataType();
         
         if (sampleWeight != null) {
-            sampleWeight = tf.dtypes.cast(sampleWeight, dtype);
+            sampleWeight = K.cast(tf, sampleWeight, dtype);
             Tuple tuple = LossesImpl.squeezeOrExpandDimensions(tf, null, values, sampleWeight);
             values = tuple.getPredictions();
             sampleWeight = tuple.getSampleWeights();
@@ -176,7 +176,7 @@ public abstract class Reduce extends Metric {
 
         }
 
-        Operand<TFloat32> valueSum = tf.dtypes.cast(tf.reduceSum(values, K.allAxis(tf, values)), TFloat32.DTYPE);
+        Operand<TFloat32> valueSum = K.cast(tf, tf.reduceSum(values, K.allAxis(tf, values)), TFloat32.DTYPE);
         
         Operand<TFloat32> totalUpdate = this.variableAssignAdd(this.getTotalName(), this.total, valueSum);
         updateOperations.add(totalUpdate);
@@ -19,10 +19,16 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import org.tensorflow.Operand;
+import org.tensorflow.Output;
+import org.tensorflow.Session;
 import org.tensorflow.keras.backend.tf.ControlDependencies;
 import static org.tensorflow.keras.optimizers.OptimizerInterface.assertGraph;
 import org.tensorflow.op.Op;
 import org.tensorflow.op.Ops;
+import org.tensorflow.op.core.Variable;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.family.TType;
 
 /**
  * AdaDelta Optimizer that implements the AdaDelta algorithm. Keras wrapper
@@ -49,7 +55,10 @@ public class AdaDelta extends org.tensorflow.framework.optimizers.AdaDelta imple
     public static final float EPSILON_DEFAULT = 1e-7F;
 
     private Map<String, Object> config = new HashMap<>();
-    private float learningRate;
+    private LearningRate learningRate;
+    private final GradientClipping gradientClipping;
+    private float rho;
+    private float epsilon;
     
     private List<Op> initializers = new ArrayList<>();
 
@@ -109,8 +118,7 @@ public class AdaDelta extends org.tensorflow.framework.optimizers.AdaDelta imple
      * update.
      */
     public AdaDelta(Ops tf, float learningRate, float rho, float epsilon) {
-        super(assertGraph(tf), learningRate, rho, epsilon);
-        initConfig(learningRate, rho, epsilon);
+        this(tf, new LearningRate(tf, learningRate), rho, epsilon, GradientClipping.NONE);
     }
 
     /**
@@ -124,8 +132,55 @@ public class AdaDelta extends org.tensorflow.framework.optimizers.AdaDelta imple
      * update.
      */
     public AdaDelta(Ops tf, String name, float learningRate, float rho, float epsilon) {
-        super(assertGraph(tf), name, learningRate, rho, epsilon);
+        this(tf, name, new LearningRate(tf, learningRate), rho, epsilon, GradientClipping.NONE);
+    }
+
+    /**
+     * create an Adadelta optimizer with default name="Adadelta",
+     *
+     * @param tf the tensorflow Ops
+     * @param learningRate the learning rate, which may follow a schedule.
+     */
+    public AdaDelta(Ops tf, LearningRate learningRate) {
+        this(tf, learningRate, RHO_DEFAULT, EPSILON_DEFAULT, GradientClipping.NONE);
+    }
+
+    /**
+     * create an Adadelta optimizer with default name="Adadelta",
+     *
+     * @param tf the tensorflow Ops
+     * @param learningRate the learning rate, which may follow a schedule.
+     * @param rho The decay rate.
+     * @param epsilon A constant epsilon used to better conditioning the grad
+     * update.
+     * @param gradientClipping the clipping of the gradients before they are
+     * applied.
+     */
+    public AdaDelta(Ops tf, LearningRate learningRate, float rho, float epsilon, GradientClipping gradientClipping) {
+        super(assertGraph(tf), learningRate.getValue(), rho, epsilon);
+        initConfig(learningRate, rho, epsilon);
+        this.gradientClipping = gradientClipping;
+        config.putAll(gradientClipping.getConfig());
+    }
+
+    /**
+     * create an Adadelta optimizer
+     *
+     * @param tf the tensorflow Ops
+     * @param name the name of the Optimizer, defaults to "Adadelta"
+     * @param learningRate the learning rate, which may follow a schedule.
+     * @param rho The decay rate.
+     * @param epsilon A constant epsilon used to better conditioning the grad
+     * update.
+     * @param gradientClipping the clipping of the gradients before they are
+     * applied.
+     */
+    public AdaDelta(Ops tf, String name, LearningRate learningRate, float rho, float epsilon,
+            GradientClipping gradientClipping) {
+        super(assertGraph(tf), name, learningRate.getValue(), rho, epsilon);
         initConfig(learningRate, rho, epsilon);
+        this.gradientClipping = gradientClipping;
+        config.putAll(gradientClipping.getConfig());
     }
     
     @Override
@@ -164,33 +219,81 @@ public class AdaDelta extends org.tensorflow.framework.optimizers.AdaDelta imple
      */
     public static AdaDelta create(Ops tf, Map<String, Object> config) {
         String name = (String) config.get(NAME_KEY);
-        float learningRate = (float) config.getOrDefault(LEARNING_RATE_KEY, LEARNING_RATE_DEFAULT);
+        LearningRate learningRate = LearningRate.fromConfigValue(tf,
+                config.getOrDefault(LEARNING_RATE_KEY, LEARNING_RATE_DEFAULT));
+        GradientClipping gradientClipping = GradientClipping.fromConfig(config);
         float rho = (float) config.getOrDefault(RHO_RATE_KEY, RHO_DEFAULT);
         float epsilon = (float) config.getOrDefault(EPSILON_KEY, EPSILON_DEFAULT);
         if (name == null) // doe this to get the default name
         {
-            return new AdaDelta(tf, learningRate, rho, epsilon);
+            return new AdaDelta(tf, learningRate, rho, epsilon, gradientClipping);
         } else {
-            return new AdaDelta(tf, name, learningRate, rho, epsilon);
+            return new AdaDelta(tf, name, learningRate, rho, epsilon, gradientClipping);
         }
     }
 
     /**
      * Initialize the configuration based on which constructor is called.
      *
-     * @param learningRate The learning rate
+     * @param learningRate The learning rate, either a float or a schedule
      * @param rho The decay rate.
      * @param epsilon A constant epsilon used to better conditioning the grad
      * update.
      */
-    private void initConfig(float learningRate, float rho, float epsilon) {
+    private void initConfig(LearningRate learningRate, float rho, float epsilon) {
         this.learningRate = learningRate;
+        this.rho = rho;
+        this.epsilon = epsilon;
         config.put(NAME_KEY, this.getOptimizerName());
-        config.put(LEARNING_RATE_KEY, learningRate);
+        config.put(LEARNING_RATE_KEY, learningRate.getConfigValue());
         config.put(RHO_RATE_KEY, rho);
         config.put(EPSILON_KEY, epsilon);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The learning rate is read from its graph variable.
+     */
+    @Override
+    protected <T extends TType> Op applyDense(Output<T> gradient, Output<T> variable) {
+        Variable<T> accumSlot = getSlot(variable, ACCUMULATOR).get();
+        Variable<T> accumUpdateSlot = getSlot(variable, ACCUMULATOR_UPDATE).get();
+        return tf.train.applyAdadelta(variable, accumSlot, accumUpdateSlot,
+                learningRate.getOperand(gradient.dataType()),
+                tf.dtypes.cast(tf.constant(rho), gradient.dataType()),
+                tf.dtypes.cast(tf.constant(epsilon), gradient.dataType()),
+                gradient);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Clips the gradients first, if gradient clipping is set.
+     */
+    @Override
+    public Op applyGradients(List<GradAndVar<? extends TType>> gradsAndVars, String name) {
+        return super.applyGradients(gradientClipping.clip(tf, gradsAndVars), name);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Advances the learning rate schedule, if any.
+     */
+    @Override
+    protected Op finish(List<Op> updateOperations, String name) {
+        learningRate.addUpdates(updateOperations);
+        return super.finish(updateOperations, name);
+    }
+
+    /**
+     * @return the clipping of the gradients before they are applied
+     */
+    public GradientClipping getGradientClipping() {
+        return gradientClipping;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -204,7 +307,7 @@ public class AdaDelta extends org.tensorflow.framework.optimizers.AdaDelta imple
      */
     @Override
     public float getLearningRate() {
-        return this.learningRate;
+        return this.learningRate.getValue();
     }
 
     /**
@@ -212,7 +315,23 @@ public class AdaDelta extends org.tensorflow.framework.optimizers.AdaDelta imple
      */
     @Override
     public void setLearningRate(float learningRate) {
-        this.learningRate = learningRate;
+        this.learningRate.setValue(learningRate);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setLearningRate(Session session, float learningRate) {
+        this.learningRate.setValue(session, learningRate);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Operand<TFloat32> getLearningRateOperand() {
+        return this.learningRate.getOperand();
     }
 
     //TODO ??
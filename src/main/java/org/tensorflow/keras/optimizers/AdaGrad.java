@@ -15,9 +15,19 @@ limitations under the License.
 package org.tensorflow.keras.optimizers;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import static org.tensorflow.keras.optimizers.OptimizerInterface.assertGraph;
+import org.tensorflow.Operand;
+import org.tensorflow.Output;
+import org.tensorflow.Session;
+import org.tensorflow.op.Op;
 import org.tensorflow.op.Ops;
+import org.tensorflow.op.core.Variable;
+import org.tensorflow.op.train.SparseApplyAdagrad;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.family.TNumber;
+import org.tensorflow.types.family.TType;
 
 /**
  * AdaGrad Optimizer that implements the AdaGrad algorithm. Adagrad is an
@@ -27,7 +37,7 @@ import org.tensorflow.op.Ops;
  *
  * @author Jim Clarke
  */
-public class AdaGrad extends org.tensorflow.framework.optimizers.AdaGrad implements OptimizerInterface {
+public class AdaGrad extends org.tensorflow.framework.optimizers.AdaGrad implements SparseOptimizerInterface {
 
     public static final String LEARNING_RATE_KEY = "learning_rate";
     public static final String INITIAL_ACCUM_KEY = "accumulator";
@@ -36,7 +46,8 @@ public class AdaGrad extends org.tensorflow.framework.optimizers.AdaGrad impleme
     public static final float INITIAL_ACCUM__DEFAULT = 0.1f;
 
     private Map<String, Object> config = new HashMap<>();
-    private float learningRate;
+    private LearningRate learningRate;
+    private final GradientClipping gradientClipping;
 
     // TODO is this still necessary?
     private String[] allowed_options = {"clipnorm", "clipvalue", "lr", "decay"};
@@ -91,8 +102,7 @@ public class AdaGrad extends org.tensorflow.framework.optimizers.AdaGrad impleme
      * @param initialAccumulatorValue initial accumulator value
      */
     public AdaGrad(Ops tf, float learningRate, float initialAccumulatorValue) {
-        super(assertGraph(tf), learningRate, initialAccumulatorValue);
-        initConfig(learningRate, initialAccumulatorValue);
+        this(tf, new LearningRate(tf, learningRate), initialAccumulatorValue, GradientClipping.NONE);
     }
 
     /**
@@ -104,9 +114,53 @@ public class AdaGrad extends org.tensorflow.framework.optimizers.AdaGrad impleme
      * @param initialAccumulatorValue initial accumulator value, must be >= 0.
      */
     public AdaGrad(Ops tf, String name, float learningRate, float initialAccumulatorValue) {
-        super(assertGraph(tf), name, learningRate, initialAccumulatorValue);
+        this(tf, name, new LearningRate(tf, learningRate), initialAccumulatorValue, GradientClipping.NONE);
+    }
+
+    /**
+     * create an Adadelta Optimizer
+     *
+     * @param tf the tensorflow tf
+     * @param learningRate the learning rate, which may follow a schedule.
+     */
+    public AdaGrad(Ops tf, LearningRate learningRate) {
+        this(tf, learningRate, INITIAL_ACCUM__DEFAULT, GradientClipping.NONE);
+    }
+
+    /**
+     * create an Adadelta Optimizer
+     *
+     * @param graph the tensorflow graph
+     * @param learningRate the learning rate, which may follow a schedule.
+     * @param initialAccumulatorValue initial accumulator value
+     * @param gradientClipping the clipping of the gradients before they are
+     * applied.
+     */
+    public AdaGrad(Ops tf, LearningRate learningRate, float initialAccumulatorValue,
+            GradientClipping gradientClipping) {
+        super(assertGraph(tf), learningRate.getValue(), initialAccumulatorValue);
+        initConfig(learningRate, initialAccumulatorValue);
+        this.gradientClipping = gradientClipping;
+        config.putAll(gradientClipping.getConfig());
+    }
+
+    /**
+     * create an Adadelta Optimizer
+     *
+     * @param graph the tensorflow graph
+     * @param name the name of the Optimizer, defaults to "Adagrad"
+     * @param learningRate the learning rate, which may follow a schedule.
+     * @param initialAccumulatorValue initial accumulator value, must be >= 0.
+     * @param gradientClipping the clipping of the gradients before they are
+     * applied.
+     */
+    public AdaGrad(Ops tf, String name, LearningRate learningRate, float initialAccumulatorValue,
+            GradientClipping gradientClipping) {
+        super(assertGraph(tf), name, learningRate.getValue(), initialAccumulatorValue);
         assert initialAccumulatorValue >= 0.0F : "initial_accumulator_value must be non-negative: " + initialAccumulatorValue;
         initConfig(learningRate, initialAccumulatorValue);
+        this.gradientClipping = gradientClipping;
+        config.putAll(gradientClipping.getConfig());
     }
 
     /* TODO - do we need to do this to be compatible with keras python? */
@@ -132,12 +186,14 @@ public class AdaGrad extends org.tensorflow.framework.optimizers.AdaGrad impleme
      */
     public static AdaGrad create(Ops tf, Map<String, Object> config) {
         String name = (String) config.get(NAME_KEY);
-        float learningRate = (float) config.getOrDefault(LEARNING_RATE_KEY, LEARNING_RATE_DEFAULT);
+        LearningRate learningRate = LearningRate.fromConfigValue(tf,
+                config.getOrDefault(LEARNING_RATE_KEY, LEARNING_RATE_DEFAULT));
+        GradientClipping gradientClipping = GradientClipping.fromConfig(config);
         float initialAccumulatorValue = (float) config.getOrDefault(INITIAL_ACCUM_KEY, INITIAL_ACCUM__DEFAULT);
         if (name != null) {
-            return new AdaGrad(tf, name, learningRate, initialAccumulatorValue);
+            return new AdaGrad(tf, name, learningRate, initialAccumulatorValue, gradientClipping);
         } else {
-            return new AdaGrad(tf, learningRate, initialAccumulatorValue);
+            return new AdaGrad(tf, learningRate, initialAccumulatorValue, gradientClipping);
         }
 
     }
@@ -148,13 +204,78 @@ public class AdaGrad extends org.tensorflow.framework.optimizers.AdaGrad impleme
      * @param learningRate
      * @param initialAccumulatorValue
      */
-    private void initConfig(float learningRate, float initialAccumulatorValue) {
+    private void initConfig(LearningRate learningRate, float initialAccumulatorValue) {
         this.learningRate = learningRate;
         config.put(NAME_KEY, this.getOptimizerName());
-        config.put(LEARNING_RATE_KEY, learningRate);
+        config.put(LEARNING_RATE_KEY, learningRate.getConfigValue());
         config.put(INITIAL_ACCUM_KEY, initialAccumulatorValue);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The learning rate is read from its graph variable.
+     */
+    @Override
+    protected <T extends TType> Op applyDense(Output<T> gradient, Output<T> variable) {
+        Variable<T> slot = getSlot(variable, ACCUMULATOR).get();
+        return tf.train.applyAdagrad(variable, slot, learningRate.getOperand(gradient.dataType()), gradient);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Op applyGradients(List<GradAndVar<? extends TType>> gradsAndVars,
+            List<SparseGradAndVar<? extends TType>> sparseGradsAndVars, String name) {
+        return SparseOptimizerInterface.applyGradients(tf, gradientClipping, gradsAndVars, sparseGradsAndVars,
+                name, this::createSlots, this::prepare, this::applyDense, this::applySparse, this::finish);
+    }
+
+    /**
+     * Applies a sparse gradient to the rows of a variable, and of its slots.
+     *
+     * @param <T> the data type of the gradient and variable
+     * @param gradient the gradient rows, with unique indices
+     * @param indices the indices of the rows of the variable
+     * @param variable the variable
+     * @return the update operation
+     */
+    protected <T extends TType> Op applySparse(Output<T> gradient, Operand<? extends TNumber> indices,
+            Output<T> variable) {
+        Variable<T> slot = getSlot(variable, ACCUMULATOR).get();
+        return SparseApplyAdagrad.create(tf.scope(), variable, slot, learningRate.getOperand(gradient.dataType()),
+                tf.dtypes.cast(tf.constant(0.0f), gradient.dataType()), gradient, indices);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Clips the gradients first, if gradient clipping is set.
+     */
+    @Override
+    public Op applyGradients(List<GradAndVar<? extends TType>> gradsAndVars, String name) {
+        return super.applyGradients(gradientClipping.clip(tf, gradsAndVars), name);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Advances the learning rate schedule, if any.
+     */
+    @Override
+    protected Op finish(List<Op> updateOperations, String name) {
+        learningRate.addUpdates(updateOperations);
+        return super.finish(updateOperations, name);
+    }
+
+    /**
+     * @return the clipping of the gradients before they are applied
+     */
+    public GradientClipping getGradientClipping() {
+        return gradientClipping;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -168,7 +289,7 @@ public class AdaGrad extends org.tensorflow.framework.optimizers.AdaGrad impleme
      */
     @Override
     public float getLearningRate() {
-        return this.learningRate;
+        return this.learningRate.getValue();
     }
 
     /**
@@ -176,7 +297,23 @@ public class AdaGrad extends org.tensorflow.framework.optimizers.AdaGrad impleme
      */
     @Override
     public void setLearningRate(float learningRate) {
-        this.learningRate = learningRate;
+        this.learningRate.setValue(learningRate);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setLearningRate(Session session, float learningRate) {
+        this.learningRate.setValue(session, learningRate);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Operand<TFloat32> getLearningRateOperand() {
+        return this.learningRate.getOperand();
     }
 
     //TODO ??
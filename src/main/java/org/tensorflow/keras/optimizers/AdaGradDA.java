@@ -14,10 +14,23 @@ limitations under the License.
 =======================================================================*/
 package org.tensorflow.keras.optimizers;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import static org.tensorflow.keras.optimizers.OptimizerInterface.assertGraph;
+import org.tensorflow.Graph;
+import org.tensorflow.Operand;
+import org.tensorflow.Output;
+import org.tensorflow.Session;
+import org.tensorflow.ndarray.Shape;
+import org.tensorflow.op.Op;
 import org.tensorflow.op.Ops;
+import org.tensorflow.op.core.Variable;
+import org.tensorflow.op.train.ApplyAdagradDa;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.TInt64;
+import org.tensorflow.types.family.TType;
 
 // TODO does this make sense to include in Keras, it's not in tensorflow.keras.
 /**
@@ -25,7 +38,10 @@ import org.tensorflow.op.Ops;
  *
  * @author Jim Clarke
  */
-public class AdaGradDA extends org.tensorflow.framework.optimizers.AdaGradDA implements OptimizerInterface {
+public class AdaGradDA extends org.tensorflow.framework.optimizers.Optimizer implements OptimizerInterface {
+
+    public static final String ACCUMULATOR = "gradient_accumulator";
+    public static final String SQUARED_ACCUMULATOR = "gradient_squared_accumulator";
 
     public static final String LEARNING_RATE_KEY = "learning_rate";
     public static final String INITIAL_ACCUM_KEY = "accumulator";
@@ -38,7 +54,13 @@ public class AdaGradDA extends org.tensorflow.framework.optimizers.AdaGradDA imp
     public static final float L2STRENGTH_DEFAULT = 0.0F;
 
     private Map<String, Object> config = new HashMap<>();
-    private float learningRate;
+    private LearningRate learningRate;
+    private final GradientClipping gradientClipping;
+    private final float initialAccumulatorValue;
+    private final float l1Strength;
+    private final float l2Strength;
+
+    private Variable<TInt64> globalStep;
 
     /**
      * create an AdagradDA Optimizer with default values name="adagrad-da".
@@ -86,11 +108,61 @@ public class AdaGradDA extends org.tensorflow.framework.optimizers.AdaGradDA imp
      */
     public AdaGradDA(Ops tf, float learningRate, float initialAccumulatorValue, float l1Strength,
             float l2Strength) {
-        super(assertGraph(tf), learningRate, initialAccumulatorValue, l1Strength, l2Strength);
+        this(tf, new LearningRate(tf, learningRate), initialAccumulatorValue, l1Strength, l2Strength,
+                GradientClipping.NONE);
+    }
+
+    /**
+     * create an AdagradDA Optimizer
+     *
+     * @param tf the tensorflow tf
+     * @param name the name of the Optimizer, defaults to "adagrad-da"
+     * @param learningRate the learning rate, default is 0.001
+     * @param initialAccumulatorValue Starting value for the accumulators, must
+     * be positive.
+     * @param l1Strength L1 Regularization Strength
+     * @param l2Strength L2 Regularization Strength
+     */
+    public AdaGradDA(Ops tf, String name, float learningRate, float initialAccumulatorValue, float l1Strength,
+            float l2Strength) {
+        this(tf, name, new LearningRate(tf, learningRate), initialAccumulatorValue, l1Strength, l2Strength,
+                GradientClipping.NONE);
+    }
+
+    /**
+     * create an AdagradDA Optimizer
+     *
+     * @param tf the tensorflow tf
+     * @param learningRate the learning rate, which may follow a schedule.
+     */
+    public AdaGradDA(Ops tf, LearningRate learningRate) {
+        this(tf, learningRate, INITIAL_ACCUM__DEFAULT, L1STRENGTH_DEFAULT, L2STRENGTH_DEFAULT, GradientClipping.NONE);
+    }
+
+    /**
+     * create an AdagradDA Optimizer
+     *
+     * @param tf the tensorflow tf
+     * @param learningRate the learning rate, which may follow a schedule.
+     * @param initialAccumulatorValue Starting value for the accumulators, must
+     * be >= 0.0.
+     * @param l1Strength L1 Regularization Strength
+     * @param l2Strength L2 Regularization Strength
+     * @param gradientClipping the clipping of the gradients before they are
+     * applied.
+     */
+    public AdaGradDA(Ops tf, LearningRate learningRate, float initialAccumulatorValue, float l1Strength,
+            float l2Strength, GradientClipping gradientClipping) {
+        super(assertGraph(tf));
+        this.initialAccumulatorValue = initialAccumulatorValue;
+        this.l1Strength = l1Strength;
+        this.l2Strength = l2Strength;
         assert initialAccumulatorValue >= 0.0F : "initial_accumulator_value must be non-negative: " + initialAccumulatorValue;
         assert l1Strength >= 0.0F : "l1Strength must be non-negative: " + l1Strength;
         assert l2Strength >= 0.0F : "l2Strength must be non-negative: " + l2Strength;
         initConfig(learningRate, initialAccumulatorValue, l1Strength, l2Strength);
+        this.gradientClipping = gradientClipping;
+        config.putAll(gradientClipping.getConfig());
     }
 
     /**
@@ -98,19 +170,26 @@ public class AdaGradDA extends org.tensorflow.framework.optimizers.AdaGradDA imp
      *
      * @param tf the tensorflow tf
      * @param name the name of the Optimizer, defaults to "adagrad-da"
-     * @param learningRate the learning rate, default is 0.001
+     * @param learningRate the learning rate, which may follow a schedule.
      * @param initialAccumulatorValue Starting value for the accumulators, must
      * be positive.
      * @param l1Strength L1 Regularization Strength
      * @param l2Strength L2 Regularization Strength
+     * @param gradientClipping the clipping of the gradients before they are
+     * applied.
      */
-    public AdaGradDA(Ops tf, String name, float learningRate, float initialAccumulatorValue, float l1Strength,
-            float l2Strength) {
-        super(assertGraph(tf), name, learningRate, initialAccumulatorValue, l1Strength, l2Strength);
+    public AdaGradDA(Ops tf, String name, LearningRate learningRate, float initialAccumulatorValue, float l1Strength,
+            float l2Strength, GradientClipping gradientClipping) {
+        super(assertGraph(tf), name);
+        this.initialAccumulatorValue = initialAccumulatorValue;
+        this.l1Strength = l1Strength;
+        this.l2Strength = l2Strength;
         assert initialAccumulatorValue >= 0.0F : "initial_accumulator_value must be non-negative: " + initialAccumulatorValue;
         assert l1Strength >= 0.0F : "l1Strength must be non-negative: " + l1Strength;
         assert l2Strength >= 0.0F : "l2Strength must be non-negative: " + l2Strength;
         initConfig(learningRate, initialAccumulatorValue, l1Strength, l2Strength);
+        this.gradientClipping = gradientClipping;
+        config.putAll(gradientClipping.getConfig());
     }
 
     /* TODO - do we need to do this to be compatible with keras python? */
@@ -138,14 +217,16 @@ public class AdaGradDA extends org.tensorflow.framework.optimizers.AdaGradDA imp
      */
     public static AdaGradDA create(Ops tf, Map<String, Object> config) {
         String name = (String) config.get(NAME_KEY);
-        float learningRate = (float) config.getOrDefault(LEARNING_RATE_KEY, LEARNING_RATE_DEFAULT);
+        LearningRate learningRate = LearningRate.fromConfigValue(tf,
+                config.getOrDefault(LEARNING_RATE_KEY, LEARNING_RATE_DEFAULT));
+        GradientClipping gradientClipping = GradientClipping.fromConfig(config);
         float initialAccumulatorValue = (float) config.getOrDefault(INITIAL_ACCUM_KEY, INITIAL_ACCUM__DEFAULT);
         float l1Strength = (float) config.getOrDefault(L1STRENGTH_KEY, L2STRENGTH_DEFAULT);
         float l2Strength = (float) config.getOrDefault(L2STRENGTH_KEY, L2STRENGTH_DEFAULT);
         if (name != null) {
-            return new AdaGradDA(tf, name, learningRate, initialAccumulatorValue, l1Strength, l2Strength);
+            return new AdaGradDA(tf, name, learningRate, initialAccumulatorValue, l1Strength, l2Strength, gradientClipping);
         } else {
-            return new AdaGradDA(tf, learningRate, initialAccumulatorValue, l1Strength, l2Strength);
+            return new AdaGradDA(tf, learningRate, initialAccumulatorValue, l1Strength, l2Strength, gradientClipping);
         }
 
     }
@@ -160,15 +241,95 @@ public class AdaGradDA extends org.tensorflow.framework.optimizers.AdaGradDA imp
      * @param l1Strength L1 Regularization Strength
      * @param l2Strength L2 Regularization Strength
      */
-    private void initConfig(float learningRate, float initialAccumulatorValue, float l1Strength, float l2Strength) {
+    private void initConfig(LearningRate learningRate, float initialAccumulatorValue, float l1Strength, float l2Strength) {
         this.learningRate = learningRate;
         config.put(NAME_KEY, this.getOptimizerName());
-        config.put(LEARNING_RATE_KEY, learningRate);
+        config.put(LEARNING_RATE_KEY, learningRate.getConfigValue());
         config.put(INITIAL_ACCUM_KEY, initialAccumulatorValue);
         config.put(L1STRENGTH_KEY, l1Strength);
         config.put(L2STRENGTH_KEY, l2Strength);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void createSlots(List<Output<? extends TType>> variables) {
+        for (Output<? extends TType> v : variables) {
+            createAdaGradDASlot(v);
+        }
+        globalStep = tf.withName("adagrad-da-global-step").variable(Shape.scalar(), TInt64.DTYPE);
+        ((Graph) tf.scope().env()).addInitializer(tf.assign(globalStep, tf.constant(0L)));
+    }
+
+    private <T extends TType> void createAdaGradDASlot(Output<T> v) {
+        Operand<T> initializer = tf.fill(tf.shape(v), tf.dtypes.cast(tf.constant(0.0f), v.dataType()));
+        createSlot(v.asOutput(), ACCUMULATOR, initializer);
+        Operand<T> sqInitializer = tf.fill(tf.shape(v),
+                tf.dtypes.cast(tf.constant(initialAccumulatorValue), v.dataType()));
+        createSlot(v.asOutput(), SQUARED_ACCUMULATOR, sqInitializer);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected <T extends TType> Op applyDense(Output<T> gradient, Output<T> variable) {
+        Variable<T> gradSlot = getSlot(variable, ACCUMULATOR).get();
+        Variable<T> gradSquaredSlot = getSlot(variable, SQUARED_ACCUMULATOR).get();
+        return ApplyAdagradDa.create(tf.scope(),
+                (Operand) variable, (Operand) gradSlot, (Operand) gradSquaredSlot, (Operand) gradient,
+                (Operand) learningRate.getOperand(gradient.dataType()),
+                (Operand) tf.dtypes.cast(tf.constant(l1Strength), gradient.dataType()),
+                (Operand) tf.dtypes.cast(tf.constant(l2Strength), gradient.dataType()),
+                globalStep);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Clips the gradients first, if gradient clipping is set.
+     */
+    @Override
+    public Op applyGradients(List<GradAndVar<? extends TType>> gradsAndVars, String name) {
+        return super.applyGradients(gradientClipping.clip(tf, gradsAndVars), name);
+    }
+
+    /**
+     * Gathers up the update operations into a single op that can be used as a
+     * run target.
+     * <p>
+     * Adds the global step update to the end of the updates list. It runs
+     * after the variable updates, that read the global step of the current
+     * step.
+     *
+     * @param updateOperations The update operations.
+     * @param name The name of the run target.
+     * @return A NoOp with a control dependency on each update operation.
+     */
+    @Override
+    protected Op finish(List<Op> updateOperations, String name) {
+        updateOperations.add(tf.withControlDependencies(new ArrayList<>(updateOperations))
+                .assignAdd(globalStep, tf.constant(1L)));
+        learningRate.addUpdates(updateOperations);
+        return super.finish(updateOperations, name);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getOptimizerName() {
+        return "adagrad-da";
+    }
+
+    /**
+     * @return the clipping of the gradients before they are applied
+     */
+    public GradientClipping getGradientClipping() {
+        return gradientClipping;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -182,7 +343,7 @@ public class AdaGradDA extends org.tensorflow.framework.optimizers.AdaGradDA imp
      */
     @Override
     public float getLearningRate() {
-        return this.learningRate;
+        return this.learningRate.getValue();
     }
 
     /**
@@ -190,7 +351,23 @@ public class AdaGradDA extends org.tensorflow.framework.optimizers.AdaGradDA imp
      */
     @Override
     public void setLearningRate(float learningRate) {
-        this.learningRate = learningRate;
+        this.learningRate.setValue(learningRate);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setLearningRate(Session session, float learningRate) {
+        this.learningRate.setValue(session, learningRate);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Operand<TFloat32> getLearningRateOperand() {
+        return this.learningRate.getOperand();
     }
 
 }
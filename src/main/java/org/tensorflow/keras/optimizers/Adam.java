@@ -14,32 +14,66 @@ limitations under the License.
 =======================================================================*/
 package org.tensorflow.keras.optimizers;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import static org.tensorflow.keras.optimizers.OptimizerInterface.NAME_KEY;
 import static org.tensorflow.keras.optimizers.OptimizerInterface.assertGraph;
+import java.util.Optional;
+import org.tensorflow.DataType;
+import org.tensorflow.Graph;
+import org.tensorflow.Operand;
+import org.tensorflow.Output;
+import org.tensorflow.Session;
+import org.tensorflow.ndarray.Shape;
+import org.tensorflow.op.Op;
 import org.tensorflow.op.Ops;
+import org.tensorflow.op.core.Constant;
+import org.tensorflow.op.core.Variable;
+import org.tensorflow.op.train.ApplyAdam;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.family.TNumber;
+import org.tensorflow.types.family.TType;
 
 /**
  * Adam Optimizer that implements the Adam algorithm.
  *
  * @author Jim Clarke
  */
-public class Adam extends org.tensorflow.framework.optimizers.Adam implements OptimizerInterface {
+public class Adam extends org.tensorflow.framework.optimizers.Optimizer implements SparseOptimizerInterface {
+
+    public static final String FIRST_MOMENT = "m";
+    public static final String SECOND_MOMENT = "v";
 
     public static final String LEARNING_RATE_KEY = "learning_rate";
     public static final String EPSILON_KEY = "epsilon";
     public static final String BETA_ONE_KEY = "beta_1";
     public static final String BETA_TWO_KEY = "beta_2";
+    public static final String LAZY_KEY = "lazy";
 
     public static final float LEARNING_RATE_DEFAULT = 0.001F;
     public static final float EPSILON_DEFAULT = 1e-07F;
     public static final float BETA_ONE_DEFAULT = 0.9F;
     public static final float BETA_TWO_DEFAULT = 0.999F;
+    public static final boolean LAZY_DEFAULT = false;
 
-    private float learningRate;
+    private LearningRate learningRate;
+    private final GradientClipping gradientClipping;
+    private final float betaOne;
+    private final float betaTwo;
+    private final float epsilon;
+    private final boolean lazy;
     private Map<String, Object> config = new HashMap<>();
 
+    private Constant<TFloat32> betaOneConst;
+    private Constant<TFloat32> betaTwoConst;
+    private Constant<TFloat32> epsilonConst;
+    private Variable<TFloat32> betaOnePower;
+    private Variable<TFloat32> betaTwoPower;
+
     /**
      * create an Adam Optimizer
      *
@@ -95,8 +129,28 @@ public class Adam extends org.tensorflow.framework.optimizers.Adam implements Op
      * 1e-7.
      */
     public Adam(Ops tf, float learningRate, float betaOne, float betaTwo, float epsilon) {
-        super(assertGraph(tf), learningRate, betaOne, betaTwo, epsilon);
-        initConfig(learningRate, betaOne, betaTwo, epsilon);
+        this(tf, new LearningRate(tf, learningRate), betaOne, betaTwo, epsilon, LAZY_DEFAULT, GradientClipping.NONE);
+    }
+
+    /**
+     * create an Adam Optimizer
+     *
+     * @param tf the tensorflow tf
+     * @param learningRate The learning rate. Defaults to 0.001.
+     * @param betaOne The exponential decay rate for the 1st moment estimates.
+     * Defaults to 0.9.
+     * @param betaTwo The exponential decay rate for the 2nd moment estimates.
+     * Defaults to 0.999.
+     * @param epsilon A small constant for numerical stability. This epsilon is
+     * "epsilon hat" in the Kingma and Ba paper (in the formula just before
+     * Section 2.1), not the epsilon in Algorithm 1 of the paper. Defaults to
+     * 1e-7.
+     * @param lazy if true, a sparse gradient only updates the moments of the
+     * rows that have a gradient, instead of decaying the moments of every row.
+     * Defaults to false.
+     */
+    public Adam(Ops tf, float learningRate, float betaOne, float betaTwo, float epsilon, boolean lazy) {
+        this(tf, new LearningRate(tf, learningRate), betaOne, betaTwo, epsilon, lazy, GradientClipping.NONE);
     }
 
     /**
@@ -115,8 +169,105 @@ public class Adam extends org.tensorflow.framework.optimizers.Adam implements Op
      * 1e-7.
      */
     public Adam(Ops tf, String name, float learningRate, float betaOne, float betaTwo, float epsilon) {
-        super(assertGraph(tf), name, learningRate, betaOne, betaTwo, epsilon);
-        initConfig(learningRate, betaOne, betaTwo, epsilon);
+        this(tf, name, new LearningRate(tf, learningRate), betaOne, betaTwo, epsilon, LAZY_DEFAULT,
+                GradientClipping.NONE);
+    }
+
+    /**
+     * create an Adam Optimizer
+     *
+     * @param tf the tensorflow tf
+     * @param name the name of the Optimizer, defaults to "Adam"
+     * @param learningRate The learning rate. Defaults to 0.001.
+     * @param betaOne The exponential decay rate for the 1st moment estimates.
+     * Defaults to 0.9.
+     * @param betaTwo The exponential decay rate for the 2nd moment estimates.
+     * Defaults to 0.999.
+     * @param epsilon A small constant for numerical stability. This epsilon is
+     * "epsilon hat" in the Kingma and Ba paper (in the formula just before
+     * Section 2.1), not the epsilon in Algorithm 1 of the paper. Defaults to
+     * 1e-7.
+     * @param lazy if true, a sparse gradient only updates the moments of the
+     * rows that have a gradient, instead of decaying the moments of every row.
+     * Defaults to false.
+     */
+    public Adam(Ops tf, String name, float learningRate, float betaOne, float betaTwo, float epsilon,
+            boolean lazy) {
+        this(tf, name, new LearningRate(tf, learningRate), betaOne, betaTwo, epsilon, lazy, GradientClipping.NONE);
+    }
+
+    /**
+     * create an Adam Optimizer
+     *
+     * @param tf the tensorflow tf
+     * @param learningRate the learning rate, which may follow a schedule.
+     */
+    public Adam(Ops tf, LearningRate learningRate) {
+        this(tf, learningRate, BETA_ONE_DEFAULT, BETA_TWO_DEFAULT, EPSILON_DEFAULT, LAZY_DEFAULT,
+                GradientClipping.NONE);
+    }
+
+    /**
+     * create an Adam Optimizer
+     *
+     * @param tf the tensorflow tf
+     * @param learningRate the learning rate, which may follow a schedule.
+     * @param betaOne The exponential decay rate for the 1st moment estimates.
+     * Defaults to 0.9.
+     * @param betaTwo The exponential decay rate for the 2nd moment estimates.
+     * Defaults to 0.999.
+     * @param epsilon A small constant for numerical stability. This epsilon is
+     * "epsilon hat" in the Kingma and Ba paper (in the formula just before
+     * Section 2.1), not the epsilon in Algorithm 1 of the paper. Defaults to
+     * 1e-7.
+     * @param lazy if true, a sparse gradient only updates the moments of the
+     * rows that have a gradient, instead of decaying the moments of every row.
+     * Defaults to false.
+     * @param gradientClipping the clipping of the gradients before they are
+     * applied.
+     */
+    public Adam(Ops tf, LearningRate learningRate, float betaOne, float betaTwo, float epsilon, boolean lazy,
+            GradientClipping gradientClipping) {
+        super(assertGraph(tf));
+        this.betaOne = betaOne;
+        this.betaTwo = betaTwo;
+        this.epsilon = epsilon;
+        this.lazy = lazy;
+        initConfig(learningRate, betaOne, betaTwo, epsilon, lazy);
+        this.gradientClipping = gradientClipping;
+        config.putAll(gradientClipping.getConfig());
+    }
+
+    /**
+     * create an Adam Optimizer
+     *
+     * @param tf the tensorflow tf
+     * @param name the name of the Optimizer, defaults to "Adam"
+     * @param learningRate the learning rate, which may follow a schedule.
+     * @param betaOne The exponential decay rate for the 1st moment estimates.
+     * Defaults to 0.9.
+     * @param betaTwo The exponential decay rate for the 2nd moment estimates.
+     * Defaults to 0.999.
+     * @param epsilon A small constant for numerical stability. This epsilon is
+     * "epsilon hat" in the Kingma and Ba paper (in the formula just before
+     * Section 2.1), not the epsilon in Algorithm 1 of the paper. Defaults to
+     * 1e-7.
+     * @param lazy if true, a sparse gradient only updates the moments of the
+     * rows that have a gradient, instead of decaying the moments of every row.
+     * Defaults to false.
+     * @param gradientClipping the clipping of the gradients before they are
+     * applied.
+     */
+    public Adam(Ops tf, String name, LearningRate learningRate, float betaOne, float betaTwo, float epsilon,
+            boolean lazy, GradientClipping gradientClipping) {
+        super(assertGraph(tf), name);
+        this.betaOne = betaOne;
+        this.betaTwo = betaTwo;
+        this.epsilon = epsilon;
+        this.lazy = lazy;
+        initConfig(learningRate, betaOne, betaTwo, epsilon, lazy);
+        this.gradientClipping = gradientClipping;
+        config.putAll(gradientClipping.getConfig());
     }
 
     /* TODO - do we need to do this to be compatible with keras python? */
@@ -125,7 +276,7 @@ public class Adam extends org.tensorflow.framework.optimizers.Adam implements Op
      *
      * @param tf the tensorflow tf
      * @param config a config object to initialize, the config object has keys
-     * for "name", "learning_rate", "epsilon", "beta_1", "beta_2". If a key is
+     * for "name", "learning_rate", "epsilon", "beta_1", "beta_2", "lazy". If a key is
      * missing the default value is used.
      */
     public static Adam fromConfig(Ops tf, Map<String, Object> config) {
@@ -137,19 +288,22 @@ public class Adam extends org.tensorflow.framework.optimizers.Adam implements Op
      *
      * @param tf the tensorflow tf
      * @param config a config object to initialize, the config object has keys
-     * for "name", "learning_rate", "epsilon", "beta_1", "beta_2". If a key is
+     * for "name", "learning_rate", "epsilon", "beta_1", "beta_2", "lazy". If a key is
      * missing the default value is used.
      */
     public static Adam create(Ops tf, Map<String, Object> config) {
         String name = (String) config.get(NAME_KEY);
-        float learningRate = (float) config.getOrDefault(LEARNING_RATE_KEY, LEARNING_RATE_DEFAULT);
+        LearningRate learningRate = LearningRate.fromConfigValue(tf,
+                config.getOrDefault(LEARNING_RATE_KEY, LEARNING_RATE_DEFAULT));
+        GradientClipping gradientClipping = GradientClipping.fromConfig(config);
         float epsilon = (float) config.getOrDefault(EPSILON_KEY, EPSILON_DEFAULT);
         float betaOne = (float) config.getOrDefault(BETA_ONE_KEY, BETA_ONE_DEFAULT);
         float betaTwo = (float) config.getOrDefault(BETA_TWO_KEY, BETA_TWO_DEFAULT);
+        boolean lazy = (boolean) config.getOrDefault(LAZY_KEY, LAZY_DEFAULT);
         if (name == null) {
-            return new Adam(tf, learningRate, betaOne, betaTwo, epsilon);
+            return new Adam(tf, learningRate, betaOne, betaTwo, epsilon, lazy, gradientClipping);
         } else {
-            return new Adam(tf, name, learningRate, betaOne, betaTwo, epsilon);
+            return new Adam(tf, name, learningRate, betaOne, betaTwo, epsilon, lazy, gradientClipping);
         }
     }
 
@@ -166,17 +320,197 @@ public class Adam extends org.tensorflow.framework.optimizers.Adam implements Op
      * "epsilon hat" in the Kingma and Ba paper (in the formula just before
      * Section 2.1), not the epsilon in Algorithm 1 of the paper. Defaults to
      * 1e-7.
+     * @param lazy if true, a sparse gradient only updates the moments of the
+     * rows that have a gradient, instead of decaying the moments of every row.
+     * Defaults to false.
      */
-    protected void initConfig(float learningRate, float betaOne, float betaTwo, float epsilon) {
+    protected void initConfig(LearningRate learningRate, float betaOne, float betaTwo, float epsilon,
+            boolean lazy) {
         this.learningRate = learningRate;
         config.put(NAME_KEY, this.getOptimizerName());
-        config.put(LEARNING_RATE_KEY, learningRate);
+        config.put(LEARNING_RATE_KEY, learningRate.getConfigValue());
         config.put(EPSILON_KEY, epsilon);
         config.put(BETA_ONE_KEY, betaOne);
         config.put(BETA_TWO_KEY, betaTwo);
+        config.put(LAZY_KEY, lazy);
 
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Optional<Op> prepare(String scopeName) {
+        betaOneConst = tf.constant(betaOne);
+        betaTwoConst = tf.constant(betaTwo);
+        epsilonConst = tf.constant(epsilon);
+        return Optional.empty();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void createSlots(List<Output<? extends TType>> variables) {
+        for (Output<? extends TType> v : variables) {
+            createAdamSlot(v.asOutput());
+        }
+        betaOnePower = tf.withName("beta1_power").variable(Shape.scalar(), TFloat32.DTYPE);
+        ((Graph) tf.scope().env()).addInitializer(tf.assign(betaOnePower, tf.constant(betaOne)));
+        betaTwoPower = tf.withName("beta2_power").variable(Shape.scalar(), TFloat32.DTYPE);
+        ((Graph) tf.scope().env()).addInitializer(tf.assign(betaTwoPower, tf.constant(betaTwo)));
+    }
+
+    private <T extends TType> void createAdamSlot(Output<T> v) {
+        Operand<T> firstMomentInitializer = tf
+                .fill(tf.shape(v), tf.dtypes.cast(tf.constant(0.0f), v.dataType()));
+        createSlot(v.asOutput(), FIRST_MOMENT, firstMomentInitializer);
+        Operand<T> secondMomentInitializer = tf
+                .fill(tf.shape(v), tf.dtypes.cast(tf.constant(0.0f), v.dataType()));
+        createSlot(v.asOutput(), SECOND_MOMENT, secondMomentInitializer);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected <T extends TType> Op applyDense(Output<T> gradient, Output<T> variable) {
+        Variable<T> firstMomentSlot = getSlot(variable, FIRST_MOMENT).get();
+        Variable<T> secondMomentSlot = getSlot(variable, SECOND_MOMENT).get();
+        return ApplyAdam.create(
+                tf.scope(),
+                (Operand) variable, (Operand) firstMomentSlot, (Operand) secondMomentSlot,
+                (Operand) tf.dtypes.cast(betaOnePower, gradient.dataType()),
+                (Operand) tf.dtypes.cast(betaTwoPower, gradient.dataType()),
+                (Operand) learningRate.getOperand(gradient.dataType()),
+                (Operand) tf.dtypes.cast(betaOneConst, gradient.dataType()),
+                (Operand) tf.dtypes.cast(betaTwoConst, gradient.dataType()),
+                (Operand) tf.dtypes.cast(epsilonConst, gradient.dataType()),
+                (Operand) gradient);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Op applyGradients(List<GradAndVar<? extends TType>> gradsAndVars,
+            List<SparseGradAndVar<? extends TType>> sparseGradsAndVars, String name) {
+        return SparseOptimizerInterface.applyGradients(tf, gradientClipping, gradsAndVars, sparseGradsAndVars,
+                name, this::createSlots, this::prepare, this::applyDense, this::applySparse, this::finish);
+    }
+
+    /**
+     * Applies a sparse gradient to the rows of a variable.
+     * <p>
+     * There is no sparse Adam kernel, so the update is built from scatter
+     * operations. Unless the optimizer is lazy, the moments of every row are
+     * decayed, as with a dense gradient that is zero outside the indices, but
+     * only the moments of the indexed rows receive the gradient. A lazy
+     * optimizer only reads and writes the indexed rows of the moments and the
+     * variable.
+     *
+     * @param <T> the data type of the gradient and variable
+     * @param gradient the gradient rows, with unique indices
+     * @param indices the indices of the rows of the variable
+     * @param variable the variable
+     * @return the update operation
+     */
+    protected <T extends TType> Op applySparse(Output<T> gradient, Operand<? extends TNumber> indices,
+            Output<T> variable) {
+        Variable<T> firstMomentSlot = getSlot(variable, FIRST_MOMENT).get();
+        Variable<T> secondMomentSlot = getSlot(variable, SECOND_MOMENT).get();
+        DataType<T> dType = gradient.dataType();
+        Operand<T> one = tf.dtypes.cast(tf.constant(1.0f), dType);
+        Operand<T> betaOneOperand = tf.dtypes.cast(betaOneConst, dType);
+        Operand<T> betaTwoOperand = tf.dtypes.cast(betaTwoConst, dType);
+        Operand<T> epsilonOperand = tf.dtypes.cast(epsilonConst, dType);
+        // lr * sqrt(1 - beta2^t) / (1 - beta1^t)
+        Operand<T> lr = tf.math.div(
+                tf.math.mul(learningRate.getOperand(dType),
+                        tf.math.sqrt(tf.math.sub(one, tf.dtypes.cast(betaTwoPower, dType)))),
+                tf.math.sub(one, tf.dtypes.cast(betaOnePower, dType)));
+        Operand<T> firstMomentGradient = tf.math.mul(gradient, tf.math.sub(one, betaOneOperand));
+        Operand<T> secondMomentGradient = tf.math.mul(tf.math.square(gradient), tf.math.sub(one, betaTwoOperand));
+
+        if (lazy) {
+            Operand<T> firstMomentRows = tf.math.add(
+                    tf.math.mul(tf.gather(firstMomentSlot, indices, tf.constant(0)), betaOneOperand),
+                    firstMomentGradient);
+            Operand<T> secondMomentRows = tf.math.add(
+                    tf.math.mul(tf.gather(secondMomentSlot, indices, tf.constant(0)), betaTwoOperand),
+                    secondMomentGradient);
+            Op firstMomentUpdate = tf.scatterUpdate(firstMomentSlot, indices, firstMomentRows);
+            Op secondMomentUpdate = tf.scatterUpdate(secondMomentSlot, indices, secondMomentRows);
+            Operand<T> update = tf.math.div(tf.math.mul(lr, firstMomentRows),
+                    tf.math.add(tf.math.sqrt(secondMomentRows), epsilonOperand));
+            return tf.withControlDependencies(Arrays.asList(firstMomentUpdate, secondMomentUpdate))
+                    .scatterSub(variable, indices, update);
+        }
+
+        Op firstMomentDecay = tf.assign(firstMomentSlot, tf.math.mul(firstMomentSlot, betaOneOperand));
+        Operand<T> firstMoment = tf.withControlDependencies(Collections.singletonList(firstMomentDecay))
+                .scatterAdd(firstMomentSlot, indices, firstMomentGradient);
+        Op secondMomentDecay = tf.assign(secondMomentSlot, tf.math.mul(secondMomentSlot, betaTwoOperand));
+        Operand<T> secondMoment = tf.withControlDependencies(Collections.singletonList(secondMomentDecay))
+                .scatterAdd(secondMomentSlot, indices, secondMomentGradient);
+        return tf.assignSub(variable, tf.math.div(tf.math.mul(lr, firstMoment),
+                tf.math.add(tf.math.sqrt(secondMoment), epsilonOperand)));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Clips the gradients first, if gradient clipping is set.
+     */
+    @Override
+    public Op applyGradients(List<GradAndVar<? extends TType>> gradsAndVars, String name) {
+        return super.applyGradients(gradientClipping.clip(tf, gradsAndVars), name);
+    }
+
+    /**
+     * Gathers up the update operations into a single op that can be used as a
+     * run target.
+     * <p>
+     * Adds the betaOne and betaTwo power updates to the end of the updates
+     * list. They run after the variable updates, that read the beta powers
+     * of the current step.
+     *
+     * @param updateOperations The update operations.
+     * @param name The name of the run target.
+     * @return A NoOp with a control dependency on each update operation.
+     */
+    @Override
+    protected Op finish(List<Op> updateOperations, String name) {
+        Ops ctf = tf.withControlDependencies(new ArrayList<>(updateOperations));
+        updateOperations.add(ctf.assign(betaOnePower, tf.math.mul(betaOnePower, betaOneConst)));
+        updateOperations.add(ctf.assign(betaTwoPower, tf.math.mul(betaTwoPower, betaTwoConst)));
+        learningRate.addUpdates(updateOperations);
+        return super.finish(updateOperations, name);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getOptimizerName() {
+        return "Adam";
+    }
+
+    /**
+     * @return true if a sparse gradient only updates the moments of the rows
+     * that have a gradient
+     */
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * @return the clipping of the gradients before they are applied
+     */
+    public GradientClipping getGradientClipping() {
+        return gradientClipping;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -190,7 +524,7 @@ public class Adam extends org.tensorflow.framework.optimizers.Adam implements Op
      */
     @Override
     public float getLearningRate() {
-        return this.learningRate;
+        return this.learningRate.getValue();
     }
 
     /**
@@ -198,6 +532,22 @@ public class Adam extends org.tensorflow.framework.optimizers.Adam implements Op
      */
     @Override
     public void setLearningRate(float learningRate) {
-        this.learningRate = learningRate;
+        this.learningRate.setValue(learningRate);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setLearningRate(Session session, float learningRate) {
+        this.learningRate.setValue(session, learningRate);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Operand<TFloat32> getLearningRateOperand() {
+        return this.learningRate.getOperand();
     }
 }
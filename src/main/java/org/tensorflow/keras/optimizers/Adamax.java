@@ -14,6 +14,7 @@ limitations under the License.
 =======================================================================*/
 package org.tensorflow.keras.optimizers;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -23,6 +24,7 @@ import org.tensorflow.Operand;
 import org.tensorflow.Output;
 import static org.tensorflow.keras.optimizers.OptimizerInterface.NAME_KEY;
 import static org.tensorflow.keras.optimizers.OptimizerInterface.assertGraph;
+import org.tensorflow.Session;
 import org.tensorflow.ndarray.Shape;
 import org.tensorflow.op.Op;
 import org.tensorflow.op.Ops;
@@ -58,12 +60,13 @@ public class Adamax extends org.tensorflow.framework.optimizers.Optimizer implem
     private Scope scope;
     private Map<String, Object> config = new HashMap<>();
 
-    private float learningRate;
+    private LearningRate learningRate;
+    private final GradientClipping gradientClipping;
     private final float betaOne;
     private final float betaTwo;
     private final float epsilon;
 
-    private Constant<TFloat32> learningRateConst;
+    private Operand<TFloat32> learningRateOperand;
     private Constant<TFloat32> epsilonConst;
     private Constant<TFloat32> betaOneConst;
     private Constant<TFloat32> betaTwoConst;
@@ -123,6 +126,49 @@ public class Adamax extends org.tensorflow.framework.optimizers.Optimizer implem
      * @param epsilon A small constant for numerical stability.
      */
     public Adamax(Ops tf, float learningRate, float betaOne, float betaTwo, float epsilon) {
+        this(tf, new LearningRate(tf, learningRate), betaOne, betaTwo, epsilon, GradientClipping.NONE);
+    }
+
+    /**
+     * create an Optimizer that implements the Adamax algorithm.
+     *
+     * @param tf the TensoFlow tf
+     * @param name name for the operations created when applying gradients.
+     * Defaults to "Adamax".
+     * @param learningRate The learning rate.
+     * @param betaOne The exponential decay rate for the 1st moment estimates.
+     * @param betaTwo The exponential decay rate for the exponentially weighted
+     * infinity norm.
+     * @param epsilon A small constant for numerical stability.
+     */
+    public Adamax(Ops tf, String name, float learningRate, float betaOne, float betaTwo, float epsilon) {
+        this(tf, name, new LearningRate(tf, learningRate), betaOne, betaTwo, epsilon, GradientClipping.NONE);
+    }
+
+    /**
+     * create an Optimizer that implements the Adamax algorithm.
+     *
+     * @param tf the TensoFlow tf
+     * @param learningRate the learning rate, which may follow a schedule.
+     */
+    public Adamax(Ops tf, LearningRate learningRate) {
+        this(tf, learningRate, BETA_ONE_DEFAULT, BETA_TWO_DEFAULT, EPSILON_DEFAULT, GradientClipping.NONE);
+    }
+
+    /**
+     * create an Optimizer that implements the Adamax algorithm.
+     *
+     * @param tf the TensoFlow tf
+     * @param learningRate the learning rate, which may follow a schedule.
+     * @param betaOne The exponential decay rate for the 1st moment estimates.
+     * @param betaTwo The exponential decay rate for the exponentially weighted
+     * infinity norm.
+     * @param epsilon A small constant for numerical stability.
+     * @param gradientClipping the clipping of the gradients before they are
+     * applied.
+     */
+    public Adamax(Ops tf, LearningRate learningRate, float betaOne, float betaTwo, float epsilon,
+            GradientClipping gradientClipping) {
         super(assertGraph(tf));
         this.learningRate = learningRate;
         this.betaOne = betaOne;
@@ -130,6 +176,8 @@ public class Adamax extends org.tensorflow.framework.optimizers.Optimizer implem
         this.epsilon = epsilon;
         this.scope = tf.scope();
         initConfig(learningRate, betaOne, betaTwo, epsilon);
+        this.gradientClipping = gradientClipping;
+        config.putAll(gradientClipping.getConfig());
     }
 
     /**
@@ -138,13 +186,16 @@ public class Adamax extends org.tensorflow.framework.optimizers.Optimizer implem
      * @param tf the TensoFlow tf
      * @param name name for the operations created when applying gradients.
      * Defaults to "Adamax".
-     * @param learningRate The learning rate.
+     * @param learningRate the learning rate, which may follow a schedule.
      * @param betaOne The exponential decay rate for the 1st moment estimates.
      * @param betaTwo The exponential decay rate for the exponentially weighted
      * infinity norm.
      * @param epsilon A small constant for numerical stability.
+     * @param gradientClipping the clipping of the gradients before they are
+     * applied.
      */
-    public Adamax(Ops tf, String name, float learningRate, float betaOne, float betaTwo, float epsilon) {
+    public Adamax(Ops tf, String name, LearningRate learningRate, float betaOne, float betaTwo, float epsilon,
+            GradientClipping gradientClipping) {
         super(assertGraph(tf), name);
         this.learningRate = learningRate;
         this.betaOne = betaOne;
@@ -153,6 +204,8 @@ public class Adamax extends org.tensorflow.framework.optimizers.Optimizer implem
         this.scope = tf.scope();
 
         initConfig(learningRate, betaOne, betaTwo, epsilon);
+        this.gradientClipping = gradientClipping;
+        config.putAll(gradientClipping.getConfig());
     }
 
     /* TODO - do we need to do this to be compatible with keras python? */
@@ -178,17 +231,26 @@ public class Adamax extends org.tensorflow.framework.optimizers.Optimizer implem
      */
     public static Adamax create(Ops tf, Map<String, Object> config) {
         String name = (String) config.get(NAME_KEY);
-        float learningRate = (float) config.getOrDefault(LEARNING_RATE_KEY, LEARNING_RATE_DEFAULT);
+        LearningRate learningRate = LearningRate.fromConfigValue(tf,
+                config.getOrDefault(LEARNING_RATE_KEY, LEARNING_RATE_DEFAULT));
+        GradientClipping gradientClipping = GradientClipping.fromConfig(config);
         float epsilon = (float) config.getOrDefault(EPSILON_KEY, EPSILON_DEFAULT);
         float betaOne = (float) config.getOrDefault(BETA_ONE_KEY, BETA_ONE_DEFAULT);
         float betaTwo = (float) config.getOrDefault(BETA_TWO_KEY, BETA_TWO_DEFAULT);
         if (name == null) {
-            return new Adamax(tf, learningRate, betaOne, betaTwo, epsilon);
+            return new Adamax(tf, learningRate, betaOne, betaTwo, epsilon, gradientClipping);
         } else {
-            return new Adamax(tf, name, learningRate, betaOne, betaTwo, epsilon);
+            return new Adamax(tf, name, learningRate, betaOne, betaTwo, epsilon, gradientClipping);
         }
     }
 
+    /**
+     * @return the clipping of the gradients before they are applied
+     */
+    public GradientClipping getGradientClipping() {
+        return gradientClipping;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -202,7 +264,7 @@ public class Adamax extends org.tensorflow.framework.optimizers.Optimizer implem
      */
     @Override
     public float getLearningRate() {
-        return this.learningRate;
+        return this.learningRate.getValue();
     }
 
     /**
@@ -210,7 +272,23 @@ public class Adamax extends org.tensorflow.framework.optimizers.Optimizer implem
      */
     @Override
     public void setLearningRate(float learningRate) {
-        this.learningRate = learningRate;
+        this.learningRate.setValue(learningRate);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setLearningRate(Session session, float learningRate) {
+        this.learningRate.setValue(session, learningRate);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Operand<TFloat32> getLearningRateOperand() {
+        return this.learningRate.getOperand();
     }
 
     /**
@@ -220,7 +298,7 @@ public class Adamax extends org.tensorflow.framework.optimizers.Optimizer implem
     protected Optional<Op> prepare(String scopeName) {
         betaOneConst = tf.constant(betaOne);
         betaTwoConst = tf.constant(betaTwo);
-        learningRateConst = tf.constant(learningRate);
+        learningRateOperand = learningRate.getOperand();
         epsilonConst = tf.constant(epsilon);
         
         return Optional.empty();
@@ -257,7 +335,7 @@ public class Adamax extends org.tensorflow.framework.optimizers.Optimizer implem
                 scope,
                 (Operand) variable, (Operand) firstMomentSlot, (Operand) secondMomentSlot,
                 (Operand) tf.dtypes.cast(betaOnePower, gradient.dataType()),
-                (Operand) tf.dtypes.cast(learningRateConst, gradient.dataType()),
+                (Operand) tf.dtypes.cast(learningRateOperand, gradient.dataType()),
                 (Operand) tf.dtypes.cast(betaOneConst, gradient.dataType()),
                 (Operand) tf.dtypes.cast(betaTwoConst, gradient.dataType()),
                 (Operand) tf.dtypes.cast(epsilonConst, gradient.dataType()),
@@ -265,11 +343,22 @@ public class Adamax extends org.tensorflow.framework.optimizers.Optimizer implem
 
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Clips the gradients first, if gradient clipping is set.
+     */
+    @Override
+    public Op applyGradients(List<GradAndVar<? extends TType>> gradsAndVars, String name) {
+        return super.applyGradients(gradientClipping.clip(tf, gradsAndVars), name);
+    }
+
     /**
      * Gathers up the update operations into a single op that can be used as a
      * run target.
      * <p>
-     * Adds the betaOne and betaTwo updates to the end of the updates list.
+     * Adds the betaOne update to the end of the updates list. It runs after
+     * the variable updates, that read the beta power of the current step.
      *
      * @param updateOperations The update operations.
      * @param name The name of the run target.
@@ -277,7 +366,8 @@ public class Adamax extends org.tensorflow.framework.optimizers.Optimizer implem
      */
     @Override
     protected Op finish(List<Op> updateOperations, String name) {
-        updateOperations.add(tf.assign(betaOnePower, tf.math.mul(betaOnePower, betaOneConst)));
+        updateOperations.add(tf.withControlDependencies(new ArrayList<>(updateOperations)).assign(betaOnePower, tf.math.mul(betaOnePower, betaOneConst)));
+        learningRate.addUpdates(updateOperations);
         return super.finish(updateOperations, name);
     }
 
@@ -300,9 +390,9 @@ public class Adamax extends org.tensorflow.framework.optimizers.Optimizer implem
      * Section 2.1), not the epsilon in Algorithm 1 of the paper. Defaults to
      * 1e-7.
      */
-    protected void initConfig(float learningRate, float betaOne, float betaTwo, float epsilon) {
+    protected void initConfig(LearningRate learningRate, float betaOne, float betaTwo, float epsilon) {
         config.put(NAME_KEY, this.getOptimizerName());
-        config.put(LEARNING_RATE_KEY, learningRate);
+        config.put(LEARNING_RATE_KEY, learningRate.getConfigValue());
         config.put(EPSILON_KEY, epsilon);
         config.put(BETA_ONE_KEY, betaOne);
         config.put(BETA_TWO_KEY, betaTwo);
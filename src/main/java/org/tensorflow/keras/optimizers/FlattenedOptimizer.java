@@ -0,0 +1,225 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the );
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an  BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.optimizers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.tensorflow.DataType;
+import org.tensorflow.Operand;
+import org.tensorflow.Output;
+import org.tensorflow.framework.optimizers.Optimizer;
+import org.tensorflow.keras.backend.tf.ControlDependencies;
+import org.tensorflow.ndarray.Shape;
+import org.tensorflow.op.Op;
+import org.tensorflow.op.Ops;
+import org.tensorflow.op.core.Assign;
+import org.tensorflow.op.core.AssignAdd;
+import org.tensorflow.op.core.Variable;
+import org.tensorflow.types.family.TType;
+
+/**
+ * An optimizer that applies a wrapped optimizer to groups of variables with
+ * a single kernel per group, rather than one or more kernels per variable.
+ *
+ * <p>
+ * Variables with the same data type are grouped, and the gradients of a
+ * group are concatenated into one flat gradient. The wrapped optimizer
+ * applies it to a flat buffer of the group, so its slots, e.g. the moments of
+ * <code>Adam</code>, are also held in one contiguous variable per group. The
+ * buffer starts at zero on each step, so after the update it holds the
+ * change of every variable, which is split and added to the variables.
+ *
+ * <p>
+ * This reduces the number of operations of a step for models with many
+ * small variables, such as biases and normalization parameters. The wrapped
+ * optimizer must update each element independently, and must apply a change
+ * that does not depend on the value of the variable, as the buffer does not
+ * hold that value. <code>Ftrl</code> and <code>AdaGradDA</code> compute the
+ * new value of the variable from their accumulators, rather than a change,
+ * so they are rejected. The wrapped optimizer must not clip the gradients by
+ * their norm either, as the norm would be the norm of the group. Variables
+ * whose shape is not fully defined are applied with the wrapped optimizer one
+ * by one.
+ *
+ * @author Jim Clarke
+ */
+public class FlattenedOptimizer extends OptimizerWrapper {
+
+    private final Map<String, VariableGroup<?>> groups = new HashMap<>();
+
+    /**
+     * Creates a FlattenedOptimizer
+     *
+     * @param tf the TensorFlow Ops
+     * @param optimizer the optimizer that applies the flattened gradients
+     * @throws IllegalArgumentException if the optimizer does not apply a
+     * change to the variables, or clips the gradients by their norm.
+     */
+    public FlattenedOptimizer(Ops tf, Optimizer optimizer) {
+        super(tf, optimizer);
+        if (optimizer instanceof Ftrl || optimizer instanceof AdaGradDA) {
+            throw new IllegalArgumentException(String.format(
+                    "%s sets the variables rather than applying a change, it cannot be flattened",
+                    optimizer.getOptimizerName()));
+        }
+        if (optimizer instanceof OptimizerInterface
+                && ((OptimizerInterface) optimizer).getConfig().containsKey(GradientClipping.CLIP_NORM_KEY)) {
+            throw new IllegalArgumentException(
+                    "The wrapped optimizer cannot clip the gradients by their norm, use global_clipnorm");
+        }
+    }
+
+    /**
+     * Applies the gradients with the wrapped optimizer, one group of
+     * variables with the same data type at a time.
+     *
+     * @param gradsAndVars the gradients and their variables
+     * @param name the name of the apply gradients operation
+     * @return the operation that applies the gradients
+     */
+    @Override
+    public Op applyGradients(List<GradAndVar<? extends TType>> gradsAndVars, String name) {
+        Map<DataType, List<GradAndVar<? extends TType>>> byType = new LinkedHashMap<>();
+        List<GradAndVar<? extends TType>> flatGradsAndVars = new ArrayList<>();
+        for (GradAndVar<? extends TType> gradAndVar : gradsAndVars) {
+            if (gradAndVar.getVariable().shape().hasUnknownDimension()) {
+                flatGradsAndVars.add(gradAndVar);
+            } else {
+                byType.computeIfAbsent(gradAndVar.getVariable().dataType(), k -> new ArrayList<>())
+                        .add(gradAndVar);
+            }
+        }
+        List<VariableGroup<?>> applied = new ArrayList<>(byType.size());
+        for (List<GradAndVar<? extends TType>> members : byType.values()) {
+            VariableGroup group = getGroup(members);
+            applied.add(group);
+            flatGradsAndVars.add(new GradAndVar(group.flatten(members).asOutput(), group.buffer.asOutput()));
+        }
+        Op applyOp = optimizer.applyGradients(flatGradsAndVars, name);
+
+        // the buffers hold the change of the variables once the update is done
+        Ops ctf = tf.withControlDependencies(Collections.singletonList(applyOp));
+        List<Op> updateOperations = new ArrayList<>(applied.size() + 1);
+        updateOperations.add(applyOp);
+        for (VariableGroup<?> group : applied) {
+            updateOperations.add(group.update(ctf));
+        }
+        return ControlDependencies.addControlDependencies(tf, name + "_flattened", updateOperations);
+    }
+
+    /**
+     * Gets the group of a list of variables, creating it on first use.
+     *
+     * @param members the gradients and variables of the group, in order
+     * @return the group
+     */
+    private VariableGroup<?> getGroup(List<GradAndVar<? extends TType>> members) {
+        StringBuilder key = new StringBuilder();
+        for (GradAndVar<? extends TType> member : members) {
+            key.append(member.getVariable().op().name()).append(';');
+        }
+        return groups.computeIfAbsent(key.toString(), k -> {
+            VariableGroup group = new VariableGroup(members,
+                    getOptimizerName() + "_buffer_" + groups.size());
+            addWrapperVariable(group.buffer);
+            return group;
+        });
+    }
+
+    /**
+     * @return the number of variable groups created so far
+     */
+    public int getNumGroups() {
+        return groups.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getOptimizerName() {
+        return "FlattenedOptimizer";
+    }
+
+    /**
+     * Variables with the same data type and the flat buffer they are updated
+     * through.
+     *
+     * @param <T> the data type of the variables
+     */
+    private class VariableGroup<T extends TType> {
+
+        private final List<Output<T>> variables = new ArrayList<>();
+        private final long[] sizes;
+        private final Variable<T> buffer;
+        private final Operand<T> zeros;
+
+        VariableGroup(List<GradAndVar<T>> members, String bufferName) {
+            sizes = new long[members.size()];
+            long total = 0;
+            for (int i = 0; i < sizes.length; i++) {
+                Output<T> variable = members.get(i).getVariable();
+                variables.add(variable);
+                sizes[i] = variable.shape().size();
+                total += sizes[i];
+            }
+            DataType<T> dType = variables.get(0).dataType();
+            zeros = tf.zeros(tf.constant(new long[]{total}), dType);
+            buffer = tf.withName(bufferName).variable(Shape.of(total), dType);
+            graph.addInitializer(tf.assign(buffer, zeros));
+        }
+
+        /**
+         * Concatenates the gradients of the group.
+         *
+         * @param members the gradients and variables of the group
+         * @return the flat gradient
+         */
+        Operand<T> flatten(List<GradAndVar<T>> members) {
+            List<Operand<T>> gradients = new ArrayList<>(members.size());
+            for (GradAndVar<T> member : members) {
+                Output<T> gradient = member.getGradient();
+                gradients.add(gradient.shape().numDimensions() == 1 ? gradient
+                        : tf.reshape(gradient, tf.constant(new long[]{-1})));
+            }
+            return gradients.size() == 1 ? gradients.get(0) : tf.concat(gradients, tf.constant(0));
+        }
+
+        /**
+         * Adds the change held in the buffer to the variables, and zeroes the
+         * buffer for the next step.
+         *
+         * @param ctf the Ops that run after the wrapped optimizer
+         * @return the operation that updates the variables
+         */
+        Op update(Ops ctf) {
+            List<Op> assignOps = new ArrayList<>(variables.size());
+            List<Output<T>> changes = variables.size() == 1
+                    ? Collections.singletonList(ctf.identity(buffer).asOutput())
+                    : ctf.splitV(buffer, ctf.constant(sizes), ctf.constant(0), (long) sizes.length).output();
+            for (int i = 0; i < variables.size(); i++) {
+                Output<T> variable = variables.get(i);
+                Operand<T> change = variable.shape().numDimensions() == 1 ? changes.get(i)
+                        : ctf.reshape(changes.get(i), ctf.constant(variable.shape().asArray()));
+                assignOps.add(ctf.assignAdd(variable, change, AssignAdd.useLocking(true)));
+            }
+            return tf.withControlDependencies(assignOps).assign(buffer, zeros, Assign.useLocking(true));
+        }
+    }
+}
@@ -20,10 +20,14 @@ import java.util.Map;
 import org.tensorflow.Operand;
 import org.tensorflow.Output;
 import static org.tensorflow.keras.optimizers.OptimizerInterface.assertGraph;
+import org.tensorflow.Session;
 import org.tensorflow.op.Op;
 import org.tensorflow.op.Ops;
 import org.tensorflow.op.core.Variable;
 import org.tensorflow.op.train.ApplyFtrl;
+import org.tensorflow.op.train.SparseApplyFtrl;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.family.TNumber;
 import org.tensorflow.types.family.TType;
 
 /**
@@ -31,7 +35,7 @@ import org.tensorflow.types.family.TType;
  *
  * @author Jim Clarke
  */
-public class Ftrl extends org.tensorflow.framework.optimizers.Optimizer implements OptimizerInterface {
+public class Ftrl extends org.tensorflow.framework.optimizers.Optimizer implements SparseOptimizerInterface {
 
     public static final String LEARNING_RATE_KEY = "learning_rate";
     public static final String LEARNING_RATE_POWER_KEY = "learning_rate_power";
@@ -51,7 +55,8 @@ public class Ftrl extends org.tensorflow.framework.optimizers.Optimizer implemen
     public static final String LINEAR_ACCUMULATOR = "linear_accumulator";
 
     private final String name;
-    private float learningRate;
+    private LearningRate learningRate;
+    private final GradientClipping gradientClipping;
     private final float learningRatePower;
     private final float initialAccumulatorValue;
     private final float l1RegularizationStrength;
@@ -91,9 +96,76 @@ public class Ftrl extends org.tensorflow.framework.optimizers.Optimizer implemen
                 L2_SHRINKAGE_REGULARIZATION_STRENGTH_DEFAULT);
     }
 
+    /**
+     * create an Ftrl
+     *
+     * @param tf the TensorFlow Ops
+     * @param learningRate the learning rate
+     * @param learningRatePower the power of the learning rate decay
+     * @param initialAccumulatorValue the starting value for the accumulators
+     * @param l1Strength the L1 regularization strength
+     * @param l2Strength the L2 regularization strength
+     * @param l2ShrinkageRegularizationStrength the L2 shrinkage regularization
+     * strength
+     */
     public Ftrl(Ops tf, float learningRate, float learningRatePower,
             float initialAccumulatorValue, float l1Strength, float l2Strength,
             float l2ShrinkageRegularizationStrength) {
+        this(tf, new LearningRate(tf, learningRate), learningRatePower,
+                initialAccumulatorValue, l1Strength, l2Strength, l2ShrinkageRegularizationStrength,
+                GradientClipping.NONE);
+    }
+
+    /**
+     * create an Ftrl
+     *
+     * @param tf the TensorFlow Ops
+     * @param name the name of the Optimizer, defaults to "Ftrl"
+     * @param learningRate the learning rate
+     * @param learningRatePower the power of the learning rate decay
+     * @param initialAccumulatorValue the starting value for the accumulators
+     * @param l1Strength the L1 regularization strength
+     * @param l2Strength the L2 regularization strength
+     * @param l2ShrinkageRegularizationStrength the L2 shrinkage regularization
+     * strength
+     */
+    public Ftrl(Ops tf, String name, float learningRate, float learningRatePower,
+            float initialAccumulatorValue, float l1Strength, float l2Strength,
+            float l2ShrinkageRegularizationStrength) {
+        this(tf, name, new LearningRate(tf, learningRate), learningRatePower,
+                initialAccumulatorValue, l1Strength, l2Strength, l2ShrinkageRegularizationStrength,
+                GradientClipping.NONE);
+    }
+
+    /**
+     * create an Ftrl
+     *
+     * @param tf the TensorFlow Ops
+     * @param learningRate the learning rate, which may follow a schedule.
+     */
+    public Ftrl(Ops tf, LearningRate learningRate) {
+        this(tf, learningRate, LEARNING_RATE_POWER_DEFAULT,
+                INITIAL_ACCUM_VALUE_DEFAULT, L1STRENGTH_DEFAULT, L2STRENGTH_DEFAULT,
+                L2_SHRINKAGE_REGULARIZATION_STRENGTH_DEFAULT, GradientClipping.NONE);
+    }
+
+    /**
+     * create an Ftrl
+     *
+     * @param tf the TensorFlow Ops
+     * @param learningRate the learning rate, which may follow a schedule.
+     * @param learningRatePower the power of the learning rate decay
+     * @param initialAccumulatorValue the starting value for the accumulators
+     * @param l1Strength the L1 regularization strength
+     * @param l2Strength the L2 regularization strength
+     * @param l2ShrinkageRegularizationStrength the L2 shrinkage regularization
+     * strength
+     * @param gradientClipping the clipping of the gradients before they are
+     * applied.
+     */
+    public Ftrl(Ops tf, LearningRate learningRate, float learningRatePower,
+            float initialAccumulatorValue, float l1Strength, float l2Strength,
+            float l2ShrinkageRegularizationStrength, GradientClipping gradientClipping) {
         super(assertGraph(tf));
         this.name = getOptimizerName();
         this.learningRate = learningRate;
@@ -104,11 +176,28 @@ public class Ftrl extends org.tensorflow.framework.optimizers.Optimizer implemen
         this.l2ShrinkageRegularizationStrength = l2ShrinkageRegularizationStrength;
         validateParams();
         initConfig();
+        this.gradientClipping = gradientClipping;
+        config.putAll(gradientClipping.getConfig());
     }
 
-    public Ftrl(Ops tf, String name, float learningRate, float learningRatePower,
+    /**
+     * create an Ftrl
+     *
+     * @param tf the TensorFlow Ops
+     * @param name the name of the Optimizer, defaults to "Ftrl"
+     * @param learningRate the learning rate, which may follow a schedule.
+     * @param learningRatePower the power of the learning rate decay
+     * @param initialAccumulatorValue the starting value for the accumulators
+     * @param l1Strength the L1 regularization strength
+     * @param l2Strength the L2 regularization strength
+     * @param l2ShrinkageRegularizationStrength the L2 shrinkage regularization
+     * strength
+     * @param gradientClipping the clipping of the gradients before they are
+     * applied.
+     */
+    public Ftrl(Ops tf, String name, LearningRate learningRate, float learningRatePower,
             float initialAccumulatorValue, float l1Strength, float l2Strength,
-            float l2ShrinkageRegularizationStrength) {
+            float l2ShrinkageRegularizationStrength, GradientClipping gradientClipping) {
         super(assertGraph(tf), name);
         this.name = name;
         this.learningRate = learningRate;
@@ -119,6 +208,8 @@ public class Ftrl extends org.tensorflow.framework.optimizers.Optimizer implemen
         this.l2ShrinkageRegularizationStrength = l2ShrinkageRegularizationStrength;
         validateParams();
         initConfig();
+        this.gradientClipping = gradientClipping;
+        config.putAll(gradientClipping.getConfig());
     }
 
     /**
@@ -130,7 +221,9 @@ public class Ftrl extends org.tensorflow.framework.optimizers.Optimizer implemen
      */
     public static Ftrl create(Ops tf, Map<String, Object> config) {
         String name = (String) config.get(NAME_KEY);
-        float learningRate = (float) config.getOrDefault(LEARNING_RATE_KEY, LEARNING_RATE_DEFAULT);
+        LearningRate learningRate = LearningRate.fromConfigValue(tf,
+                config.getOrDefault(LEARNING_RATE_KEY, LEARNING_RATE_DEFAULT));
+        GradientClipping gradientClipping = GradientClipping.fromConfig(config);
         float learningRatePower = (float) config.getOrDefault(LEARNING_RATE_POWER_KEY, LEARNING_RATE_POWER_DEFAULT);
         float initialAccumulatorValue = (float) config.getOrDefault(INITIAL_ACCUM_VALUE_KEY, INITIAL_ACCUM_VALUE_DEFAULT);
         float l1RegularizationStrength = (float) config.getOrDefault(L1STRENGTH_KEY, L1STRENGTH_DEFAULT);
@@ -141,17 +234,17 @@ public class Ftrl extends org.tensorflow.framework.optimizers.Optimizer implemen
         if (name == null) {
             return new Ftrl(tf, learningRate, learningRatePower, initialAccumulatorValue,
                     l1RegularizationStrength, l2RegularizationStrength,
-                    l2ShrinkageRegularizationStrength);
+                    l2ShrinkageRegularizationStrength, gradientClipping);
         } else {
             return new Ftrl(tf, name, learningRate, learningRatePower, initialAccumulatorValue,
                     l1RegularizationStrength, l2RegularizationStrength,
-                    l2ShrinkageRegularizationStrength);
+                    l2ShrinkageRegularizationStrength, gradientClipping);
         }
     }
 
     protected void initConfig() {
         config.put(NAME_KEY, this.name);
-        config.put(LEARNING_RATE_KEY, learningRate);
+        config.put(LEARNING_RATE_KEY, learningRate.getConfigValue());
         config.put(LEARNING_RATE_POWER_KEY, learningRatePower);
         config.put(INITIAL_ACCUM_VALUE_KEY, initialAccumulatorValue);
         config.put(L1STRENGTH_KEY, l1RegularizationStrength);
@@ -209,7 +302,7 @@ public class Ftrl extends org.tensorflow.framework.optimizers.Optimizer implemen
                 accumSlot, //accum
                 linearSlot, //linear
                 gradient, //gradient
-                tf.dtypes.cast(tf.constant(learningRate), gradient.dataType()), // lr
+                learningRate.getOperand(gradient.dataType()), // lr
                 tf.dtypes.cast(tf.constant(l1RegularizationStrength), gradient.dataType()), //l1
                 tf.dtypes.cast(tf.constant(l2RegularizationStrength), gradient.dataType()), // l2
                 tf.dtypes.cast(tf.constant(l2ShrinkageRegularizationStrength), gradient.dataType()), // l2Shrinkage
@@ -226,6 +319,72 @@ public class Ftrl extends org.tensorflow.framework.optimizers.Optimizer implemen
         return "Ftrl";
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Op applyGradients(List<GradAndVar<? extends TType>> gradsAndVars,
+            List<SparseGradAndVar<? extends TType>> sparseGradsAndVars, String name) {
+        return SparseOptimizerInterface.applyGradients(tf, gradientClipping, gradsAndVars, sparseGradsAndVars,
+                name, this::createSlots, this::prepare, this::applyDense, this::applySparse, this::finish);
+    }
+
+    /**
+     * Applies a sparse gradient to the rows of a variable, and of its slots.
+     *
+     * @param <T> the data type of the gradient and variable
+     * @param gradient the gradient rows, with unique indices
+     * @param indices the indices of the rows of the variable
+     * @param variable the variable
+     * @return the update operation
+     */
+    protected <T extends TType> Op applySparse(Output<T> gradient, Operand<? extends TNumber> indices,
+            Output<T> variable) {
+        Variable<T> accumSlot = getSlot(variable, ACCUMULATOR).get();
+        Variable<T> linearSlot = getSlot(variable, LINEAR_ACCUMULATOR).get();
+        SparseApplyFtrl.Options options = SparseApplyFtrl.useLocking(useLocking);
+        return this.tf.train.sparseApplyFtrl(
+                variable,
+                accumSlot, //accum
+                linearSlot, //linear
+                gradient, //gradient
+                indices, //indices
+                learningRate.getOperand(gradient.dataType()), // lr
+                tf.dtypes.cast(tf.constant(l1RegularizationStrength), gradient.dataType()), //l1
+                tf.dtypes.cast(tf.constant(l2RegularizationStrength), gradient.dataType()), // l2
+                tf.dtypes.cast(tf.constant(l2ShrinkageRegularizationStrength), gradient.dataType()), // l2Shrinkage
+                tf.dtypes.cast(tf.constant(learningRatePower), gradient.dataType()), //lrPower
+                options);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Clips the gradients first, if gradient clipping is set.
+     */
+    @Override
+    public Op applyGradients(List<GradAndVar<? extends TType>> gradsAndVars, String name) {
+        return super.applyGradients(gradientClipping.clip(tf, gradsAndVars), name);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Advances the learning rate schedule, if any.
+     */
+    @Override
+    protected Op finish(List<Op> updateOperations, String name) {
+        learningRate.addUpdates(updateOperations);
+        return super.finish(updateOperations, name);
+    }
+
+    /**
+     * @return the clipping of the gradients before they are applied
+     */
+    public GradientClipping getGradientClipping() {
+        return gradientClipping;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -239,7 +398,7 @@ public class Ftrl extends org.tensorflow.framework.optimizers.Optimizer implemen
      */
     @Override
     public float getLearningRate() {
-        return this.learningRate;
+        return this.learningRate.getValue();
     }
 
     /**
@@ -247,7 +406,23 @@ public class Ftrl extends org.tensorflow.framework.optimizers.Optimizer implemen
      */
     @Override
     public void setLearningRate(float learningRate) {
-        this.learningRate = learningRate;
+        this.learningRate.setValue(learningRate);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setLearningRate(Session session, float learningRate) {
+        this.learningRate.setValue(session, learningRate);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Operand<TFloat32> getLearningRateOperand() {
+        return this.learningRate.getOperand();
     }
 
 }
@@ -0,0 +1,168 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the );
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an  BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.optimizers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.tensorflow.Operand;
+import org.tensorflow.Output;
+import org.tensorflow.framework.optimizers.Optimizer;
+import org.tensorflow.keras.backend.tf.ControlDependencies;
+import org.tensorflow.ndarray.Shape;
+import org.tensorflow.op.Op;
+import org.tensorflow.op.Ops;
+import org.tensorflow.op.core.Assign;
+import org.tensorflow.op.core.SwitchCond;
+import org.tensorflow.op.core.Variable;
+import org.tensorflow.types.TBool;
+import org.tensorflow.types.TInt64;
+import org.tensorflow.types.family.TType;
+
+/**
+ * An optimizer that accumulates the gradients of several micro-batches and
+ * applies them with a wrapped optimizer, to train with an effective batch
+ * size larger than the batches that fit in memory.
+ *
+ * <p>
+ * Each variable has an accumulator slot that the gradients of every step are
+ * added to. Every <code>steps</code> steps, the mean of the accumulated
+ * gradients is passed to the wrapped optimizer and the accumulators are
+ * zeroed. On the other steps, the variable updates of the wrapped optimizer
+ * are skipped, so its kernels only run once per <code>steps</code>
+ * micro-batches. Its slots are only written by the variable updates, and the
+ * optimizers of this package update their other state, such as step counters,
+ * beta powers and momentum caches, with a control dependency on the variable
+ * updates, so that state is skipped as well. A wrapped optimizer that updates
+ * state without depending on its variable updates would still update it on
+ * every micro-batch.
+ *
+ * @author Jim Clarke
+ */
+public class GradientAccumulator extends OptimizerWrapper {
+
+    public static final String ACCUMULATOR = "gradient_accumulator";
+    public static final String STEPS_KEY = "steps";
+
+    private final long steps;
+    private final Variable<TInt64> microSteps;
+
+    /**
+     * Creates a GradientAccumulator
+     *
+     * @param tf the TensorFlow Ops
+     * @param optimizer the optimizer that applies the accumulated gradients
+     * @param steps the number of micro-batches whose gradients are
+     * accumulated before they are applied.
+     */
+    public GradientAccumulator(Ops tf, Optimizer optimizer, long steps) {
+        super(tf, optimizer);
+        if (steps < 1) {
+            throw new IllegalArgumentException(String.format(
+                    "steps must be at least 1, received %d", steps));
+        }
+        this.steps = steps;
+
+        Ops vtf = this.tf.withSubScope(getOptimizerName());
+        microSteps = vtf.withName("micro_steps").variable(Shape.scalar(), TInt64.DTYPE);
+        graph.addInitializer(vtf.assign(microSteps, vtf.constant(0L)));
+        addWrapperVariable(microSteps);
+
+        config.put(STEPS_KEY, steps);
+    }
+
+    /**
+     * Adds the gradients of a micro-batch to the accumulators, and every
+     * <code>steps</code> steps applies their mean with the wrapped optimizer
+     * and zeroes the accumulators.
+     *
+     * @param gradsAndVars the gradients of the micro-batch and their variables
+     * @param name the name of the apply gradients operation
+     * @return the operation that accumulates and, when due, applies the
+     * gradients
+     */
+    @Override
+    public Op applyGradients(List<GradAndVar<? extends TType>> gradsAndVars, String name) {
+        Operand<TInt64> step = tf.assignAdd(microSteps, tf.constant(1L));
+        Operand<TBool> applyNow = tf.math.equal(tf.math.floorMod(step, tf.constant(steps)),
+                tf.constant(0L));
+
+        // the mean gradients only reach the optimizer on the last micro-batch,
+        // otherwise every operation of the update is dead and skipped.
+        List<Variable> accumulators = new ArrayList<>(gradsAndVars.size());
+        List<GradAndVar<? extends TType>> meanGradsAndVars = new ArrayList<>(gradsAndVars.size());
+        for (GradAndVar<? extends TType> gradAndVar : gradsAndVars) {
+            Output variable = gradAndVar.getVariable();
+            Variable accumulator = getAccumulator(variable);
+            accumulators.add(accumulator);
+            Operand accumulated = tf.assignAdd(accumulator, gradAndVar.getGradient());
+            Operand mean = tf.math.div(accumulated,
+                    tf.dtypes.cast(tf.constant((float) steps), variable.dataType()));
+            SwitchCond switchCond = tf.switchCond(mean, applyNow);
+            meanGradsAndVars.add(new GradAndVar(switchCond.outputTrue(), variable));
+        }
+        Op applyOp = optimizer.applyGradients(meanGradsAndVars, name);
+
+        Ops ctf = tf.withControlDependencies(Collections.singletonList(applyOp));
+        List<Op> resetOps = new ArrayList<>(accumulators.size());
+        for (Variable accumulator : accumulators) {
+            resetOps.add(ctf.assign(accumulator, zeros(accumulator.asOutput()), Assign.useLocking(true)));
+        }
+        return ControlDependencies.addControlDependencies(tf, name + "_accumulate", resetOps);
+    }
+
+    /**
+     * Gets the accumulator of a variable, creating it on first use.
+     *
+     * @param variable the variable
+     * @param <T> the data type of the variable
+     * @return the accumulator
+     */
+    private <T extends TType> Variable<T> getAccumulator(Output<T> variable) {
+        return getSlot(variable, ACCUMULATOR).orElseGet(() -> {
+            createSlot(variable, ACCUMULATOR, zeros(variable));
+            Variable<T> accumulator = getSlot(variable, ACCUMULATOR).get();
+            addWrapperVariable(accumulator);
+            return accumulator;
+        });
+    }
+
+    private <T extends TType> Operand<T> zeros(Output<T> variable) {
+        return tf.zeros(tf.constant(variable.shape()), variable.dataType());
+    }
+
+    /**
+     * @return the number of micro-batches whose gradients are accumulated
+     * before they are applied.
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return the variable that counts the micro-batches
+     */
+    public Variable<TInt64> getMicroSteps() {
+        return microSteps;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getOptimizerName() {
+        return "GradientAccumulator";
+    }
+}
@@ -0,0 +1,245 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the );
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an  BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.optimizers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.tensorflow.DataType;
+import org.tensorflow.Operand;
+import org.tensorflow.framework.optimizers.Optimizer.GradAndVar;
+import org.tensorflow.op.Ops;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.family.TType;
+
+/**
+ * The clipping of the gradients of an optimizer, before they are applied.
+ *
+ * <p>
+ * <code>clipNorm</code> clips each gradient to a maximum L2 norm,
+ * <code>globalClipNorm</code> clips the gradients so that the L2 norm of all
+ * of them together is at most the global clip norm, and <code>clipValue</code>
+ * clips each element of the gradients to
+ * <code>[-clipValue, clipValue]</code>. A norm clipping and the value clipping
+ * may be combined, but not the two norm clippings.
+ *
+ * <p>
+ * The global norm is computed with one <code>L2Loss</code> reduction per
+ * gradient, summed by a single <code>AddN</code>. Each gradient is then scaled
+ * by one multiply, that feeds the apply kernel of the optimizer.
+ *
+ * @author Jim Clarke
+ */
+public class GradientClipping {
+
+    public static final String CLIP_NORM_KEY = "clipnorm";
+    public static final String CLIP_VALUE_KEY = "clipvalue";
+    public static final String GLOBAL_CLIP_NORM_KEY = "global_clipnorm";
+
+    /**
+     * No clipping.
+     */
+    public static final GradientClipping NONE = new GradientClipping(null, null, null);
+
+    private final Float clipNorm;
+    private final Float clipValue;
+    private final Float globalClipNorm;
+
+    /**
+     * Creates a GradientClipping
+     *
+     * @param clipNorm the maximum L2 norm of each gradient, or null.
+     * @param clipValue the maximum absolute value of each element of the
+     * gradients, or null.
+     * @param globalClipNorm the maximum L2 norm of all gradients together, or
+     * null.
+     * @throws IllegalArgumentException if a value is not positive, or both
+     * clipNorm and globalClipNorm are set.
+     */
+    public GradientClipping(Float clipNorm, Float clipValue, Float globalClipNorm) {
+        checkPositive(CLIP_NORM_KEY, clipNorm);
+        checkPositive(CLIP_VALUE_KEY, clipValue);
+        checkPositive(GLOBAL_CLIP_NORM_KEY, globalClipNorm);
+        if (clipNorm != null && globalClipNorm != null) {
+            throw new IllegalArgumentException(
+                    "At most one of clipnorm and global_clipnorm can be set");
+        }
+        this.clipNorm = clipNorm;
+        this.clipValue = clipValue;
+        this.globalClipNorm = globalClipNorm;
+    }
+
+    private static void checkPositive(String key, Float value) {
+        if (value != null && !(value > 0f)) {
+            throw new IllegalArgumentException(
+                    String.format("%s must be positive, received %f", key, value));
+        }
+    }
+
+    /**
+     * Creates a GradientClipping from the config of an optimizer
+     *
+     * @param config the config of the optimizer, the keys "clipnorm",
+     * "clipvalue" and "global_clipnorm" are optional.
+     * @return the gradient clipping, or {@link #NONE} if none of the keys is
+     * present.
+     */
+    public static GradientClipping fromConfig(Map<String, Object> config) {
+        Float clipNorm = (Float) config.get(CLIP_NORM_KEY);
+        Float clipValue = (Float) config.get(CLIP_VALUE_KEY);
+        Float globalClipNorm = (Float) config.get(GLOBAL_CLIP_NORM_KEY);
+        if (clipNorm == null && clipValue == null && globalClipNorm == null) {
+            return NONE;
+        }
+        return new GradientClipping(clipNorm, clipValue, globalClipNorm);
+    }
+
+    /**
+     * Gets the config entries of the clipping, only the values that are set
+     * are present.
+     *
+     * @return the config entries
+     */
+    public Map<String, Object> getConfig() {
+        Map<String, Object> config = new HashMap<>();
+        if (clipNorm != null) {
+            config.put(CLIP_NORM_KEY, clipNorm);
+        }
+        if (clipValue != null) {
+            config.put(CLIP_VALUE_KEY, clipValue);
+        }
+        if (globalClipNorm != null) {
+            config.put(GLOBAL_CLIP_NORM_KEY, globalClipNorm);
+        }
+        return config;
+    }
+
+    /**
+     * @return true if the gradients are clipped
+     */
+    public boolean isEnabled() {
+        return clipNorm != null || clipValue != null || globalClipNorm != null;
+    }
+
+    /**
+     * Computes the factor that scales the gradients to the global clip norm.
+     *
+     * @param tf the TensorFlow Ops
+     * @param gradients all the gradients of a training step
+     * @return <code>globalClipNorm / max(globalNorm, globalClipNorm)</code>,
+     * NaN if the global norm is not finite, or null if there is no global clip
+     * norm.
+     */
+    public Operand<TFloat32> getGlobalScale(Ops tf, List<Operand<? extends TType>> gradients) {
+        if (globalClipNorm == null || gradients.isEmpty()) {
+            return null;
+        }
+        List<Operand<TFloat32>> halfSquaredSums = new ArrayList<>();
+        for (Operand gradient : gradients) {
+            halfSquaredSums.add(tf.dtypes.cast(tf.nn.l2Loss(gradient), TFloat32.DTYPE));
+        }
+        Operand<TFloat32> globalNorm = tf.math.sqrt(
+                tf.math.mul(tf.math.addN(halfSquaredSums), tf.constant(2f)));
+        return getScale(tf, globalNorm, globalClipNorm);
+    }
+
+    /**
+     * Computes <code>clip / max(norm, clip)</code>. A non-finite norm gives a
+     * NaN scale, as in <code>clip_by_global_norm</code>, rather than a zero
+     * scale that would silently drop the step while the optimizer state
+     * advances.
+     */
+    private static Operand<TFloat32> getScale(Ops tf, Operand<TFloat32> norm, float clip) {
+        Operand<TFloat32> clipConst = tf.constant(clip);
+        Operand<TFloat32> scale = tf.math.div(clipConst, tf.math.maximum(norm, clipConst));
+        return tf.select(tf.math.isFinite(norm), scale, tf.constant(Float.NaN));
+    }
+
+    /**
+     * Clips a gradient.
+     *
+     * @param <T> the data type of the gradient
+     * @param tf the TensorFlow Ops
+     * @param gradient the gradient
+     * @param globalScale the factor from {@link #getGlobalScale(Ops, List)},
+     * or null.
+     * @return the clipped gradient, or the gradient if there is nothing to
+     * clip.
+     */
+    public <T extends TType> Operand<T> clip(Ops tf, Operand<T> gradient, Operand<TFloat32> globalScale) {
+        DataType<T> dType = gradient.asOutput().dataType();
+        Operand<TFloat32> scale = globalScale;
+        if (clipNorm != null) {
+            Operand<TFloat32> norm = tf.math.sqrt(tf.math.mul(
+                    tf.dtypes.cast(tf.nn.l2Loss((Operand) gradient), TFloat32.DTYPE), tf.constant(2f)));
+            scale = getScale(tf, norm, clipNorm);
+        }
+        Operand<T> result = gradient;
+        if (scale != null) {
+            result = tf.math.mul(result, tf.dtypes.cast(scale, dType));
+        }
+        if (clipValue != null) {
+            result = tf.clipByValue(result, tf.dtypes.cast(tf.constant(-clipValue), dType),
+                    tf.dtypes.cast(tf.constant(clipValue), dType));
+        }
+        return result;
+    }
+
+    /**
+     * Clips the gradients of a training step.
+     *
+     * @param tf the TensorFlow Ops
+     * @param gradsAndVars the gradients and variables
+     * @return the clipped gradients and variables, or gradsAndVars if there is
+     * nothing to clip.
+     */
+    public List<GradAndVar<? extends TType>> clip(Ops tf, List<GradAndVar<? extends TType>> gradsAndVars) {
+        if (!isEnabled()) {
+            return gradsAndVars;
+        }
+        List<Operand<? extends TType>> gradients = new ArrayList<>();
+        gradsAndVars.forEach(pair -> gradients.add(pair.getGradient()));
+        Operand<TFloat32> globalScale = getGlobalScale(tf, gradients);
+        List<GradAndVar<? extends TType>> result = new ArrayList<>();
+        for (GradAndVar pair : gradsAndVars) {
+            result.add(new GradAndVar<>(clip(tf, pair.getGradient(), globalScale).asOutput(),
+                    pair.getVariable()));
+        }
+        return result;
+    }
+
+    /**
+     * @return the maximum L2 norm of each gradient, or null
+     */
+    public Float getClipNorm() {
+        return clipNorm;
+    }
+
+    /**
+     * @return the maximum absolute value of each element of the gradients, or
+     * null
+     */
+    public Float getClipValue() {
+        return clipValue;
+    }
+
+    /**
+     * @return the maximum L2 norm of all gradients together, or null
+     */
+    public Float getGlobalClipNorm() {
+        return globalClipNorm;
+    }
+}
@@ -0,0 +1,236 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the );
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an  BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.optimizers;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.tensorflow.DataType;
+import org.tensorflow.Graph;
+import org.tensorflow.Operand;
+import org.tensorflow.Session;
+import org.tensorflow.Tensor;
+import org.tensorflow.keras.optimizers.schedules.LearningRateSchedule;
+import org.tensorflow.ndarray.Shape;
+import org.tensorflow.op.Op;
+import org.tensorflow.op.Ops;
+import org.tensorflow.op.core.Assign;
+import org.tensorflow.op.core.Placeholder;
+import org.tensorflow.op.core.Variable;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.TInt64;
+import org.tensorflow.types.family.TType;
+
+/**
+ * Holds the learning rate of an optimizer in a scalar graph variable, so that
+ * it can be changed between training steps with a single assign, without
+ * rebuilding the graph.
+ *
+ * <p>
+ * The variable, and the assign operation that sets it from a fed value, are
+ * created the first time the learning rate is used in the graph. Until then,
+ * {@link #setValue(float)} changes the initial value of the variable.
+ *
+ * <p>
+ * A learning rate may instead follow a {@link LearningRateSchedule}, in which
+ * case it is computed in the graph from a step variable, that is incremented
+ * by the update operations added by {@link #addUpdates(List)}, and cannot be
+ * set.
+ *
+ * @author Jim Clarke
+ */
+public class LearningRate {
+
+    public static final String NAME = "learning_rate";
+
+    private final Ops tf;
+    private float value;
+    private final LearningRateSchedule schedule;
+
+    private Variable<TFloat32> variable;
+    private Placeholder<TFloat32> placeholder;
+    private Assign<TFloat32> assign;
+
+    private Variable<TInt64> step;
+    private Operand<TFloat32> scheduled;
+
+    /**
+     * Creates a LearningRate
+     *
+     * @param tf the TensorFlow Ops of the optimizer
+     * @param value the initial learning rate
+     */
+    public LearningRate(Ops tf, float value) {
+        this.tf = tf;
+        this.value = value;
+        this.schedule = null;
+    }
+
+    /**
+     * Creates a LearningRate that follows a schedule
+     *
+     * @param tf the TensorFlow Ops of the optimizer
+     * @param schedule the learning rate schedule
+     */
+    public LearningRate(Ops tf, LearningRateSchedule schedule) {
+        this.tf = tf;
+        this.value = schedule.getInitialLearningRate();
+        this.schedule = schedule;
+    }
+
+    /**
+     * Creates a LearningRate from its value in an optimizer config.
+     *
+     * @param tf the TensorFlow Ops of the optimizer
+     * @param value the config value, either a float or a serialized schedule
+     * @return the learning rate
+     */
+    public static LearningRate fromConfigValue(Ops tf, Object value) {
+        Object learningRate = LearningRateSchedule.fromConfigValue(tf, value);
+        return learningRate instanceof LearningRateSchedule
+                ? new LearningRate(tf, (LearningRateSchedule) learningRate)
+                : new LearningRate(tf, (float) learningRate);
+    }
+
+    /**
+     * Gets the learning rate as it is held in the graph, creating the variable
+     * on first use.
+     *
+     * @return the learning rate variable, or the scheduled learning rate
+     */
+    public Operand<TFloat32> getOperand() {
+        if (schedule != null) {
+            if (scheduled == null) {
+                Ops ltf = createScope();
+                step = ltf.withName("step").variable(Shape.scalar(), TInt64.DTYPE);
+                ((Graph) tf.scope().env()).addInitializer(ltf.assign(step, ltf.constant(0L)));
+                scheduled = schedule.call(step);
+            }
+            return scheduled;
+        }
+        if (variable == null) {
+            Ops ltf = createScope();
+            variable = ltf.withName("value").variable(Shape.scalar(), TFloat32.DTYPE);
+            ((Graph) tf.scope().env()).addInitializer(ltf.assign(variable, ltf.constant(value)));
+            placeholder = ltf.placeholder(TFloat32.DTYPE, Placeholder.shape(Shape.scalar()));
+            assign = ltf.assign(variable, placeholder);
+        }
+        return variable;
+    }
+
+    /**
+     * Creates the Ops for the learning rate variables. Several optimizers may
+     * share a graph, so this finds a free root sub scope.
+     *
+     * @return the Ops for the learning rate variables
+     */
+    private Ops createScope() {
+        Graph graph = (Graph) tf.scope().env();
+        String scopeName = NAME;
+        for (int i = 1; graph.operation(scopeName + "/value") != null
+                || graph.operation(scopeName + "/step") != null; i++) {
+            scopeName = NAME + "_" + i;
+        }
+        return Ops.create(graph).withSubScope(scopeName);
+    }
+
+    /**
+     * Adds the operation that advances the schedule step, if any, to the
+     * update operations of a training step. The step is incremented after
+     * the other update operations, so that they all read the same learning
+     * rate.
+     *
+     * @param updateOperations the update operations of the training step
+     */
+    public void addUpdates(List<Op> updateOperations) {
+        if (schedule != null) {
+            getOperand();
+            updateOperations.add(tf.withControlDependencies(new ArrayList<>(updateOperations))
+                    .assignAdd(step, tf.constant(1L)));
+        }
+    }
+
+    /**
+     * Gets the learning rate as it is held in the graph, cast to a data type.
+     *
+     * @param dType the data type
+     * @param <T> the data type of the result
+     * @return the learning rate
+     */
+    public <T extends TType> Operand<T> getOperand(DataType<T> dType) {
+        Operand<TFloat32> operand = getOperand();
+        return dType == TFloat32.DTYPE ? (Operand<T>) operand : tf.dtypes.cast(operand, dType);
+    }
+
+    /**
+     * @return the current learning rate, or the learning rate at step 0 if the
+     * learning rate follows a schedule
+     */
+    public float getValue() {
+        return value;
+    }
+
+    /**
+     * @return the learning rate schedule, or null if the learning rate does not
+     * follow a schedule
+     */
+    public LearningRateSchedule getSchedule() {
+        return schedule;
+    }
+
+    /**
+     * Gets the learning rate as it is held in an optimizer config.
+     *
+     * @return the learning rate as a Float, or the serialized schedule
+     */
+    public Object getConfigValue() {
+        return schedule == null ? (Object) value : schedule.serialize();
+    }
+
+    /**
+     * Sets the learning rate. Once the variable is in the graph, this only
+     * changes the value returned by {@link #getValue()}, use
+     * {@link #setValue(Session, float)} to change the variable.
+     *
+     * @param value the learning rate
+     * @throws IllegalStateException if the learning rate follows a schedule
+     */
+    public void setValue(float value) {
+        checkNoSchedule();
+        this.value = value;
+    }
+
+    /**
+     * Sets the learning rate, and the variable that holds it in the graph,
+     * with a single assign.
+     *
+     * @param session the session that holds the optimizer variables
+     * @param value the learning rate
+     * @throws IllegalStateException if the learning rate follows a schedule
+     */
+    public void setValue(Session session, float value) {
+        checkNoSchedule();
+        this.value = value;
+        getOperand();
+        try (Tensor<TFloat32> tensor = TFloat32.scalarOf(value)) {
+            session.runner().feed(placeholder, tensor).addTarget(assign).run();
+        }
+    }
+
+    private void checkNoSchedule() {
+        if (schedule != null) {
+            throw new IllegalStateException("The learning rate follows a schedule and cannot be set");
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the );
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an  BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.optimizers;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.tensorflow.Operand;
+import org.tensorflow.framework.optimizers.Optimizer;
+import org.tensorflow.keras.backend.tf.ControlDependencies;
+import org.tensorflow.ndarray.Shape;
+import org.tensorflow.op.Op;
+import org.tensorflow.op.Ops;
+import org.tensorflow.op.core.Assign;
+import org.tensorflow.op.core.SwitchCond;
+import org.tensorflow.op.core.Variable;
+import org.tensorflow.types.TBool;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.TInt32;
+import org.tensorflow.types.TInt64;
+import org.tensorflow.types.family.TType;
+
+/**
+ * An optimizer that applies loss scaling, to train with
+ * <code>TFloat16</code> or <code>TBfloat16</code> computations without the
+ * small gradients underflowing.
+ *
+ * <p>
+ * The loss is multiplied by the loss scale before the gradients are computed,
+ * and the gradients are divided by it before they are passed to the wrapped
+ * optimizer. If any gradient is not finite, the variable updates of the
+ * wrapped optimizer are skipped for that step. Its slots are only written by
+ * the variable updates, and the optimizers of this package update their other
+ * state, such as step counters, beta powers and momentum caches, with a
+ * control dependency on the variable updates, so that state is skipped as
+ * well. A wrapped optimizer that updates state without depending on its
+ * variable updates would still update it on a skipped step.
+ *
+ * <p>
+ * With a dynamic loss scale, the scale is halved, down to 1, on every step
+ * with non-finite gradients, and doubled after <code>growthSteps</code>
+ * consecutive steps with finite gradients.
+ *
+ * @author Jim Clarke
+ */
+public class LossScaleOptimizer extends OptimizerWrapper {
+
+    public static final String INITIAL_SCALE_KEY = "initial_scale";
+    public static final String GROWTH_STEPS_KEY = "growth_steps";
+    public static final String DYNAMIC_KEY = "dynamic";
+
+    public static final float INITIAL_SCALE_DEFAULT = 32768F;
+    public static final long GROWTH_STEPS_DEFAULT = 2000L;
+
+    private final float initialScale;
+    private final long growthSteps;
+    private final boolean dynamic;
+
+    private final Variable<TFloat32> lossScale;
+    private final Variable<TInt64> goodSteps;
+
+    /**
+     * Creates a LossScaleOptimizer with a dynamic loss scale, using the
+     * defaults initialScale=32768 and growthSteps=2000
+     *
+     * @param tf the TensorFlow Ops
+     * @param optimizer the optimizer that applies the unscaled gradients
+     */
+    public LossScaleOptimizer(Ops tf, Optimizer optimizer) {
+        this(tf, optimizer, INITIAL_SCALE_DEFAULT, GROWTH_STEPS_DEFAULT, true);
+    }
+
+    /**
+     * Creates a LossScaleOptimizer with a fixed loss scale
+     *
+     * @param tf the TensorFlow Ops
+     * @param optimizer the optimizer that applies the unscaled gradients
+     * @param lossScale the loss scale
+     */
+    public LossScaleOptimizer(Ops tf, Optimizer optimizer, float lossScale) {
+        this(tf, optimizer, lossScale, GROWTH_STEPS_DEFAULT, false);
+    }
+
+    /**
+     * Creates a LossScaleOptimizer
+     *
+     * @param tf the TensorFlow Ops
+     * @param optimizer the optimizer that applies the unscaled gradients
+     * @param initialScale the initial loss scale
+     * @param growthSteps the number of consecutive steps with finite
+     * gradients after which a dynamic loss scale is doubled.
+     * @param dynamic whether the loss scale is adjusted
+     */
+    public LossScaleOptimizer(Ops tf, Optimizer optimizer, float initialScale, long growthSteps,
+            boolean dynamic) {
+        super(tf, optimizer);
+        if (initialScale < 1F) {
+            throw new IllegalArgumentException(String.format(
+                    "initialScale must be at least 1, received %f", initialScale));
+        }
+        if (growthSteps < 1) {
+            throw new IllegalArgumentException(String.format(
+                    "growthSteps must be at least 1, received %d", growthSteps));
+        }
+        this.initialScale = initialScale;
+        this.growthSteps = growthSteps;
+        this.dynamic = dynamic;
+
+        Ops vtf = this.tf.withSubScope(getOptimizerName());
+        lossScale = vtf.withName("loss_scale").variable(Shape.scalar(), TFloat32.DTYPE);
+        graph.addInitializer(vtf.assign(lossScale, vtf.constant(initialScale)));
+        goodSteps = vtf.withName("good_steps").variable(Shape.scalar(), TInt64.DTYPE);
+        graph.addInitializer(vtf.assign(goodSteps, vtf.constant(0L)));
+        addWrapperVariable(lossScale);
+        addWrapperVariable(goodSteps);
+
+        config.put(INITIAL_SCALE_KEY, initialScale);
+        config.put(GROWTH_STEPS_KEY, growthSteps);
+        config.put(DYNAMIC_KEY, dynamic);
+    }
+
+    /**
+     * Multiplies a loss by the loss scale.
+     *
+     * @param loss the loss
+     * @param <T> the data type of the loss
+     * @return the scaled loss
+     */
+    public <T extends TType> Operand<T> getScaledLoss(Operand<T> loss) {
+        return tf.math.mul(loss, tf.dtypes.cast(lossScale, loss.asOutput().dataType()));
+    }
+
+    /**
+     * Divides gradients by the loss scale.
+     *
+     * @param gradients the gradients of the scaled loss
+     * @return the gradients of the loss
+     */
+    public List<Operand> getUnscaledGradients(List<Operand> gradients) {
+        Operand<TFloat32> reciprocal = tf.math.reciprocal(lossScale);
+        List<Operand> result = new ArrayList<>(gradients.size());
+        for (Operand gradient : gradients) {
+            result.add(tf.math.mul(gradient, tf.dtypes.cast(reciprocal, gradient.asOutput().dataType())));
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The gradients are computed from the scaled loss.
+     */
+    @Override
+    public Op minimize(Operand<?> loss, String name) {
+        return super.minimize(getScaledLoss((Operand) loss), name);
+    }
+
+    /**
+     * Applies the gradients of the scaled loss, the gradients are unscaled
+     * and the update is skipped if any of them is not finite.
+     *
+     * @param gradsAndVars the gradients of the scaled loss and their variables
+     * @param name the name of the apply gradients operation
+     * @return the operation that applies the gradients and updates the loss
+     * scale
+     */
+    @Override
+    public Op applyGradients(List<GradAndVar<? extends TType>> gradsAndVars, String name) {
+        List<Operand> gradients = new ArrayList<>(gradsAndVars.size());
+        gradsAndVars.forEach(gradAndVar -> gradients.add(gradAndVar.getGradient()));
+        List<Operand> unscaled = getUnscaledGradients(gradients);
+        Operand<TBool> allFinite = allFinite(unscaled);
+
+        // the unscaled gradients only reach the optimizer when they are all
+        // finite, otherwise every operation of the update is dead and skipped.
+        List<GradAndVar<? extends TType>> finiteGradsAndVars = new ArrayList<>(gradsAndVars.size());
+        for (int i = 0; i < gradsAndVars.size(); i++) {
+            SwitchCond switchCond = tf.switchCond(unscaled.get(i), allFinite);
+            finiteGradsAndVars.add(new GradAndVar(switchCond.outputTrue(), gradsAndVars.get(i).getVariable()));
+        }
+        Op applyOp = optimizer.applyGradients(finiteGradsAndVars, name);
+        Op updateOp = updateLossScale(allFinite);
+        return ControlDependencies.addControlDependencies(tf, name + "_lossScale", applyOp, updateOp);
+    }
+
+    /**
+     * Checks that every gradient is finite. Each gradient is reduced to
+     * whether all its elements are finite, and the results are reduced once.
+     *
+     * <p>
+     * The elements are tested with <code>IsFinite</code>, rather than by
+     * summing them times zero, as the graph optimizer folds a product with
+     * zero to zero, whatever the other operand holds.
+     *
+     * @param gradients the gradients
+     * @return true if every gradient is finite
+     */
+    private Operand<TBool> allFinite(List<Operand> gradients) {
+        List<Operand<TBool>> finite = new ArrayList<>(gradients.size());
+        for (Operand gradient : gradients) {
+            finite.add(tf.reduceAll(tf.math.isFinite(gradient), allAxes(gradient)));
+        }
+        return tf.reduceAll(tf.stack(finite), tf.constant(0));
+    }
+
+    private Operand<TInt32> allAxes(Operand operand) {
+        return tf.range(tf.constant(0), tf.rank(operand), tf.constant(1));
+    }
+
+    /**
+     * Creates the operation that adjusts the loss scale for a step.
+     *
+     * @param allFinite whether the gradients of the step are finite
+     * @return the operation that adjusts the loss scale
+     */
+    Op updateLossScale(Operand<TBool> allFinite) {
+        if (!dynamic) {
+            return tf.noOp();
+        }
+        Operand<TInt64> steps = tf.select(allFinite, tf.math.add(goodSteps, tf.constant(1L)), tf.constant(0L));
+        Operand<TBool> grow = tf.math.greaterEqual(steps, tf.constant(growthSteps));
+        Operand<TFloat32> scale = tf.select(allFinite,
+                tf.select(grow, tf.math.mul(lossScale, tf.constant(2F)), lossScale),
+                tf.math.maximum(tf.math.div(lossScale, tf.constant(2F)), tf.constant(1F)));
+        steps = tf.select(grow, tf.constant(0L), steps);
+        return ControlDependencies.addControlDependencies(tf, "updateLossScale",
+                tf.assign(lossScale, scale, Assign.useLocking(true)),
+                tf.assign(goodSteps, steps, Assign.useLocking(true)));
+    }
+
+    /**
+     * @return the loss scale variable
+     */
+    public Variable<TFloat32> getLossScale() {
+        return lossScale;
+    }
+
+    /**
+     * @return the initial loss scale
+     */
+    public float getInitialScale() {
+        return initialScale;
+    }
+
+    /**
+     * @return the number of consecutive steps with finite gradients after
+     * which a dynamic loss scale is doubled.
+     */
+    public long getGrowthSteps() {
+        return growthSteps;
+    }
+
+    /**
+     * @return whether the loss scale is adjusted
+     */
+    public boolean isDynamic() {
+        return dynamic;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getOptimizerName() {
+        return "LossScaleOptimizer";
+    }
+}
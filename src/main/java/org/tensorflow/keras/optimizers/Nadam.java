@@ -14,6 +14,8 @@ limitations under the License.
 =======================================================================*/
 package org.tensorflow.keras.optimizers;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -23,13 +25,16 @@ import org.tensorflow.Operand;
 import org.tensorflow.Output;
 import static org.tensorflow.keras.optimizers.OptimizerInterface.NAME_KEY;
 import static org.tensorflow.keras.optimizers.OptimizerInterface.assertGraph;
+import org.tensorflow.Session;
 import org.tensorflow.ndarray.Shape;
 import org.tensorflow.op.Op;
 import org.tensorflow.op.Ops;
 import org.tensorflow.op.Scope;
 import org.tensorflow.op.core.Assign;
+import org.tensorflow.op.core.AssignSub;
 import org.tensorflow.op.core.Constant;
 import org.tensorflow.op.core.Variable;
+import org.tensorflow.op.train.ApplyAdam;
 import org.tensorflow.types.TFloat32;
 import org.tensorflow.types.TInt64;
 import org.tensorflow.types.family.TType;
@@ -62,20 +67,21 @@ public class Nadam extends org.tensorflow.framework.optimizers.Optimizer impleme
     private Scope scope;
     private final Map<String, Object> config = new HashMap<>();
 
-    private float learningRate;
+    private LearningRate learningRate;
+    private final GradientClipping gradientClipping;
     private final float betaOne;
     private final float betaTwo;
     private final float epsilon;
     private final float decayBase = 0.96F;
     private final float decay = 0.004F;
 
-    private long iterations = 0;
+    private Variable<TInt64> iterations;
 
-    private Constant<TFloat32> learningRateConst;
+    private Operand<TFloat32> learningRateOperand;
     private Constant<TFloat32> betaOneConst;
     private Constant<TFloat32> betaTwoConst;
-    private Constant<TInt64> localStepConst;
-    private Constant<TInt64> nextStepConst;
+    private Operand<TFloat32> localStep;
+    private Operand<TFloat32> nextStep;
 
     private Constant<TFloat32> decayBaseConst;
     private Constant<TFloat32> decayConst;
@@ -89,12 +95,14 @@ public class Nadam extends org.tensorflow.framework.optimizers.Optimizer impleme
     private Operand<TFloat32> m_t_1;
     private Operand<TFloat32> m_schedule_new;
     private Operand<TFloat32> m_schedule_next;
-    private Operand<TFloat32> one_minus_beta_1;
-    private Operand<TFloat32> one_minus_beta_2;
     private Operand<TFloat32> one_minus_m_t;
     private Operand<TFloat32> one_minus_m_schedule_new;
     private Operand<TFloat32> one_minus_m_schedule_next;
     private Operand<TFloat32> v_t_prime_denominator;
+    private Operand<TFloat32> zeroConst;
+    private Operand<TFloat32> momentumLearningRate;
+    private Operand<TFloat32> gradientLearningRate;
+    private Operand<TFloat32> epsilonHat;
     
 
     /**
@@ -150,6 +158,48 @@ public class Nadam extends org.tensorflow.framework.optimizers.Optimizer impleme
      * @param epsilon A small constant for numerical stability.
      */
     public Nadam(Ops tf, float learningRate, float betaOne, float betaTwo, float epsilon) {
+        this(tf, new LearningRate(tf, learningRate), betaOne, betaTwo, epsilon, GradientClipping.NONE);
+    }
+
+    /**
+     * Optimizer that implements the NAdam algorithm.
+     *
+     * @param tf the TensorFlow tf
+     * @param name name for the operations created when applying gradients.
+     * @param learningRate The learning rate.
+     * @param betaOne The exponential decay rate for the 1st moment estimates.
+     * @param betaTwo The exponential decay rate for the exponentially weighted
+     * infinity norm.
+     * @param epsilon A small constant for numerical stability.
+     */
+    public Nadam(Ops tf, String name, float learningRate, float betaOne, float betaTwo, float epsilon) {
+        this(tf, name, new LearningRate(tf, learningRate), betaOne, betaTwo, epsilon, GradientClipping.NONE);
+    }
+
+    /**
+     * Optimizer that implements the NAdam algorithm.
+     *
+     * @param tf the TensorFlow Ops
+     * @param learningRate the learning rate, which may follow a schedule.
+     */
+    public Nadam(Ops tf, LearningRate learningRate) {
+        this(tf, learningRate, BETA_ONE_DEFAULT, BETA_TWO_DEFAULT, EPSILON_DEFAULT, GradientClipping.NONE);
+    }
+
+    /**
+     * Optimizer that implements the NAdam algorithm.
+     *
+     * @param tf the TensorFlow Ops
+     * @param learningRate the learning rate, which may follow a schedule.
+     * @param betaOne The exponential decay rate for the 1st moment estimates.
+     * @param betaTwo The exponential decay rate for the exponentially weighted
+     * infinity norm.
+     * @param epsilon A small constant for numerical stability.
+     * @param gradientClipping the clipping of the gradients before they are
+     * applied.
+     */
+    public Nadam(Ops tf, LearningRate learningRate, float betaOne, float betaTwo, float epsilon,
+            GradientClipping gradientClipping) {
         super(assertGraph(tf));
         this.learningRate = learningRate;
         this.betaOne = betaOne;
@@ -157,6 +207,8 @@ public class Nadam extends org.tensorflow.framework.optimizers.Optimizer impleme
         this.epsilon = epsilon;
         this.scope = tf.scope();
         initConfig(learningRate, betaOne, betaTwo, epsilon);
+        this.gradientClipping = gradientClipping;
+        config.putAll(gradientClipping.getConfig());
     }
 
     /**
@@ -164,13 +216,16 @@ public class Nadam extends org.tensorflow.framework.optimizers.Optimizer impleme
      *
      * @param tf the TensorFlow tf
      * @param name name for the operations created when applying gradients.
-     * @param learningRate The learning rate.
+     * @param learningRate the learning rate, which may follow a schedule.
      * @param betaOne The exponential decay rate for the 1st moment estimates.
      * @param betaTwo The exponential decay rate for the exponentially weighted
      * infinity norm.
      * @param epsilon A small constant for numerical stability.
+     * @param gradientClipping the clipping of the gradients before they are
+     * applied.
      */
-    public Nadam(Ops tf, String name, float learningRate, float betaOne, float betaTwo, float epsilon) {
+    public Nadam(Ops tf, String name, LearningRate learningRate, float betaOne, float betaTwo, float epsilon,
+            GradientClipping gradientClipping) {
         super(assertGraph(tf), name);
         this.learningRate = learningRate;
         this.betaOne = betaOne;
@@ -179,6 +234,8 @@ public class Nadam extends org.tensorflow.framework.optimizers.Optimizer impleme
         this.scope = tf.scope();
 
         initConfig(learningRate, betaOne, betaTwo, epsilon);
+        this.gradientClipping = gradientClipping;
+        config.putAll(gradientClipping.getConfig());
     }
     
 
@@ -190,17 +247,26 @@ public class Nadam extends org.tensorflow.framework.optimizers.Optimizer impleme
      */
     public static Nadam create(Ops tf, Map<String, Object> config) {
         String name = (String) config.get(NAME_KEY);
-        float learningRate = (float) config.getOrDefault(LEARNING_RATE_KEY, LEARNING_RATE_DEFAULT);
+        LearningRate learningRate = LearningRate.fromConfigValue(tf,
+                config.getOrDefault(LEARNING_RATE_KEY, LEARNING_RATE_DEFAULT));
+        GradientClipping gradientClipping = GradientClipping.fromConfig(config);
         float epsilon = (float) config.getOrDefault(EPSILON_KEY, EPSILON_DEFAULT);
-        float betaOne = (float) config.getOrDefault(LEARNING_RATE_KEY, LEARNING_RATE_DEFAULT);
-        float betaTwo = (float) config.getOrDefault(LEARNING_RATE_KEY, LEARNING_RATE_DEFAULT);
+        float betaOne = (float) config.getOrDefault(BETA_ONE_KEY, BETA_ONE_DEFAULT);
+        float betaTwo = (float) config.getOrDefault(BETA_TWO_KEY, BETA_TWO_DEFAULT);
         if (name == null) {
-            return new Nadam(tf, learningRate, betaOne, betaTwo, epsilon);
+            return new Nadam(tf, learningRate, betaOne, betaTwo, epsilon, gradientClipping);
         } else {
-            return new Nadam(tf, name, learningRate, betaOne, betaTwo, epsilon);
+            return new Nadam(tf, name, learningRate, betaOne, betaTwo, epsilon, gradientClipping);
         }
     }
 
+    /**
+     * @return the clipping of the gradients before they are applied
+     */
+    public GradientClipping getGradientClipping() {
+        return gradientClipping;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -214,7 +280,7 @@ public class Nadam extends org.tensorflow.framework.optimizers.Optimizer impleme
      */
     @Override
     public float getLearningRate() {
-        return this.learningRate;
+        return this.learningRate.getValue();
     }
 
     /**
@@ -222,7 +288,23 @@ public class Nadam extends org.tensorflow.framework.optimizers.Optimizer impleme
      */
     @Override
     public void setLearningRate(float learningRate) {
-        this.learningRate = learningRate;
+        this.learningRate.setValue(learningRate);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setLearningRate(Session session, float learningRate) {
+        this.learningRate.setValue(session, learningRate);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Operand<TFloat32> getLearningRateOperand() {
+        return this.learningRate.getOperand();
     }
     
     
@@ -249,6 +331,10 @@ public class Nadam extends org.tensorflow.framework.optimizers.Optimizer impleme
         Assign<TFloat32> momentumInit = tf.assign(momentum, tf.constant(1.0F));
         ((Graph)tf.scope().env()).addInitializer(momentumInit);
 
+        iterations = tf.withName("iterations").variable(Shape.scalar(), TInt64.DTYPE);
+        Assign<TInt64> iterationsInit = tf.assign(iterations, tf.constant(0L));
+        ((Graph)tf.scope().env()).addInitializer(iterationsInit);
+
     }
 
     private <T extends TType> void createNadamSlot(Output<T> v) {
@@ -266,17 +352,21 @@ public class Nadam extends org.tensorflow.framework.optimizers.Optimizer impleme
 
     /**
      * {@inheritDoc}
+     * <p>
+     * The coefficients of the momentum schedule are computed here, once per
+     * training step, from the <code>iterations</code> variable, and are
+     * shared by the updates of every variable.
      */
     @Override
     protected Optional<Op> prepare(String scopeName) {
         Constant one = tf.constant(1.0F);
         Constant point5 = tf.constant(0.5F);
 
-        learningRateConst = tf.constant(learningRate);
+        learningRateOperand = learningRate.getOperand();
         betaOneConst = tf.constant(betaOne);
         betaTwoConst = tf.constant(betaTwo);
-        localStepConst = tf.constant(this.iterations + 1);
-        nextStepConst = tf.constant(this.iterations + 2);
+        localStep = tf.math.add(tf.dtypes.cast(iterations, TFloat32.DTYPE), one);
+        nextStep = tf.math.add(localStep, one);
         decayConst = tf.constant(decay);
         decayBaseConst = tf.constant(this.decayBase);
         epsilonConst = tf.constant(this.epsilon);
@@ -285,26 +375,20 @@ public class Nadam extends org.tensorflow.framework.optimizers.Optimizer impleme
         m_t = tf.math.mul(betaOneConst, tf.math.sub(one,
                 tf.math.mul(point5,
                         tf.math.pow(decayBaseConst,
-                                tf.math.mul(decayConst, tf.dtypes.cast(localStepConst, TFloat32.DTYPE))))));
+                                tf.math.mul(decayConst, localStep)))));
         // m_t_1 = beta_1_t * (1. - 0.5 * ( math_ops.pow(decay_base, self._initial_decay * next_step)))
         m_t_1 = tf.math.mul(betaOneConst, tf.math.sub(one,
                 tf.math.mul(point5,
                         tf.math.pow(decayBaseConst,
-                                tf.math.mul(decayConst, tf.dtypes.cast(nextStepConst, TFloat32.DTYPE))))));
+                                tf.math.mul(decayConst, nextStep)))));
 
         // m_schedule_new = math_ops.cast(self._m_cache_read, var_dtype) * m_t
+        // the momentum cache is only assigned m_schedule_new in finish, after
+        // the variable updates, so that it is skipped with them.
         m_schedule_new = tf.math.mul(momentum, m_t);
-        //if var_dtype is self._m_cache.dtype:
-        // m_schedule_new = array_ops.identity(state_ops.assign(
-        //self._m_cache, m_schedule_new, use_locking=self._use_locking))
-        m_schedule_new = tf.identity(tf.assign(momentum, m_schedule_new, Assign.useLocking(true)));
         //m_schedule_next = m_schedule_new * m_t_1
         m_schedule_next = tf.math.mul(m_schedule_new, m_t_1);
 
-        // 1 - beta_1_t
-        one_minus_beta_1 = tf.math.sub(one, betaOneConst);
-        // 1 - beta_2_t,
-        one_minus_beta_2 = tf.math.sub(one, betaTwoConst);
         // 1. - m_t,
         one_minus_m_t = tf.math.sub(one, m_t);
         //1. - m_schedule_new
@@ -313,64 +397,77 @@ public class Nadam extends org.tensorflow.framework.optimizers.Optimizer impleme
         one_minus_m_schedule_next = tf.math.sub(one, m_schedule_next);
         // 1. - math_ops.pow(beta_2_t, local_step)
         v_t_prime_denominator = tf.math.sub(one,
-                tf.math.pow(betaTwoConst, tf.dtypes.cast(localStepConst, TFloat32.DTYPE)));
+                tf.math.pow(betaTwoConst, localStep));
+
+        // var_t = var - lr_t * m_t_bar / (sqrt(v_t_prime) + epsilon) is scaled
+        // by sqrt(v_t_prime_denominator), so that it only needs the coefficients
+        // of m_t and grad, and epsilon_hat = epsilon * sqrt(v_t_prime_denominator)
+        Operand<TFloat32> sqrtDenominator = tf.math.sqrt(v_t_prime_denominator);
+        zeroConst = tf.constant(0.0F);
+        // lr_t * m_t_1 / (1. - m_schedule_next) * sqrt(v_t_prime_denominator)
+        momentumLearningRate = tf.math.mul(learningRateOperand,
+                tf.math.mul(tf.math.div(m_t_1, one_minus_m_schedule_next), sqrtDenominator));
+        // lr_t * (1. - m_t) / (1. - m_schedule_new) * sqrt(v_t_prime_denominator)
+        gradientLearningRate = tf.math.mul(learningRateOperand,
+                tf.math.mul(tf.math.div(one_minus_m_t, one_minus_m_schedule_new), sqrtDenominator));
+        epsilonHat = tf.math.mul(epsilonConst, sqrtDenominator);
         return Optional.empty();
     }
 
     /**
      * {@inheritDoc}
+     * <p>
+     * The moments and the momentum term of the update are applied in one pass
+     * by the <code>ApplyAdam</code> kernel, with the per step coefficients
+     * computed in {@link #prepare(String)}, and the beta powers set to zero so
+     * that the kernel does not apply its own bias correction. The gradient
+     * term is then applied with the updated second moment.
      */
     @Override
     protected <T extends TType> Op applyDense(Output<T> gradient, Output<T> variable) {
         Variable<T> m = getSlot(variable, FIRST_MOMENT).get(); // first Moment
         Variable<T> v = getSlot(variable, SECOND_MOMENT).get(); // Second Moment
 
-        //  g_prime = grad / coefficients['one_minus_m_schedule_new']
-        Operand g_prime = tf.math.div((Operand) gradient, one_minus_m_schedule_new);
-        //m_t = (coefficients['beta_1_t'] * m + coefficients['one_minus_beta_1_t'] * grad)
-        Operand m_t = tf.math.add(
-                tf.math.mul(betaOneConst, (Operand) m),
-                tf.math.mul(one_minus_beta_1, (Operand) gradient));
-        //m_t = state_ops.assign(m, m_t, use_locking=self._use_locking)
-        // update m
-        m_t = tf.assign(m, m_t, Assign.useLocking(true));
-
-        //m_t_prime = m_t / coefficients['one_minus_m_schedule_next']
-        Operand m_t_prime = tf.math.div(m_t, one_minus_m_schedule_next);
-
-        //v_t = (coefficients['beta_2_t'] * v + coefficients['one_minus_beta_2_t'] * math_ops.square(grad))
-        Operand v_t = tf.math.add(
-                tf.math.mul(betaTwoConst, (Operand) v),
-                tf.math.mul(one_minus_beta_2, tf.math.square((Operand) gradient)));
-        // v_t = state_ops.assign(v, v_t, use_locking=self._use_locking)
-        // update v
-        v_t = tf.assign(v, v_t, Assign.useLocking(true));
-
-        //v_t_prime = v_t / coefficients['v_t_prime_denominator']
-        Operand v_t_prime = tf.math.div(v_t, v_t_prime_denominator);
-
-        //m_t_bar = (coefficients['one_minus_m_t'] * g_prime + coefficients['m_t_1'] * m_t_prime)
-        Operand m_t_bar = tf.math.add(
-                tf.math.mul(one_minus_m_t, g_prime),
-                tf.math.mul(m_t_1, m_t_prime));
-        // var_t = var - coefficients['lr_t'] * m_t_bar / (math_ops.sqrt(v_t_prime) + coefficients['epsilon'])
-        Operand var_t = tf.math.sub(
-                variable,
-                tf.math.div(
-                        tf.math.mul(learningRateConst, m_t_bar),
-                        tf.math.add(tf.math.sqrt(v_t_prime), epsilonConst)
-                )
-        );
-        //assign(var, var_t, use_locking=self._use_locking)
-        return tf.assign(variable, var_t, Assign.useLocking(true));
+        // m = beta_1 * m + (1 - beta_1) * grad
+        // v = beta_2 * v + (1 - beta_2) * grad * grad
+        // var = var - momentumLearningRate * m / (sqrt(v) + epsilon_hat)
+        Op adamUpdate = ApplyAdam.create(
+                tf.scope(),
+                (Operand) variable, (Operand) m, (Operand) v,
+                (Operand) zeroConst, (Operand) zeroConst,
+                (Operand) momentumLearningRate,
+                (Operand) betaOneConst, (Operand) betaTwoConst,
+                (Operand) epsilonHat,
+                (Operand) gradient,
+                ApplyAdam.useLocking(true));
+
+        // var = var - gradientLearningRate * grad / (sqrt(v) + epsilon_hat)
+        Ops ctf = tf.withControlDependencies(Collections.singletonList(adamUpdate));
+        Operand gradientTerm = ctf.math.div(
+                ctf.math.mul((Operand) gradient, gradientLearningRate),
+                ctf.math.add(ctf.math.sqrt((Operand) v), epsilonHat));
+        return ctf.assignSub(variable, gradientTerm, AssignSub.useLocking(true));
+    }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Clips the gradients first, if gradient clipping is set.
+     */
+    @Override
+    public Op applyGradients(List<GradAndVar<? extends TType>> gradsAndVars, String name) {
+        return super.applyGradients(gradientClipping.clip(tf, gradsAndVars), name);
     }
 
     /**
      * Gathers up the update operations into a single op that can be used as a
      * run target.
      * <p>
-     * Adds the betaOne, betaTwo and mu updates to the end of the updates list.
+     * Adds the momentum cache, betaOne and betaTwo updates to the end of the
+     * updates list, then the increment of the <code>iterations</code>
+     * variable, that runs after every other update so that they all see the
+     * same step. They all depend on the variable updates, so they do not run
+     * when the variable updates are skipped.
      *
      * @param updateOperations The update operations.
      * @param name The name of the run target.
@@ -378,9 +475,13 @@ public class Nadam extends org.tensorflow.framework.optimizers.Optimizer impleme
      */
     @Override
     protected Op finish(List<Op> updateOperations, String name) {
-        iterations++; // increment the step;
-        updateOperations.add(tf.assign(betaOnePower, tf.math.mul(betaOnePower, betaOneConst)));
-        updateOperations.add(tf.assign(betaTwoPower, tf.math.mul(betaTwoPower, betaTwoConst)));
+        Ops ctf = tf.withControlDependencies(new ArrayList<>(updateOperations));
+        updateOperations.add(ctf.assign(momentum, m_schedule_new, Assign.useLocking(true)));
+        updateOperations.add(ctf.assign(betaOnePower, tf.math.mul(betaOnePower, betaOneConst)));
+        updateOperations.add(ctf.assign(betaTwoPower, tf.math.mul(betaTwoPower, betaTwoConst)));
+        updateOperations.add(tf.withControlDependencies(new ArrayList<>(updateOperations))
+                .assignAdd(iterations, tf.constant(1L)));
+        learningRate.addUpdates(updateOperations);
         return super.finish(updateOperations, name);
     }
 
@@ -389,6 +490,17 @@ public class Nadam extends org.tensorflow.framework.optimizers.Optimizer impleme
         return "Nadam";
     }
 
+    /**
+     * Gets the number of training steps that have been applied, as it is held
+     * in the graph.
+     *
+     * @return the iterations variable, or null if no gradients have been
+     * applied yet.
+     */
+    public Variable<TInt64> getIterations() {
+        return iterations;
+    }
+
     /**
      * function that sets the config object based on which constructor is
      * called.
@@ -403,9 +515,9 @@ public class Nadam extends org.tensorflow.framework.optimizers.Optimizer impleme
      * Section 2.1), not the epsilon in Algorithm 1 of the paper. Defaults to
      * 1e-7.
      */
-    private void initConfig(float learningRate, float betaOne, float betaTwo, float epsilon) {
+    private void initConfig(LearningRate learningRate, float betaOne, float betaTwo, float epsilon) {
         config.put(NAME_KEY, this.getOptimizerName());
-        config.put(LEARNING_RATE_KEY, learningRate);
+        config.put(LEARNING_RATE_KEY, learningRate.getConfigValue());
         config.put(EPSILON_KEY, epsilon);
         config.put(BETA_ONE_KEY, betaOne);
         config.put(BETA_TWO_KEY, betaTwo);
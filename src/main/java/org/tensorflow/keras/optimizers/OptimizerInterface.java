@@ -16,7 +16,10 @@ package org.tensorflow.keras.optimizers;
 
 import java.util.Map;
 import org.tensorflow.Graph;
+import org.tensorflow.Operand;
+import org.tensorflow.Session;
 import org.tensorflow.op.Ops;
+import org.tensorflow.types.TFloat32;
 
 /**
  *
@@ -40,7 +43,8 @@ public interface OptimizerInterface {
     /**
      * return the current learning rate
      *
-     * @return the current learning rate
+     * @return the current learning rate, or the initial learning rate of a
+     * learning rate schedule
      */
     public float getLearningRate();
 
@@ -48,7 +52,28 @@ public interface OptimizerInterface {
      * set the learning rate
      *
      * @param learningRate the learning rate;
+     * @throws IllegalStateException if the learning rate follows a
+     * {@link org.tensorflow.keras.optimizers.schedules.LearningRateSchedule}
      */
     public void setLearningRate(float learningRate);
 
+    /**
+     * set the learning rate, and the variable that holds it in the graph, with
+     * a single assign, without rebuilding the graph.
+     *
+     * @param session the session that holds the optimizer variables
+     * @param learningRate the learning rate;
+     * @throws IllegalStateException if the learning rate follows a
+     * {@link org.tensorflow.keras.optimizers.schedules.LearningRateSchedule}
+     */
+    public void setLearningRate(Session session, float learningRate);
+
+    /**
+     * return the learning rate as it is held in the graph
+     *
+     * @return the learning rate variable, or the learning rate computed from
+     * the schedule step
+     */
+    public Operand<TFloat32> getLearningRateOperand();
+
 }
@@ -0,0 +1,165 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the );
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an  BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.optimizers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.tensorflow.Operand;
+import org.tensorflow.Output;
+import org.tensorflow.Session;
+import org.tensorflow.framework.optimizers.Optimizer;
+import static org.tensorflow.keras.optimizers.OptimizerInterface.NAME_KEY;
+import static org.tensorflow.keras.optimizers.OptimizerInterface.assertGraph;
+import org.tensorflow.op.Op;
+import org.tensorflow.op.Ops;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.family.TType;
+
+/**
+ * Base class for an optimizer that wraps another optimizer, and changes how
+ * or when the gradients are passed to it, e.g. {@link LossScaleOptimizer},
+ * {@link GradientAccumulator} and {@link FlattenedOptimizer}.
+ *
+ * <p>
+ * The gradients are always applied by the wrapped optimizer, and the learning
+ * rate is the learning rate of the wrapped optimizer. The variables the
+ * wrapper creates for itself are registered with
+ * {@link #addWrapperVariable(Operand)}, so that {@link #minimize(Operand)}
+ * does not apply gradients to them.
+ *
+ * @author Jim Clarke
+ */
+public abstract class OptimizerWrapper extends Optimizer implements OptimizerInterface {
+
+    public static final String OPTIMIZER_KEY = "optimizer";
+
+    protected final Optimizer optimizer;
+    protected final Map<String, Object> config = new HashMap<>();
+
+    private final Set<String> wrapperVariableNames = new HashSet<>();
+
+    /**
+     * Creates an OptimizerWrapper
+     *
+     * @param tf the TensorFlow Ops
+     * @param optimizer the wrapped optimizer
+     */
+    protected OptimizerWrapper(Ops tf, Optimizer optimizer) {
+        super(assertGraph(tf));
+        this.optimizer = optimizer;
+        config.put(NAME_KEY, getOptimizerName());
+        if (optimizer instanceof OptimizerInterface) {
+            config.put(OPTIMIZER_KEY, ((OptimizerInterface) optimizer).getConfig());
+        }
+    }
+
+    /**
+     * Registers a variable of the wrapper, that is not trained.
+     *
+     * @param variable the variable
+     */
+    protected void addWrapperVariable(Operand<?> variable) {
+        wrapperVariableNames.add(variable.asOutput().op().name());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Op minimize(Operand<?> loss) {
+        return minimize(loss, getOptimizerName() + "-minimize");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Op minimize(Operand<?> loss, String name) {
+        List<GradAndVar<?>> gradsAndVars = computeGradients(loss);
+        List<GradAndVar<? extends TType>> modelGradsAndVars = new ArrayList<>();
+        for (GradAndVar<?> gradAndVar : gradsAndVars) {
+            if (!wrapperVariableNames.contains(gradAndVar.getVariable().op().name())) {
+                modelGradsAndVars.add(gradAndVar);
+            }
+        }
+        return applyGradients(modelGradsAndVars, name);
+    }
+
+    /**
+     * This optimizer applies gradients with the wrapped optimizer
+     */
+    @Override
+    protected <T extends TType> Op applyDense(Output<T> gradient, Output<T> variable) {
+        throw new UnsupportedOperationException("Gradients are applied by the wrapped optimizer");
+    }
+
+    /**
+     * @return the wrapped optimizer
+     */
+    public Optimizer getOptimizer() {
+        return optimizer;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Object> getConfig() {
+        return config;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public float getLearningRate() {
+        return wrappedInterface().getLearningRate();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setLearningRate(float learningRate) {
+        wrappedInterface().setLearningRate(learningRate);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setLearningRate(Session session, float learningRate) {
+        wrappedInterface().setLearningRate(session, learningRate);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Operand<TFloat32> getLearningRateOperand() {
+        return wrappedInterface().getLearningRateOperand();
+    }
+
+    private OptimizerInterface wrappedInterface() {
+        if (!(optimizer instanceof OptimizerInterface)) {
+            throw new UnsupportedOperationException(optimizer.getOptimizerName() + " has no learning rate");
+        }
+        return (OptimizerInterface) optimizer;
+    }
+}
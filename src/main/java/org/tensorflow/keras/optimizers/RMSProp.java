@@ -15,17 +15,26 @@ limitations under the License.
 package org.tensorflow.keras.optimizers;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import static org.tensorflow.keras.optimizers.OptimizerInterface.NAME_KEY;
 import static org.tensorflow.keras.optimizers.OptimizerInterface.assertGraph;
+import org.tensorflow.Operand;
+import org.tensorflow.Output;
+import org.tensorflow.Session;
+import org.tensorflow.op.Op;
 import org.tensorflow.op.Ops;
+import org.tensorflow.op.core.Variable;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.family.TNumber;
+import org.tensorflow.types.family.TType;
 
 /**
  * RMSProp Optimizer that implements the RMSProp algorithm.
  *
  * @author Jim Clarke
  */
-public class RMSProp extends org.tensorflow.framework.optimizers.RMSProp implements OptimizerInterface {
+public class RMSProp extends org.tensorflow.framework.optimizers.RMSProp implements SparseOptimizerInterface {
 
     public static final String LEARNING_RATE_KEY = "learning_rate";
     public static final String DECAY_KEY = "decay";
@@ -40,7 +49,12 @@ public class RMSProp extends org.tensorflow.framework.optimizers.RMSProp impleme
     public static final boolean CENTERED_DEFAULT = false;
 
     private Map<String, Object> config = new HashMap<>();
-    private float learningRate;
+    private LearningRate learningRate;
+    private final GradientClipping gradientClipping;
+    private float decay;
+    private float momentum;
+    private float epsilon;
+    private boolean centered;
 
     /**
      * create an RMSProp Optimizer with the following defaults, name="RMSProp",
@@ -95,8 +109,7 @@ public class RMSProp extends org.tensorflow.framework.optimizers.RMSProp impleme
      */
     public RMSProp(Ops tf, float learningRate, float decay, float momentum,
             float epsilon, boolean centered) {
-        super(assertGraph(tf), learningRate, decay, momentum, epsilon, centered);
-        initConfig(learningRate, decay, momentum, epsilon, centered);
+        this(tf, new LearningRate(tf, learningRate), decay, momentum, epsilon, centered, GradientClipping.NONE);
     }
 
     /**
@@ -116,8 +129,66 @@ public class RMSProp extends org.tensorflow.framework.optimizers.RMSProp impleme
      */
     public RMSProp(Ops tf, String name, float learningRate, float decay,
             float momentum, float epsilon, boolean centered) {
-        super(assertGraph(tf), name, learningRate, decay, momentum, epsilon, centered);
+        this(tf, name, new LearningRate(tf, learningRate), decay, momentum, epsilon, centered, GradientClipping.NONE);
+    }
+
+    /**
+     * create an RMSProp Optimizer
+     *
+     * @param tf the TensorFlow Graph
+     * @param learningRate the learning rate, which may follow a schedule.
+     */
+    public RMSProp(Ops tf, LearningRate learningRate) {
+        this(tf, learningRate, DECAY_DEFAULT, MOMENTUM_DEFAULT,
+                EPSILON_DEFAULT, CENTERED_DEFAULT, GradientClipping.NONE);
+    }
+
+    /**
+     * create an RMSProp Optimizer
+     *
+     * @param tf the TensorFlow Graph
+     * @param learningRate the learning rate, which may follow a schedule.
+     * @param decay Discounting factor for the history/coming gradient. Defaults
+     * to 0.9.
+     * @param momentum hyperparameter that accelerates descent in the relevant
+     * direction and dampens oscillations. Must be between [0, 1].
+     * @param epsilon A small constant for numerical stability.
+     * @param centered If True, gradients are normalized by the estimated
+     * variance of the gradient; if False, by the uncentered second moment.
+     * @param gradientClipping the clipping of the gradients before they are
+     * applied.
+     */
+    public RMSProp(Ops tf, LearningRate learningRate, float decay, float momentum,
+            float epsilon, boolean centered, GradientClipping gradientClipping) {
+        super(assertGraph(tf), learningRate.getValue(), decay, momentum, epsilon, centered);
         initConfig(learningRate, decay, momentum, epsilon, centered);
+        this.gradientClipping = gradientClipping;
+        config.putAll(gradientClipping.getConfig());
+    }
+
+    /**
+     * create an RMSProp Optimizer
+     *
+     * @param tf the TensorFlow Graph
+     * @param name prefix for the operations created when applying gradients.
+     * Defaults to "RMSProp"
+     * @param learningRate the learning rate, which may follow a schedule.
+     * @param decay Discounting factor for the history/coming gradient. Defaults
+     * to 0.9.
+     * @param momentum hyperparameter that accelerates descent in the relevant
+     * direction and dampens oscillations. Must be between [0, 1].
+     * @param epsilon A small constant for numerical stability.
+     * @param centered If True, gradients are normalized by the estimated
+     * variance of the gradient; if False, by the uncentered second moment.
+     * @param gradientClipping the clipping of the gradients before they are
+     * applied.
+     */
+    public RMSProp(Ops tf, String name, LearningRate learningRate, float decay,
+            float momentum, float epsilon, boolean centered, GradientClipping gradientClipping) {
+        super(assertGraph(tf), name, learningRate.getValue(), decay, momentum, epsilon, centered);
+        initConfig(learningRate, decay, momentum, epsilon, centered);
+        this.gradientClipping = gradientClipping;
+        config.putAll(gradientClipping.getConfig());
     }
 
     /* TODO - do we need to do this to be compatible with keras python? */
@@ -147,15 +218,17 @@ public class RMSProp extends org.tensorflow.framework.optimizers.RMSProp impleme
     public static RMSProp create(Ops tf, Map<String, Object> config) {
 
         String name = (String) config.get(NAME_KEY);
-        float learningRate = (float) config.getOrDefault(LEARNING_RATE_KEY, LEARNING_RATE_DEFAULT);
+        LearningRate learningRate = LearningRate.fromConfigValue(tf,
+                config.getOrDefault(LEARNING_RATE_KEY, LEARNING_RATE_DEFAULT));
+        GradientClipping gradientClipping = GradientClipping.fromConfig(config);
         float decay = (float) config.getOrDefault(DECAY_KEY, DECAY_DEFAULT);
         float momentum = (float) config.getOrDefault(MOMENTUM_KEY, MOMENTUM_DEFAULT);
         float epsilon = (float) config.getOrDefault(EPSILON_KEY, EPSILON_DEFAULT);
         boolean centered = (boolean) config.getOrDefault(CENTERED_KEY, CENTERED_DEFAULT);
         if (name == null) {
-            return new RMSProp(tf, learningRate, decay, momentum, epsilon, centered);
+            return new RMSProp(tf, learningRate, decay, momentum, epsilon, centered, gradientClipping);
         } else {
-            return new RMSProp(tf, name, learningRate, decay, momentum, epsilon, centered);
+            return new RMSProp(tf, name, learningRate, decay, momentum, epsilon, centered, gradientClipping);
         }
 
     }
@@ -163,7 +236,7 @@ public class RMSProp extends org.tensorflow.framework.optimizers.RMSProp impleme
     /**
      * Initialize the configuration based on which constructor is called.
      *
-     * @param learningRate The learning rate. Defaults to 0.001.
+     * @param learningRate The learning rate, either a float or a schedule.
      * @param decay Discounting factor for the history/coming gradient. Defaults
      * to 0.9.
      * @param momentum hyperparameter that accelerates descent in the relevant
@@ -172,17 +245,107 @@ public class RMSProp extends org.tensorflow.framework.optimizers.RMSProp impleme
      * @param centered If True, gradients are normalized by the estimated
      * variance of the gradient; if False, by the uncentered second moment.
      */
-    private void initConfig(float learningRate, float decay, float momentum,
+    private void initConfig(LearningRate learningRate, float decay, float momentum,
             float epsilon, boolean centered) {
         this.learningRate = learningRate;
+        this.decay = decay;
+        this.momentum = momentum;
+        this.epsilon = epsilon;
+        this.centered = centered;
         config.put(NAME_KEY, this.getOptimizerName());
-        config.put(LEARNING_RATE_KEY, learningRate);
+        config.put(LEARNING_RATE_KEY, learningRate.getConfigValue());
         config.put(DECAY_KEY, decay);
         config.put(MOMENTUM_KEY, momentum);
         config.put(EPSILON_KEY, epsilon);
         config.put(CENTERED_KEY, centered);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The learning rate is read from its graph variable.
+     */
+    @Override
+    protected <T extends TType> Op applyDense(Output<T> gradient, Output<T> variable) {
+        Variable<T> rmsSlot = getSlot(variable, RMS).get();
+        Variable<T> momentumSlot = getSlot(variable, MOMENTUM).get();
+        Operand<T> lr = learningRate.getOperand(gradient.dataType());
+        Operand<T> decayOperand = tf.dtypes.cast(tf.constant(decay), gradient.dataType());
+        Operand<T> momentumOperand = tf.dtypes.cast(tf.constant(momentum), gradient.dataType());
+        Operand<T> epsilonOperand = tf.dtypes.cast(tf.constant(epsilon), gradient.dataType());
+        if (centered) {
+            Variable<T> mgSlot = getSlot(variable, MG).get();
+            return tf.train.applyCenteredRmsProp(variable, mgSlot, rmsSlot, momentumSlot, lr,
+                    decayOperand, momentumOperand, epsilonOperand, gradient);
+        }
+        return tf.train.applyRmsProp(variable, rmsSlot, momentumSlot, lr,
+                decayOperand, momentumOperand, epsilonOperand, gradient);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Op applyGradients(List<GradAndVar<? extends TType>> gradsAndVars,
+            List<SparseGradAndVar<? extends TType>> sparseGradsAndVars, String name) {
+        return SparseOptimizerInterface.applyGradients(tf, gradientClipping, gradsAndVars, sparseGradsAndVars,
+                name, this::createSlots, this::prepare, this::applyDense, this::applySparse, this::finish);
+    }
+
+    /**
+     * Applies a sparse gradient to the rows of a variable, and of its slots.
+     *
+     * @param <T> the data type of the gradient and variable
+     * @param gradient the gradient rows, with unique indices
+     * @param indices the indices of the rows of the variable
+     * @param variable the variable
+     * @return the update operation
+     */
+    protected <T extends TType> Op applySparse(Output<T> gradient, Operand<? extends TNumber> indices,
+            Output<T> variable) {
+        Variable<T> rmsSlot = getSlot(variable, RMS).get();
+        Variable<T> momentumSlot = getSlot(variable, MOMENTUM).get();
+        Operand<T> lr = learningRate.getOperand(gradient.dataType());
+        Operand<T> decayOperand = tf.dtypes.cast(tf.constant(decay), gradient.dataType());
+        Operand<T> momentumOperand = tf.dtypes.cast(tf.constant(momentum), gradient.dataType());
+        Operand<T> epsilonOperand = tf.dtypes.cast(tf.constant(epsilon), gradient.dataType());
+        if (centered) {
+            Variable<T> mgSlot = getSlot(variable, MG).get();
+            return tf.train.sparseApplyCenteredRmsProp(variable, mgSlot, rmsSlot, momentumSlot, lr,
+                    decayOperand, momentumOperand, epsilonOperand, gradient, indices);
+        }
+        return tf.train.sparseApplyRmsProp(variable, rmsSlot, momentumSlot, lr,
+                decayOperand, momentumOperand, epsilonOperand, gradient, indices);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Clips the gradients first, if gradient clipping is set.
+     */
+    @Override
+    public Op applyGradients(List<GradAndVar<? extends TType>> gradsAndVars, String name) {
+        return super.applyGradients(gradientClipping.clip(tf, gradsAndVars), name);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Advances the learning rate schedule, if any.
+     */
+    @Override
+    protected Op finish(List<Op> updateOperations, String name) {
+        learningRate.addUpdates(updateOperations);
+        return super.finish(updateOperations, name);
+    }
+
+    /**
+     * @return the clipping of the gradients before they are applied
+     */
+    public GradientClipping getGradientClipping() {
+        return gradientClipping;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -196,7 +359,7 @@ public class RMSProp extends org.tensorflow.framework.optimizers.RMSProp impleme
      */
     @Override
     public float getLearningRate() {
-        return this.learningRate;
+        return this.learningRate.getValue();
     }
 
     /**
@@ -204,6 +367,22 @@ public class RMSProp extends org.tensorflow.framework.optimizers.RMSProp impleme
      */
     @Override
     public void setLearningRate(float learningRate) {
-        this.learningRate = learningRate;
+        this.learningRate.setValue(learningRate);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setLearningRate(Session session, float learningRate) {
+        this.learningRate.setValue(session, learningRate);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Operand<TFloat32> getLearningRateOperand() {
+        return this.learningRate.getOperand();
     }
 }
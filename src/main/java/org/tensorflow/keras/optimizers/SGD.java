@@ -15,10 +15,19 @@ limitations under the License.
 package org.tensorflow.keras.optimizers;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import static org.tensorflow.keras.optimizers.OptimizerInterface.NAME_KEY;
 import static org.tensorflow.keras.optimizers.OptimizerInterface.assertGraph;
+import org.tensorflow.Operand;
+import org.tensorflow.Output;
+import org.tensorflow.Session;
+import org.tensorflow.op.Op;
 import org.tensorflow.op.Ops;
+import org.tensorflow.op.core.Variable;
+import org.tensorflow.op.train.ApplyMomentum;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.family.TType;
 
 /**
  * SGD Stochastic gradient descent and momentum optimizer.
@@ -37,7 +46,10 @@ public class SGD extends org.tensorflow.framework.optimizers.Momentum implements
     public static final boolean NESTEROV_DEFAULT = false;
 
     private Map<String, Object> config = new HashMap<>();
-    private float learningRate;
+    private LearningRate learningRate;
+    private final GradientClipping gradientClipping;
+    private float momentum;
+    private boolean useNesterov;
 
     /**
      * create a Stochastic gradient descent optimizer using defaults:
@@ -110,9 +122,7 @@ public class SGD extends org.tensorflow.framework.optimizers.Momentum implements
      * `false`.
      */
     public SGD(Ops tf, float learningRate, float momentum, boolean useNesterov) {
-        super(assertGraph(tf), learningRate, momentum, useNesterov);
-        assert momentum >= 0.0F && momentum <= 1.0F : "\"momentum\" must be between [0, 1].";
-        initConfig(learningRate, momentum, useNesterov);
+        this(tf, new LearningRate(tf, learningRate), momentum, useNesterov, GradientClipping.NONE);
     }
 
     /**
@@ -127,9 +137,60 @@ public class SGD extends org.tensorflow.framework.optimizers.Momentum implements
      * `false`.
      */
     public SGD(Ops tf, String name, float learningRate, float momentum, boolean useNesterov) {
-        super(assertGraph(tf), name, learningRate, momentum, useNesterov);
+        this(tf, name, new LearningRate(tf, learningRate), momentum, useNesterov, GradientClipping.NONE);
+    }
+
+    /**
+     * create a Stochastic gradient descent optimizer
+     *
+     * @param tf the TensorFlow tf
+     * @param learningRate the learning rate, which may follow a schedule.
+     */
+    public SGD(Ops tf, LearningRate learningRate) {
+        this(tf, learningRate, MOMENTUM_DEFAULT, NESTEROV_DEFAULT, GradientClipping.NONE);
+    }
+
+    /**
+     * create a Stochastic gradient descent optimizer
+     *
+     * @param tf the TensorFlow tf
+     * @param learningRate the learning rate, which may follow a schedule.
+     * @param momentum hyperparameter that accelerates SGD in the relevant
+     * direction and dampens oscillations. Must be between [0, 1].
+     * @param useNesterov Whether to apply Nesterov momentum. Defaults to
+     * `false`.
+     * @param gradientClipping the clipping of the gradients before they are
+     * applied.
+     */
+    public SGD(Ops tf, LearningRate learningRate, float momentum, boolean useNesterov,
+            GradientClipping gradientClipping) {
+        super(assertGraph(tf), learningRate.getValue(), momentum, useNesterov);
         assert momentum >= 0.0F && momentum <= 1.0F : "\"momentum\" must be between [0, 1].";
         initConfig(learningRate, momentum, useNesterov);
+        this.gradientClipping = gradientClipping;
+        config.putAll(gradientClipping.getConfig());
+    }
+
+    /**
+     * create a Stochastic gradient descent optimizer
+     *
+     * @param tf the TensorFlow tf
+     * @param name prefix for the operations created when applying gradients
+     * @param learningRate the learning rate, which may follow a schedule.
+     * @param momentum hyperparameter that accelerates SGD in the relevant
+     * direction and dampens oscillations. Must be between [0, 1].
+     * @param useNesterov Whether to apply Nesterov momentum. Defaults to
+     * `false`.
+     * @param gradientClipping the clipping of the gradients before they are
+     * applied.
+     */
+    public SGD(Ops tf, String name, LearningRate learningRate, float momentum, boolean useNesterov,
+            GradientClipping gradientClipping) {
+        super(assertGraph(tf), name, learningRate.getValue(), momentum, useNesterov);
+        assert momentum >= 0.0F && momentum <= 1.0F : "\"momentum\" must be between [0, 1].";
+        initConfig(learningRate, momentum, useNesterov);
+        this.gradientClipping = gradientClipping;
+        config.putAll(gradientClipping.getConfig());
     }
 
     /* TODO - do we need to do this to be compatible with keras python? */
@@ -158,13 +219,15 @@ public class SGD extends org.tensorflow.framework.optimizers.Momentum implements
     public static SGD create(Ops tf, Map<String, Object> config) {
 
         String name = (String) config.get(NAME_KEY);
-        float learningRate = (float) config.getOrDefault(LEARNING_RATE_KEY, LEARNING_RATE_DEFAULT);
+        LearningRate learningRate = LearningRate.fromConfigValue(tf,
+                config.getOrDefault(LEARNING_RATE_KEY, LEARNING_RATE_DEFAULT));
+        GradientClipping gradientClipping = GradientClipping.fromConfig(config);
         float momentum = (float) config.getOrDefault(MOMENTUM_KEY, MOMENTUM_DEFAULT);
         boolean nesterov = (boolean) config.getOrDefault(NESTEROV_KEY, NESTEROV_DEFAULT);
         if (name == null) {
-            return new SGD(tf, learningRate, momentum, nesterov);
+            return new SGD(tf, learningRate, momentum, nesterov, gradientClipping);
         } else {
-            return new SGD(tf, name, learningRate, momentum, nesterov);
+            return new SGD(tf, name, learningRate, momentum, nesterov, gradientClipping);
         }
 
     }
@@ -172,20 +235,63 @@ public class SGD extends org.tensorflow.framework.optimizers.Momentum implements
     /**
      * Initialize the configuration ased on which constructor is called.
      *
-     * @param learningRate learningRate The learning rate. Defaults to 0.01.
+     * @param learningRate The learning rate, either a float or a schedule.
      * @param momentum hyperparameter that accelerates SGD in the relevant
      * direction and dampens oscillations. Must be between [0, 1].
      * @param useNesterov Whether to apply Nesterov momentum. Defaults to
      * `false`.
      */
-    private void initConfig(float learningRate, float momentum, boolean useNesterov) {
+    private void initConfig(LearningRate learningRate, float momentum, boolean useNesterov) {
         this.learningRate = learningRate;
+        this.momentum = momentum;
+        this.useNesterov = useNesterov;
         config.put(NAME_KEY, this.getOptimizerName());
-        config.put(LEARNING_RATE_KEY, learningRate);
+        config.put(LEARNING_RATE_KEY, learningRate.getConfigValue());
         config.put(MOMENTUM_KEY, momentum);
         config.put(NESTEROV_KEY, useNesterov);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The learning rate is read from its graph variable.
+     */
+    @Override
+    protected <T extends TType> Op applyDense(Output<T> gradient, Output<T> variable) {
+        Variable<T> slot = getSlot(variable, MOMENTUM).get();
+        return tf.train.applyMomentum(variable, slot, learningRate.getOperand(gradient.dataType()), gradient,
+                tf.dtypes.cast(tf.constant(momentum), gradient.dataType()),
+                ApplyMomentum.useNesterov(useNesterov));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Clips the gradients first, if gradient clipping is set.
+     */
+    @Override
+    public Op applyGradients(List<GradAndVar<? extends TType>> gradsAndVars, String name) {
+        return super.applyGradients(gradientClipping.clip(tf, gradsAndVars), name);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Advances the learning rate schedule, if any.
+     */
+    @Override
+    protected Op finish(List<Op> updateOperations, String name) {
+        learningRate.addUpdates(updateOperations);
+        return super.finish(updateOperations, name);
+    }
+
+    /**
+     * @return the clipping of the gradients before they are applied
+     */
+    public GradientClipping getGradientClipping() {
+        return gradientClipping;
+    }
+
     /**
      * { @inheritDoc }
      */
@@ -199,7 +305,7 @@ public class SGD extends org.tensorflow.framework.optimizers.Momentum implements
      */
     @Override
     public float getLearningRate() {
-        return this.learningRate;
+        return this.learningRate.getValue();
     }
 
     /**
@@ -207,7 +313,23 @@ public class SGD extends org.tensorflow.framework.optimizers.Momentum implements
      */
     @Override
     public void setLearningRate(float learningRate) {
-        this.learningRate = learningRate;
+        this.learningRate.setValue(learningRate);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setLearningRate(Session session, float learningRate) {
+        this.learningRate.setValue(session, learningRate);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Operand<TFloat32> getLearningRateOperand() {
+        return this.learningRate.getOperand();
     }
 
     // overide the momentum name to return "SGD"
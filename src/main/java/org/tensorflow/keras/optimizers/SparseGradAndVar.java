@@ -0,0 +1,106 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the );
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an  BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.optimizers;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.tensorflow.Operand;
+import org.tensorflow.Output;
+import org.tensorflow.framework.optimizers.Optimizer.GradAndVar;
+import org.tensorflow.op.Ops;
+import org.tensorflow.op.core.Unique;
+import org.tensorflow.types.TInt32;
+import org.tensorflow.types.family.TNumber;
+import org.tensorflow.types.family.TType;
+
+/**
+ * A row-wise gradient of a variable, such as the gradient of an embedding
+ * lookup, held as the gathered gradient rows and the indices of the rows of
+ * the variable they belong to.
+ *
+ * @param <T> the data type of the gradient and variable
+ * @author Jim Clarke
+ */
+public class SparseGradAndVar<T extends TType> {
+
+    private final Operand<T> values;
+    private final Operand<? extends TNumber> indices;
+    private final Output<T> variable;
+
+    /**
+     * Creates a SparseGradAndVar
+     *
+     * @param values the gradient rows, the first dimension matches the
+     * indices, the other dimensions match the variable.
+     * @param indices the indices of the rows of the variable, may contain
+     * duplicates.
+     * @param variable the variable
+     */
+    public SparseGradAndVar(Operand<T> values, Operand<? extends TNumber> indices, Output<T> variable) {
+        this.values = values;
+        this.indices = indices;
+        this.variable = variable;
+    }
+
+    /**
+     * Sums the gradient rows that have the same index, so that each row of
+     * the variable is updated once.
+     *
+     * @param tf the TensorFlow Ops
+     * @return the gradient with unique indices
+     */
+    public SparseGradAndVar<T> deduplicate(Ops tf) {
+        Unique<?, TInt32> unique = tf.unique((Operand) indices, tf.constant(new int[]{0}));
+        Operand<T> summed = tf.math.unsortedSegmentSum(values, unique.idx(), tf.size(unique.y()));
+        return new SparseGradAndVar<>(summed, (Operand) unique.y(), variable);
+    }
+
+    /**
+     * Gets the variables of the dense and sparse gradients, in that order.
+     *
+     * @param gradsAndVars the dense gradients
+     * @param sparseGradsAndVars the sparse gradients
+     * @return the variables
+     */
+    public static List<Output<? extends TType>> getVariables(
+            List<GradAndVar<? extends TType>> gradsAndVars,
+            List<SparseGradAndVar<? extends TType>> sparseGradsAndVars) {
+        List<Output<? extends TType>> variables = new ArrayList<>();
+        gradsAndVars.forEach(pair -> variables.add(pair.getVariable()));
+        sparseGradsAndVars.forEach(pair -> variables.add(pair.getVariable()));
+        return variables;
+    }
+
+    /**
+     * @return the gradient rows
+     */
+    public Operand<T> getValues() {
+        return values;
+    }
+
+    /**
+     * @return the indices of the rows of the variable
+     */
+    public Operand<? extends TNumber> getIndices() {
+        return indices;
+    }
+
+    /**
+     * @return the variable
+     */
+    public Output<T> getVariable() {
+        return variable;
+    }
+}
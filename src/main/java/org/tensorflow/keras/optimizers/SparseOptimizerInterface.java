@@ -0,0 +1,141 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the );
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an  BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.optimizers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.tensorflow.Operand;
+import org.tensorflow.Output;
+import org.tensorflow.framework.optimizers.Optimizer.GradAndVar;
+import org.tensorflow.op.Op;
+import org.tensorflow.op.Ops;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.family.TNumber;
+import org.tensorflow.types.family.TType;
+
+/**
+ * An optimizer that can update only the rows of a variable, and of its slots,
+ * that have a gradient, e.g. the rows of an embedding table that were looked
+ * up in a batch.
+ *
+ * @author Jim Clarke
+ */
+public interface SparseOptimizerInterface extends OptimizerInterface {
+
+    /**
+     * Applies dense and sparse gradients to their variables as a single
+     * training step.
+     *
+     * <p>
+     * Duplicate indices in a sparse gradient are summed before they are
+     * applied, and before the gradients are clipped, if gradient clipping is
+     * set.
+     *
+     * @param gradsAndVars the dense gradients and variables
+     * @param sparseGradsAndVars the sparse gradients and variables
+     * @param name the name of the run target
+     * @return an op that applies the gradients and advances the optimizer
+     * state, such as the learning rate schedule step.
+     */
+    public Op applyGradients(List<GradAndVar<? extends TType>> gradsAndVars,
+            List<SparseGradAndVar<? extends TType>> sparseGradsAndVars, String name);
+
+    /**
+     * Applies dense and sparse gradients to their variables with the steps
+     * of an optimizer, the shared implementation of
+     * {@link #applyGradients(List, List, String)}.
+     *
+     * <p>
+     * The sparse gradients are deduplicated, all the gradients are clipped
+     * with a global scale computed over all of them, then the slots are
+     * created, the optimizer is prepared, each gradient is applied, and the
+     * update operations are finished into the run target.
+     *
+     * @param tf the TensorFlow Ops
+     * @param gradientClipping the clipping of the gradients
+     * @param gradsAndVars the dense gradients and variables
+     * @param sparseGradsAndVars the sparse gradients and variables
+     * @param name the name of the run target
+     * @param createSlots creates the slots of the variables
+     * @param prepare prepares the optimizer for a step
+     * @param applyDense applies a dense gradient to a variable
+     * @param applySparse applies a sparse gradient to the rows of a variable
+     * @param finish gathers the update operations into the run target
+     * @return the run target
+     */
+    public static Op applyGradients(Ops tf, GradientClipping gradientClipping,
+            List<GradAndVar<? extends TType>> gradsAndVars,
+            List<SparseGradAndVar<? extends TType>> sparseGradsAndVars, String name,
+            Consumer<List<Output<? extends TType>>> createSlots,
+            Function<String, Optional<Op>> prepare,
+            DenseUpdate applyDense, SparseUpdate applySparse,
+            BiFunction<List<Op>, String, Op> finish) {
+        List<SparseGradAndVar<? extends TType>> uniqueGradsAndVars = new ArrayList<>();
+        sparseGradsAndVars.forEach(pair -> uniqueGradsAndVars.add(pair.deduplicate(tf)));
+        List<Operand<? extends TType>> gradients = new ArrayList<>();
+        gradsAndVars.forEach(pair -> gradients.add(pair.getGradient()));
+        uniqueGradsAndVars.forEach(pair -> gradients.add(pair.getValues()));
+        Operand<TFloat32> globalScale = gradientClipping.getGlobalScale(tf, gradients);
+
+        createSlots.accept(SparseGradAndVar.getVariables(gradsAndVars, uniqueGradsAndVars));
+        List<Op> updateOperations = new ArrayList<>();
+        prepare.apply(name + "/prepare").ifPresent(updateOperations::add);
+        for (GradAndVar<? extends TType> pair : gradsAndVars) {
+            Operand gradient = gradientClipping.clip(tf, pair.getGradient(), globalScale);
+            updateOperations.add(applyDense.apply((Output) gradient.asOutput(), (Output) pair.getVariable()));
+        }
+        for (SparseGradAndVar<? extends TType> pair : uniqueGradsAndVars) {
+            Operand gradient = gradientClipping.clip(tf, pair.getValues(), globalScale);
+            updateOperations.add(applySparse.apply((Output) gradient.asOutput(), pair.getIndices(),
+                    (Output) pair.getVariable()));
+        }
+        return finish.apply(updateOperations, name);
+    }
+
+    /**
+     * Applies a dense gradient to a variable.
+     */
+    @FunctionalInterface
+    public interface DenseUpdate {
+
+        /**
+         * @param <T> the data type of the gradient and variable
+         * @param gradient the gradient
+         * @param variable the variable
+         * @return the update operation
+         */
+        <T extends TType> Op apply(Output<T> gradient, Output<T> variable);
+    }
+
+    /**
+     * Applies a sparse gradient to the rows of a variable.
+     */
+    @FunctionalInterface
+    public interface SparseUpdate {
+
+        /**
+         * @param <T> the data type of the gradient and variable
+         * @param gradient the gradient rows, with unique indices
+         * @param indices the indices of the rows of the variable
+         * @param variable the variable
+         * @return the update operation
+         */
+        <T extends TType> Op apply(Output<T> gradient, Operand<? extends TNumber> indices, Output<T> variable);
+    }
+}
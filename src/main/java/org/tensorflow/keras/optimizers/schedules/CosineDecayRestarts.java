@@ -0,0 +1,163 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.optimizers.schedules;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.tensorflow.Operand;
+import org.tensorflow.op.Ops;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.TInt64;
+
+/**
+ * A LearningRateSchedule that uses a cosine decay with warm restarts, as
+ * proposed in "SGDR: Stochastic Gradient Descent with Warm Restarts".
+ *
+ * <p>
+ * The first period lasts <code>firstDecaySteps</code> steps, each following
+ * period is <code>tMul</code> times longer than the previous one and starts
+ * from a learning rate <code>mMul</code> times the previous initial learning
+ * rate. Within a period, the learning rate decays from its initial value to
+ * <code>alpha</code> times that value along half a cosine.
+ *
+ * @author Jim Clarke
+ */
+public class CosineDecayRestarts extends LearningRateSchedule {
+
+    public static final String INITIAL_LEARNING_RATE_KEY = "initial_learning_rate";
+    public static final String FIRST_DECAY_STEPS_KEY = "first_decay_steps";
+    public static final String T_MUL_KEY = "t_mul";
+    public static final String M_MUL_KEY = "m_mul";
+    public static final String ALPHA_KEY = "alpha";
+
+    public static final float T_MUL_DEFAULT = 2.0F;
+    public static final float M_MUL_DEFAULT = 1.0F;
+    public static final float ALPHA_DEFAULT = 0.0F;
+
+    private final float initialLearningRate;
+    private final long firstDecaySteps;
+    private final float tMul;
+    private final float mMul;
+    private final float alpha;
+
+    /**
+     * Creates a CosineDecayRestarts with tMul=2.0, mMul=1.0 and alpha=0.0
+     *
+     * @param tf the TensorFlow Ops
+     * @param initialLearningRate the initial learning rate
+     * @param firstDecaySteps the number of steps of the first period, must be
+     * positive
+     */
+    public CosineDecayRestarts(Ops tf, float initialLearningRate, long firstDecaySteps) {
+        this(tf, initialLearningRate, firstDecaySteps, T_MUL_DEFAULT, M_MUL_DEFAULT, ALPHA_DEFAULT);
+    }
+
+    /**
+     * Creates a CosineDecayRestarts
+     *
+     * @param tf the TensorFlow Ops
+     * @param initialLearningRate the initial learning rate
+     * @param firstDecaySteps the number of steps of the first period, must be
+     * positive
+     * @param tMul the factor by which each period is longer than the previous
+     * one
+     * @param mMul the factor applied to the initial learning rate of each
+     * period
+     * @param alpha the minimum learning rate, as a fraction of the initial
+     * learning rate of the period
+     */
+    public CosineDecayRestarts(Ops tf, float initialLearningRate, long firstDecaySteps, float tMul,
+            float mMul, float alpha) {
+        super(tf);
+        if (firstDecaySteps <= 0) {
+            throw new IllegalArgumentException("firstDecaySteps must be positive: " + firstDecaySteps);
+        }
+        this.initialLearningRate = initialLearningRate;
+        this.firstDecaySteps = firstDecaySteps;
+        this.tMul = tMul;
+        this.mMul = mMul;
+        this.alpha = alpha;
+    }
+
+    /**
+     * Creates a CosineDecayRestarts from a config object
+     *
+     * @param tf the TensorFlow Ops
+     * @param config a config object with the keys "initial_learning_rate",
+     * "first_decay_steps", "t_mul", "m_mul" and "alpha". If one of the last
+     * three keys is missing the default value is used.
+     * @return the schedule
+     */
+    public static CosineDecayRestarts create(Ops tf, Map<String, Object> config) {
+        return new CosineDecayRestarts(tf,
+                ((Number) config.get(INITIAL_LEARNING_RATE_KEY)).floatValue(),
+                ((Number) config.get(FIRST_DECAY_STEPS_KEY)).longValue(),
+                ((Number) config.getOrDefault(T_MUL_KEY, T_MUL_DEFAULT)).floatValue(),
+                ((Number) config.getOrDefault(M_MUL_KEY, M_MUL_DEFAULT)).floatValue(),
+                ((Number) config.getOrDefault(ALPHA_KEY, ALPHA_DEFAULT)).floatValue());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Operand<TFloat32> call(Operand<TInt64> step) {
+        Operand<TFloat32> one = tf.constant(1f);
+        Operand<TFloat32> completedFraction = tf.math.div(toFloat(step), tf.constant((float) firstDecaySteps));
+        Operand<TFloat32> restarts;
+        if (tMul == 1.0F) {
+            restarts = tf.math.floor(completedFraction);
+            completedFraction = tf.math.sub(completedFraction, restarts);
+        } else {
+            // the periods are a geometric series, so the number of restarts
+            // is the largest i with (1 - tMul^i) / (1 - tMul) <= fraction
+            Operand<TFloat32> t = tf.constant(tMul);
+            restarts = tf.math.floor(tf.math.div(
+                    tf.math.log(tf.math.sub(one, tf.math.mul(completedFraction, tf.constant(1f - tMul)))),
+                    tf.math.log(t)));
+            Operand<TFloat32> restartPower = tf.math.pow(t, restarts);
+            Operand<TFloat32> completedPeriods = tf.math.div(tf.math.sub(one, restartPower), tf.constant(1f - tMul));
+            completedFraction = tf.math.div(tf.math.sub(completedFraction, completedPeriods), restartPower);
+        }
+        Operand<TFloat32> mFactor = tf.math.pow(tf.constant(mMul), restarts);
+        Operand<TFloat32> cosineDecayed = tf.math.mul(tf.math.mul(tf.constant(0.5f), mFactor),
+                tf.math.add(one, tf.math.cos(tf.math.mul(tf.constant((float) Math.PI), completedFraction))));
+        Operand<TFloat32> decayed = tf.math.add(tf.math.mul(tf.constant(1f - alpha), cosineDecayed),
+                tf.constant(alpha));
+        return tf.math.mul(tf.constant(initialLearningRate), decayed);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public float getInitialLearningRate() {
+        return initialLearningRate;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Object> getConfig() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(INITIAL_LEARNING_RATE_KEY, initialLearningRate);
+        config.put(FIRST_DECAY_STEPS_KEY, firstDecaySteps);
+        config.put(T_MUL_KEY, tMul);
+        config.put(M_MUL_KEY, mMul);
+        config.put(ALPHA_KEY, alpha);
+        return config;
+    }
+}
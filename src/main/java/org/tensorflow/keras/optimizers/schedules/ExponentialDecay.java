@@ -0,0 +1,127 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.optimizers.schedules;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.tensorflow.Operand;
+import org.tensorflow.op.Ops;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.TInt64;
+
+/**
+ * A LearningRateSchedule that uses an exponential decay,
+ * <code>initialLearningRate * decayRate ^ (step / decaySteps)</code>.
+ *
+ * <p>
+ * If <code>staircase</code> is true, <code>step / decaySteps</code> is an
+ * integer division and the learning rate decays at discrete intervals.
+ *
+ * @author Jim Clarke
+ */
+public class ExponentialDecay extends LearningRateSchedule {
+
+    public static final String INITIAL_LEARNING_RATE_KEY = "initial_learning_rate";
+    public static final String DECAY_STEPS_KEY = "decay_steps";
+    public static final String DECAY_RATE_KEY = "decay_rate";
+    public static final String STAIRCASE_KEY = "staircase";
+
+    private final float initialLearningRate;
+    private final long decaySteps;
+    private final float decayRate;
+    private final boolean staircase;
+
+    /**
+     * Creates an ExponentialDecay with staircase=false
+     *
+     * @param tf the TensorFlow Ops
+     * @param initialLearningRate the initial learning rate
+     * @param decaySteps the number of steps per decay, must be positive
+     * @param decayRate the decay rate
+     */
+    public ExponentialDecay(Ops tf, float initialLearningRate, long decaySteps, float decayRate) {
+        this(tf, initialLearningRate, decaySteps, decayRate, false);
+    }
+
+    /**
+     * Creates an ExponentialDecay
+     *
+     * @param tf the TensorFlow Ops
+     * @param initialLearningRate the initial learning rate
+     * @param decaySteps the number of steps per decay, must be positive
+     * @param decayRate the decay rate
+     * @param staircase if true, decay the learning rate at discrete intervals
+     */
+    public ExponentialDecay(Ops tf, float initialLearningRate, long decaySteps, float decayRate,
+            boolean staircase) {
+        super(tf);
+        if (decaySteps <= 0) {
+            throw new IllegalArgumentException("decaySteps must be positive: " + decaySteps);
+        }
+        this.initialLearningRate = initialLearningRate;
+        this.decaySteps = decaySteps;
+        this.decayRate = decayRate;
+        this.staircase = staircase;
+    }
+
+    /**
+     * Creates an ExponentialDecay from a config object
+     *
+     * @param tf the TensorFlow Ops
+     * @param config a config object with the keys "initial_learning_rate",
+     * "decay_steps", "decay_rate" and "staircase". staircase defaults to false.
+     * @return the schedule
+     */
+    public static ExponentialDecay create(Ops tf, Map<String, Object> config) {
+        return new ExponentialDecay(tf,
+                ((Number) config.get(INITIAL_LEARNING_RATE_KEY)).floatValue(),
+                ((Number) config.get(DECAY_STEPS_KEY)).longValue(),
+                ((Number) config.get(DECAY_RATE_KEY)).floatValue(),
+                (boolean) config.getOrDefault(STAIRCASE_KEY, false));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Operand<TFloat32> call(Operand<TInt64> step) {
+        Operand<TFloat32> p = tf.math.div(toFloat(step), tf.constant((float) decaySteps));
+        if (staircase) {
+            p = tf.math.floor(p);
+        }
+        return tf.math.mul(tf.constant(initialLearningRate), tf.math.pow(tf.constant(decayRate), p));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public float getInitialLearningRate() {
+        return initialLearningRate;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Object> getConfig() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(INITIAL_LEARNING_RATE_KEY, initialLearningRate);
+        config.put(DECAY_STEPS_KEY, decaySteps);
+        config.put(DECAY_RATE_KEY, decayRate);
+        config.put(STAIRCASE_KEY, staircase);
+        return config;
+    }
+}
@@ -0,0 +1,135 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.optimizers.schedules;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+import org.tensorflow.Operand;
+import org.tensorflow.op.Ops;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.TInt64;
+
+/**
+ * A learning rate that is computed in the graph from the training step, and
+ * that can be used in place of a float learning rate by every optimizer in
+ * <code>org.tensorflow.keras.optimizers</code>.
+ *
+ * <p>
+ * Schedules are serialized by {@link #serialize()} as a map with the keys
+ * <code>"class_name"</code> and <code>"config"</code>, which is the form the
+ * optimizers use for the learning rate in their config, and restored by
+ * {@link #deserialize(Ops, Map)}.
+ *
+ * @author Jim Clarke
+ */
+public abstract class LearningRateSchedule {
+
+    public static final String CLASS_NAME_KEY = "class_name";
+    public static final String CONFIG_KEY = "config";
+
+    static Map<String, BiFunction<Ops, Map<String, Object>, LearningRateSchedule>> map
+            = new HashMap<String, BiFunction<Ops, Map<String, Object>, LearningRateSchedule>>() {
+        {
+            put("ExponentialDecay", ExponentialDecay::create);
+            put("PiecewiseConstantDecay", PiecewiseConstantDecay::create);
+            put("PolynomialDecay", PolynomialDecay::create);
+            put("CosineDecayRestarts", CosineDecayRestarts::create);
+            put("LinearWarmup", LinearWarmup::create);
+        }
+    };
+
+    protected final Ops tf;
+
+    /**
+     * Creates a LearningRateSchedule
+     *
+     * @param tf the TensorFlow Ops
+     */
+    protected LearningRateSchedule(Ops tf) {
+        this.tf = tf;
+    }
+
+    /**
+     * Computes the learning rate at a step.
+     *
+     * @param step the training step, starting at 0
+     * @return the learning rate
+     */
+    public abstract Operand<TFloat32> call(Operand<TInt64> step);
+
+    /**
+     * @return the learning rate at step 0
+     */
+    public abstract float getInitialLearningRate();
+
+    /**
+     * @return the config object used to initialize the schedule
+     */
+    public abstract Map<String, Object> getConfig();
+
+    /**
+     * Serializes this schedule with its class name, so that it can be
+     * restored by {@link #deserialize(Ops, Map)}.
+     *
+     * @return the serialized schedule
+     */
+    public Map<String, Object> serialize() {
+        Map<String, Object> result = new HashMap<>();
+        result.put(CLASS_NAME_KEY, getClass().getSimpleName());
+        result.put(CONFIG_KEY, getConfig());
+        return result;
+    }
+
+    /**
+     * Restores a schedule serialized by {@link #serialize()}.
+     *
+     * @param tf the TensorFlow Ops
+     * @param serialized the serialized schedule
+     * @return the schedule
+     * @throws IllegalArgumentException if the class name is not a known
+     * schedule
+     */
+    public static LearningRateSchedule deserialize(Ops tf, Map<String, Object> serialized) {
+        String className = (String) serialized.get(CLASS_NAME_KEY);
+        BiFunction<Ops, Map<String, Object>, LearningRateSchedule> function = map.get(className);
+        if (function == null) {
+            throw new IllegalArgumentException("Unknown LearningRateSchedule: " + className);
+        }
+        return function.apply(tf, (Map<String, Object>) serialized.get(CONFIG_KEY));
+    }
+
+    /**
+     * Gets a learning rate from a config value, that is either a float or a
+     * serialized schedule.
+     *
+     * @param tf the TensorFlow Ops
+     * @param value the config value
+     * @return the learning rate, either a Float or a LearningRateSchedule
+     */
+    public static Object fromConfigValue(Ops tf, Object value) {
+        return value instanceof Map ? deserialize(tf, (Map<String, Object>) value) : value;
+    }
+
+    /**
+     * Casts the step to a float.
+     *
+     * @param step the step
+     * @return the step as a float
+     */
+    protected Operand<TFloat32> toFloat(Operand<TInt64> step) {
+        return tf.dtypes.cast(step, TFloat32.DTYPE);
+    }
+}
@@ -0,0 +1,152 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.optimizers.schedules;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.tensorflow.Operand;
+import org.tensorflow.op.Ops;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.TInt64;
+
+/**
+ * A LearningRateSchedule that increases the learning rate linearly from
+ * <code>warmupLearningRate</code> over <code>warmupSteps</code> steps, and
+ * then follows a target learning rate.
+ *
+ * <p>
+ * The target is either a constant learning rate or another schedule. A
+ * target schedule starts at step 0 when the warmup ends, and the warmup ends
+ * at the initial learning rate of the target schedule.
+ *
+ * @author Jim Clarke
+ */
+public class LinearWarmup extends LearningRateSchedule {
+
+    public static final String WARMUP_STEPS_KEY = "warmup_steps";
+    public static final String WARMUP_LEARNING_RATE_KEY = "warmup_learning_rate";
+    public static final String TARGET_KEY = "target";
+
+    public static final float WARMUP_LEARNING_RATE_DEFAULT = 0.0F;
+
+    private final long warmupSteps;
+    private final float warmupLearningRate;
+    private final float targetLearningRate;
+    private final LearningRateSchedule targetSchedule;
+
+    /**
+     * Creates a LinearWarmup from 0 to a constant learning rate
+     *
+     * @param tf the TensorFlow Ops
+     * @param warmupSteps the number of warmup steps, must be positive
+     * @param targetLearningRate the learning rate after the warmup
+     */
+    public LinearWarmup(Ops tf, long warmupSteps, float targetLearningRate) {
+        this(tf, warmupSteps, WARMUP_LEARNING_RATE_DEFAULT, targetLearningRate, null);
+    }
+
+    /**
+     * Creates a LinearWarmup from 0 to a schedule
+     *
+     * @param tf the TensorFlow Ops
+     * @param warmupSteps the number of warmup steps, must be positive
+     * @param targetSchedule the schedule after the warmup
+     */
+    public LinearWarmup(Ops tf, long warmupSteps, LearningRateSchedule targetSchedule) {
+        this(tf, warmupSteps, WARMUP_LEARNING_RATE_DEFAULT, targetSchedule.getInitialLearningRate(),
+                targetSchedule);
+    }
+
+    /**
+     * Creates a LinearWarmup to a schedule
+     *
+     * @param tf the TensorFlow Ops
+     * @param warmupSteps the number of warmup steps, must be positive
+     * @param warmupLearningRate the learning rate at step 0
+     * @param targetSchedule the schedule after the warmup
+     */
+    public LinearWarmup(Ops tf, long warmupSteps, float warmupLearningRate,
+            LearningRateSchedule targetSchedule) {
+        this(tf, warmupSteps, warmupLearningRate, targetSchedule.getInitialLearningRate(), targetSchedule);
+    }
+
+    private LinearWarmup(Ops tf, long warmupSteps, float warmupLearningRate, float targetLearningRate,
+            LearningRateSchedule targetSchedule) {
+        super(tf);
+        if (warmupSteps <= 0) {
+            throw new IllegalArgumentException("warmupSteps must be positive: " + warmupSteps);
+        }
+        this.warmupSteps = warmupSteps;
+        this.warmupLearningRate = warmupLearningRate;
+        this.targetLearningRate = targetLearningRate;
+        this.targetSchedule = targetSchedule;
+    }
+
+    /**
+     * Creates a LinearWarmup from a config object
+     *
+     * @param tf the TensorFlow Ops
+     * @param config a config object with the keys "warmup_steps",
+     * "warmup_learning_rate" and "target". The target is either a float or a
+     * serialized schedule. If warmup_learning_rate is missing the default
+     * value is used.
+     * @return the schedule
+     */
+    public static LinearWarmup create(Ops tf, Map<String, Object> config) {
+        long warmupSteps = ((Number) config.get(WARMUP_STEPS_KEY)).longValue();
+        float warmupLearningRate = ((Number) config.getOrDefault(WARMUP_LEARNING_RATE_KEY,
+                WARMUP_LEARNING_RATE_DEFAULT)).floatValue();
+        Object target = fromConfigValue(tf, config.get(TARGET_KEY));
+        if (target instanceof LearningRateSchedule) {
+            return new LinearWarmup(tf, warmupSteps, warmupLearningRate, (LearningRateSchedule) target);
+        }
+        return new LinearWarmup(tf, warmupSteps, warmupLearningRate, ((Number) target).floatValue(), null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Operand<TFloat32> call(Operand<TInt64> step) {
+        Operand<TFloat32> fraction = tf.math.div(toFloat(step), tf.constant((float) warmupSteps));
+        Operand<TFloat32> warmup = tf.math.add(tf.constant(warmupLearningRate),
+                tf.math.mul(tf.constant(targetLearningRate - warmupLearningRate), fraction));
+        Operand<TFloat32> target = targetSchedule == null
+                ? tf.constant(targetLearningRate)
+                : targetSchedule.call(tf.math.maximum(tf.math.sub(step, tf.constant(warmupSteps)),
+                        tf.constant(0L)));
+        return tf.select(tf.math.less(step, tf.constant(warmupSteps)), warmup, target);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public float getInitialLearningRate() {
+        return warmupLearningRate;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Object> getConfig() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(WARMUP_STEPS_KEY, warmupSteps);
+        config.put(WARMUP_LEARNING_RATE_KEY, warmupLearningRate);
+        config.put(TARGET_KEY, targetSchedule == null ? targetLearningRate : targetSchedule.serialize());
+        return config;
+    }
+}
@@ -0,0 +1,107 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.optimizers.schedules;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.tensorflow.Operand;
+import org.tensorflow.op.Ops;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.TInt32;
+import org.tensorflow.types.TInt64;
+
+/**
+ * A LearningRateSchedule that is constant between step boundaries.
+ *
+ * <p>
+ * The learning rate is <code>values[0]</code> up to and including step
+ * <code>boundaries[0]</code>, <code>values[1]</code> up to and including step
+ * <code>boundaries[1]</code>, and so on, and
+ * <code>values[boundaries.length]</code> after the last boundary.
+ *
+ * @author Jim Clarke
+ */
+public class PiecewiseConstantDecay extends LearningRateSchedule {
+
+    public static final String BOUNDARIES_KEY = "boundaries";
+    public static final String VALUES_KEY = "values";
+
+    private final long[] boundaries;
+    private final float[] values;
+
+    /**
+     * Creates a PiecewiseConstantDecay
+     *
+     * @param tf the TensorFlow Ops
+     * @param boundaries the increasing step boundaries
+     * @param values the learning rates, one more than the boundaries
+     */
+    public PiecewiseConstantDecay(Ops tf, long[] boundaries, float[] values) {
+        super(tf);
+        if (values.length != boundaries.length + 1) {
+            throw new IllegalArgumentException(String.format(
+                    "There must be one more value than boundaries, received %d values and %d boundaries",
+                    values.length, boundaries.length));
+        }
+        this.boundaries = boundaries.clone();
+        this.values = values.clone();
+    }
+
+    /**
+     * Creates a PiecewiseConstantDecay from a config object
+     *
+     * @param tf the TensorFlow Ops
+     * @param config a config object with the keys "boundaries" and "values"
+     * @return the schedule
+     */
+    public static PiecewiseConstantDecay create(Ops tf, Map<String, Object> config) {
+        return new PiecewiseConstantDecay(tf, (long[]) config.get(BOUNDARIES_KEY),
+                (float[]) config.get(VALUES_KEY));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Operand<TFloat32> call(Operand<TInt64> step) {
+        if (boundaries.length == 0) {
+            return tf.constant(values[0]);
+        }
+        // the index of the value is the number of boundaries that are passed
+        Operand<TInt32> index = tf.reduceSum(
+                tf.dtypes.cast(tf.math.greater(step, tf.constant(boundaries)), TInt32.DTYPE),
+                tf.constant(0));
+        return tf.gather(tf.constant(values), index, tf.constant(0));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public float getInitialLearningRate() {
+        return values[0];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Object> getConfig() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(BOUNDARIES_KEY, boundaries.clone());
+        config.put(VALUES_KEY, values.clone());
+        return config;
+    }
+}
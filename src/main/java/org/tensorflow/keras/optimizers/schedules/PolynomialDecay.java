@@ -0,0 +1,151 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.optimizers.schedules;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.tensorflow.Operand;
+import org.tensorflow.op.Ops;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.TInt64;
+
+/**
+ * A LearningRateSchedule that uses a polynomial decay from
+ * <code>initialLearningRate</code> to <code>endLearningRate</code> over
+ * <code>decaySteps</code> steps,
+ * <code>(initialLearningRate - endLearningRate) * (1 - step / decaySteps) ^ power + endLearningRate</code>.
+ *
+ * <p>
+ * After <code>decaySteps</code> the learning rate stays at
+ * <code>endLearningRate</code>, unless <code>cycle</code> is true, in which
+ * case the decay restarts with <code>decaySteps</code> extended to the next
+ * multiple of <code>decaySteps</code>.
+ *
+ * @author Jim Clarke
+ */
+public class PolynomialDecay extends LearningRateSchedule {
+
+    public static final String INITIAL_LEARNING_RATE_KEY = "initial_learning_rate";
+    public static final String DECAY_STEPS_KEY = "decay_steps";
+    public static final String END_LEARNING_RATE_KEY = "end_learning_rate";
+    public static final String POWER_KEY = "power";
+    public static final String CYCLE_KEY = "cycle";
+
+    public static final float END_LEARNING_RATE_DEFAULT = 0.0001F;
+    public static final float POWER_DEFAULT = 1.0F;
+
+    private final float initialLearningRate;
+    private final long decaySteps;
+    private final float endLearningRate;
+    private final float power;
+    private final boolean cycle;
+
+    /**
+     * Creates a linear PolynomialDecay to endLearningRate=0.0001 with
+     * cycle=false
+     *
+     * @param tf the TensorFlow Ops
+     * @param initialLearningRate the initial learning rate
+     * @param decaySteps the number of steps to decay over, must be positive
+     */
+    public PolynomialDecay(Ops tf, float initialLearningRate, long decaySteps) {
+        this(tf, initialLearningRate, decaySteps, END_LEARNING_RATE_DEFAULT, POWER_DEFAULT, false);
+    }
+
+    /**
+     * Creates a PolynomialDecay
+     *
+     * @param tf the TensorFlow Ops
+     * @param initialLearningRate the initial learning rate
+     * @param decaySteps the number of steps to decay over, must be positive
+     * @param endLearningRate the final learning rate
+     * @param power the power of the polynomial
+     * @param cycle whether the decay restarts after decaySteps
+     */
+    public PolynomialDecay(Ops tf, float initialLearningRate, long decaySteps, float endLearningRate,
+            float power, boolean cycle) {
+        super(tf);
+        if (decaySteps <= 0) {
+            throw new IllegalArgumentException("decaySteps must be positive: " + decaySteps);
+        }
+        this.initialLearningRate = initialLearningRate;
+        this.decaySteps = decaySteps;
+        this.endLearningRate = endLearningRate;
+        this.power = power;
+        this.cycle = cycle;
+    }
+
+    /**
+     * Creates a PolynomialDecay from a config object
+     *
+     * @param tf the TensorFlow Ops
+     * @param config a config object with the keys "initial_learning_rate",
+     * "decay_steps", "end_learning_rate", "power" and "cycle". If one of the
+     * last three keys is missing the default value is used.
+     * @return the schedule
+     */
+    public static PolynomialDecay create(Ops tf, Map<String, Object> config) {
+        return new PolynomialDecay(tf,
+                ((Number) config.get(INITIAL_LEARNING_RATE_KEY)).floatValue(),
+                ((Number) config.get(DECAY_STEPS_KEY)).longValue(),
+                ((Number) config.getOrDefault(END_LEARNING_RATE_KEY, END_LEARNING_RATE_DEFAULT)).floatValue(),
+                ((Number) config.getOrDefault(POWER_KEY, POWER_DEFAULT)).floatValue(),
+                (boolean) config.getOrDefault(CYCLE_KEY, false));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Operand<TFloat32> call(Operand<TInt64> step) {
+        Operand<TFloat32> globalStep = toFloat(step);
+        Operand<TFloat32> steps = tf.constant((float) decaySteps);
+        if (cycle) {
+            // step 0 is in the first cycle
+            Operand<TFloat32> multiplier = tf.math.maximum(
+                    tf.math.ceil(tf.math.div(globalStep, steps)), tf.constant(1f));
+            steps = tf.math.mul(steps, multiplier);
+        } else {
+            globalStep = tf.math.minimum(globalStep, steps);
+        }
+        Operand<TFloat32> fraction = tf.math.sub(tf.constant(1f), tf.math.div(globalStep, steps));
+        return tf.math.add(
+                tf.math.mul(tf.constant(initialLearningRate - endLearningRate),
+                        tf.math.pow(fraction, tf.constant(power))),
+                tf.constant(endLearningRate));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public float getInitialLearningRate() {
+        return initialLearningRate;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Object> getConfig() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(INITIAL_LEARNING_RATE_KEY, initialLearningRate);
+        config.put(DECAY_STEPS_KEY, decaySteps);
+        config.put(END_LEARNING_RATE_KEY, endLearningRate);
+        config.put(POWER_KEY, power);
+        config.put(CYCLE_KEY, cycle);
+        return config;
+    }
+}
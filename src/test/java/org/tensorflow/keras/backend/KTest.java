@@ -0,0 +1,189 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.backend;
+
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.tensorflow.Operand;
+import org.tensorflow.keras.activations.Softmax;
+import org.tensorflow.keras.utils.TestSession;
+import org.tensorflow.ndarray.Shape;
+import org.tensorflow.op.Ops;
+import org.tensorflow.types.TBfloat16;
+import org.tensorflow.types.TFloat16;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.TFloat64;
+import org.tensorflow.types.TInt64;
+
+/**
+ *
+ * @author Jim Clarke
+ */
+public class KTest {
+
+    @Test
+    public void test_constants_are_interned() {
+        try (TestSession session = TestSession.createTestSession(TestSession.Mode.GRAPH)) {
+            Ops tf = session.getTF();
+            Ops subScope = tf.withSubScope("layer").withControlDependencies(
+                    Collections.singletonList(tf.noOp()));
+
+            Operand one = K.one(tf, TFloat32.DTYPE);
+            assertEquals(one.asOutput().op(), K.one(subScope, TFloat32.DTYPE).asOutput().op());
+            assertEquals(one.asOutput().op(), K.constant(tf, 1.0, TFloat32.DTYPE).asOutput().op());
+            assertNotEquals(one.asOutput().op(), K.one(tf, TFloat64.DTYPE).asOutput().op());
+            assertNotEquals(one.asOutput().op(), K.zero(tf, TFloat32.DTYPE).asOutput().op());
+            assertEquals(K.epsilonConstant(tf).asOutput().op(), K.epsilonConstant(subScope).asOutput().op());
+
+            assertEquals(TFloat32.DTYPE, one.asOutput().dataType());
+            assertEquals(TInt64.DTYPE, K.minusOne(tf, TInt64.DTYPE).asOutput().dataType());
+            session.evaluate(1f, one);
+            session.evaluate(-1L, K.minusOne(subScope, TInt64.DTYPE));
+            session.evaluate(1e-7, K.epsilonConstant(tf));
+            session.evaluate(0.25f, K.constant(tf, 0.25, TFloat32.DTYPE));
+        }
+    }
+
+    @Test
+    public void test_reduced_precision_constants() {
+        try (TestSession session = TestSession.createTestSession(TestSession.Mode.GRAPH)) {
+            Ops tf = session.getTF();
+            Operand one16 = K.one(tf, TFloat16.DTYPE);
+            Operand oneBf16 = K.one(tf, TBfloat16.DTYPE);
+            Operand epsilon16 = K.epsilonConstant(tf, TFloat16.DTYPE);
+            Operand epsilonBf16 = K.epsilonConstant(tf, TBfloat16.DTYPE);
+
+            assertEquals(TFloat16.DTYPE, one16.asOutput().dataType());
+            assertEquals(TBfloat16.DTYPE, oneBf16.asOutput().dataType());
+            assertEquals(TFloat16.DTYPE, epsilon16.asOutput().dataType());
+            assertEquals(TBfloat16.DTYPE, epsilonBf16.asOutput().dataType());
+            // interned lookups return the cast, not the float64 constant it reads
+            assertEquals(TFloat16.DTYPE, K.one(tf, TFloat16.DTYPE).asOutput().dataType());
+            assertEquals(one16.asOutput().op(), K.one(tf, TFloat16.DTYPE).asOutput().op());
+            assertEquals(TBfloat16.DTYPE, K.epsilonConstant(tf, TBfloat16.DTYPE).asOutput().dataType());
+            assertEquals(epsilonBf16.asOutput().op(), K.epsilonConstant(tf, TBfloat16.DTYPE).asOutput().op());
+
+            session.evaluate(1f, tf.dtypes.cast(one16, TFloat32.DTYPE));
+            session.evaluate(1f, tf.dtypes.cast(oneBf16, TFloat32.DTYPE));
+            session.evaluate(2f, tf.math.add(tf.dtypes.cast(one16, TFloat32.DTYPE),
+                    tf.dtypes.cast(K.one(tf, TFloat16.DTYPE), TFloat32.DTYPE)));
+        }
+    }
+
+    @Test
+    public void test_constants_in_separate_graphs() {
+        try (TestSession first = TestSession.createTestSession(TestSession.Mode.GRAPH);
+                TestSession second = TestSession.createTestSession(TestSession.Mode.GRAPH)) {
+            Operand a = K.one(first.getTF(), TFloat32.DTYPE);
+            Operand b = K.one(second.getTF(), TFloat32.DTYPE);
+            assertNotEquals(a.asOutput().op(), b.asOutput().op());
+            first.evaluate(1f, a);
+            second.evaluate(1f, b);
+        }
+    }
+
+    @Test
+    public void test_binary_crossentropy_uses_recorded_logits() {
+        try (TestSession session = TestSession.createTestSession(TestSession.Mode.GRAPH)) {
+            Ops tf = session.getTF();
+            Operand target = tf.constant(new float[][]{{1f, 0f}, {0f, 1f}});
+            // probabilities of these logits saturate to 0 and 1 in float
+            Operand<TFloat32> logits = tf.constant(new float[][]{{-40f, 40f}, {2f, -3f}});
+            Operand output = K.sigmoid(tf, logits);
+
+            assertEquals(logits.asOutput().op(), K.backtrackLogits(tf, output, "Sigmoid").asOutput().op());
+            assertNull(K.backtrackLogits(tf, output, "Softmax"));
+            assertNull(K.backtrackLogits(tf, tf.math.sigmoid(logits), "Sigmoid"));
+            Operand expected = K.binary_crossentropy(tf, target, logits, true);
+            session.evaluate(new float[]{40f, 40f, 2.126928f, 3.048587f}, expected);
+            session.evaluate(new float[]{40f, 40f, 2.126928f, 3.048587f},
+                    K.binary_crossentropy(tf, target, output, false));
+        }
+    }
+
+    @Test
+    public void test_categorical_crossentropy_uses_recorded_logits() {
+        try (TestSession session = TestSession.createTestSession(TestSession.Mode.GRAPH)) {
+            Ops tf = session.getTF();
+            Operand<TFloat32> logits = tf.constant(new float[][]{{50f, -50f, 0f}, {1f, 2f, 3f}});
+            Operand output = K.softmax(tf, logits);
+            Operand target = tf.constant(new float[][]{{0f, 1f, 0f}, {0f, 0f, 1f}});
+            Operand sparseTarget = tf.constant(new long[]{1, 2});
+
+            Operand expected = K.categorical_crossentropy(tf, target, logits, true);
+            session.evaluate(new float[]{100f, 0.407606f}, expected);
+            session.evaluate(new float[]{100f, 0.407606f}, K.categorical_crossentropy(tf, target, output, false));
+            session.evaluate(new float[]{100f, 0.407606f},
+                    K.sparse_categorical_crossentropy(tf, sparseTarget, output, false, -1));
+        }
+    }
+
+    @Test
+    public void test_binary_crossentropy_uses_logits_through_identity_and_cast() {
+        try (TestSession session = TestSession.createTestSession(TestSession.Mode.GRAPH)) {
+            Ops tf = session.getTF();
+            Operand target = tf.constant(new float[][]{{1f, 0f}, {0f, 1f}});
+            // probabilities of these logits saturate to 0 and 1 in float
+            Operand<TFloat64> logits = tf.constant(new double[][]{{-40.0, 40.0}, {2.0, -3.0}});
+            Operand output = K.identity(tf, K.cast(tf, K.identity(tf, K.sigmoid(tf, logits)), TFloat32.DTYPE));
+
+            Operand backtracked = K.backtrackLogits(tf, output, "Sigmoid");
+            assertEquals("Cast", backtracked.asOutput().op().type());
+            assertEquals(TFloat32.DTYPE, backtracked.asOutput().dataType());
+            // an identity built directly with Ops is not looked through
+            assertNull(K.backtrackLogits(tf, tf.identity(output), "Sigmoid"));
+            session.evaluate(new float[]{40f, 40f, 2.126928f, 3.048587f},
+                    K.binary_crossentropy(tf, target, output, false));
+        }
+    }
+
+    @Test
+    public void test_categorical_crossentropy_uses_logits_through_reshape() {
+        try (TestSession session = TestSession.createTestSession(TestSession.Mode.GRAPH)) {
+            Ops tf = session.getTF();
+            Operand<TFloat32> logits = tf.constant(new float[][][]{{{50f, -50f, 0f}, {1f, 2f, 3f}}});
+            Operand output = K.identity(tf, K.reshape(tf, K.softmax(tf, logits), tf.constant(new long[]{2, 3})));
+            Operand target = tf.constant(new float[][]{{0f, 1f, 0f}, {0f, 0f, 1f}});
+            Operand sparseTarget = tf.constant(new long[]{1, 2});
+
+            Operand backtracked = K.backtrackLogits(tf, output, "Softmax");
+            assertEquals("Reshape", backtracked.asOutput().op().type());
+            assertEquals(Shape.of(2, 3), backtracked.asOutput().shape());
+            session.evaluate(new float[]{100f, 0.407606f}, K.categorical_crossentropy(tf, target, output, false));
+            session.evaluate(new float[]{100f, 0.407606f},
+                    K.sparse_categorical_crossentropy(tf, sparseTarget, output, false, -1));
+
+            // a reshape that changes the last dimension is not looked through
+            Operand flat = K.reshape(tf, K.softmax(tf, logits), tf.constant(new long[]{6}));
+            assertNull(K.backtrackLogits(tf, flat, "Softmax"));
+
+            // the rank 3 softmax activation records its logits
+            Operand<TFloat32> activation = new Softmax<TFloat32>(tf).call(logits);
+            assertEquals(logits.asOutput().op(), K.backtrackLogits(tf, activation, "Softmax").asOutput().op());
+        }
+    }
+
+    @Test
+    public void test_crossentropy_without_activation_uses_probabilities() {
+        try (TestSession session = TestSession.createTestSession(TestSession.Mode.GRAPH)) {
+            Ops tf = session.getTF();
+            Operand target = tf.constant(new float[]{0f, 1f});
+            Operand output = tf.identity(tf.constant(new float[]{0.5f, 1f}));
+            // 1 is clipped to 1 - epsilon, which is 1 in float
+            session.evaluate(new float[]{0.693147f, 0f}, K.binary_crossentropy(tf, target, output, false));
+        }
+    }
+}
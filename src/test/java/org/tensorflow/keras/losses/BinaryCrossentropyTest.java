@@ -21,6 +21,8 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 import org.tensorflow.Operand;
+import org.tensorflow.keras.backend.K;
+import org.tensorflow.keras.utils.SparseLabels;
 import org.tensorflow.keras.utils.TestSession;
 import org.tensorflow.keras.utils.TestSession.Mode;
 import org.tensorflow.ndarray.Shape;
@@ -228,4 +230,44 @@ public class BinaryCrossentropyTest {
         }
     }
 
+    @Test
+    public void test_sparse_labels_match_dense() {
+        try (TestSession testSession = TestSession.createTestSession(tf_mode)) {
+            Ops tf = testSession.getTF();
+            float[][] pred = {{0.1f, 0.6f, 0.2f, 0.1f}, {0.7f, 0.1f, 0.1f, 0.1f}, {0.25f, 0.25f, 0.4f, 0.1f}};
+            float[][] logitsArray = {{-2f, 3f, 0.5f, 1f}, {4f, -1f, 0f, 2f}, {0f, 1f, 2f, -3f}};
+            Operand denseLabels = tf.constant(SparseLabels.DENSE);
+            Operand sampleWeight = tf.constant(new float[]{1.5f, 0.5f, 2f});
+            for (boolean fromLogits : new boolean[]{false, true}) {
+                Operand predictions = tf.constant(fromLogits ? logitsArray : pred);
+                for (float labelSmoothing : new float[]{0f, 0.2f}) {
+                    BinaryCrossentropy instance = new BinaryCrossentropy(tf, fromLogits, labelSmoothing, Reduction.NONE);
+                    Operand expected = instance.call(denseLabels, predictions, sampleWeight);
+                    Operand loss = instance.call(SparseLabels.create(tf), predictions, sampleWeight);
+                    testSession.evaluate(expected, loss);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_sparse_labels_match_dense_through_sigmoid() {
+        try (TestSession testSession = TestSession.createTestSession(Mode.GRAPH)) {
+            Ops tf = testSession.getTF();
+            // large logits, where the clipped probabilities would lose the loss
+            float[][] logitsArray = {{-20f, 30f, 0.5f, -25f}, {-40f, -10f, 0f, 2f}, {0f, 1f, 25f, -30f}};
+            Operand logits = tf.constant(logitsArray);
+            Operand predictions = K.sigmoid(tf, logits);
+            Operand denseLabels = tf.constant(SparseLabels.DENSE);
+            Operand sampleWeight = tf.constant(new float[]{1.5f, 0.5f, 2f});
+            Operand expected = new BinaryCrossentropy(tf, true, 0f, Reduction.NONE).call(denseLabels, logits, sampleWeight);
+            BinaryCrossentropy instance = new BinaryCrossentropy(tf, false, 0f, Reduction.NONE);
+            // compared by difference, as evaluate(Operand, Operand) fetches the same operand twice
+            Operand dense = instance.call(denseLabels, predictions, sampleWeight);
+            testSession.evaluate(0f, tf.math.abs(tf.math.sub(expected, dense)));
+            Operand loss = instance.call(SparseLabels.create(tf), predictions, sampleWeight);
+            testSession.evaluate(0f, tf.math.abs(tf.math.sub(expected, loss)));
+        }
+    }
+
 }
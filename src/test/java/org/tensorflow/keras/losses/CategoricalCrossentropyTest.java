@@ -20,11 +20,17 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
+import java.util.List;
 import org.tensorflow.Operand;
+import org.tensorflow.Tensor;
+import org.tensorflow.keras.backend.K;
+import org.tensorflow.keras.utils.SparseLabels;
 import org.tensorflow.keras.utils.TestSession;
 import org.tensorflow.keras.utils.TestSession.Mode;
 import org.tensorflow.ndarray.Shape;
+import org.tensorflow.ndarray.StdArrays;
 import org.tensorflow.op.Ops;
+import org.tensorflow.op.core.Placeholder;
 import org.tensorflow.types.TFloat32;
 
 /**
@@ -254,4 +260,70 @@ public class CategoricalCrossentropyTest {
         }
     }
 
+    @Test
+    public void test_sparse_labels_match_dense() {
+        try (TestSession testSession = TestSession.createTestSession(tf_mode)) {
+            Ops tf = testSession.getTF();
+            float[][] pred = {{0.1f, 0.6f, 0.2f, 0.1f}, {0.7f, 0.1f, 0.1f, 0.1f}, {0.25f, 0.25f, 0.4f, 0.1f}};
+            float[][] logitsArray = {{-2f, 3f, 0.5f, 1f}, {4f, -1f, 0f, 2f}, {0f, 1f, 2f, -3f}};
+            Operand denseLabels = tf.constant(SparseLabels.DENSE);
+            Operand sampleWeight = tf.constant(new float[]{1.5f, 0.5f, 2f});
+            for (boolean fromLogits : new boolean[]{false, true}) {
+                Operand predictions = tf.constant(fromLogits ? logitsArray : pred);
+                for (float labelSmoothing : new float[]{0f, 0.2f}) {
+                    CategoricalCrossentropy instance = new CategoricalCrossentropy(tf, fromLogits, labelSmoothing, Reduction.NONE);
+                    Operand expected = instance.call(denseLabels, predictions, sampleWeight);
+                    Operand loss = instance.call(SparseLabels.create(tf), predictions, sampleWeight);
+                    testSession.evaluate(expected, loss);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_sparse_labels_match_dense_through_softmax() {
+        try (TestSession testSession = TestSession.createTestSession(Mode.GRAPH)) {
+            Ops tf = testSession.getTF();
+            // large logits, where the clipped probabilities would lose the loss
+            float[][] logitsArray = {{-20f, 30f, 0.5f, -25f}, {-40f, -10f, 0f, 2f}, {0f, 1f, 25f, -30f}};
+            Operand logits = tf.constant(logitsArray);
+            Operand predictions = K.softmax(tf, logits);
+            Operand denseLabels = tf.constant(SparseLabels.DENSE);
+            Operand sampleWeight = tf.constant(new float[]{1.5f, 0.5f, 2f});
+            Operand expected = new CategoricalCrossentropy(tf, true, 0f, Reduction.NONE).call(denseLabels, logits, sampleWeight);
+            CategoricalCrossentropy instance = new CategoricalCrossentropy(tf, false, 0f, Reduction.NONE);
+            // compared by difference, as evaluate(Operand, Operand) fetches the same operand twice
+            Operand dense = instance.call(denseLabels, predictions, sampleWeight);
+            testSession.evaluate(0f, tf.math.abs(tf.math.sub(expected, dense)));
+            Operand loss = instance.call(SparseLabels.create(tf), predictions, sampleWeight);
+            testSession.evaluate(0f, tf.math.abs(tf.math.sub(expected, loss)));
+        }
+    }
+
+    @Test
+    public void test_sparse_labels_with_dynamic_class_dimension() {
+        try (TestSession testSession = TestSession.createTestSession(Mode.GRAPH)) {
+            Ops tf = testSession.getTF();
+            float[][] pred = {{0.1f, 0.6f, 0.2f, 0.1f}, {0.7f, 0.1f, 0.1f, 0.1f}, {0.25f, 0.25f, 0.4f, 0.1f}};
+            // [?, C] predictions, with the number of classes only known at run time
+            Placeholder<TFloat32> predictions = tf.placeholder(TFloat32.DTYPE,
+                    Placeholder.shape(Shape.of(Shape.UNKNOWN_SIZE, Shape.UNKNOWN_SIZE)));
+            CategoricalCrossentropy instance = new CategoricalCrossentropy(tf, false, 0.2f, Reduction.NONE);
+            Operand expected = instance.call(tf.constant(SparseLabels.DENSE), tf.constant(pred));
+            Operand loss = instance.call(SparseLabels.create(tf), predictions);
+
+            try (Tensor<TFloat32> feed = TFloat32.tensorOf(StdArrays.ndCopyOf(pred))) {
+                List<Tensor<?>> results = testSession.getGraphSession().runner()
+                        .feed(predictions, feed).fetch(expected).fetch(loss).run();
+                try (Tensor<TFloat32> expectedTensor = results.get(0).expect(TFloat32.DTYPE);
+                        Tensor<TFloat32> lossTensor = results.get(1).expect(TFloat32.DTYPE)) {
+                    float[] expectedValues = new float[3];
+                    expectedTensor.data().scalars().forEachIndexed((idx, f) -> expectedValues[(int) idx[0]] = f.getFloat());
+                    lossTensor.data().scalars().forEachIndexed((idx, f)
+                            -> assertEquals(expectedValues[(int) idx[0]], f.getFloat(), testSession.getEpsilon()));
+                }
+            }
+        }
+    }
+
 }
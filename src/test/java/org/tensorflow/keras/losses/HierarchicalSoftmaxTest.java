@@ -0,0 +1,90 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.losses;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.tensorflow.Operand;
+import org.tensorflow.keras.utils.TestSession;
+import org.tensorflow.op.Ops;
+import org.tensorflow.types.TFloat32;
+
+/**
+ *
+ * @author Jim Clarke
+ */
+public class HierarchicalSoftmaxTest {
+
+    private final TestSession.Mode tf_mode = TestSession.Mode.GRAPH;
+
+    private final float[][] inputs = {{1f, 2f}, {0.5f, -1f}, {-0.3f, 0.2f}};
+    private final float[][] weights = {{0.1f, 0.2f}, {0.3f, -0.4f}, {-0.5f, 0.6f}};
+    private final float[] biases = {0.1f, -0.2f, 0.3f};
+
+    @Test
+    public void test_huffman_tree() {
+        ClassTree tree = ClassTree.huffman(new float[]{5f, 1f, 1f, 1f});
+        assertEquals(4, tree.getNumClasses());
+        assertEquals(3, tree.getNumNodes());
+        assertEquals(3, tree.getDepth());
+        // the frequent class is a child of the root
+        assertArrayEquals(new float[]{1f, 0f, 0f}, tree.getMask()[0]);
+        assertEquals(0, tree.getNodes()[0][0]);
+        for (int c = 1; c < 4; c++) {
+            assertEquals(0, tree.getNodes()[c][0]);
+            assertNotEquals(tree.getCodes()[0][0], tree.getCodes()[c][0]);
+        }
+        assertThrows(IllegalArgumentException.class, () -> ClassTree.huffman(new float[]{1f}));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ClassTree(new int[][]{{0}, {1}}, new int[][]{{0}, {1}}));
+    }
+
+    @Test
+    public void test_loss_matches_predicted_probabilities() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            ClassTree tree = ClassTree.huffman(new float[]{5f, 1f, 1f, 1f});
+            HierarchicalSoftmax instance = new HierarchicalSoftmax(tf, null, tree, tf.constant(weights),
+                    tf.constant(biases), Reduction.NONE);
+            Operand yTrue = tf.constant(new long[]{0, 3, 1});
+            Operand yPred = tf.constant(inputs);
+            Operand<TFloat32> loss = instance.call(yTrue, yPred);
+
+            Operand<TFloat32> probabilities = instance.predict(yPred);
+            session.evaluate(new float[]{1f, 1f, 1f},
+                    tf.reduceSum(probabilities, tf.constant(1)));
+            Operand<TFloat32> labelProbabilities = tf.reduceSum(
+                    tf.math.mul(probabilities, tf.oneHot(tf.constant(new int[]{0, 3, 1}), tf.constant(4),
+                            tf.constant(1f), tf.constant(0f))),
+                    tf.constant(1));
+            session.evaluate(new float[]{0f, 0f, 0f},
+                    tf.math.abs(tf.math.sub(tf.math.neg(tf.math.log(labelProbabilities)), loss)));
+        }
+    }
+
+    @Test
+    public void test_two_classes_is_logistic_regression() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            ClassTree tree = ClassTree.huffman(new float[]{1f, 1f});
+            HierarchicalSoftmax instance = new HierarchicalSoftmax(tf, tree,
+                    tf.constant(new float[][]{{2f, -1f}}), null);
+            Operand yTrue = tf.constant(new long[][]{{tree.getCodes()[0][0] == 1f ? 0 : 1}});
+            Operand yPred = tf.constant(new float[][]{{1f, 1f}});
+            // logit 1, the right branch: -log(sigmoid(1))
+            session.evaluate(0.313262f, instance.call(yTrue, yPred));
+        }
+    }
+}
@@ -25,6 +25,7 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 import org.tensorflow.Operand;
+import org.tensorflow.keras.backend.K;
 import org.tensorflow.keras.initializers.RandomUniform;
 import org.tensorflow.keras.utils.TestSession;
 import org.tensorflow.ndarray.Shape;
@@ -763,7 +764,7 @@ public class LossesTest {
                     tf.constant(Shape.of(5, 1)), tf.constant(0), tf.constant(1));
             RandomUniform ru = new RandomUniform(tf);
             Operand<TFloat32> logits = ru.call(tf.constant(Shape.of(5, 1)), TFloat32.DTYPE);
-            Operand softmaxOutput = tf.nn.softmax(logits);
+            Operand softmaxOutput = K.softmax(tf, logits);
             Operand output_from_logit = Losses.categorical_crossentropy(tf, target, logits, true);
             Operand outputFromSoftMax = Losses.categorical_crossentropy(tf, target, softmaxOutput, false);
             testSession.evaluate(output_from_logit, outputFromSoftMax);
@@ -778,7 +779,7 @@ public class LossesTest {
                     tf.constant(Shape.of(5, 1)), tf.constant(0), tf.constant(1));
             RandomUniform ru = new RandomUniform(tf);
             Operand<TFloat32> logits = ru.call(tf.constant(Shape.of(5, 1)), TFloat32.DTYPE);
-            Operand softmaxOutput = tf.nn.softmax(logits);
+            Operand softmaxOutput = K.softmax(tf, logits);
             Operand output_from_logit = Losses.sparse_categorical_crossentropy(tf, target, logits, true);
             Operand outputFromSoftMax = Losses.sparse_categorical_crossentropy(tf, target, softmaxOutput, false);
             testSession.evaluate(output_from_logit, outputFromSoftMax);
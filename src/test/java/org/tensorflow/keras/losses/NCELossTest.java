@@ -0,0 +1,93 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.losses;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.tensorflow.Operand;
+import org.tensorflow.Tensor;
+import org.tensorflow.keras.utils.TestSession;
+import org.tensorflow.op.Ops;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.TInt64;
+
+/**
+ *
+ * @author Jim Clarke
+ */
+public class NCELossTest {
+
+    private final TestSession.Mode tf_mode = TestSession.Mode.GRAPH;
+
+    private final float[][] inputs = {{1f, 2f}, {0.5f, -1f}};
+    private final float[][] weights = {{0.1f, 0.2f}, {0.3f, -0.4f}, {-0.5f, 0.6f}, {0.7f, 0.8f}};
+    private final float[] biases = {0.1f, -0.2f, 0.3f, 0f};
+
+    private static float logit(float[] input, float[] weight, float bias, float expectedCount) {
+        float logit = bias - (float) Math.log(expectedCount);
+        for (int i = 0; i < input.length; i++) {
+            logit += input[i] * weight[i];
+        }
+        return logit;
+    }
+
+    private static float sigmoidCrossEntropy(float label, float logit) {
+        return Math.max(logit, 0f) - logit * label + (float) Math.log1p(Math.exp(-Math.abs(logit)));
+    }
+
+    @Test
+    public void test_multiple_true_classes() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            long[][] labels = {{2, 3}, {0, 1}};
+            NCELoss instance = new NCELoss(tf, null, tf.constant(weights), tf.constant(biases), 2, 4,
+                    CandidateSampler.uniform(), false, 3L, Reduction.NONE);
+            Operand yTrue = tf.constant(labels);
+            Operand yPred = tf.constant(inputs);
+            Operand<TFloat32> loss = instance.call(yTrue, yPred);
+            // the same seed draws the same candidates as the sampler of the loss
+            CandidateSampler.Sample sample = CandidateSampler.uniform().sample(tf, tf.constant(labels), 2, 2, 4, 3L);
+
+            List<Tensor<?>> results = session.getGraphSession().runner().fetch(loss)
+                    .fetch(sample.getSampledCandidates()).fetch(sample.getTrueExpectedCount())
+                    .fetch(sample.getSampledExpectedCount()).run();
+            try (Tensor<TFloat32> lossTensor = results.get(0).expect(TFloat32.DTYPE);
+                    Tensor<TInt64> sampledTensor = results.get(1).expect(TInt64.DTYPE);
+                    Tensor<TFloat32> trueCountTensor = results.get(2).expect(TFloat32.DTYPE);
+                    Tensor<TFloat32> sampledCountTensor = results.get(3).expect(TFloat32.DTYPE)) {
+                for (int b = 0; b < 2; b++) {
+                    float expected = 0f;
+                    for (int t = 0; t < 2; t++) {
+                        int c = (int) labels[b][t];
+                        expected += sigmoidCrossEntropy(1f, logit(inputs[b], weights[c], biases[c],
+                                trueCountTensor.data().getFloat(b, t)));
+                    }
+                    for (int s = 0; s < 2; s++) {
+                        int c = (int) sampledTensor.data().getLong(s);
+                        expected += sigmoidCrossEntropy(0f, logit(inputs[b], weights[c], biases[c],
+                                sampledCountTensor.data().getFloat(s)));
+                    }
+                    assertEquals(expected, lossTensor.data().getFloat(b), 1e-5f);
+                }
+            }
+
+            // a zero weight removes the loss of an example.
+            yTrue = tf.constant(new long[]{1, 2});
+            Operand sampleWeight = tf.constant(new float[]{0f, 0f});
+            session.evaluate(0f, instance.call(yTrue, yPred, sampleWeight));
+        }
+    }
+}
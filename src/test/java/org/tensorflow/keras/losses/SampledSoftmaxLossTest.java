@@ -0,0 +1,125 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.losses;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.tensorflow.Operand;
+import org.tensorflow.Tensor;
+import org.tensorflow.keras.utils.TestSession;
+import org.tensorflow.op.Ops;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.TInt64;
+
+/**
+ *
+ * @author Jim Clarke
+ */
+public class SampledSoftmaxLossTest {
+
+    private final TestSession.Mode tf_mode = TestSession.Mode.GRAPH;
+
+    private final float[][] inputs = {{1f, 2f}, {0.5f, -1f}};
+    private final float[][] weights = {{0.1f, 0.2f}, {0.3f, -0.4f}, {-0.5f, 0.6f}, {0.7f, 0.8f}};
+    private final float[] biases = {0.1f, -0.2f, 0.3f, 0f};
+    private final long[] labels = {2, 0};
+
+    /**
+     * When every class is sampled with the same expected count, and the true
+     * classes are removed from the sample, the sampled softmax is the full
+     * softmax.
+     */
+    @Test
+    public void test_all_classes_sampled_matches_full_softmax() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            SampledSoftmaxLoss instance = new SampledSoftmaxLoss(tf, tf.constant(weights),
+                    tf.constant(biases), 4, 4, CandidateSampler.uniform());
+            Operand yTrue = tf.constant(labels);
+            Operand yPred = tf.constant(inputs);
+            Operand<TFloat32> loss = instance.call(yTrue, yPred);
+            session.evaluate(1.517759f, loss);
+
+            yTrue = tf.constant(new long[][]{{2}, {0}});
+            Operand sampleWeight = tf.constant(new float[]{1f, 3f});
+            Operand<TFloat32> weighted = instance.call(yTrue, yPred, sampleWeight);
+            session.evaluate(2.844483f, weighted);
+        }
+    }
+
+    private static float logit(float[] input, float[] weight, float bias, float expectedCount) {
+        float logit = bias - (float) Math.log(expectedCount);
+        for (int i = 0; i < input.length; i++) {
+            logit += input[i] * weight[i];
+        }
+        return logit;
+    }
+
+    @Test
+    public void test_samplers() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            CandidateSampler[] samplers = {
+                CandidateSampler.logUniform(),
+                CandidateSampler.unigram(new float[]{4f, 3f, 2f, 1f}, 0.75f)};
+            for (CandidateSampler sampler : samplers) {
+                SampledSoftmaxLoss instance = new SampledSoftmaxLoss(tf, null, tf.constant(weights),
+                        tf.constant(biases), 2, 4, sampler, true, 7L, Reduction.NONE);
+                Operand yTrue = tf.constant(labels);
+                Operand yPred = tf.constant(inputs);
+                Operand<TFloat32> loss = instance.call(yTrue, yPred);
+                // the same seed draws the same candidates as the sampler of the loss
+                CandidateSampler.Sample sample = sampler.sample(tf,
+                        tf.constant(new long[][]{{labels[0]}, {labels[1]}}), 1, 2, 4, 7L);
+
+                List<Tensor<?>> results = session.getGraphSession().runner().fetch(loss)
+                        .fetch(sample.getSampledCandidates()).fetch(sample.getTrueExpectedCount())
+                        .fetch(sample.getSampledExpectedCount()).run();
+                try (Tensor<TFloat32> lossTensor = results.get(0).expect(TFloat32.DTYPE);
+                        Tensor<TInt64> sampledTensor = results.get(1).expect(TInt64.DTYPE);
+                        Tensor<TFloat32> trueCountTensor = results.get(2).expect(TFloat32.DTYPE);
+                        Tensor<TFloat32> sampledCountTensor = results.get(3).expect(TFloat32.DTYPE)) {
+                    for (int b = 0; b < 2; b++) {
+                        int label = (int) labels[b];
+                        float trueLogit = logit(inputs[b], weights[label], biases[label],
+                                trueCountTensor.data().getFloat(b, 0));
+                        double sumExp = Math.exp(trueLogit);
+                        for (int s = 0; s < 2; s++) {
+                            int c = (int) sampledTensor.data().getLong(s);
+                            // accidental hits are removed
+                            if (c != label) {
+                                sumExp += Math.exp(logit(inputs[b], weights[c], biases[c],
+                                        sampledCountTensor.data().getFloat(s)));
+                            }
+                        }
+                        assertEquals((float) Math.log(sumExp) - trueLogit, lossTensor.data().getFloat(b), 1e-5f);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_invalid_num_sampled() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            assertThrows(IllegalArgumentException.class, () -> new SampledSoftmaxLoss(tf,
+                    tf.constant(weights), tf.constant(biases), 5, 4));
+            assertThrows(IllegalArgumentException.class,
+                    () -> CandidateSampler.unigram(new float[0], 1f));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.losses.impl;
+
+import java.util.Iterator;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.tensorflow.Graph;
+import org.tensorflow.Operand;
+import org.tensorflow.keras.backend.tf.ConfusionMatrix;
+import org.tensorflow.keras.backend.tf.Tuple;
+import org.tensorflow.keras.utils.TestSession;
+import org.tensorflow.ndarray.Shape;
+import org.tensorflow.op.Ops;
+import org.tensorflow.types.TFloat32;
+
+/**
+ *
+ * @author Jim Clarke
+ */
+public class LossesImplTest {
+
+    private static int numOperations(Graph graph) {
+        int count = 0;
+        for (Iterator<?> it = graph.operations(); it.hasNext(); it.next()) {
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void test_static_shapes_add_no_operations() {
+        try (TestSession session = TestSession.createTestSession(TestSession.Mode.GRAPH)) {
+            Ops tf = session.getTF();
+            Graph graph = (Graph) tf.scope().env();
+            Operand labels = tf.constant(new float[][]{{1f, 0f}, {0f, 1f}});
+            Operand predictions = tf.constant(new float[][]{{0.6f, 0.4f}, {0.3f, 0.7f}});
+            Operand weights = tf.constant(new float[]{1f, 2f});
+            Operand matchingWeights = tf.constant(new float[][]{{1f, 2f}, {3f, 4f}});
+            int before = numOperations(graph);
+
+            Tuple tuple = LossesImpl.squeezeOrExpandDimensions(tf, labels, predictions, matchingWeights);
+            assertSame(labels, tuple.getLabels());
+            assertSame(predictions, tuple.getPredictions());
+            assertSame(matchingWeights, tuple.getSampleWeights());
+            tuple = LossesImpl.squeezeOrExpandDimensions(tf, labels, predictions, tf.constant(2f));
+            assertSame(predictions, tuple.getPredictions());
+            tuple = ConfusionMatrix.removeSqueezableDimensions(tf, weights, predictions);
+            assertSame(weights, tuple.getLabels());
+            assertSame(predictions, tuple.getPredictions());
+            // only the scalar weight
+            assertEquals(before + 1, numOperations(graph));
+
+            tuple = LossesImpl.squeezeOrExpandDimensions(tf, labels, predictions, weights);
+            assertEquals(Shape.of(2, 1), tuple.getSampleWeights().asOutput().shape());
+            session.evaluate(new float[]{1f, 2f}, tuple.getSampleWeights());
+        }
+    }
+
+    @Test
+    public void test_squeeze_only_last_dimension() {
+        try (TestSession session = TestSession.createTestSession(TestSession.Mode.GRAPH)) {
+            Ops tf = session.getTF();
+            Operand<TFloat32> labels = tf.constant(new float[][]{{1f}});
+            Operand<TFloat32> predictions = tf.constant(new float[][][]{{{0.5f}}});
+
+            Tuple tuple = LossesImpl.squeezeOrExpandDimensions(tf, labels, predictions);
+            assertSame(labels, tuple.getLabels());
+            assertEquals(Shape.of(1, 1), tuple.getPredictions().asOutput().shape());
+            session.evaluate(0.5f, tuple.getPredictions());
+        }
+    }
+
+    @Test
+    public void test_weights_follow_squeezed_predictions() {
+        try (TestSession session = TestSession.createTestSession(TestSession.Mode.GRAPH)) {
+            Ops tf = session.getTF();
+            Operand<TFloat32> labels = tf.constant(new float[]{1f, 0f, 1f});
+            Operand<TFloat32> predictions = tf.constant(new float[][]{{0.6f}, {0.3f}, {0.8f}});
+            Operand<TFloat32> weights = tf.constant(new float[]{1f, 2f, 3f});
+
+            Tuple tuple = LossesImpl.squeezeOrExpandDimensions(tf, labels, predictions, weights);
+            assertSame(labels, tuple.getLabels());
+            assertEquals(Shape.of(3), tuple.getPredictions().asOutput().shape());
+            assertSame(weights, tuple.getSampleWeights());
+            session.evaluate(new float[]{0.6f, 0.3f, 0.8f}, tuple.getPredictions());
+            session.evaluate(new float[]{1f, 2f, 3f}, tuple.getSampleWeights());
+        }
+    }
+}
@@ -14,6 +14,7 @@ limitations under the License.
 =======================================================================*/
 package org.tensorflow.keras.metrics;
 
+import java.util.Random;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -329,6 +330,93 @@ public class AUCTest {
         }
     }
     
+    @Test
+    public void test_evenly_distributed_thresholds_counts() {
+        try(TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            session.setEpsilon(1e-3F);
+            int size = 500;
+            Random random = new Random(17);
+            AUC instance = new AUC(tf, AUC.DEFAULT_NUM_THRESHOLDS);
+            float[] thresholds = instance.getThresholds();
+            float[] predArray = new float[size];
+            float[] trueArray = new float[size];
+            float[] weightArray = new float[size];
+            for (int i = 0; i < size; i++) {
+                // every fifth prediction lands exactly on a threshold
+                predArray[i] = i % 5 == 0 ? thresholds[1 + random.nextInt(thresholds.length - 2)]
+                        : random.nextFloat();
+                trueArray[i] = random.nextBoolean() ? 1f : 0f;
+                weightArray[i] = random.nextFloat();
+            }
+            predArray[1] = 0f;
+            predArray[2] = 1f;
+
+            float[][] expected = confusionMatrix(thresholds, predArray, trueArray, weightArray);
+
+            Operand yPred = tf.constant(predArray);
+            Operand yTrue = tf.constant(trueArray);
+            Operand sampleWeights = tf.constant(weightArray);
+            session.run(tf.init());
+            Op update = instance.updateState(yTrue, yPred, sampleWeights);
+            session.run(update);
+            session.evaluate(expected[0], instance.getTruePositives());
+            session.evaluate(expected[1], instance.getFalsePositives());
+            session.evaluate(expected[2], instance.getTrueNegatives());
+            session.evaluate(expected[3], instance.getFalseNegatives());
+        }
+    }
+
+    @Test
+    public void test_manual_thresholds_counts() {
+        try(TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            session.setEpsilon(1e-3F);
+            int size = 200;
+            Random random = new Random(23);
+            AUC instance = new AUC(tf, new float[] {0.1f, 0.33f, 0.8f});
+            float[] thresholds = instance.getThresholds();
+            float[] predArray = new float[size];
+            float[] trueArray = new float[size];
+            float[] weightArray = new float[size];
+            for (int i = 0; i < size; i++) {
+                predArray[i] = i % 7 == 0 ? thresholds[1 + random.nextInt(thresholds.length - 2)]
+                        : random.nextFloat();
+                trueArray[i] = random.nextBoolean() ? 1f : 0f;
+                weightArray[i] = random.nextFloat();
+            }
+            float[][] expected = confusionMatrix(thresholds, predArray, trueArray, weightArray);
+
+            Operand yPred = tf.constant(predArray);
+            Operand yTrue = tf.constant(trueArray);
+            Operand sampleWeights = tf.constant(weightArray);
+            session.run(tf.init());
+            Op update = instance.updateState(yTrue, yPred, sampleWeights);
+            session.run(update);
+            session.evaluate(expected[0], instance.getTruePositives());
+            session.evaluate(expected[1], instance.getFalsePositives());
+            session.evaluate(expected[2], instance.getTrueNegatives());
+            session.evaluate(expected[3], instance.getFalseNegatives());
+        }
+    }
+
+    // returns the weighted {tp, fp, tn, fn} counts for each threshold
+    private float[][] confusionMatrix(float[] thresholds, float[] predArray, float[] trueArray,
+            float[] weightArray) {
+        float[][] result = new float[4][thresholds.length];
+        for (int t = 0; t < thresholds.length; t++) {
+            for (int i = 0; i < predArray.length; i++) {
+                boolean predIsPos = predArray[i] > thresholds[t];
+                if (trueArray[i] == 1f) {
+                    result[predIsPos ? 0 : 3][t] += weightArray[i];
+                } else {
+                    result[predIsPos ? 1 : 2][t] += weightArray[i];
+                }
+            }
+        }
+        return result;
+    }
+    
     @Test
     public void test_extra_dims() {
         try(TestSession session = TestSession.createTestSession(tf_mode)) {
@@ -148,5 +148,26 @@ public class MeanIoUTest {
         }
     }
 
-    
+    @Test
+    public void test_full_confusion_matrix() {
+        try(TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            Operand yPred = tf.constant(new long[][] {{0, 1, 2}, {2, 1, 0}});
+            Operand yTrue = tf.constant(new long[][] {{0, 2, 2}, {2, 1, 1}});
+            Operand sampleWeight = tf.constant(new float[][] {{0.2f, 0.3f, 0.4f}, {0.1f, 0.5f, 0.6f}});
+            MeanIoU classCounts = new MeanIoU(tf, "class_counts", 3, null);
+            MeanIoU fullMatrix = new MeanIoU(tf, "full_matrix", 3, true, null);
+            session.run(tf.init());
+            assertFalse(classCounts.isFullConfusionMatrix());
+            assertNull(classCounts.getTotalCM());
+            assertNull(fullMatrix.getClassCounts());
+            session.run(classCounts.updateState(yTrue, yPred, sampleWeight));
+            session.run(fullMatrix.updateState(yTrue, yPred, sampleWeight));
+            // class 0: 0.2 / (0.8 + 0.2 - 0.2), class 1: 0.5 / (0.8 + 1.1 - 0.5),
+            // class 2: 0.5 / (0.5 + 0.8 - 0.5)
+            float expected_result = (0.2f / 0.8f + 0.5f / 1.4f + 0.5f / 0.8f) / 3f;
+            session.evaluate(expected_result, classCounts.result());
+            session.evaluate(expected_result, fullMatrix.result());
+        }
+    }
 }
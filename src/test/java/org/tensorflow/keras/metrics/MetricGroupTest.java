@@ -0,0 +1,146 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.tensorflow.Graph;
+import org.tensorflow.Operand;
+import org.tensorflow.Operation;
+import org.tensorflow.keras.utils.TestSession;
+import org.tensorflow.op.Ops;
+
+/**
+ *
+ * @author Jim Clarke
+ */
+public class MetricGroupTest {
+
+    private final TestSession.Mode tf_mode = TestSession.Mode.GRAPH;
+
+    private final long[][] yTrue = {{0, 1, 0}, {1, 0, 0}, {0, 0, 1}, {0, 1, 0}};
+    private final float[][] yPred = {
+        {0.1f, 0.7f, 0.2f}, {0.3f, 0.6f, 0.1f}, {0.2f, 0.2f, 0.6f}, {0.5f, 0.4f, 0.1f}};
+    private final float[] sampleWeight = {1f, 0.5f, 2f, 1.5f};
+
+    private List<Metric> createMetrics(Ops tf) {
+        List<Metric> metrics = new ArrayList<>();
+        metrics.add(new MeanSquaredError(tf));
+        metrics.add(new MeanAbsoluteError(tf));
+        metrics.add(new CategoricalAccuracy(tf));
+        metrics.add(new AUC(tf));
+        metrics.add(new Precision(tf, new float[]{0.3f, 0.5f}));
+        return metrics;
+    }
+
+    private List<float[]> separateResults() {
+        List<float[]> results = new ArrayList<>();
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            List<Metric> metrics = createMetrics(tf);
+            session.run(tf.init());
+            session.run(metrics.get(0).initializeVars());
+            for (Metric metric : metrics) {
+                session.run(metric.updateState(tf.constant(yTrue), tf.constant(yPred),
+                        tf.constant(sampleWeight)));
+            }
+            for (Metric metric : metrics) {
+                results.add(session.getFloats(metric.result()));
+            }
+        }
+        return results;
+    }
+
+    @Test
+    public void test_group_matches_separate_updates() {
+        List<float[]> expected = separateResults();
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            MetricGroup instance = new MetricGroup(tf, "group", createMetrics(tf));
+            session.run(tf.init());
+            session.run(instance.getMetrics().get(0).initializeVars());
+            session.run(instance.updateState(tf.constant(yTrue), tf.constant(yPred),
+                    tf.constant(sampleWeight)));
+            List<Operand> results = instance.result();
+            assertEquals(expected.size(), results.size());
+            for (int i = 0; i < results.size(); i++) {
+                assertArrayEquals(expected.get(i), session.getFloats(results.get(i)), 1e-5f);
+            }
+        }
+    }
+
+    private static int countOperations(Graph graph) {
+        int count = 0;
+        for (Iterator<Operation> it = graph.operations(); it.hasNext(); it.next()) {
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void test_group_builds_fewer_operations() {
+        int separate;
+        try (Graph graph = new Graph()) {
+            Ops tf = Ops.create(graph);
+            List<Metric> metrics = createMetrics(tf);
+            Operand labels = tf.constant(yTrue);
+            Operand predictions = tf.constant(yPred);
+            Operand weights = tf.constant(sampleWeight);
+            int before = countOperations(graph);
+            for (Metric metric : metrics) {
+                metric.updateState(labels, predictions, weights);
+            }
+            separate = countOperations(graph) - before;
+        }
+        try (Graph graph = new Graph()) {
+            Ops tf = Ops.create(graph);
+            MetricGroup instance = new MetricGroup(tf, "group", createMetrics(tf));
+            Operand labels = tf.constant(yTrue);
+            Operand predictions = tf.constant(yPred);
+            Operand weights = tf.constant(sampleWeight);
+            int before = countOperations(graph);
+            instance.updateState(labels, predictions, weights);
+            int grouped = countOperations(graph) - before;
+            // the labels are cast once for the whole group, and the metrics
+            // do not cast or squeeze the prepared inputs again
+            assertTrue(grouped < separate);
+        }
+    }
+
+    @Test
+    public void test_result_map_and_reset() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            MeanSquaredError mse = new MeanSquaredError(tf);
+            CategoricalAccuracy accuracy = new CategoricalAccuracy(tf);
+            MetricGroup instance = new MetricGroup(tf, mse, accuracy);
+            session.run(tf.init());
+            session.run(mse.initializeVars());
+            session.run(instance.updateState(tf.constant(yTrue), tf.constant(yPred)));
+
+            Map<String, Operand> results = instance.resultMap();
+            assertEquals(2, results.size());
+            session.evaluate(0.5f, results.get(accuracy.getName()));
+
+            session.run(instance.resetStates());
+            session.evaluate(0f, results.get(mse.getName()));
+            session.evaluate(0f, results.get(accuracy.getName()));
+        }
+    }
+}
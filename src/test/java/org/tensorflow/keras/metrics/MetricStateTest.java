@@ -0,0 +1,248 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import org.tensorflow.Operand;
+import org.tensorflow.keras.utils.TestSession;
+import org.tensorflow.op.Ops;
+
+/**
+ *
+ * @author Jim Clarke
+ */
+public class MetricStateTest {
+
+    private static final TestSession.Mode tf_mode = TestSession.Mode.GRAPH;
+    private static final int ROWS = 90;
+    private static final int NUM_SHARDS = 3;
+
+    private static final float[][] labels = new float[ROWS][1];
+    private static final float[][] predictions = new float[ROWS][1];
+    private static final long[] classes = new long[ROWS];
+    private static final long[] predictedClasses = new long[ROWS];
+    private static final float[] weights = new float[ROWS];
+
+    static {
+        // weights are small integers and predictions multiples of 1/16, so
+        // every partial sum is exact and the order of the sums does not matter.
+        Random random = new Random(7);
+        for (int i = 0; i < ROWS; i++) {
+            labels[i][0] = random.nextInt(2);
+            predictions[i][0] = random.nextInt(17) / 16f;
+            classes[i] = random.nextInt(3);
+            predictedClasses[i] = random.nextInt(3);
+            weights[i] = 1 + random.nextInt(3);
+        }
+    }
+
+    private static List<Metric> createMetrics(Ops tf) {
+        return Arrays.asList(
+                new AUC(tf),
+                new Precision(tf, new float[]{0.25f, 0.5f}),
+                new Mean(tf),
+                new MeanIoU(tf, "mean_io_u", 3));
+    }
+
+    /**
+     * Updates the metrics with the rows of one shard, or every row if shard
+     * is negative.
+     */
+    private static void update(TestSession session, Ops tf, List<Metric> metrics, int shard) {
+        List<Integer> rows = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            if (shard < 0 || i % NUM_SHARDS == shard) {
+                rows.add(i);
+            }
+        }
+        int n = rows.size();
+        float[][] shardLabels = new float[n][1];
+        float[][] shardPredictions = new float[n][1];
+        long[] shardClasses = new long[n];
+        long[] shardPredictedClasses = new long[n];
+        float[] shardWeights = new float[n];
+        for (int j = 0; j < n; j++) {
+            int i = rows.get(j);
+            shardLabels[j] = labels[i];
+            shardPredictions[j] = predictions[i];
+            shardClasses[j] = classes[i];
+            shardPredictedClasses[j] = predictedClasses[i];
+            shardWeights[j] = weights[i];
+        }
+        Operand sampleWeight = tf.constant(shardWeights);
+        session.run(metrics.get(0).updateState(tf.constant(shardLabels), tf.constant(shardPredictions),
+                sampleWeight));
+        session.run(metrics.get(1).updateState(tf.constant(shardLabels), tf.constant(shardPredictions),
+                sampleWeight));
+        session.run(metrics.get(2).updateState(tf.constant(shardPredictions), sampleWeight));
+        session.run(metrics.get(3).updateState(tf.constant(shardClasses), tf.constant(shardPredictedClasses),
+                sampleWeight));
+    }
+
+    /**
+     * Builds, but does not run, the update operations, so that every metric
+     * has created its variables.
+     */
+    private static void build(Ops tf, List<Metric> metrics) {
+        Operand values = tf.constant(new float[][]{{0f}});
+        Operand ids = tf.constant(new long[]{0});
+        metrics.get(0).updateState(values, values);
+        metrics.get(1).updateState(values, values);
+        metrics.get(2).updateState(values);
+        metrics.get(3).updateState(ids, ids);
+    }
+
+    /**
+     * Evaluates one shard in its own process and writes the metric snapshots
+     * to a file.
+     */
+    public static class Shard {
+
+        public static void main(String[] args) throws IOException {
+            int shard = Integer.parseInt(args[0]);
+            try (TestSession session = TestSession.createTestSession(tf_mode);
+                    DataOutputStream out = new DataOutputStream(new FileOutputStream(args[1]))) {
+                Ops tf = session.getTF();
+                List<Metric> metrics = createMetrics(tf);
+                session.run(tf.init());
+                session.run(metrics.get(0).initializeVars());
+                update(session, tf, metrics, shard);
+                for (Metric metric : metrics) {
+                    byte[] bytes = MetricState.export(session.getGraphSession(), metric).toByteArray();
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            }
+        }
+    }
+
+    private static List<MetricState> read(File file, int numMetrics) throws IOException {
+        List<MetricState> states = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            for (int i = 0; i < numMetrics; i++) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                states.add(MetricState.fromByteArray(bytes));
+            }
+        }
+        return states;
+    }
+
+    @Test
+    public void test_sharded_processes_match_unsharded(@TempDir File dir) throws Exception {
+        List<Process> processes = new ArrayList<>();
+        File[] files = new File[NUM_SHARDS];
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        for (int shard = 0; shard < NUM_SHARDS; shard++) {
+            files[shard] = new File(dir, "shard" + shard);
+            processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    Shard.class.getName(), String.valueOf(shard), files[shard].getPath())
+                    .inheritIO().start());
+        }
+        for (Process process : processes) {
+            assertTrue(process.waitFor(120, TimeUnit.SECONDS));
+            assertEquals(0, process.exitValue());
+        }
+
+        List<List<MetricState>> shardStates = new ArrayList<>();
+        for (File file : files) {
+            shardStates.add(read(file, 4));
+        }
+
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            List<Metric> unsharded = createMetrics(tf);
+            session.run(tf.init());
+            session.run(unsharded.get(0).initializeVars());
+            update(session, tf, unsharded, -1);
+            List<float[]> expected = new ArrayList<>();
+            List<MetricState> expectedStates = new ArrayList<>();
+            for (Metric metric : unsharded) {
+                expected.add(session.getFloats(metric.result()));
+                expectedStates.add(MetricState.export(session.getGraphSession(), metric));
+            }
+
+            try (TestSession mergedSession = TestSession.createTestSession(tf_mode)) {
+                Ops mtf = mergedSession.getTF();
+                List<Metric> merged = createMetrics(mtf);
+                build(mtf, merged);
+                mergedSession.run(mtf.init());
+                for (int m = 0; m < merged.size(); m++) {
+                    List<MetricState> states = new ArrayList<>();
+                    for (List<MetricState> shard : shardStates) {
+                        states.add(shard.get(m));
+                    }
+                    MetricState state = MetricState.merge(states);
+                    for (String name : state.getVariableNames()) {
+                        assertArrayEquals(expectedStates.get(m).getValues(name), state.getValues(name));
+                    }
+                    mergedSession.run(state.restore(merged.get(m)));
+                    assertArrayEquals(expected.get(m), mergedSession.getFloats(merged.get(m).result()));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_round_trip_and_merge() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            Mean instance = new Mean(tf);
+            session.run(tf.init());
+            session.run(instance.initializeVars());
+            session.run(instance.updateState(tf.constant(new float[]{1, 2, 3, 4})));
+
+            MetricState state = MetricState.export(session.getGraphSession(), instance);
+            MetricState copy = MetricState.fromByteArray(state.toByteArray());
+            assertEquals(state.getVariableNames(), copy.getVariableNames());
+            MetricState merged = MetricState.merge(state, copy);
+            for (String name : state.getVariableNames()) {
+                double[] values = state.getValues(name);
+                double[] mergedValues = merged.getValues(name);
+                for (int i = 0; i < values.length; i++) {
+                    assertEquals(2 * values[i], mergedValues[i]);
+                }
+            }
+            session.run(merged.restore(instance));
+            session.evaluate(2.5f, instance.result());
+
+            assertThrows(IllegalArgumentException.class, () -> MetricState.fromByteArray(new byte[]{1, 2, 3}));
+
+            // an unknown aggregation is reported rather than failing the merge
+            // the aggregation follows the magic number, the variable count and
+            // the first variable name
+            byte[] unknown = copy.toByteArray();
+            int offset = 4 + 4 + 2 + state.getVariableNames().get(0).getBytes(StandardCharsets.UTF_8).length;
+            unknown[offset] = 0x7F;
+            IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                    () -> MetricState.fromByteArray(unknown));
+            assertTrue(ex.getMessage().contains("Unknown aggregation"));
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.tensorflow.EagerSession;
+import org.tensorflow.Graph;
+import org.tensorflow.keras.utils.TestSession;
+import org.tensorflow.op.Ops;
+import org.tensorflow.ndarray.Shape;
+import org.tensorflow.types.TFloat32;
+
+/**
+ *
+ * @author Jim Clarke
+ */
+public class MetricVariableRegistryTest {
+
+    private final TestSession.Mode tf_mode = TestSession.Mode.GRAPH;
+
+    @Test
+    public void test_get_or_create() {
+        MetricVariableRegistry instance = new MetricVariableRegistry();
+        try (Graph graph = new Graph()) {
+            assertNull(instance.get(graph));
+            Map<String, MetricVariable> variables = instance.getOrCreate(graph);
+            assertSame(variables, instance.getOrCreate(graph));
+            assertSame(variables, instance.get(graph));
+            assertEquals(1, instance.size());
+            assertSame(variables, instance.remove(graph));
+            assertNull(instance.get(graph));
+            assertEquals(0, instance.size());
+        }
+    }
+
+    @Test
+    public void test_closed_environments_are_removed() {
+        MetricVariableRegistry instance = new MetricVariableRegistry();
+        Graph closed = new Graph();
+        Ops tf = Ops.create(closed);
+        instance.getOrCreate(closed).put("total", new MetricVariable(tf, "total",
+                tf.variable(Shape.scalar(), TFloat32.DTYPE)));
+        closed.close();
+        try (Graph graph = new Graph()) {
+            instance.getOrCreate(graph);
+            // adding an environment removes the closed one
+            assertNull(instance.get(closed));
+            assertEquals(1, instance.size());
+            assertEquals(0, instance.purge());
+            graph.close();
+            assertEquals(1, instance.purge());
+            assertEquals(0, instance.size());
+        }
+    }
+
+    @Test
+    public void test_eager_sessions_are_removed_explicitly() {
+        MetricVariableRegistry instance = new MetricVariableRegistry();
+        EagerSession session = EagerSession.create();
+        instance.getOrCreate(session);
+        session.close();
+        // a closed eager session is not probed
+        assertEquals(0, instance.purge());
+        assertNotNull(instance.get(session));
+        assertNotNull(instance.remove(session));
+        assertEquals(0, instance.size());
+    }
+
+    /**
+     * Builds and evaluates a graph with several metrics, returning an error
+     * message or null.
+     */
+    private String buildAndEvaluate(int index) {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            Mean mean = new Mean(tf);
+            MeanSquaredError mse = new MeanSquaredError(tf);
+            Precision precision = new Precision(tf, new float[]{0.5f});
+            AUC auc = new AUC(tf);
+            session.run(tf.init());
+            session.run(mean.initializeVars());
+
+            float value = index;
+            session.run(mean.updateState(tf.constant(new float[]{value, value + 2})));
+            session.run(mse.updateState(tf.constant(new float[][]{{0f, 1f}}),
+                    tf.constant(new float[][]{{1f, 1f}})));
+            session.run(precision.updateState(tf.constant(new float[]{1f, 0f}),
+                    tf.constant(new float[]{0.9f, 0.8f})));
+            session.run(auc.updateState(tf.constant(new float[]{1f, 0f}),
+                    tf.constant(new float[]{0.9f, 0.1f})));
+
+            if (mean.getMetricVariables().size() != 2 || auc.getMetricVariables().size() != 4) {
+                return "graph " + index + " is missing metric variables";
+            }
+            session.evaluate(value + 1, mean.result());
+            session.evaluate(0.5f, mse.result());
+            session.evaluate(0.5f, precision.result());
+            session.evaluate(1f, auc.result());
+            return null;
+        } catch (Throwable ex) {
+            return "graph " + index + ": " + ex;
+        }
+    }
+
+    @Test
+    public void test_concurrent_graph_construction() throws Exception {
+        int numThreads = 8;
+        int graphsPerThread = 12;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int t = 0; t < numThreads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    List<String> errors = new ArrayList<>();
+                    for (int g = 0; g < graphsPerThread; g++) {
+                        String error = buildAndEvaluate(thread * graphsPerThread + g);
+                        if (error != null) {
+                            errors.add(error);
+                        }
+                    }
+                    return errors;
+                }));
+            }
+            start.countDown();
+            List<String> errors = new ArrayList<>();
+            for (Future<List<String>> future : futures) {
+                errors.addAll(future.get(5, TimeUnit.MINUTES));
+            }
+            assertTrue(errors.isEmpty(), errors.toString());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
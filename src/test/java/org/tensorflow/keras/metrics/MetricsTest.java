@@ -15,6 +15,7 @@ limitations under the License.
 package org.tensorflow.keras.metrics;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -24,7 +25,9 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
+import org.tensorflow.Graph;
 import org.tensorflow.Operand;
+import org.tensorflow.Operation;
 import org.tensorflow.keras.utils.TestSession;
 import org.tensorflow.ndarray.Shape;
 import org.tensorflow.op.Ops;
@@ -849,6 +852,31 @@ public class MetricsTest {
     }
 
     
+    @Test
+    public void test_functional_metrics_are_stateless() {
+        try (TestSession testSession = TestSession.createTestSession(tf_mode)) {
+            Ops tf = testSession.getTF();
+            Operand y_true = tf.constant(new float[][] {{0f, 1f}, {1f, 0f}});
+            Operand y_pred = tf.constant(new float[][] {{0.4f, 0.6f}, {0.3f, 0.7f}});
+            for (int i = 0; i < 3; i++) {
+                testSession.evaluate(0.5f, Metrics.categorical_accuracy(tf, y_true, y_pred));
+                testSession.evaluate(0.325f, Metrics.mean_squared_error(tf, y_true, y_pred));
+                Metrics.squared_hinge(tf, y_true, y_pred);
+                Metrics.hinge(tf, y_true, y_pred);
+                Metrics.poisson(tf, y_true, y_pred);
+                Metrics.kld(tf, y_true, y_pred);
+                Metrics.binary_accuracy(tf, y_true, y_pred);
+            }
+            Graph graph = (Graph) tf.scope().env();
+            Iterator<Operation> operations = graph.operations();
+            while (operations.hasNext()) {
+                String type = operations.next().type();
+                assertFalse(type.startsWith("Variable"), "functional metrics created a " + type);
+            }
+            assertNull(Metric.variables.get(graph));
+        }
+    }
+    
     @Test
     public void test_accuracy() {
         try (TestSession testSession = TestSession.createTestSession(tf_mode)) {
@@ -21,10 +21,14 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 import org.tensorflow.Operand;
+import org.tensorflow.Tensor;
+import org.tensorflow.keras.utils.SparseLabels;
 import org.tensorflow.keras.utils.TestSession;
 import org.tensorflow.ndarray.Shape;
+import org.tensorflow.ndarray.StdArrays;
 import org.tensorflow.op.Op;
 import org.tensorflow.op.Ops;
+import org.tensorflow.op.core.Placeholder;
 import org.tensorflow.types.TFloat32;
 import org.tensorflow.types.TInt32;
 
@@ -266,6 +270,66 @@ public class PrecisionTest {
         }
     }
     
+    @Test
+    public void test_unweighted_top_k_evenly_distributed_thresholds() {
+        try(TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            // the predictions filtered out by topK fall below every threshold
+            Precision instance = new Precision(tf, new float[] {0f, 0.5f, 1f}, 3, null);
+            session.run(tf.init());
+            session.run(instance.initializeVars());
+            
+            Operand yPred = tf.constant(new float[][] {{0.2f, 0.1f, 0.5f, 0f, 0.2f}});
+            Operand yTrue = tf.constant(new long[][] {{0, 1, 1, 0, 0}});
+            Op update = instance.updateState(yTrue, yPred);
+            session.run(update);
+            Operand precision  = instance.result();
+            session.evaluate(new float[] {1.0f / 3.0f, 0f, 0f}, precision);
+        }
+    }
+    
+    @Test
+    public void test_unweighted_top_k_batch() {
+        try(TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            // set topK to 2
+            Precision instance = new Precision(tf, null, 2, null);
+            session.run(tf.init());
+            session.run(instance.initializeVars());
+            
+            Operand yPred = tf.constant(new float[][] {
+                {0.2f, 0.1f, 0.5f, 0f}, {0.9f, 0.8f, 0.1f, 0.3f}, {0.1f, 0.2f, 0.3f, 0.4f}});
+            Operand yTrue = tf.constant(new long[][] {{0, 1, 1, 0}, {1, 1, 0, 0}, {1, 0, 0, 0}});
+            Op update = instance.updateState(yTrue, yPred);
+            session.run(update);
+            Operand precision  = instance.result();
+            session.evaluate(3.0f / 6.0f, precision);
+        }
+    }
+    
+    @Test
+    public void test_unweighted_top_k_with_dynamic_class_dimension() {
+        try(TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            // set topK to 2
+            Precision instance = new Precision(tf, null, 2, null);
+            session.run(tf.init());
+            session.run(instance.initializeVars());
+            
+            float[][] pred = {{0.2f, 0.1f, 0.5f, 0f}, {0.9f, 0.8f, 0.1f, 0.3f}, {0.1f, 0.2f, 0.3f, 0.4f}};
+            // [?, C] predictions, with the number of classes only known at run time
+            Placeholder<TFloat32> yPred = tf.placeholder(TFloat32.DTYPE,
+                    Placeholder.shape(Shape.of(Shape.UNKNOWN_SIZE, Shape.UNKNOWN_SIZE)));
+            Operand yTrue = tf.constant(new long[][] {{0, 1, 1, 0}, {1, 1, 0, 0}, {1, 0, 0, 0}});
+            Op update = instance.updateState(yTrue, yPred);
+            try (Tensor<TFloat32> feed = TFloat32.tensorOf(StdArrays.ndCopyOf(pred))) {
+                session.getGraphSession().runner().feed(yPred, feed).addTarget(update).run();
+            }
+            Operand precision  = instance.result();
+            session.evaluate(3.0f / 6.0f, precision);
+        }
+    }
+    
     @Test
     public void test_weighted_top_k() {
         try(TestSession session = TestSession.createTestSession(tf_mode)) {
@@ -393,7 +457,26 @@ public class PrecisionTest {
             
         }
     }
-    
-    
-    
+
+    @Test
+    public void test_sparse_labels_match_dense() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            float[] thresholds = {0.3f, 0.65f};
+            Precision dense = new Precision(tf, "dense", thresholds);
+            Precision sparse = new Precision(tf, "sparse", thresholds);
+            session.run(tf.init());
+            session.run(dense.initializeVars());
+            session.run(sparse.initializeVars());
+
+            Operand yPred = tf.constant(new float[][]{
+                {0.1f, 0.7f, 0.4f, 0.2f}, {0.8f, 0.5f, 0.1f, 0.9f}, {0.3f, 0.2f, 0.6f, 0.1f}});
+            Operand sampleWeight = tf.constant(new float[][]{{1f}, {2f}, {0.5f}});
+            session.run(dense.updateState(tf.constant(SparseLabels.DENSE), yPred, sampleWeight));
+            session.run(sparse.updateState(SparseLabels.create(tf), yPred, sampleWeight));
+            // compared by difference, as evaluate(Operand, Operand) fetches the same operand twice
+            session.evaluate(0f, tf.math.abs(tf.math.sub(dense.result(), sparse.result())));
+        }
+    }
+
 }
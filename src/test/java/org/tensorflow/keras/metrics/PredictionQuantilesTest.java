@@ -0,0 +1,82 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.tensorflow.keras.utils.TestSession;
+import org.tensorflow.op.Ops;
+
+/**
+ *
+ * @author Jim Clarke
+ */
+public class PredictionQuantilesTest {
+
+    private final TestSession.Mode tf_mode = TestSession.Mode.GRAPH;
+
+    @Test
+    public void test_signed_predictions() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            PredictionQuantiles instance = new PredictionQuantiles(tf, new float[]{0f, 0.25f, 0.5f, 1f});
+            session.run(tf.init());
+            session.run(instance.initializeVars());
+
+            // -50, -49, ..., 49 in a 2D batch
+            float[][] yPred = new float[10][10];
+            for (int i = 0; i < 100; i++) {
+                yPred[i / 10][i % 10] = i - 50;
+            }
+            float[][] yTrue = new float[10][10];
+            session.run(instance.updateState(tf.constant(yTrue), tf.constant(yPred)));
+            float[] result = session.getFloats(instance.result());
+            float[] expected = {-50f, -26f, -1f, 49f};
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i], result[i], Math.abs(expected[i]) * instance.getRelativeAccuracy());
+            }
+        }
+    }
+
+    @Test
+    public void test_zero_and_clamped_values() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            PredictionQuantiles instance = new PredictionQuantiles(tf, "clamped", new float[]{0f, 0.5f, 1f},
+                    0.01f, 1e-3f, 10f, null);
+            session.run(tf.init());
+            session.run(instance.initializeVars());
+
+            float[] yPred = {1e-5f, 0f, 0f, 1000f};
+            session.run(instance.updateState(tf.constant(new float[4]), tf.constant(yPred)));
+            float[] result = session.getFloats(instance.result());
+            assertEquals(0f, result[0]);
+            assertEquals(0f, result[1]);
+            // values above maxValue are counted in the last bucket.
+            assertEquals(10f, result[2], 10f * 0.01f);
+        }
+    }
+
+    @Test
+    public void test_empty() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            PredictionQuantiles instance = new PredictionQuantiles(tf);
+            session.run(tf.init());
+            session.run(instance.initializeVars());
+            assertArrayEquals(new float[3], session.getFloats(instance.result()));
+        }
+    }
+}
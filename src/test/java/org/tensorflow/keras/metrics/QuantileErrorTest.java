@@ -0,0 +1,129 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics;
+
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.tensorflow.keras.utils.TestSession;
+import org.tensorflow.op.Ops;
+
+/**
+ *
+ * @author Jim Clarke
+ */
+public class QuantileErrorTest {
+
+    private final TestSession.Mode tf_mode = TestSession.Mode.GRAPH;
+
+    private void assertRelative(float expected, float actual, float relativeAccuracy) {
+        assertEquals(expected, actual, Math.abs(expected) * relativeAccuracy,
+                String.format("expected %f within %f, was %f", expected, relativeAccuracy, actual));
+    }
+
+    @Test
+    public void test_unweighted() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            QuantileError instance = new QuantileError(tf, new float[]{0f, 0.5f, 0.95f, 0.99f, 1f});
+            session.run(tf.init());
+            session.run(instance.initializeVars());
+
+            // absolute errors are 0.1, 0.2, ..., 100
+            float[][] yTrue = new float[1000][1];
+            float[][] yPred = new float[1000][1];
+            for (int i = 0; i < 1000; i++) {
+                yTrue[i][0] = i % 2 == 0 ? 10f : -10f;
+                yPred[i][0] = yTrue[i][0] + (i % 2 == 0 ? 1 : -1) * (i + 1) / 10f;
+            }
+            session.run(instance.updateState(tf.constant(yTrue), tf.constant(yPred)));
+            float[] result = session.getFloats(instance.result());
+            float[] expected = {0.1f, 50f, 95f, 99f, 100f};
+            for (int i = 0; i < expected.length; i++) {
+                assertRelative(expected[i], result[i], instance.getRelativeAccuracy());
+            }
+        }
+    }
+
+    @Test
+    public void test_weighted() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            QuantileError instance = new QuantileError(tf, new float[]{0.5f, 0.9f});
+            session.run(tf.init());
+            session.run(instance.initializeVars());
+
+            float[] yTrue = {0f, 0f, 0f, 0f};
+            float[] yPred = {1f, 2f, 3f, 4f};
+            float[] sampleWeight = {1f, 1f, 1f, 7f};
+            session.run(instance.updateState(tf.constant(yTrue), tf.constant(yPred), tf.constant(sampleWeight)));
+            float[] result = session.getFloats(instance.result());
+            assertRelative(4f, result[0], instance.getRelativeAccuracy());
+            assertRelative(4f, result[1], instance.getRelativeAccuracy());
+        }
+    }
+
+    @Test
+    public void test_batches_merge_and_reset() {
+        float[] yTrue = new float[200];
+        float[] yPred = new float[200];
+        for (int i = 0; i < yPred.length; i++) {
+            yPred[i] = (float) Math.exp(i / 20.0);
+        }
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            QuantileError whole = new QuantileError(tf, "whole", QuantileError.DEFAULT_QUANTILES);
+            QuantileError batched = new QuantileError(tf, "batched", QuantileError.DEFAULT_QUANTILES);
+            session.run(tf.init());
+            session.run(whole.initializeVars());
+            session.run(whole.updateState(tf.constant(yTrue), tf.constant(yPred)));
+            session.run(batched.updateState(tf.constant(Arrays.copyOfRange(yTrue, 0, 50)),
+                    tf.constant(Arrays.copyOfRange(yPred, 0, 50))));
+            session.run(batched.updateState(tf.constant(Arrays.copyOfRange(yTrue, 50, 200)),
+                    tf.constant(Arrays.copyOfRange(yPred, 50, 200))));
+            assertArrayEquals(session.getFloats(whole.result()), session.getFloats(batched.result()));
+
+            session.run(batched.resetStates());
+            assertArrayEquals(new float[3], session.getFloats(batched.result()));
+        }
+    }
+
+    @Test
+    public void test_median_absolute_error() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            MedianAbsoluteError instance = new MedianAbsoluteError(tf);
+            session.run(tf.init());
+            session.run(instance.initializeVars());
+
+            float[] yTrue = {1f, 2f, 3f, 4f, 5f};
+            float[] yPred = {1.5f, 0f, 3f, 4.25f, 8f};
+            session.run(instance.updateState(tf.constant(yTrue), tf.constant(yPred)));
+            float[] result = session.getFloats(instance.result());
+            assertEquals(1, result.length);
+            assertRelative(0.5f, result[0], instance.getRelativeAccuracy());
+        }
+    }
+
+    @Test
+    public void test_invalid_arguments() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            assertThrows(IllegalArgumentException.class, () -> new QuantileError(tf, new float[]{1.5f}));
+            assertThrows(IllegalArgumentException.class,
+                    () -> new QuantileError(tf, "error", new float[]{0.5f}, 0f, null));
+        }
+    }
+}
@@ -22,6 +22,7 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 import org.tensorflow.Operand;
+import org.tensorflow.keras.utils.SparseLabels;
 import org.tensorflow.keras.utils.TestSession;
 import org.tensorflow.ndarray.Shape;
 import org.tensorflow.op.Op;
@@ -407,5 +408,26 @@ public class RecallTest {
             Metrics.resetDebug();
         }
     }
-    
+
+    @Test
+    public void test_sparse_labels_match_dense() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            float[] thresholds = {0.3f, 0.65f};
+            Recall dense = new Recall(tf, "dense", thresholds);
+            Recall sparse = new Recall(tf, "sparse", thresholds);
+            session.run(tf.init());
+            session.run(dense.initializeVars());
+            session.run(sparse.initializeVars());
+
+            Operand yPred = tf.constant(new float[][]{
+                {0.1f, 0.7f, 0.4f, 0.2f}, {0.8f, 0.5f, 0.1f, 0.9f}, {0.3f, 0.2f, 0.6f, 0.1f}});
+            Operand sampleWeight = tf.constant(new float[][]{{1f}, {2f}, {0.5f}});
+            session.run(dense.updateState(tf.constant(SparseLabels.DENSE), yPred, sampleWeight));
+            session.run(sparse.updateState(SparseLabels.create(tf), yPred, sampleWeight));
+            // compared by difference, as evaluate(Operand, Operand) fetches the same operand twice
+            session.evaluate(0f, tf.math.abs(tf.math.sub(dense.result(), sparse.result())));
+        }
+    }
+
 }
@@ -0,0 +1,306 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.metrics.host;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.tensorflow.Operand;
+import org.tensorflow.keras.metrics.AUCCurve;
+import org.tensorflow.keras.metrics.AUCSummationMethod;
+import org.tensorflow.keras.metrics.Metric;
+import org.tensorflow.keras.utils.TestSession;
+import org.tensorflow.ndarray.NdArrays;
+import org.tensorflow.ndarray.Shape;
+import org.tensorflow.ndarray.buffer.DataBuffers;
+import org.tensorflow.op.Ops;
+
+/**
+ * Checks the host metrics against the graph metrics.
+ *
+ * @author Jim Clarke
+ */
+public class HostMetricTest {
+
+    private final TestSession.Mode tf_mode = TestSession.Mode.GRAPH;
+    private static final int ROWS = 64;
+    private static final int COLS = 5;
+
+    private final Random random = new Random(42);
+
+    private float[] uniform(int size) {
+        float[] result = new float[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = random.nextFloat();
+        }
+        return result;
+    }
+
+    private float[] integers(int size, int bound) {
+        float[] result = new float[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = random.nextInt(bound);
+        }
+        return result;
+    }
+
+    private float[] oneHot(int rows, int cols) {
+        float[] result = new float[rows * cols];
+        for (int row = 0; row < rows; row++) {
+            result[row * cols + random.nextInt(cols)] = 1f;
+        }
+        return result;
+    }
+
+    private Operand constant(Ops tf, float[] values, int cols) {
+        return tf.constant(Shape.of(values.length / cols, cols), DataBuffers.of(values));
+    }
+
+    private interface GraphMetric {
+
+        Metric create(Ops tf);
+    }
+
+    private void assertParity(HostMetric host, GraphMetric graph, float[] labels, float[] predictions,
+            float[] sampleWeights, int weightCols, float epsilon) {
+        host.update(labels, predictions, sampleWeights, COLS);
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            session.setEpsilon(epsilon);
+            Metric instance = graph.create(tf);
+            session.run(tf.init());
+            session.run(instance.initializeVars());
+            session.run(instance.updateState(constant(tf, labels, COLS),
+                    constant(tf, predictions, COLS), constant(tf, sampleWeights, weightCols)));
+            session.evaluate(host.result(), instance.result());
+        }
+    }
+
+    @Test
+    public void test_mean_and_sum() {
+        float[] values = uniform(ROWS * COLS);
+        float[] weights = uniform(ROWS * COLS);
+        Mean mean = new Mean();
+        Sum sum = new Sum();
+        mean.update(NdArrays.wrap(Shape.of(ROWS, COLS), DataBuffers.of(values)),
+                NdArrays.wrap(Shape.of(ROWS, COLS), DataBuffers.of(weights)));
+        sum.update(values, weights);
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            session.setEpsilon(1e-3f);
+            org.tensorflow.keras.metrics.Mean graphMean = new org.tensorflow.keras.metrics.Mean(tf);
+            org.tensorflow.keras.metrics.Sum graphSum = new org.tensorflow.keras.metrics.Sum(tf);
+            session.run(tf.init());
+            // initializes the variables of every metric in the session
+            session.run(graphMean.initializeVars());
+            session.run(graphMean.updateState(constant(tf, values, COLS), constant(tf, weights, COLS)));
+            session.run(graphSum.updateState(constant(tf, values, COLS), constant(tf, weights, COLS)));
+            session.evaluate(mean.result(), graphMean.result());
+            session.evaluate(sum.result(), graphSum.result());
+        }
+    }
+
+    @Test
+    public void test_regression_metrics() {
+        float[] labels = uniform(ROWS * COLS);
+        float[] predictions = uniform(ROWS * COLS);
+        float[] rowWeights = uniform(ROWS);
+        float[] weights = uniform(ROWS * COLS);
+        assertParity(new MeanSquaredError(), tf -> new org.tensorflow.keras.metrics.MeanSquaredError(tf),
+                labels, predictions, rowWeights, 1, 1e-5f);
+        assertParity(new MeanAbsoluteError(), tf -> new org.tensorflow.keras.metrics.MeanAbsoluteError(tf),
+                labels, predictions, rowWeights, 1, 1e-5f);
+        assertParity(new MeanAbsolutePercentageError(),
+                tf -> new org.tensorflow.keras.metrics.MeanAbsolutePercentageError(tf),
+                labels, predictions, rowWeights, 1, 1e-1f);
+        assertParity(new MeanSquaredLogarithmicError(),
+                tf -> new org.tensorflow.keras.metrics.MeanSquaredLogarithmicError(tf),
+                labels, predictions, rowWeights, 1, 1e-5f);
+        assertParity(new RootMeanSquaredError(), tf -> new org.tensorflow.keras.metrics.RootMeanSquaredError(tf),
+                labels, predictions, weights, COLS, 1e-5f);
+    }
+
+    @Test
+    public void test_accuracy_metrics() {
+        float[] labels = integers(ROWS * COLS, 3);
+        float[] predictions = integers(ROWS * COLS, 3);
+        float[] weights = uniform(ROWS * COLS);
+        assertParity(new Accuracy(), tf -> new org.tensorflow.keras.metrics.Accuracy(tf),
+                labels, predictions, weights, COLS, 1e-5f);
+
+        float[] binaryLabels = integers(ROWS * COLS, 2);
+        float[] scores = uniform(ROWS * COLS);
+        assertParity(new BinaryAccuracy(0.7f), tf -> new org.tensorflow.keras.metrics.BinaryAccuracy(tf, 0.7f),
+                binaryLabels, scores, weights, COLS, 1e-5f);
+
+        float[] oneHot = oneHot(ROWS, COLS);
+        float[] rowWeights = uniform(ROWS);
+        assertParity(new CategoricalAccuracy(), tf -> new org.tensorflow.keras.metrics.CategoricalAccuracy(tf),
+                oneHot, scores, rowWeights, 1, 1e-5f);
+        assertParity(new TopKCategoricalAccuracy(2),
+                tf -> new org.tensorflow.keras.metrics.TopKCategoricalAccuracy(tf, 2),
+                oneHot, scores, rowWeights, 1, 1e-5f);
+    }
+
+    @Test
+    public void test_sparse_accuracy_metrics() {
+        float[] oneHot = oneHot(ROWS, COLS);
+        float[] sparse = new float[ROWS];
+        HostBatch dense = new HostBatch(oneHot, new float[ROWS * COLS], null, COLS);
+        for (int row = 0; row < ROWS; row++) {
+            sparse[row] = dense.argMaxLabel(row);
+        }
+        float[] scores = uniform(ROWS * COLS);
+        float[] rowWeights = uniform(ROWS);
+
+        CategoricalAccuracy categorical = new CategoricalAccuracy();
+        SparseCategoricalAccuracy sparseCategorical = new SparseCategoricalAccuracy();
+        categorical.update(oneHot, scores, rowWeights, COLS);
+        sparseCategorical.update(sparse, scores, rowWeights, COLS);
+        assertEquals(categorical.result(), sparseCategorical.result(), 1e-6f);
+
+        TopKCategoricalAccuracy topK = new TopKCategoricalAccuracy(3);
+        SparseTopKCategoricalAccuracy sparseTopK = new SparseTopKCategoricalAccuracy(3);
+        topK.update(oneHot, scores, rowWeights, COLS);
+        sparseTopK.update(sparse, scores, rowWeights, COLS);
+        assertEquals(topK.result(), sparseTopK.result(), 1e-6f);
+    }
+
+    @Test
+    public void test_precision_recall() {
+        float[] labels = integers(ROWS * COLS, 2);
+        float[] predictions = uniform(ROWS * COLS);
+        float[] weights = uniform(ROWS * COLS);
+        float[] thresholds = {0.7f, 0.3f, 0.5f};
+
+        Precision precision = new Precision(thresholds);
+        Recall recall = new Recall(thresholds);
+        Precision topKPrecision = new Precision("precision", new float[]{0.5f}, 2, null);
+        Recall classRecall = new Recall("recall", new float[]{0.5f}, COLS, 1);
+        precision.update(labels, predictions, weights, COLS);
+        recall.update(labels, predictions, weights, COLS);
+        topKPrecision.update(labels, predictions, weights, COLS);
+        classRecall.update(labels, predictions, COLS);
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            session.setEpsilon(1e-5f);
+            org.tensorflow.keras.metrics.Precision graphPrecision
+                    = new org.tensorflow.keras.metrics.Precision(tf, thresholds.clone());
+            org.tensorflow.keras.metrics.Recall graphRecall
+                    = new org.tensorflow.keras.metrics.Recall(tf, thresholds.clone());
+            org.tensorflow.keras.metrics.Precision graphTopKPrecision
+                    = new org.tensorflow.keras.metrics.Precision(tf, "precision_top_k", 0.5f, 2, null);
+            org.tensorflow.keras.metrics.Recall graphClassRecall
+                    = new org.tensorflow.keras.metrics.Recall(tf, "recall_class_id", 0.5f, COLS, 1);
+            session.run(tf.init());
+            Operand yTrue = constant(tf, labels, COLS);
+            Operand yPred = constant(tf, predictions, COLS);
+            Operand sampleWeight = constant(tf, weights, COLS);
+            // initializes the variables of every metric in the session
+            session.run(graphPrecision.initializeVars());
+            for (Metric metric : new Metric[]{graphPrecision, graphRecall, graphTopKPrecision}) {
+                session.run(metric.updateState(yTrue, yPred, sampleWeight));
+            }
+            session.run(graphClassRecall.updateState(yTrue, yPred));
+            session.evaluate(precision.results(), graphPrecision.result());
+            session.evaluate(recall.results(), graphRecall.result());
+            session.evaluate(topKPrecision.result(), graphTopKPrecision.result());
+            session.evaluate(classRecall.result(), graphClassRecall.result());
+        }
+    }
+
+    @Test
+    public void test_auc() {
+        float[] labels = integers(ROWS * COLS, 2);
+        float[] predictions = uniform(ROWS * COLS);
+        // land some predictions exactly on the thresholds and end points.
+        for (int i = 0; i < 20; i++) {
+            predictions[i] = (i % 10) / 9f;
+        }
+        float[] weights = uniform(ROWS * COLS);
+        assertParity(new AUC(), tf -> new org.tensorflow.keras.metrics.AUC(tf),
+                labels, predictions, weights, COLS, 1e-4f);
+        assertParity(new AUC("auc", 10, AUCCurve.PR, AUCSummationMethod.INTERPOLATION),
+                tf -> new org.tensorflow.keras.metrics.AUC(tf, 10, AUCCurve.PR, AUCSummationMethod.INTERPOLATION),
+                labels, predictions, weights, COLS, 1e-4f);
+        assertParity(new AUC("auc", new float[]{0.8f, 0.25f, 0.5f}, AUCCurve.ROC, AUCSummationMethod.MINORING),
+                tf -> new org.tensorflow.keras.metrics.AUC(tf, new float[]{0.8f, 0.25f, 0.5f},
+                        AUCCurve.ROC, AUCSummationMethod.MINORING),
+                labels, predictions, weights, COLS, 1e-4f);
+    }
+
+    @Test
+    public void test_mean_iou() {
+        float[] labels = integers(ROWS * COLS, 4);
+        float[] predictions = integers(ROWS * COLS, 4);
+        float[] weights = uniform(ROWS * COLS);
+        assertParity(new MeanIoU(4), tf -> new org.tensorflow.keras.metrics.MeanIoU(tf, "mean_io_u", 4) {
+        }, labels, predictions, weights, COLS, 1e-5f);
+    }
+
+    @Test
+    public void test_parallel_accumulation() throws Exception {
+        int rows = 10000;
+        float[] labels = integers(rows * COLS, 2);
+        float[] predictions = uniform(rows * COLS);
+        float[] weights = uniform(rows * COLS);
+
+        AUC sequential = new AUC();
+        sequential.setParallelThreshold(Integer.MAX_VALUE);
+        AUC parallel = new AUC();
+        parallel.setParallelThreshold(128);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                sequential.update(labels, predictions, weights, COLS);
+                futures.add(executor.submit(() -> parallel.update(labels, predictions, weights, COLS)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        double[][] expected = sequential.confusionMatrix();
+        double[][] actual = parallel.confusionMatrix();
+        for (int i = 0; i < expected.length; i++) {
+            assertArrayEquals(expected[i], actual[i], 1e-6);
+        }
+        assertEquals(sequential.result(), parallel.result(), 1e-6f);
+
+        parallel.reset();
+        assertEquals(0f, parallel.result());
+    }
+
+    @Test
+    public void test_invalid_batches() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new MeanSquaredError().update(new float[6], new float[4], 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> new MeanSquaredError().update(new float[4], new float[4], new float[4], 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> new MeanIoU(2).update(new float[]{0, 2}, new float[]{0, 1}, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new Precision().update((float[]) null, new float[4], 2));
+    }
+}
@@ -30,6 +30,7 @@ import static org.tensorflow.keras.optimizers.AdaGrad.INITIAL_ACCUM_KEY;
 import static org.tensorflow.keras.optimizers.AdaGrad.LEARNING_RATE_KEY;
 import static org.tensorflow.keras.optimizers.OptimizerInterface.NAME_KEY;
 import org.tensorflow.keras.utils.ND;
+import org.tensorflow.keras.utils.SparseGradients;
 import org.tensorflow.keras.utils.TestSession;
 import org.tensorflow.ndarray.FloatNdArray;
 import org.tensorflow.ndarray.NdArrays;
@@ -185,4 +186,11 @@ public class AdaGradTest {
         return result;
     }
 
+    @Test
+    public void testSparse() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            AdaGrad instance = new AdaGrad(session.getTF(), 3.0F);
+            SparseGradients.assertDenseMatchesSparse(session, instance, "AdaGradSparseTest");
+        }
+    }
 }
@@ -38,6 +38,7 @@ import static org.tensorflow.keras.optimizers.Adam.LEARNING_RATE_DEFAULT;
 import static org.tensorflow.keras.optimizers.Adam.LEARNING_RATE_KEY;
 import static org.tensorflow.keras.optimizers.OptimizerInterface.NAME_KEY;
 import org.tensorflow.keras.utils.ND;
+import org.tensorflow.keras.utils.SparseGradients;
 import org.tensorflow.keras.utils.TestSession;
 import org.tensorflow.ndarray.FloatNdArray;
 import org.tensorflow.ndarray.NdArrays;
@@ -48,6 +49,7 @@ import org.tensorflow.op.core.Assign;
 import org.tensorflow.op.core.Constant;
 import org.tensorflow.op.core.Variable;
 import org.tensorflow.types.TFloat32;
+import static org.tensorflow.keras.optimizers.Adam.LAZY_KEY;
 
 /**
  *
@@ -253,4 +255,82 @@ public class AdamTest {
 
     }
 
+    @Test
+    public void testSparse() {
+        doTestSparse(false);
+    }
+
+    @Test
+    public void testSparseLazy() {
+        doTestSparse(true);
+    }
+
+    private void doTestSparse(boolean lazy) {
+        int numSteps = 3;
+        float[][] var_init = SparseGradients.VAR_INIT;
+        // row 1 has no gradient
+        float[][] grads_np = SparseGradients.DENSE;
+        boolean[] touched = {true, false, true};
+        // non zero moments, so that the untouched row moves unless lazy
+        float moment_init = 0.1F;
+        float learningRate = 0.001F;
+
+        float[][] var_np = new float[3][2];
+        float[][] m_np = new float[3][2];
+        float[][] v_np = new float[3][2];
+        for (int r = 0; r < 3; r++) {
+            for (int c = 0; c < 2; c++) {
+                var_np[r][c] = var_init[r][c];
+                m_np[r][c] = moment_init;
+                v_np[r][c] = moment_init;
+            }
+        }
+
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            Variable<TFloat32> var = tf.withName("var").variable(Shape.of(3, 2), TFloat32.DTYPE);
+            Assign<TFloat32> varInitializer = tf.assign(var, tf.constant(var_init));
+
+            Adam instance = new Adam(tf, learningRate, BETA_ONE_DEFAULT, BETA_TWO_DEFAULT, EPSILON_DEFAULT, lazy);
+            assertEquals(lazy, instance.isLazy());
+            assertEquals(lazy, instance.getConfig().get(LAZY_KEY));
+
+            List sparseGradsAndVars = new ArrayList<>();
+            sparseGradsAndVars.add(new SparseGradAndVar<>(tf.constant(SparseGradients.VALUES),
+                    tf.constant(SparseGradients.INDICES), var.asOutput()));
+            Op update = instance.applyGradients(new ArrayList<>(), sparseGradsAndVars, "AdamSparseTest");
+
+            Variable<TFloat32> firstMoment = instance.getSlot(var.asOutput(), FIRST_MOMENT).get();
+            Variable<TFloat32> secondMoment = instance.getSlot(var.asOutput(), SECOND_MOMENT).get();
+
+            session.run(varInitializer);
+            session.run(tf.init());
+            session.run(tf.assign(firstMoment, tf.fill(tf.shape(var), tf.constant(moment_init))));
+            session.run(tf.assign(secondMoment, tf.fill(tf.shape(var), tf.constant(moment_init))));
+
+            for (int step = 1; step <= numSteps; step++) {
+                session.run(update);
+
+                float lr_t = (float) (learningRate * Math.sqrt(1 - Math.pow(BETA_TWO_DEFAULT, step))
+                        / (1 - Math.pow(BETA_ONE_DEFAULT, step)));
+                float[] expected = new float[6];
+                for (int r = 0; r < 3; r++) {
+                    for (int c = 0; c < 2; c++) {
+                        if (touched[r] || !lazy) {
+                            float g = grads_np[r][c];
+                            m_np[r][c] = BETA_ONE_DEFAULT * m_np[r][c] + (1 - BETA_ONE_DEFAULT) * g;
+                            v_np[r][c] = BETA_TWO_DEFAULT * v_np[r][c] + (1 - BETA_TWO_DEFAULT) * g * g;
+                            var_np[r][c] -= lr_t * m_np[r][c] / ((float) Math.sqrt(v_np[r][c]) + EPSILON_DEFAULT);
+                        }
+                        expected[r * 2 + c] = var_np[r][c];
+                    }
+                }
+                session.evaluate(expected, var);
+            }
+            if (lazy) {
+                session.evaluate(new float[]{3.0F, 4.0F}, tf.gather(var, tf.constant(1), tf.constant(0)));
+            }
+        }
+    }
+
 }
@@ -0,0 +1,109 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.optimizers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.tensorflow.Session;
+import org.tensorflow.framework.optimizers.Optimizer;
+import org.tensorflow.keras.utils.TestSession;
+import org.tensorflow.op.Op;
+import org.tensorflow.op.Ops;
+import org.tensorflow.op.core.Variable;
+import org.tensorflow.types.TFloat32;
+
+/**
+ * Compares the step time of the optimizers applied variable by variable and
+ * through a {@link FlattenedOptimizer}, for an increasing number of small
+ * variables. Run with
+ * <code>mvn test -Dtest=FlattenedOptimizerBenchmark -Dbenchmark=true</code>.
+ *
+ * @author Jim Clarke
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class FlattenedOptimizerBenchmark {
+
+    private static final int[] VARIABLE_COUNTS = {16, 128, 1024, 4096};
+    private static final int VARIABLE_SIZE = 64;
+    private static final int WARMUP_STEPS = 10;
+    private static final int STEPS = 50;
+
+    private final TestSession.Mode tf_mode = TestSession.Mode.GRAPH;
+
+    /**
+     * Measures the mean time of a step, in milliseconds.
+     */
+    private double measure(Function<Ops, Optimizer> factory, int numVariables, boolean flatten) {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            float[] values = new float[VARIABLE_SIZE];
+            List gradsAndVars = new ArrayList<>();
+            for (int i = 0; i < numVariables; i++) {
+                Variable<TFloat32> variable = tf.withName("var" + i).variable(tf.constant(values));
+                gradsAndVars.add(new Optimizer.GradAndVar<>(
+                        tf.fill(tf.constant(new long[]{VARIABLE_SIZE}), tf.constant(0.01F)).asOutput(),
+                        variable.asOutput()));
+            }
+            Optimizer optimizer = factory.apply(tf);
+            if (flatten) {
+                optimizer = new FlattenedOptimizer(tf, optimizer);
+            }
+            Op update = optimizer.applyGradients(gradsAndVars, "benchmark");
+            session.run(tf.init());
+
+            Session graphSession = session.getGraphSession();
+            for (int step = 0; step < WARMUP_STEPS; step++) {
+                graphSession.runner().addTarget(update).run();
+            }
+            long start = System.nanoTime();
+            for (int step = 0; step < STEPS; step++) {
+                graphSession.runner().addTarget(update).run();
+            }
+            return (System.nanoTime() - start) / 1e6 / STEPS;
+        }
+    }
+
+    private void benchmark(String name, Function<Ops, Optimizer> factory) {
+        System.out.printf("%-10s %10s %14s %14s%n", name, "variables", "per variable", "flattened");
+        for (int numVariables : VARIABLE_COUNTS) {
+            double perVariable = measure(factory, numVariables, false);
+            double flattened = measure(factory, numVariables, true);
+            System.out.printf("%-10s %10d %11.3f ms %11.3f ms%n", "", numVariables, perVariable, flattened);
+        }
+    }
+
+    @Test
+    public void benchmarkSGD() {
+        benchmark("SGD", tf -> new SGD(tf, 0.01F));
+    }
+
+    @Test
+    public void benchmarkMomentum() {
+        benchmark("Momentum", tf -> new SGD(tf, 0.01F, 0.9F));
+    }
+
+    @Test
+    public void benchmarkAdam() {
+        benchmark("Adam", tf -> new Adam(tf, 0.01F));
+    }
+
+    @Test
+    public void benchmarkRMSProp() {
+        benchmark("RMSProp", tf -> new RMSProp(tf, 0.01F));
+    }
+}
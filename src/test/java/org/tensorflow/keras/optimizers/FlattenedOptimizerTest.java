@@ -0,0 +1,152 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.optimizers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.tensorflow.Tensor;
+import org.tensorflow.framework.optimizers.Optimizer;
+import org.tensorflow.keras.utils.TestSession;
+import org.tensorflow.ndarray.Shape;
+import org.tensorflow.op.Op;
+import org.tensorflow.op.Ops;
+import org.tensorflow.op.core.Variable;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.TFloat64;
+
+/**
+ *
+ * @author Jim Clarke
+ */
+public class FlattenedOptimizerTest {
+
+    private final TestSession.Mode tf_mode = TestSession.Mode.GRAPH;
+
+    private final float[][] matrix_init = {{1.0F, 2.0F, 3.0F}, {4.0F, 5.0F, 6.0F}};
+    private final float[] bias_init = {0.1F, -0.2F, 0.3F};
+    private final float scalar_init = 0.5F;
+    private final double[] double_init = {1.0, -1.0};
+
+    private final float[][] matrix_grads = {{0.1F, -0.2F, 0.3F}, {0.0F, 0.5F, -0.6F}};
+    private final float[] bias_grads = {0.01F, 0.02F, -0.03F};
+    private final float scalar_grads = -0.4F;
+    private final double[] double_grads = {0.2, 0.3};
+
+    /**
+     * Applies three steps of an optimizer and returns the values of the
+     * variables, flattened in row major order.
+     */
+    private double[] train(Function<Ops, Optimizer> factory, boolean flatten, int expectedGroups) {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            List<Variable> variables = new ArrayList<>();
+            variables.add(tf.withName("matrix").variable(tf.constant(matrix_init)));
+            variables.add(tf.withName("bias").variable(tf.constant(bias_init)));
+            variables.add(tf.withName("scalar").variable(tf.constant(scalar_init)));
+            variables.add(tf.withName("double").variable(tf.constant(double_init)));
+            List gradsAndVars = new ArrayList<>();
+            gradsAndVars.add(new Optimizer.GradAndVar<>(tf.constant(matrix_grads).asOutput(),
+                    variables.get(0).asOutput()));
+            gradsAndVars.add(new Optimizer.GradAndVar<>(tf.constant(bias_grads).asOutput(),
+                    variables.get(1).asOutput()));
+            gradsAndVars.add(new Optimizer.GradAndVar<>(tf.constant(scalar_grads).asOutput(),
+                    variables.get(2).asOutput()));
+            gradsAndVars.add(new Optimizer.GradAndVar<>(tf.constant(double_grads).asOutput(),
+                    variables.get(3).asOutput()));
+
+            Optimizer optimizer = factory.apply(tf);
+            FlattenedOptimizer flattened = null;
+            if (flatten) {
+                flattened = new FlattenedOptimizer(tf, optimizer);
+                optimizer = flattened;
+            }
+            Op update = optimizer.applyGradients(gradsAndVars, "FlattenedTest");
+            if (flattened != null) {
+                assertEquals(expectedGroups, flattened.getNumGroups());
+            }
+            session.run(tf.init());
+            for (int step = 0; step < 3; step++) {
+                session.run(update);
+            }
+
+            List<Double> values = new ArrayList<>();
+            for (Variable variable : variables) {
+                try (Tensor<?> result = session.getGraphSession().runner().fetch(variable).run().get(0)) {
+                    if (result.dataType() == TFloat64.DTYPE) {
+                        result.expect(TFloat64.DTYPE).data().scalars().forEach(d -> values.add(d.getDouble()));
+                    } else {
+                        result.expect(TFloat32.DTYPE).data().scalars().forEach(f -> values.add((double) f.getFloat()));
+                    }
+                }
+            }
+            double[] result = new double[values.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = values.get(i);
+            }
+            return result;
+        }
+    }
+
+    private void assertSameUpdate(Function<Ops, Optimizer> factory) {
+        double[] expected = train(factory, false, 0);
+        double[] actual = train(factory, true, 2);
+        assertArrayEquals(expected, actual, 1e-6);
+        // the variables have moved
+        assertNotEquals(matrix_init[0][0], actual[0], 1e-4);
+    }
+
+    @Test
+    public void testSGD() {
+        assertSameUpdate(tf -> new SGD(tf, 0.1F));
+        assertSameUpdate(tf -> new SGD(tf, 0.1F, 0.9F, true));
+    }
+
+    @Test
+    public void testAdam() {
+        assertSameUpdate(tf -> new Adam(tf, 0.1F));
+    }
+
+    @Test
+    public void testRMSProp() {
+        assertSameUpdate(tf -> new RMSProp(tf, 0.1F));
+        assertSameUpdate(tf -> new RMSProp(tf, 0.1F, 0.9F, 0.5F, 1e-7F, true));
+    }
+
+    @Test
+    public void testConfig() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            Adam adam = new Adam(tf, 0.1F);
+            FlattenedOptimizer instance = new FlattenedOptimizer(tf, adam);
+            assertSame(adam.getConfig(), instance.getConfig().get(FlattenedOptimizer.OPTIMIZER_KEY));
+            instance.setLearningRate(0.2F);
+            assertEquals(0.2F, adam.getLearningRate());
+            assertThrows(IllegalArgumentException.class, () -> new FlattenedOptimizer(tf,
+                    new SGD(tf, new LearningRate(tf, 0.1F), 0.0F, false, new GradientClipping(1.0F, null, null))));
+        }
+    }
+
+    @Test
+    public void testRejectsOptimizersThatSetTheVariables() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            assertThrows(IllegalArgumentException.class, () -> new FlattenedOptimizer(tf, new Ftrl(tf)));
+            assertThrows(IllegalArgumentException.class, () -> new FlattenedOptimizer(tf, new AdaGradDA(tf)));
+        }
+    }
+}
@@ -32,6 +32,7 @@ import static org.tensorflow.keras.optimizers.Ftrl.L2_SHRINKAGE_REGULARIZATION_S
 import static org.tensorflow.keras.optimizers.Ftrl.LEARNING_RATE_KEY;
 import static org.tensorflow.keras.optimizers.Ftrl.LEARNING_RATE_POWER_KEY;
 import static org.tensorflow.keras.optimizers.OptimizerInterface.NAME_KEY;
+import org.tensorflow.keras.utils.SparseGradients;
 import org.tensorflow.keras.utils.TestSession;
 import org.tensorflow.ndarray.Shape;
 import org.tensorflow.op.Op;
@@ -368,4 +369,12 @@ public class FtrlTest {
         }
     }
 
+    @Test
+    public void testSparse() {
+        float[][] var_init = {{0.0F, 0.0F}, {0.0F, 0.0F}, {0.0F, 0.0F}};
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ftrl instance = new Ftrl(session.getTF(), 3.0F, -0.5F, 0.1F, 0.001F, 2.0F, 0.0F);
+            SparseGradients.assertDenseMatchesSparse(session, instance, var_init, "FtrlSparseTest");
+        }
+    }
 }
@@ -0,0 +1,177 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.optimizers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.tensorflow.Tensor;
+import org.tensorflow.framework.optimizers.Optimizer;
+import org.tensorflow.keras.utils.TestSession;
+import org.tensorflow.ndarray.Shape;
+import org.tensorflow.op.Op;
+import org.tensorflow.op.Ops;
+import org.tensorflow.op.core.Assign;
+import org.tensorflow.op.core.Variable;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.TInt64;
+
+/**
+ *
+ * @author Jim Clarke
+ */
+public class GradientAccumulatorTest {
+
+    private final TestSession.Mode tf_mode = TestSession.Mode.GRAPH;
+
+    private Op applyGradients(Ops tf, Optimizer optimizer, float[] gradient, Variable<TFloat32> var,
+            String name) {
+        List gradsAndVars = new ArrayList<>();
+        gradsAndVars.add(new Optimizer.GradAndVar<>(tf.constant(gradient).asOutput(), var.asOutput()));
+        return optimizer.applyGradients(gradsAndVars, name);
+    }
+
+    @Test
+    public void testSGD() {
+        float[] var0_init = {1.0F, 2.0F};
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            Variable<TFloat32> var0 = tf.withName("var0").variable(Shape.of(2), TFloat32.DTYPE);
+            Assign<TFloat32> var0Initializer = tf.assign(var0, tf.constant(var0_init));
+            GradientAccumulator instance = new GradientAccumulator(tf, new SGD(tf, 0.1F), 2);
+            Op first = applyGradients(tf, instance, new float[]{1.0F, 2.0F}, var0, "first");
+            Op second = applyGradients(tf, instance, new float[]{3.0F, 4.0F}, var0, "second");
+            session.run(var0Initializer);
+            session.run(tf.init());
+
+            // the first micro-batch is only accumulated
+            session.run(first);
+            session.evaluate(var0_init, var0);
+            session.evaluate(1L, instance.getMicroSteps().asOutput());
+
+            // the second applies the mean gradient {2, 3} and zeroes the accumulator
+            session.run(second);
+            session.evaluate(new float[]{0.8F, 1.7F}, var0);
+
+            session.run(first);
+            session.evaluate(new float[]{0.8F, 1.7F}, var0);
+            session.run(first);
+            session.evaluate(new float[]{0.7F, 1.5F}, var0);
+        }
+    }
+
+    @Test
+    public void testAdam() {
+        float[] var0_init = {1.0F, 2.0F};
+        float[] grads0_init = {0.1F, 0.2F};
+        float learningRate = 0.1F;
+        float beta1 = Adam.BETA_ONE_DEFAULT;
+        float beta2 = Adam.BETA_TWO_DEFAULT;
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            Variable<TFloat32> var0 = tf.withName("var0").variable(Shape.of(2), TFloat32.DTYPE);
+            Assign<TFloat32> var0Initializer = tf.assign(var0, tf.constant(var0_init));
+            GradientAccumulator instance = new GradientAccumulator(tf, new Adam(tf, learningRate), 3);
+            Op update = applyGradients(tf, instance, grads0_init, var0, "AdamAccumulateTest");
+            session.run(var0Initializer);
+            session.run(tf.init());
+
+            for (int step = 0; step < 3; step++) {
+                session.evaluate(var0_init, var0);
+                session.run(update);
+            }
+
+            // a single step of Adam with the mean gradient, equal to each
+            // micro-batch gradient
+            float lr = (float) (learningRate * Math.sqrt(1 - beta2) / (1 - beta1));
+            float[] expected = new float[2];
+            for (int i = 0; i < 2; i++) {
+                float m = (1 - beta1) * grads0_init[i];
+                float v = (1 - beta2) * grads0_init[i] * grads0_init[i];
+                expected[i] = var0_init[i] - lr * m / ((float) Math.sqrt(v) + Adam.EPSILON_DEFAULT);
+            }
+            session.evaluate(expected, var0);
+            // the wrapped optimizer ran once, so its beta power advanced once
+            try (Tensor<TFloat32> result = session.getGraphSession().runner().fetch("beta1_power")
+                    .run().get(0).expect(TFloat32.DTYPE)) {
+                assertEquals(beta1 * beta1, result.data().getFloat(), 1e-6F);
+            }
+        }
+    }
+
+    @Test
+    public void testNadam() {
+        float[] var0_init = {1.0F, 2.0F};
+        float[] grads0_init = {0.1F, 0.2F};
+        float beta1 = Nadam.BETA_ONE_DEFAULT;
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            Variable<TFloat32> var0 = tf.withName("var0").variable(Shape.of(2), TFloat32.DTYPE);
+            Assign<TFloat32> var0Initializer = tf.assign(var0, tf.constant(var0_init));
+            GradientAccumulator instance = new GradientAccumulator(tf, new Nadam(tf), 3);
+            Op update = applyGradients(tf, instance, grads0_init, var0, "NadamAccumulateTest");
+            session.run(var0Initializer);
+            session.run(tf.init());
+
+            // the micro-batches leave the state of Nadam unchanged
+            for (int step = 0; step < 2; step++) {
+                session.run(update);
+                session.evaluate(var0_init, var0);
+                assertEquals(1F, fetchFloat(session, "momentum"), 1e-6F);
+                assertEquals(beta1, fetchFloat(session, "beta1_power"), 1e-6F);
+                assertEquals(0L, fetchLong(session, "iterations"));
+            }
+
+            // the last micro-batch applies one step of Nadam
+            session.run(update);
+            float m_t = beta1 * (1F - 0.5F * (float) Math.pow(0.96, 0.004));
+            assertEquals(m_t, fetchFloat(session, "momentum"), 1e-6F);
+            assertEquals(beta1 * beta1, fetchFloat(session, "beta1_power"), 1e-6F);
+            assertEquals(1L, fetchLong(session, "iterations"));
+        }
+    }
+
+    private float fetchFloat(TestSession session, String name) {
+        try (Tensor<TFloat32> result = session.getGraphSession().runner().fetch(name)
+                .run().get(0).expect(TFloat32.DTYPE)) {
+            return result.data().getFloat();
+        }
+    }
+
+    private long fetchLong(TestSession session, String name) {
+        try (Tensor<TInt64> result = session.getGraphSession().runner().fetch(name)
+                .run().get(0).expect(TInt64.DTYPE)) {
+            return result.data().getLong();
+        }
+    }
+
+    @Test
+    public void testConfigAndLearningRate() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            SGD sgd = new SGD(tf, 0.1F);
+            GradientAccumulator instance = new GradientAccumulator(tf, sgd, 4);
+            Map<String, Object> config = instance.getConfig();
+            assertEquals(4L, config.get(GradientAccumulator.STEPS_KEY));
+            assertSame(sgd.getConfig(), config.get(GradientAccumulator.OPTIMIZER_KEY));
+            assertEquals(0.1F, instance.getLearningRate());
+            instance.setLearningRate(0.2F);
+            assertEquals(0.2F, sgd.getLearningRate());
+            assertThrows(IllegalArgumentException.class, () -> new GradientAccumulator(tf, sgd, 0));
+        }
+    }
+}
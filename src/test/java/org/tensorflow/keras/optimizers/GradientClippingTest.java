@@ -0,0 +1,190 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.optimizers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.tensorflow.Operand;
+import org.tensorflow.framework.optimizers.Optimizer;
+import org.tensorflow.keras.utils.TestSession;
+import org.tensorflow.ndarray.Shape;
+import org.tensorflow.op.Op;
+import org.tensorflow.op.Ops;
+import org.tensorflow.op.core.Assign;
+import org.tensorflow.op.core.Variable;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.family.TType;
+
+/**
+ *
+ * @author Jim Clarke
+ */
+public class GradientClippingTest {
+
+    private final TestSession.Mode tf_mode = TestSession.Mode.GRAPH;
+
+    @Test
+    public void testGlobalClipNorm() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            // the global norm is sqrt(9 + 16 + 144) = 13
+            Operand<TFloat32> grads0 = tf.constant(new float[]{3.0F, 4.0F});
+            Operand<TFloat32> grads1 = tf.constant(new float[]{0.0F, 12.0F});
+            List<Operand<? extends TType>> gradients = new ArrayList<>();
+            gradients.add(grads0);
+            gradients.add(grads1);
+
+            GradientClipping instance = new GradientClipping(null, null, 6.5F);
+            Operand<TFloat32> globalScale = instance.getGlobalScale(tf, gradients);
+            session.evaluate(0.5F, globalScale);
+            session.evaluate(new float[]{1.5F, 2.0F}, instance.clip(tf, grads0, globalScale));
+            session.evaluate(new float[]{0.0F, 6.0F}, instance.clip(tf, grads1, globalScale));
+
+            // below the clip norm the gradients are unchanged
+            instance = new GradientClipping(null, null, 26.0F);
+            globalScale = instance.getGlobalScale(tf, gradients);
+            session.evaluate(new float[]{3.0F, 4.0F}, instance.clip(tf, grads0, globalScale));
+        }
+    }
+
+    @Test
+    public void testClipNormAndValue() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            Operand<TFloat32> grads = tf.constant(new float[]{3.0F, -4.0F});
+
+            GradientClipping instance = new GradientClipping(1.0F, null, null);
+            assertNull(instance.getGlobalScale(tf, new ArrayList<>()));
+            session.evaluate(new float[]{0.6F, -0.8F}, instance.clip(tf, grads, null));
+
+            instance = new GradientClipping(null, 3.5F, null);
+            session.evaluate(new float[]{3.0F, -3.5F}, instance.clip(tf, grads, null));
+
+            instance = new GradientClipping(2.5F, 1.5F, null);
+            session.evaluate(new float[]{1.5F, -1.5F}, instance.clip(tf, grads, null));
+
+            assertSame(grads, GradientClipping.NONE.clip(tf, grads, null));
+        }
+    }
+
+    @Test
+    public void testNonFiniteNorm() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            Operand<TFloat32> grads0 = tf.constant(new float[]{Float.POSITIVE_INFINITY, 4.0F});
+            Operand<TFloat32> grads1 = tf.constant(new float[]{0.0F, 12.0F});
+            List<Operand<? extends TType>> gradients = new ArrayList<>();
+            gradients.add(grads0);
+            gradients.add(grads1);
+
+            // an infinite norm gives NaN gradients, not zero gradients
+            GradientClipping instance = new GradientClipping(null, null, 6.5F);
+            Operand<TFloat32> globalScale = instance.getGlobalScale(tf, gradients);
+            session.evaluate(globalScale, value -> Float.isNaN(value.floatValue()));
+            session.evaluate(instance.clip(tf, grads1, globalScale), value -> Float.isNaN(value.floatValue()));
+
+            instance = new GradientClipping(1.0F, null, null);
+            session.evaluate(instance.clip(tf, grads0, null), value -> Float.isNaN(value.floatValue()));
+            session.evaluate(new float[]{0.0F, 1.0F}, instance.clip(tf, grads1, null));
+        }
+    }
+
+    @Test
+    public void testConfig() {
+        GradientClipping instance = new GradientClipping(null, 0.5F, 1.0F);
+        Map<String, Object> config = instance.getConfig();
+        assertEquals(2, config.size());
+        GradientClipping copy = GradientClipping.fromConfig(config);
+        assertNull(copy.getClipNorm());
+        assertEquals(0.5F, copy.getClipValue());
+        assertEquals(1.0F, copy.getGlobalClipNorm());
+
+        assertSame(GradientClipping.NONE, GradientClipping.fromConfig(GradientClipping.NONE.getConfig()));
+        assertFalse(GradientClipping.NONE.isEnabled());
+
+        assertThrows(IllegalArgumentException.class, () -> new GradientClipping(1.0F, null, 1.0F));
+        assertThrows(IllegalArgumentException.class, () -> new GradientClipping(null, -1.0F, null));
+    }
+
+    @Test
+    public void testOptimizerConfig() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            GradientClipping clipping = new GradientClipping(null, 0.5F, 1.0F);
+
+            Adam adam = new Adam(tf, "adam_clip", new LearningRate(tf, 0.01F), 0.9F, 0.999F, 1e-7F, false, clipping);
+            assertEquals(1.0F, adam.getConfig().get(GradientClipping.GLOBAL_CLIP_NORM_KEY));
+            Adam adamCopy = Adam.create(tf, adam.getConfig());
+            assertEquals(adam.getConfig(), adamCopy.getConfig());
+            assertEquals(0.5F, adamCopy.getGradientClipping().getClipValue());
+
+            SGD sgd = new SGD(tf, new LearningRate(tf, 0.01F), 0.9F, false, clipping);
+            SGD sgdCopy = SGD.create(tf, sgd.getConfig());
+            assertEquals(sgd.getConfig(), sgdCopy.getConfig());
+            assertEquals(1.0F, sgdCopy.getGradientClipping().getGlobalClipNorm());
+
+            assertFalse(new RMSProp(tf).getGradientClipping().isEnabled());
+            assertFalse(new RMSProp(tf).getConfig().containsKey(GradientClipping.CLIP_VALUE_KEY));
+        }
+    }
+
+    @Test
+    public void testApplyGlobalClipNorm() {
+        float[] var0_init = {1.0F, 2.0F};
+        float[] var1_init = {3.0F, 4.0F};
+        float learningRate = 3.0F;
+        float initialAccumulatorValue = 0.1F;
+
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            Variable<TFloat32> var0 = tf.withName("var0").variable(Shape.of(2), TFloat32.DTYPE);
+            Variable<TFloat32> var1 = tf.withName("var1").variable(Shape.of(2), TFloat32.DTYPE);
+            Assign<TFloat32> var0Initializer = tf.assign(var0, tf.constant(var0_init));
+            Assign<TFloat32> var1Initializer = tf.assign(var1, tf.constant(var1_init));
+
+            AdaGrad instance = new AdaGrad(tf, new LearningRate(tf, learningRate), initialAccumulatorValue,
+                    new GradientClipping(null, null, 6.5F));
+
+            List gradsAndVars = new ArrayList<>();
+            gradsAndVars.add(new Optimizer.GradAndVar<>(tf.constant(new float[]{3.0F, 4.0F}).asOutput(),
+                    var0.asOutput()));
+            gradsAndVars.add(new Optimizer.GradAndVar<>(tf.constant(new float[]{0.0F, 12.0F}).asOutput(),
+                    var1.asOutput()));
+            Op update = instance.applyGradients(gradsAndVars, "AdaGradClipTest");
+
+            session.run(var0Initializer);
+            session.run(var1Initializer);
+            session.run(tf.init());
+            session.run(update);
+
+            // the gradients are halved to a global norm of 6.5
+            float[] clipped0 = {1.5F, 2.0F};
+            float[] clipped1 = {0.0F, 6.0F};
+            float[] expected0 = new float[2];
+            float[] expected1 = new float[2];
+            for (int i = 0; i < 2; i++) {
+                expected0[i] = var0_init[i] - learningRate * clipped0[i]
+                        / (float) Math.sqrt(initialAccumulatorValue + clipped0[i] * clipped0[i]);
+                expected1[i] = var1_init[i] - learningRate * clipped1[i]
+                        / (float) Math.sqrt(initialAccumulatorValue + clipped1[i] * clipped1[i]);
+            }
+            session.evaluate(expected0, var0);
+            session.evaluate(expected1, var1);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.optimizers;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.tensorflow.Graph;
+import org.tensorflow.Operand;
+import org.tensorflow.keras.optimizers.schedules.ExponentialDecay;
+import org.tensorflow.keras.optimizers.schedules.LearningRateSchedule;
+import org.tensorflow.keras.optimizers.schedules.PiecewiseConstantDecay;
+import org.tensorflow.keras.utils.TestSession;
+import org.tensorflow.op.Op;
+import org.tensorflow.op.Ops;
+import org.tensorflow.types.TFloat32;
+
+/**
+ *
+ * @author Jim Clarke
+ */
+public class LearningRateTest {
+
+    private final TestSession.Mode tf_mode = TestSession.Mode.GRAPH;
+
+    private static int countOperations(Graph graph) {
+        int count = 0;
+        for (Iterator<?> it = graph.operations(); it.hasNext(); it.next()) {
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void testSetLearningRateInGraph() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            Graph graph = (Graph) tf.scope().env();
+            OptimizerInterface[] instances = {
+                new SGD(tf, 0.1F), new Adam(tf, 0.1F), new AdaDelta(tf, 0.1F), new AdaGrad(tf, 0.1F),
+                new AdaGradDA(tf, 0.1F), new Adamax(tf, 0.1F), new Ftrl(tf, 0.1F), new Nadam(tf, 0.1F),
+                new RMSProp(tf, 0.1F)};
+            Operand<TFloat32>[] learningRates = new Operand[instances.length];
+            for (int i = 0; i < instances.length; i++) {
+                learningRates[i] = instances[i].getLearningRateOperand();
+            }
+            session.run(tf.init());
+            for (int i = 0; i < instances.length; i++) {
+                session.evaluate(0.1F, learningRates[i]);
+            }
+
+            int numOperations = countOperations(graph);
+            for (int i = 0; i < instances.length; i++) {
+                instances[i].setLearningRate(session.getGraphSession(), 0.05F * (i + 1));
+            }
+            for (int i = 0; i < instances.length; i++) {
+                assertEquals(0.05F * (i + 1), instances[i].getLearningRate());
+                session.evaluate(0.05F * (i + 1), learningRates[i]);
+            }
+            // changing the learning rate does not add to the graph
+            instances[0].setLearningRate(session.getGraphSession(), 0.01F);
+            assertEquals(numOperations, countOperations(graph));
+            session.evaluate(0.01F, learningRates[0]);
+        }
+    }
+
+    @Test
+    public void testInitialValue() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            SGD instance = new SGD(tf, 0.1F);
+            // before the variable is used, the initial value can still be changed
+            instance.setLearningRate(0.2F);
+            Operand<TFloat32> learningRate = instance.getLearningRateOperand();
+            session.run(tf.init());
+            session.evaluate(0.2F, learningRate);
+        }
+    }
+
+    @Test
+    public void testSchedule() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            LearningRate instance = new LearningRate(tf,
+                    new PiecewiseConstantDecay(tf, new long[]{1, 2}, new float[]{0.1F, 0.05F, 0.01F}));
+            Operand<TFloat32> learningRate = instance.getOperand();
+            List<Op> updates = new ArrayList<>();
+            instance.addUpdates(updates);
+            assertEquals(1, updates.size());
+            session.run(tf.init());
+
+            float[] expected = {0.1F, 0.1F, 0.05F, 0.01F, 0.01F};
+            for (float value : expected) {
+                session.evaluate(value, learningRate);
+                session.run(updates.get(0));
+            }
+            assertEquals(0.1F, instance.getValue());
+            assertThrows(IllegalStateException.class, () -> instance.setValue(0.2F));
+
+            // a float learning rate has no update
+            List<Op> none = new ArrayList<>();
+            new LearningRate(tf, 0.1F).addUpdates(none);
+            assertTrue(none.isEmpty());
+        }
+    }
+
+    @Test
+    public void testScheduleConfig() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            LearningRateSchedule schedule = new ExponentialDecay(tf, 0.1F, 100, 0.96F, true);
+            OptimizerInterface[] instances = {
+                new SGD(tf, new LearningRate(tf, schedule)), new Adam(tf, new LearningRate(tf, schedule)),
+                new AdaDelta(tf, new LearningRate(tf, schedule)), new AdaGrad(tf, new LearningRate(tf, schedule)),
+                new AdaGradDA(tf, new LearningRate(tf, schedule)), new Adamax(tf, new LearningRate(tf, schedule)),
+                new Ftrl(tf, new LearningRate(tf, schedule)), new Nadam(tf, new LearningRate(tf, schedule)),
+                new RMSProp(tf, new LearningRate(tf, schedule))};
+            OptimizerInterface[] copies = {
+                SGD.create(tf, instances[0].getConfig()), Adam.create(tf, instances[1].getConfig()),
+                AdaDelta.create(tf, instances[2].getConfig()), AdaGrad.create(tf, instances[3].getConfig()),
+                AdaGradDA.create(tf, instances[4].getConfig()), Adamax.create(tf, instances[5].getConfig()),
+                Ftrl.create(tf, instances[6].getConfig()), Nadam.create(tf, instances[7].getConfig()),
+                RMSProp.create(tf, instances[8].getConfig())};
+            for (OptimizerInterface copy : copies) {
+                Map<String, Object> config = copy.getConfig();
+                assertEquals(schedule.serialize(), config.get("learning_rate"));
+                assertEquals(0.1F, copy.getLearningRate());
+                assertThrows(IllegalStateException.class, () -> copy.setLearningRate(0.2F));
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.optimizers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.tensorflow.Operand;
+import org.tensorflow.Tensor;
+import org.tensorflow.framework.optimizers.Optimizer;
+import org.tensorflow.keras.utils.TestSession;
+import org.tensorflow.ndarray.Shape;
+import org.tensorflow.op.Op;
+import org.tensorflow.op.Ops;
+import org.tensorflow.op.core.Assign;
+import org.tensorflow.op.core.Variable;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.TInt64;
+
+/**
+ *
+ * @author Jim Clarke
+ */
+public class LossScaleOptimizerTest {
+
+    private final TestSession.Mode tf_mode = TestSession.Mode.GRAPH;
+
+    @Test
+    public void testScaleAndUnscale() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            LossScaleOptimizer instance = new LossScaleOptimizer(tf, new SGD(tf), 8F);
+            assertFalse(instance.isDynamic());
+            assertEquals(0.01F, instance.getLearningRate());
+            session.run(tf.init());
+
+            session.evaluate(12F, instance.getScaledLoss(tf.constant(1.5F)));
+            List<Operand> unscaled = instance.getUnscaledGradients(
+                    Arrays.asList(tf.constant(new float[]{8F, -4F}), tf.constant(new double[]{2.0})));
+            session.evaluate(new float[]{1F, -0.5F}, unscaled.get(0));
+            session.evaluate(0.25, unscaled.get(1));
+        }
+    }
+
+    @Test
+    public void testDynamicScale() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            LossScaleOptimizer instance = new LossScaleOptimizer(tf, new SGD(tf), 4F, 2, true);
+            session.run(tf.init());
+            Operand<TFloat32> lossScale = instance.getLossScale();
+
+            // two finite steps double the scale
+            session.run(instance.updateLossScale(tf.constant(true)));
+            session.evaluate(4F, lossScale);
+            session.run(instance.updateLossScale(tf.constant(true)));
+            session.evaluate(8F, lossScale);
+
+            // a non finite step halves it and restarts the count
+            session.run(instance.updateLossScale(tf.constant(true)));
+            session.run(instance.updateLossScale(tf.constant(false)));
+            session.evaluate(4F, lossScale);
+            session.run(instance.updateLossScale(tf.constant(true)));
+            session.evaluate(4F, lossScale);
+
+            // the scale does not go below 1
+            for (int i = 0; i < 4; i++) {
+                session.run(instance.updateLossScale(tf.constant(false)));
+            }
+            session.evaluate(1F, lossScale);
+
+            assertThrows(IllegalArgumentException.class,
+                    () -> new LossScaleOptimizer(tf, new SGD(tf), 0.5F, 2, true));
+        }
+    }
+
+    @Test
+    public void testNonFiniteStepIsSkipped() {
+        float[] var0_init = {1.0F, 2.0F};
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            Variable<TFloat32> var0 = tf.withName("var0").variable(Shape.of(2), TFloat32.DTYPE);
+            Assign<TFloat32> var0Initializer = tf.assign(var0, tf.constant(var0_init));
+            LossScaleOptimizer instance = new LossScaleOptimizer(tf, new SGD(tf, 0.1F), 4F, 2, true);
+            Variable<TFloat32> grads0 = tf.withName("grads0").variable(Shape.of(2), TFloat32.DTYPE);
+            Op update = applyGradients(tf, instance, grads0, var0, "SGDLossScaleTest");
+            session.run(var0Initializer);
+            session.run(tf.init());
+
+            // a NaN or infinite gradient leaves the variable unchanged and halves the scale
+            session.run(tf.assign(grads0, tf.constant(new float[]{Float.NaN, 0.4F})));
+            session.run(update);
+            session.evaluate(var0_init, var0);
+            session.evaluate(2F, instance.getLossScale());
+            session.run(tf.assign(grads0, tf.constant(new float[]{0.4F, Float.POSITIVE_INFINITY})));
+            session.run(update);
+            session.evaluate(var0_init, var0);
+            session.evaluate(1F, instance.getLossScale());
+
+            // a finite step applies the unscaled gradient
+            session.run(tf.assign(grads0, tf.constant(new float[]{0.4F, 0.8F})));
+            session.run(update);
+            session.evaluate(new float[]{0.96F, 1.92F}, var0);
+        }
+    }
+
+    @Test
+    public void testNadamSkipsNonFiniteStep() {
+        float[] var0_init = {1.0F, 2.0F};
+        float beta1 = Nadam.BETA_ONE_DEFAULT;
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            Variable<TFloat32> var0 = tf.withName("var0").variable(Shape.of(2), TFloat32.DTYPE);
+            Assign<TFloat32> var0Initializer = tf.assign(var0, tf.constant(var0_init));
+            LossScaleOptimizer instance = new LossScaleOptimizer(tf, new Nadam(tf), 4F, 2, true);
+            Variable<TFloat32> grads0 = tf.withName("grads0").variable(Shape.of(2), TFloat32.DTYPE);
+            Op update = applyGradients(tf, instance, grads0, var0, "NadamLossScaleTest");
+            session.run(var0Initializer);
+            session.run(tf.init());
+
+            // the skipped step leaves the state of Nadam unchanged
+            session.run(tf.assign(grads0, tf.constant(new float[]{Float.NaN, 0.4F})));
+            session.run(update);
+            session.evaluate(var0_init, var0);
+            assertEquals(1F, fetchFloat(session, "momentum"), 1e-6F);
+            assertEquals(beta1, fetchFloat(session, "beta1_power"), 1e-6F);
+            assertEquals(0L, fetchLong(session, "iterations"));
+
+            session.run(tf.assign(grads0, tf.constant(new float[]{0.4F, 0.8F})));
+            session.run(update);
+            float m_t = beta1 * (1F - 0.5F * (float) Math.pow(0.96, 0.004));
+            assertEquals(m_t, fetchFloat(session, "momentum"), 1e-6F);
+            assertEquals(beta1 * beta1, fetchFloat(session, "beta1_power"), 1e-6F);
+            assertEquals(1L, fetchLong(session, "iterations"));
+        }
+    }
+
+    private Op applyGradients(Ops tf, Optimizer optimizer, Variable<TFloat32> gradient, Variable<TFloat32> var,
+            String name) {
+        List gradsAndVars = new ArrayList<>();
+        gradsAndVars.add(new Optimizer.GradAndVar<>(tf.identity(gradient).asOutput(), var.asOutput()));
+        return optimizer.applyGradients(gradsAndVars, name);
+    }
+
+    private float fetchFloat(TestSession session, String name) {
+        try (Tensor<TFloat32> result = session.getGraphSession().runner().fetch(name)
+                .run().get(0).expect(TFloat32.DTYPE)) {
+            return result.data().getFloat();
+        }
+    }
+
+    private long fetchLong(TestSession session, String name) {
+        try (Tensor<TInt64> result = session.getGraphSession().runner().fetch(name)
+                .run().get(0).expect(TInt64.DTYPE)) {
+            return result.data().getLong();
+        }
+    }
+}
@@ -115,6 +115,29 @@ public class NadamTest {
         }
     }
 
+    /**
+     * Test that the step is held in the graph, so that the same update
+     * operations advance it on every run.
+     */
+    @Test
+    public void testIterationsInGraph() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            Nadam instance = new Nadam(tf);
+            instance.createSlots(new ArrayList<>());
+            instance.prepare("NadamTest");
+            List<Op> updates = new ArrayList<>();
+            instance.finish(updates, "NadamTest");
+            session.run(tf.init());
+            session.evaluate(0L, instance.getIterations().asOutput());
+            for (int step = 1; step <= 3; step++) {
+                // the increment depends on the other updates
+                session.run(updates.get(updates.size() - 1));
+                session.evaluate((long) step, instance.getIterations().asOutput());
+            }
+        }
+    }
+
     /**
      * Test of applyDense method, of class Nadam.
      */
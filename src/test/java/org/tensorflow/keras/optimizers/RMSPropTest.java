@@ -39,6 +39,7 @@ import static org.tensorflow.keras.optimizers.RMSProp.EPSILON_KEY;
 import static org.tensorflow.keras.optimizers.RMSProp.MOMENTUM_DEFAULT;
 import static org.tensorflow.keras.optimizers.RMSProp.MOMENTUM_KEY;
 import org.tensorflow.keras.utils.ND;
+import org.tensorflow.keras.utils.SparseGradients;
 import org.tensorflow.keras.utils.TestSession;
 import org.tensorflow.ndarray.FloatNdArray;
 import org.tensorflow.ndarray.NdArrays;
@@ -307,4 +308,14 @@ public class RMSPropTest {
         return result;
 
     }
+
+    @Test
+    public void testSparse() {
+        for (boolean centered : new boolean[]{false, true}) {
+            try (TestSession session = TestSession.createTestSession(tf_mode)) {
+                RMSProp instance = new RMSProp(session.getTF(), 0.01F, 0.9F, 0.5F, 1e-7F, centered);
+                SparseGradients.assertDenseMatchesSparse(session, instance, "RMSPropSparseTest");
+            }
+        }
+    }
 }
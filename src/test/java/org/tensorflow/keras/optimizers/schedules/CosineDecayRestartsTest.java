@@ -0,0 +1,63 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.optimizers.schedules;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.tensorflow.keras.utils.TestSession;
+import org.tensorflow.op.Ops;
+
+/**
+ *
+ * @author Jim Clarke
+ */
+public class CosineDecayRestartsTest {
+
+    private final TestSession.Mode tf_mode = TestSession.Mode.GRAPH;
+
+    @Test
+    public void testCall() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            CosineDecayRestarts instance = new CosineDecayRestarts(tf, 1.0F, 10, 2.0F, 0.5F, 0.0F);
+            session.evaluate(1.0F, instance.call(tf.constant(0L)));
+            session.evaluate(0.5F, instance.call(tf.constant(5L)));
+            // the second period starts at step 10, lasts 20 steps and starts at 0.5
+            session.evaluate(0.5F, instance.call(tf.constant(10L)));
+            session.evaluate(0.25F, instance.call(tf.constant(20L)));
+        }
+    }
+
+    @Test
+    public void testConstantPeriod() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            CosineDecayRestarts instance = new CosineDecayRestarts(tf, 1.0F, 10, 1.0F, 1.0F, 0.1F);
+            session.evaluate(0.55F, instance.call(tf.constant(5L)));
+            session.evaluate(0.55F, instance.call(tf.constant(15L)));
+        }
+    }
+
+    @Test
+    public void testConfig() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            CosineDecayRestarts instance = new CosineDecayRestarts(tf, 1.0F, 10, 2.0F, 0.5F, 0.1F);
+            LearningRateSchedule copy = LearningRateSchedule.deserialize(tf, instance.serialize());
+            assertTrue(copy instanceof CosineDecayRestarts);
+            assertEquals(instance.getConfig(), copy.getConfig());
+        }
+    }
+}
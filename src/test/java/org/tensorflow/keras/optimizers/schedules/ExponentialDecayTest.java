@@ -0,0 +1,62 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.optimizers.schedules;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.tensorflow.keras.utils.TestSession;
+import org.tensorflow.op.Ops;
+
+/**
+ *
+ * @author Jim Clarke
+ */
+public class ExponentialDecayTest {
+
+    private final TestSession.Mode tf_mode = TestSession.Mode.GRAPH;
+
+    @Test
+    public void testCall() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            ExponentialDecay instance = new ExponentialDecay(tf, 0.1F, 10, 0.5F);
+            session.evaluate(0.1F, instance.call(tf.constant(0L)));
+            session.evaluate(0.070710678F, instance.call(tf.constant(5L)));
+            session.evaluate(0.025F, instance.call(tf.constant(20L)));
+        }
+    }
+
+    @Test
+    public void testStaircase() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            ExponentialDecay instance = new ExponentialDecay(tf, 0.1F, 10, 0.5F, true);
+            session.evaluate(0.1F, instance.call(tf.constant(9L)));
+            session.evaluate(0.05F, instance.call(tf.constant(15L)));
+        }
+    }
+
+    @Test
+    public void testConfig() {
+        try (TestSession session = TestSession.createTestSession(tf_mode)) {
+            Ops tf = session.getTF();
+            ExponentialDecay instance = new ExponentialDecay(tf, 0.1F, 10, 0.5F, true);
+            LearningRateSchedule copy = LearningRateSchedule.deserialize(tf, instance.serialize());
+            assertTrue(copy instanceof ExponentialDecay);
+            assertEquals(instance.getConfig(), copy.getConfig());
+            assertThrows(IllegalArgumentException.class, () -> new ExponentialDecay(tf, 0.1F, 0, 0.5F));
+        }
+    }
+}
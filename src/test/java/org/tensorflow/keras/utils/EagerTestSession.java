@@ -549,4 +549,12 @@ public class EagerTestSession extends TestSession {
         writer.flush();
     }
 
+    @Override
+    public float[] getFloats(Output<TFloat32> input) {
+        TFloat32 data = input.data();
+        float[] values = new float[(int) data.size()];
+        AtomicInteger index = new AtomicInteger();
+        data.scalars().forEach(f -> values[index.getAndIncrement()] = f.getFloat());
+        return values;
+    }
 }
@@ -707,6 +707,13 @@ public class GraphTestSession extends TestSession {
         writer.flush();
     }
 
-    
-
+    @Override
+    public float[] getFloats(Output<TFloat32> input) {
+        try (Tensor<TFloat32> result = this.getGraphSession().runner().fetch(input).run().get(0).expect(TFloat32.DTYPE)) {
+            float[] values = new float[(int) result.shape().size()];
+            AtomicInteger index = new AtomicInteger();
+            result.data().scalars().forEach(f -> values[index.getAndIncrement()] = f.getFloat());
+            return values;
+        }
+    }
 }
@@ -0,0 +1,110 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import org.tensorflow.framework.optimizers.Optimizer;
+import org.tensorflow.keras.optimizers.SparseGradAndVar;
+import org.tensorflow.keras.optimizers.SparseOptimizerInterface;
+import org.tensorflow.ndarray.Shape;
+import org.tensorflow.op.Op;
+import org.tensorflow.op.Ops;
+import org.tensorflow.op.core.Assign;
+import org.tensorflow.op.core.Variable;
+import org.tensorflow.types.TFloat32;
+
+/**
+ * A sparse gradient over the rows of a <code>[3, 2]</code> variable, and the
+ * same gradient as a dense array, to check that the sparse updates of the
+ * optimizers match the dense ones.
+ *
+ * @author Jim Clarke
+ */
+public class SparseGradients {
+
+    /**
+     * The initial value of the variable, with shape <code>[3, 2]</code>
+     */
+    public static final float[][] VAR_INIT = {{1.0F, 2.0F}, {3.0F, 4.0F}, {5.0F, 6.0F}};
+
+    /**
+     * The rows of the sparse gradient, row 2 is repeated, so its gradients are
+     * summed
+     */
+    public static final int[] INDICES = {2, 0, 2};
+
+    /**
+     * The values of the sparse gradient, one row per index
+     */
+    public static final float[][] VALUES = {{0.1F, 0.2F}, {0.01F, 0.02F}, {0.1F, 0.2F}};
+
+    /**
+     * The dense gradient, with shape <code>[3, 2]</code>, row 1 has no
+     * gradient
+     */
+    public static final float[][] DENSE = {{0.01F, 0.02F}, {0.0F, 0.0F}, {0.2F, 0.4F}};
+
+    /**
+     * Checks that applying the sparse gradient to a variable initialized to
+     * {@link #VAR_INIT} matches applying the dense gradient, over 3 steps.
+     *
+     * @param session the test session the optimizer was created in
+     * @param instance the optimizer
+     * @param name the name of the run target
+     */
+    public static void assertDenseMatchesSparse(TestSession session, SparseOptimizerInterface instance,
+            String name) {
+        assertDenseMatchesSparse(session, instance, VAR_INIT, name);
+    }
+
+    /**
+     * Checks that applying the sparse gradient to a variable matches applying
+     * the dense gradient, over 3 steps.
+     *
+     * @param session the test session the optimizer was created in
+     * @param instance the optimizer
+     * @param varInit the initial value of the variables, with shape
+     * <code>[3, 2]</code>
+     * @param name the name of the run target
+     */
+    public static void assertDenseMatchesSparse(TestSession session, SparseOptimizerInterface instance,
+            float[][] varInit, String name) {
+        int numSteps = 3;
+        Ops tf = session.getTF();
+        Shape shape = Shape.of(3, 2);
+        Variable<TFloat32> denseVar = tf.withName("dense_var").variable(shape, TFloat32.DTYPE);
+        Variable<TFloat32> sparseVar = tf.withName("sparse_var").variable(shape, TFloat32.DTYPE);
+        Assign<TFloat32> denseVarInitializer = tf.assign(denseVar, tf.constant(varInit));
+        Assign<TFloat32> sparseVarInitializer = tf.assign(sparseVar, tf.constant(varInit));
+
+        List gradsAndVars = new ArrayList<>();
+        gradsAndVars.add(new Optimizer.GradAndVar<>(tf.constant(DENSE).asOutput(), denseVar.asOutput()));
+        List sparseGradsAndVars = new ArrayList<>();
+        sparseGradsAndVars.add(new SparseGradAndVar<>(tf.constant(VALUES), tf.constant(INDICES),
+                sparseVar.asOutput()));
+        Op update = instance.applyGradients(gradsAndVars, sparseGradsAndVars, name);
+
+        session.run(denseVarInitializer);
+        session.run(sparseVarInitializer);
+        session.run(tf.init());
+
+        for (int step = 0; step < numSteps; step++) {
+            session.run(update);
+            assertArrayEquals(session.getFloats(denseVar), session.getFloats(sparseVar), 1e-6F);
+        }
+    }
+}
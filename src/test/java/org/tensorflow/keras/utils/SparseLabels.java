@@ -0,0 +1,49 @@
+/* Copyright 2020 The TensorFlow Authors. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+=======================================================================*/
+package org.tensorflow.keras.utils;
+
+import org.tensorflow.keras.backend.tf.SparseTensor;
+import org.tensorflow.op.Ops;
+
+/**
+ * Sparse multi-hot labels over 4 classes for 3 examples, and the same labels
+ * as a dense array, to check that the sparse overloads of losses and metrics
+ * match the dense ones.
+ *
+ * @author Jim Clarke
+ */
+public class SparseLabels {
+
+    /**
+     * The indices of the labels, <code>[row, class]</code>
+     */
+    public static final long[][] INDICES = {{0, 1}, {0, 3}, {1, 0}, {2, 2}};
+
+    /**
+     * The dense labels, with shape <code>[3, 4]</code>
+     */
+    public static final float[][] DENSE = {{0f, 1f, 0f, 1f}, {1f, 0f, 0f, 0f}, {0f, 0f, 1f, 0f}};
+
+    /**
+     * Creates the sparse labels.
+     *
+     * @param tf the TensorFlow Ops
+     * @return the sparse labels, with dense shape <code>[3, 4]</code>
+     */
+    public static SparseTensor create(Ops tf) {
+        return new SparseTensor(tf.constant(INDICES), tf.constant(new float[]{1f, 1f, 1f, 1f}),
+                tf.constant(new long[]{3, 4}));
+    }
+}
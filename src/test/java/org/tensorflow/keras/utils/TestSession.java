@@ -28,6 +28,7 @@ import org.tensorflow.ndarray.FloatNdArray;
 import org.tensorflow.op.Op;
 import org.tensorflow.op.Ops;
 import org.tensorflow.types.TBool;
+import org.tensorflow.types.TFloat32;
 import org.tensorflow.types.TString;
 import org.tensorflow.types.family.TNumber;
 import org.tensorflow.types.family.TType;
@@ -206,6 +207,18 @@ public abstract class TestSession implements AutoCloseable {
         input.scalars().forEach( f  -> assertTrue(predicate.test(f.getFloat())));
     }
     
+    /**
+     * Fetches the values of a float operand, in row-major order.
+     *
+     * @param input the operand
+     * @return the values
+     */
+    public float[] getFloats(Operand<TFloat32> input) {
+        return getFloats(input.asOutput());
+    }
+
+    public abstract float[] getFloats(Output<TFloat32> input);
+
     public <T extends TType> void print(OutputStream out, Operand<T> input) {
         print(new PrintWriter(new OutputStreamWriter(out)), input.asOutput());
     }